@@ -0,0 +1,160 @@
+/*
+ * BioViz, a visualization tool for digital microfluidic biochips (DMFB).
+ *
+ * Copyright (c) 2017 Oliver Keszocze, Jannis Stoppe, Maximilian Luenert
+ *
+ * This file is part of BioViz.
+ *
+ * BioViz is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * BioViz is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * See the GNU General Public License for more details. You should have
+ * received a copy of the GNU
+ * General Public License along with BioViz.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.bioviz.messages;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.freetype.FreeTypeFontGenerator;
+import com.badlogic.gdx.graphics.g2d.freetype.FreeTypeFontGenerator
+		.FreeTypeFontParameter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Caches the bitmap fonts generated from a TrueType font for different sizes.
+ * <p>
+ * Generating a bitmap font rasterizes all of its glyphs into glyph pages,
+ * which is expensive. The fonts are therefore kept once they have been
+ * generated, so that switching back to a previously used size is free. The
+ * TrueType file is read only once as well.
+ *
+ * @author agent
+ */
+final class FontCache {
+
+	/**
+	 * The generator rasterizing the glyphs, null until it is needed first.
+	 */
+	private FreeTypeFontGenerator generator;
+
+	/**
+	 * The TrueType font file, relative to the assets folder.
+	 */
+	private final String fontFile;
+
+	/**
+	 * The color of the generated glyphs.
+	 */
+	private final Color color;
+
+	/**
+	 * The width of the border around the glyphs in pixels.
+	 */
+	private final int borderWidth;
+
+	/**
+	 * Whether mipmaps are generated for the glyph pages.
+	 */
+	private final boolean mipMaps;
+
+	/**
+	 * The generated fonts, mapped from their sizes in pixels.
+	 */
+	private final Map<Integer, BitmapFont> fonts = new HashMap<>();
+
+	/**
+	 * Creates a cache for the fonts generated from a TrueType file.
+	 *
+	 * @param fontFile
+	 * 		The TrueType file, relative to the assets folder
+	 * @param color
+	 * 		The color of the glyphs
+	 * @param borderWidth
+	 * 		The width of the black border around the glyphs, 0 for none
+	 * @param mipMaps
+	 * 		Whether mipmaps are generated for the glyph pages
+	 */
+	FontCache(final String fontFile, final Color color,
+			  final int borderWidth, final boolean mipMaps) {
+		this.fontFile = fontFile;
+		this.color = color.cpy();
+		this.borderWidth = borderWidth;
+		this.mipMaps = mipMaps;
+	}
+
+	/**
+	 * Returns the font of the given size, generating it if necessary.
+	 *
+	 * @param size
+	 * 		The size of the font in pixels
+	 * @return The font of the given size
+	 */
+	BitmapFont get(final int size) {
+		BitmapFont font = fonts.get(size);
+		if (font == null) {
+			font = generate(size);
+			fonts.put(size, font);
+		}
+		return font;
+	}
+
+	/**
+	 * Generates the fonts of the given sizes in advance.
+	 *
+	 * @param sizes
+	 * 		The sizes of the fonts in pixels; non-positive sizes are ignored
+	 */
+	void preload(final int... sizes) {
+		for (final int size : sizes) {
+			if (size > 0) {
+				get(size);
+			}
+		}
+	}
+
+	/**
+	 * Rasterizes the glyphs of the font in the given size.
+	 *
+	 * @param size
+	 * 		The size of the font in pixels
+	 * @return The generated font
+	 */
+	private BitmapFont generate(final int size) {
+		if (generator == null) {
+			generator = new FreeTypeFontGenerator(Gdx.files.internal(fontFile));
+		}
+		FreeTypeFontParameter parameter = new FreeTypeFontParameter();
+		parameter.size = size;
+		parameter.color = color.cpy();
+		if (borderWidth > 0) {
+			parameter.borderWidth = borderWidth;
+			parameter.borderColor = Color.BLACK.cpy();
+		}
+		parameter.genMipMaps = mipMaps;
+		return generator.generateFont(parameter);
+	}
+
+	/**
+	 * Disposes all generated fonts and the generator.
+	 */
+	void dispose() {
+		fonts.values().forEach(BitmapFont::dispose);
+		fonts.clear();
+		if (generator != null) {
+			generator.dispose();
+			generator = null;
+		}
+	}
+}
@@ -32,12 +32,12 @@ public class HUDMessage extends MessageBase {
 	/**
 	 * The message's x-position.
 	 */
-	public final float x;
+	public float x;
 
 	/**
 	 * The messages's y-position.
 	 */
-	public final float y;
+	public float y;
 
 
 	/**
@@ -0,0 +1,232 @@
+/*
+ * BioViz, a visualization tool for digital microfluidic biochips (DMFB).
+ *
+ * Copyright (c) 2017 Oliver Keszocze, Jannis Stoppe, Maximilian Luenert
+ *
+ * This file is part of BioViz.
+ *
+ * BioViz is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * BioViz is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * See the GNU General Public License for more details. You should have
+ * received a copy of the GNU
+ * General Public License along with BioViz.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.bioviz.messages;
+
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+
+/**
+ * Retained set of labels that are displayed on top of the elements of an
+ * assay.
+ * <p>
+ * Every label belongs to an owner (e.g. a field or a droplet) and stays in
+ * the layer until its owner removes it. Owners only need to update their
+ * label when its text or position changes; the {@link MessageCenter} draws
+ * all labels of the current assay in one pass. Positions are stored in cell
+ * coordinates and translated to the screen with the view set via {@link
+ * #setView(float, float, float)}, so panning and zooming do not require any
+ * label to be touched.
+ *
+ * @author agent
+ */
+public final class LabelLayer {
+
+	/**
+	 * The labels, identified by their owners.
+	 */
+	private final Map<Object, Label> labels = new IdentityHashMap<>();
+
+	/**
+	 * The scale used to translate cell coordinates to the screen.
+	 */
+	private float scale = 1f;
+
+	/**
+	 * The x offset used to translate cell coordinates to the screen.
+	 */
+	private float offsetX = 0f;
+
+	/**
+	 * The y offset used to translate cell coordinates to the screen.
+	 */
+	private float offsetY = 0f;
+
+	/**
+	 * Sets the label of an owner to a position given in cells.
+	 *
+	 * @param owner
+	 * 		The object the label belongs to
+	 * @param text
+	 * 		The text of the label; null removes the label
+	 * @param x
+	 * 		The x coordinate of the center of the label in cells
+	 * @param y
+	 * 		The y coordinate of the center of the label in cells
+	 */
+	public void setLabel(final Object owner, final String text,
+						 final float x, final float y) {
+		set(owner, text, x, y, true);
+	}
+
+	/**
+	 * Sets the label of an owner to a fixed position on the screen.
+	 * <p>
+	 * This is meant for elements that are not placed on the chip, e.g.
+	 * hidden droplets.
+	 *
+	 * @param owner
+	 * 		The object the label belongs to
+	 * @param text
+	 * 		The text of the label; null removes the label
+	 * @param x
+	 * 		The x coordinate of the center of the label on the screen
+	 * @param y
+	 * 		The y coordinate of the center of the label on the screen
+	 */
+	public void setScreenLabel(final Object owner, final String text,
+							   final float x, final float y) {
+		set(owner, text, x, y, false);
+	}
+
+	/**
+	 * Creates, updates or removes the label of an owner.
+	 *
+	 * @param owner
+	 * 		The object the label belongs to
+	 * @param text
+	 * 		The text of the label; null removes the label
+	 * @param x
+	 * 		The x coordinate of the center of the label
+	 * @param y
+	 * 		The y coordinate of the center of the label
+	 * @param inCells
+	 * 		Whether the coordinates are given in cells
+	 */
+	private void set(final Object owner, final String text,
+					 final float x, final float y, final boolean inCells) {
+		if (text == null) {
+			labels.remove(owner);
+			return;
+		}
+		Label label = labels.get(owner);
+		if (label == null) {
+			label = new Label(text);
+			labels.put(owner, label);
+		} else {
+			// the cached layout of the label is kept as long as the text
+			// does not change
+			label.message = text;
+		}
+		label.x = x;
+		label.y = y;
+		label.inCells = inCells;
+	}
+
+	/**
+	 * Removes the label of an owner.
+	 *
+	 * @param owner
+	 * 		The object whose label is to be removed
+	 */
+	public void removeLabel(final Object owner) {
+		labels.remove(owner);
+	}
+
+	/**
+	 * Removes all labels.
+	 */
+	public void clear() {
+		labels.clear();
+	}
+
+	/**
+	 * Sets the view used to translate cell coordinates to the screen.
+	 *
+	 * @param scale
+	 * 		The size of a cell on the screen
+	 * @param offsetX
+	 * 		The x offset of the chip in cells
+	 * @param offsetY
+	 * 		The y offset of the chip in cells
+	 */
+	public void setView(final float scale, final float offsetX,
+						final float offsetY) {
+		this.scale = scale;
+		this.offsetX = offsetX;
+		this.offsetY = offsetY;
+	}
+
+	/**
+	 * Returns all labels of this layer.
+	 *
+	 * @return The labels of this layer
+	 */
+	Collection<Label> getLabels() {
+		return labels.values();
+	}
+
+	/**
+	 * Computes the x coordinate of a label on the screen.
+	 *
+	 * @param label
+	 * 		The label whose position is requested
+	 * @return The x coordinate of the label on the screen
+	 */
+	float screenX(final Label label) {
+		return label.inCells ? (label.x + offsetX) * scale : label.x;
+	}
+
+	/**
+	 * Computes the y coordinate of a label on the screen.
+	 *
+	 * @param label
+	 * 		The label whose position is requested
+	 * @return The y coordinate of the label on the screen
+	 */
+	float screenY(final Label label) {
+		return label.inCells ? (label.y + offsetY) * scale : label.y;
+	}
+
+	/**
+	 * A single label of the layer.
+	 */
+	static final class Label extends MessageBase {
+
+		/**
+		 * The x coordinate of the center of the label.
+		 */
+		private float x;
+
+		/**
+		 * The y coordinate of the center of the label.
+		 */
+		private float y;
+
+		/**
+		 * Whether the position is given in cells instead of on the screen.
+		 */
+		private boolean inCells;
+
+		/**
+		 * Creates a label with the given text.
+		 *
+		 * @param text
+		 * 		The text of the label
+		 */
+		private Label(final String text) {
+			super(text);
+		}
+	}
+}
@@ -23,6 +23,9 @@
 package de.bioviz.messages;
 
 import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.GlyphLayout;
+import com.badlogic.gdx.utils.Align;
 
 
 /**
@@ -40,6 +43,22 @@ class MessageBase {
 	 */
 	public Color color;
 
+	/**
+	 * The cached layout of the message, null if it has not been laid out yet.
+	 */
+	private GlyphLayout layout;
+
+	/**
+	 * The font the cached layout has been computed for.
+	 */
+	private BitmapFont layoutFont;
+
+	/**
+	 * The text the cached layout has been computed for.
+	 */
+	private String layoutText;
+
+
 	/**
 	 * Creates a message that will be printed in white.
 	 *
@@ -50,4 +69,26 @@ class MessageBase {
 		this.color = Color.WHITE.cpy();
 	}
 
+	/**
+	 * Returns the layout of the message for the given font.
+	 * <p>
+	 * The message is laid out in white; the color of the message is applied
+	 * when drawing it. The layout is cached and only computed again if the
+	 * text or the font have changed since the last call.
+	 *
+	 * @param font The font to lay out the message with
+	 * @return The layout of the message
+	 */
+	GlyphLayout getLayout(final BitmapFont font) {
+		if (layout == null) {
+			layout = new GlyphLayout();
+		}
+		if (font != layoutFont || !message.equals(layoutText)) {
+			layout.setText(font, message, Color.WHITE, 0, Align.left, false);
+			layoutFont = font;
+			layoutText = message;
+		}
+		return layout;
+	}
+
 }
@@ -26,13 +26,11 @@ import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.GlyphLayout;
-import com.badlogic.gdx.graphics.g2d.freetype.FreeTypeFontGenerator;
-import com.badlogic.gdx.graphics.g2d.freetype.FreeTypeFontGenerator
-		.FreeTypeFontParameter;
 import com.badlogic.gdx.math.Matrix4;
 
 import de.bioviz.ui.BDisplayOptions;
 import de.bioviz.ui.BioViz;
+import de.bioviz.ui.DrawableAssay;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -152,6 +150,46 @@ public class MessageCenter {
 	 */
 	private boolean fontInvalidated = true;
 
+	/**
+	 * The fonts used for HUD messages, one per text render resolution.
+	 */
+	private final FontCache hudFonts = new FontCache(
+			"images/FreeUniversal-Regular.ttf", Color.WHITE, 2, true);
+
+	/**
+	 * The fonts used for logging messages, one per text render resolution.
+	 */
+	private final FontCache messageFonts = new FontCache(
+			"images/Anonymous_Pro.ttf", Color.BLACK, 0, false);
+
+	/**
+	 * The projection used to draw text in screen coordinates.
+	 * <p>
+	 * It is only recomputed when the size of the window changes.
+	 */
+	private final Matrix4 normalProjection = new Matrix4();
+
+	/**
+	 * The window width the normalProjection has been computed for.
+	 */
+	private int projectionWidth = -1;
+
+	/**
+	 * The window height the normalProjection has been computed for.
+	 */
+	private int projectionHeight = -1;
+
+	/**
+	 * The color of the HUD message that is currently being drawn.
+	 */
+	private final Color hudColor = new Color();
+
+	/**
+	 * A status line that is displayed in the upper right corner of the
+	 * screen, null if there is none.
+	 */
+	private MessageBase statusMessage = null;
+
 
 	/**
 	 * Creates a new message center that will pass messages to a BioViz
@@ -232,29 +270,18 @@ public class MessageCenter {
 	private BitmapFont getFont() {
 		if (fontInvalidated) {
 			fontInvalidated = false;
-			FreeTypeFontGenerator generator = new FreeTypeFontGenerator(
-					Gdx.files.internal("images/FreeUniversal-Regular.ttf"));
-			FreeTypeFontParameter parameter = new FreeTypeFontParameter();
-			parameter.size = (int) textRenderResolution;
-			parameter.color = Color.WHITE.cpy();
-			parameter.borderWidth = 2;
-			parameter.borderColor = Color.BLACK.cpy();
-			parameter.genMipMaps = true;
-			BitmapFont font12 =
-					generator.generateFont(parameter); // font size 12 pixels
-			generator.dispose(); // don't forget to dispose to avoid memory
-			// leaks!
-
-			generator = new FreeTypeFontGenerator(
-					Gdx.files.internal("images/Anonymous_Pro.ttf"));
-			parameter = new FreeTypeFontParameter();
-			parameter.size = (int) msgTextRenderResolution;
-			parameter.color = Color.BLACK.cpy();
-			this.messageFont = generator.generateFont(parameter);
-			generator.dispose();
-			logger.debug("set up font");
+			final int hudSize = (int) textRenderResolution;
+			final int msgSize = (int) msgTextRenderResolution;
+			final int step = (int) SCALEINCSTEP;
+
+			font = hudFonts.get(hudSize);
+			messageFont = messageFonts.get(msgSize);
 
-			font = font12; //new BitmapFont();
+			// generate the glyphs of the sizes that are one key stroke away
+			// in advance so that scaling the text does not stall a frame
+			hudFonts.preload(hudSize - step, hudSize + step);
+			messageFonts.preload(msgSize - step, msgSize + step);
+			logger.debug("set up font");
 		}
 		return font;
 	}
@@ -282,6 +309,62 @@ public class MessageCenter {
 		if (messages.size() > MAX_MESSAGES_IN_UI) {
 			messages.remove(0);
 		}
+
+		parent.requestRendering();
+	}
+
+	/**
+	 * Checks whether there are messages that have not yet expired.
+	 * <p>
+	 * As long as there are such messages, new frames need to be drawn in
+	 * order to remove them from the screen once they have expired.
+	 *
+	 * @return true if messages are displayed
+	 */
+	public boolean hasMessages() {
+		return !hidden && !messages.isEmpty();
+	}
+
+	/**
+	 * Sets the status line displayed in the upper right corner.
+	 *
+	 * @param status
+	 * 		The status to display, null removes the status line
+	 */
+	public void setStatusMessage(final String status) {
+		if (status == null) {
+			statusMessage = null;
+		} else if (statusMessage == null) {
+			statusMessage = new MessageBase(status);
+		} else {
+			statusMessage.message = status;
+		}
+	}
+
+	/**
+	 * Computes the transparency of the HUD messages.
+	 * <p>
+	 * If the HideTextOnZoom option is set, the messages fade out when zooming
+	 * out.
+	 *
+	 * @return The alpha value of the HUD messages
+	 */
+	private float getHUDTextAlpha() {
+		if (parent.currentAssay.getDisplayOptions().getOption(
+				BDisplayOptions.HideTextOnZoom)) {
+			// Hide when zoomed out
+			float hideAt = textRenderResolution;
+			float showAt = textRenderResolution * 2;
+			float xScale = this.parent.currentAssay.getScaleX();
+
+			if (xScale < hideAt) {
+				return 0f;
+			} else if (xScale < showAt) {
+				float val = (xScale - hideAt) / (showAt - hideAt);
+				return val * getDefaultTextTransparency();
+			}
+		}
+		return getDefaultTextTransparency();
 	}
 
 	/**
@@ -296,78 +379,121 @@ public class MessageCenter {
 			getFont();
 		}
 
-		Matrix4 normalProjection =
-				new Matrix4().setToOrtho2D(0, 0, Gdx.graphics.getWidth(),
-										   Gdx.graphics.getHeight());
+		final int width = Gdx.graphics.getWidth();
+		final int height = Gdx.graphics.getHeight();
+		if (width != projectionWidth || height != projectionHeight) {
+			normalProjection.setToOrtho2D(0, 0, width, height);
+			projectionWidth = width;
+			projectionHeight = height;
+		}
 
 		int spacing = 2 + (int) getmsgTextRenderResolution();
-		int yCoord = Gdx.graphics.getHeight() - spacing;
+		int yCoord = height - spacing;
 		for (final Message m : this.messages) {
-			if (m.color != null) {
-				messageFont.setColor(m.color);
-			} else {
-				messageFont.setColor(Color.WHITE);
-			}
+			Color col = m.color != null ? m.color : Color.WHITE;
 			int startX = spacing;
 			int startY = yCoord;
 			parent.batch.drawMessage(
-					messageFont, m.message, startX, startY,
+					messageFont, m.getLayout(messageFont), col, startX, startY,
 					normalProjection, DEFAULT_Z);
 			yCoord -= spacing;
 		}
 
+		if (statusMessage != null) {
+			final GlyphLayout layout =
+					statusMessage.getLayout(messageFont);
+			parent.batch.drawMessage(
+					messageFont, layout,
+					width - layout.width - spacing,
+					height - spacing,
+					normalProjection, DEFAULT_Z);
+		}
 
-		final float fullyTransparent = 0f;
-		for (final HUDMessage s : this.hudMessages.values()) {
-			Color targetColor = s.color.cpy();
-
-			float hideAt = textRenderResolution;
-			float showAt = textRenderResolution * 2;
-			if (parent.currentAssay.getDisplayOptions().getOption(
-					BDisplayOptions.HideTextOnZoom)) {
-				// Hide when zoomed out
-
-
-				float xScale = this.parent.currentAssay.getScaleX();
-
-				if (xScale < hideAt) {
-					targetColor.a = fullyTransparent;
-				} else if (xScale < showAt) {
-					float val = xScale;
-					val = (val - hideAt) / (showAt - hideAt);
-					targetColor.a = val * getDefaultTextTransparency();
-				} else {
-					targetColor.a = getDefaultTextTransparency();
-				}
-			} else {
-				targetColor.a = getDefaultTextTransparency();
-			}
-
-			font.setColor(targetColor);
+		renderHUDMessages(width / 2f, height / 2f);
 
-			if (targetColor.a > fullyTransparent) {
+		while (
+				!this.messages.isEmpty() &&
+				this.messages.get(0).expired()
+				) {
+			this.messages.remove(0);
+		}
+	}
 
-				final GlyphLayout layout = new GlyphLayout(font, s
-						.message);
+	/**
+	 * Renders the messages and the labels of the current assay that are
+	 * displayed on top of the circuit.
+	 *
+	 * @param halfWidth
+	 * 		half of the width of the window
+	 * @param halfHeight
+	 * 		half of the height of the window
+	 */
+	private void renderHUDMessages(final float halfWidth,
+								   final float halfHeight) {
+		final float textAlpha = getHUDTextAlpha();
+		if (textAlpha <= 0f) {
+			return;
+		}
 
-				final float fontX = s.x -
-									layout.width / 2f +
-									Gdx.graphics.getWidth() / 2f;
-				final float fontY = s.y +
-									layout.height / 2f +
-									Gdx.graphics.getHeight() / 2f;
+		for (final HUDMessage s : this.hudMessages.values()) {
+			drawHUDText(s, s.x, s.y, textAlpha, halfWidth, halfHeight);
+		}
 
-				parent.batch.drawMessage(font, layout, fontX, fontY,
-										 normalProjection, DEFAULT_Z);
+		final DrawableAssay assay = parent.currentAssay;
+		if (assay != null) {
+			final LabelLayer labels = assay.getLabels();
+			for (final LabelLayer.Label l : labels.getLabels()) {
+				drawHUDText(l, labels.screenX(l), labels.screenY(l),
+							textAlpha, halfWidth, halfHeight);
 			}
 		}
+	}
 
-		while (
-				!this.messages.isEmpty() &&
-				this.messages.get(0).expired()
-				) {
-			this.messages.remove(0);
+	/**
+	 * Draws a single text centered at a position on the screen.
+	 *
+	 * @param s
+	 * 		the text to draw
+	 * @param x
+	 * 		the x coordinate of the center of the text
+	 * @param y
+	 * 		the y coordinate of the center of the text
+	 * @param textAlpha
+	 * 		the transparency of the text
+	 * @param halfWidth
+	 * 		half of the width of the window
+	 * @param halfHeight
+	 * 		half of the height of the window
+	 */
+	private void drawHUDText(final MessageBase s, final float x,
+							 final float y, final float textAlpha,
+							 final float halfWidth, final float halfHeight) {
+
+		// skip texts that are certainly outside of the screen before any
+		// layout is computed; no character (or line) of a text is larger
+		// than the render resolution
+		final float extent = s.message.length() * textRenderResolution;
+		if (Math.abs(x) - extent > halfWidth ||
+			Math.abs(y) - extent > halfHeight) {
+			return;
 		}
+
+		hudColor.set(s.color);
+		hudColor.a = textAlpha;
+
+		// the layout is reused until the text or the font changes, the color
+		// is applied when drawing
+		final GlyphLayout layout = s.getLayout(font);
+
+		final float fontX = x -
+							layout.width / 2f +
+							halfWidth;
+		final float fontY = y +
+							layout.height / 2f +
+							halfHeight;
+
+		parent.batch.drawMessage(font, layout, hudColor, fontX, fontY,
+								 normalProjection, DEFAULT_Z);
 	}
 
 	/**
@@ -408,9 +534,19 @@ public class MessageCenter {
 	public void addHUDMessage(final int key, final String message,
 							  final float x, final float y,
 							  final Color col) {
-		HUDMessage hm;
-		hm = new HUDMessage(message, x, y);
-		hudMessages.put(key, hm);
+		HUDMessage hm = hudMessages.get(key);
+		if (hm == null) {
+			hm = new HUDMessage(message, x, y);
+			hudMessages.put(key, hm);
+		} else {
+			// keep the message (and its cached layout) and only update it
+			hm.message = message;
+			hm.x = x;
+			hm.y = y;
+			if (col == null && !Color.WHITE.equals(hm.color)) {
+				hm.color = Color.WHITE.cpy();
+			}
+		}
 
 		if (col != null) {
 			hm.color = col;
@@ -535,6 +671,17 @@ public class MessageCenter {
 		setmsgTextRenderResolution(scaleMsg);
 	}
 
+	/**
+	 * Disposes all fonts.
+	 */
+	public void dispose() {
+		hudFonts.dispose();
+		messageFonts.dispose();
+		font = null;
+		messageFont = null;
+		fontInvalidated = true;
+	}
+
 	/**
 	 * Retrieves the default text transparency.
 	 *
@@ -24,11 +24,18 @@ package de.bioviz.parser;
 
 
 import de.bioviz.parser.generated.Bio;
+import de.bioviz.parser.generated.Bio.BioContext;
 import de.bioviz.parser.generated.BioLexerGrammar;
 import de.bioviz.structures.Biochip;
 import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenFactory;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.NoViableAltException;
+import org.antlr.v4.runtime.Parser;
 import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.UnbufferedCharStream;
+import org.antlr.v4.runtime.UnbufferedTokenStream;
 import org.antlr.v4.runtime.tree.ParseTree;
 import org.antlr.v4.runtime.tree.ParseTreeWalker;
 import org.slf4j.Logger;
@@ -36,8 +43,14 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -68,6 +81,21 @@ public final class BioParser {
 	 * @return Biochip as described in the file, null if not parsable
 	 */
 	public static Biochip parseFile(final File file) {
+		return parseFile(file, new ParseTimings());
+	}
+
+	/**
+	 * Parses a file in BioGram format and records how long the parse took.
+	 *
+	 * @param file
+	 * 		File to parse into a biochip
+	 * @param timings
+	 * 		Receives the time spent in the parse and validation phases
+	 * @return Biochip as described in the file, null if not parsable
+	 */
+	public static Biochip parseFile(final File file,
+									final ParseTimings timings) {
+		long start = System.nanoTime();
 		String content;
 		try {
 			content = new String(Files.readAllBytes(Paths.get(file.toURI())));
@@ -75,7 +103,113 @@ public final class BioParser {
 			logger.error("Failed to parse file \"{}\".", file);
 			return null;
 		}
-		return parse(content);
+		timings.addParseNanos(System.nanoTime() - start);
+		return parse(content, timings);
+	}
+
+	/**
+	 * Parses a file in BioGram format without reading it into memory first.
+	 *
+	 * @param file
+	 * 		File to parse into a biochip
+	 * @return Biochip as described in the file, null if not parsable
+	 * @see #parseFileStreaming(File, ParseTimings)
+	 */
+	public static Biochip parseFileStreaming(final File file) {
+		return parseFileStreaming(file, new ParseTimings());
+	}
+
+	/**
+	 * Parses a file in BioGram format without reading it into memory first.
+	 * <p>
+	 * In contrast to {@link #parseFile(File, ParseTimings)}, the file is
+	 * lexed directly from a channel and neither the whole token stream nor
+	 * the whole parse tree are kept. Routes are turned into droplets as soon
+	 * as they are parsed and the annotations are collected in the same lexer
+	 * pass. This keeps the peak memory usage low for files containing huge
+	 * amounts of routes.
+	 * <p>
+	 * As the chip elements are collected during the parse, the parse phase
+	 * of the timings includes creating them. The validation phase covers
+	 * building and validating the biochip.
+	 *
+	 * @param file
+	 * 		File to parse into a biochip
+	 * @param timings
+	 * 		Receives the time spent in the parse and validation phases
+	 * @return Biochip as described in the file, null if not parsable
+	 */
+	public static Biochip parseFileStreaming(final File file,
+											 final ParseTimings timings) {
+
+		logger.trace("Streaming file \"{}\"", file);
+
+		try (ReadableByteChannel channel =
+					 FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long start = System.nanoTime();
+			Reader reader = Channels.newReader(
+					channel, StandardCharsets.UTF_8.newDecoder(), -1);
+
+			List<String> annotations = new ArrayList<>();
+			BioLexerGrammar lexer =
+					new BioLexerGrammar(new UnbufferedCharStream(reader)) {
+						/*
+						 * An unbuffered token stream does not skip the
+						 * hidden channels the way a CommonTokenStream does.
+						 * The comments and annotations are therefore kept
+						 * away from the parser here.
+						 */
+						@Override
+						public Token nextToken() {
+							Token token = super.nextToken();
+							while (token.getChannel() !=
+								   Token.DEFAULT_CHANNEL) {
+								if (token.getChannel() ==
+									BioLexerGrammar.ANNOTATION) {
+									logger.trace("Parsing Comment: " +
+												 token.getText());
+									annotations.add(token.getText());
+								}
+								token = super.nextToken();
+							}
+							return token;
+						}
+					};
+			// the characters are gone once a token is done, so copy them
+			lexer.setTokenFactory(new CommonTokenFactory(true));
+
+			Bio parser = new Bio(new UnbufferedTokenStream<>(lexer));
+			parser.setErrorHandler(new StreamingErrorStrategy());
+			parser.removeErrorListeners();
+			BioErrorListener errorListener = new BioErrorListener();
+			parser.addErrorListener(errorListener);
+
+			BioParserListener listener = new BioParserListener();
+			StreamingParseListener streamer =
+					new StreamingParseListener(listener, errorListener);
+			parser.addParseListener(streamer);
+			BioContext tree = parser.bio();
+			timings.addParseNanos(System.nanoTime() - start);
+
+			if (errorListener.hasErrors()) {
+				return erroneousChip(errorListener.getErrors());
+			} else {
+				start = System.nanoTime();
+				streamer.finish(tree);
+				Biochip biochip = listener.getBiochip();
+				biochip.addAnnotations(annotations);
+				timings.addValidationNanos(System.nanoTime() - start);
+				return biochip;
+			}
+		} catch (final IOException e) {
+			logger.error("Failed to parse file \"{}\".", file);
+			return null;
+		} catch (final RuntimeException e) {
+			logger.debug("Streaming \"{}\" failed", file, e);
+			List<String> errors = new ArrayList<>();
+			errors.add("Failed to parse file \"" + file + "\": " + e);
+			return erroneousChip(errors);
+		}
 	}
 
 	/**
@@ -86,10 +220,25 @@ public final class BioParser {
 	 * @return Biochip as described in the String, null if not parsable
 	 */
 	public static Biochip parse(final String inputString) {
+		return parse(inputString, new ParseTimings());
+	}
+
+	/**
+	 * Parses a String in BioGram format and records how long the parse took.
+	 *
+	 * @param inputString
+	 * 		String containing a BioGram description.
+	 * @param timings
+	 * 		Receives the time spent in the parse and validation phases
+	 * @return Biochip as described in the String, null if not parsable
+	 */
+	public static Biochip parse(final String inputString,
+								final ParseTimings timings) {
 
 		logger.trace("Parsing file of length {}", inputString.length());
 
 		try {
+			long start = System.nanoTime();
 			ANTLRInputStream input = new ANTLRInputStream(inputString);
 			BioLexerGrammar lexer = new BioLexerGrammar(input);
 			CommonTokenStream tokens = new CommonTokenStream(lexer);
@@ -100,21 +249,21 @@ public final class BioParser {
 			ParseTree tree = parser.bio(); // parse everything
 
 			if (errorListener.hasErrors()) {
-				Biochip chip = new Biochip();
-				for (final String msg : errorListener.getErrors()) {
-					logger.error(msg);
-					chip.hardErrors.add(msg);
-				}
-				return chip;
+				timings.addParseNanos(System.nanoTime() - start);
+				return erroneousChip(errorListener.getErrors());
 			} else {
+				List<String> annotations =
+						parseChannel(input, BioLexerGrammar.ANNOTATION);
+				timings.addParseNanos(System.nanoTime() - start);
+
+				start = System.nanoTime();
 				ParseTreeWalker walker = new ParseTreeWalker();
 				// Walk the tree created during the parse, trigger callbacks
 				BioParserListener listener = new BioParserListener();
 				walker.walk(listener, tree);
 				Biochip biochip = listener.getBiochip();
-				List<String> annotations =
-						parseChannel(input, BioLexerGrammar.ANNOTATION);
 				biochip.addAnnotations(annotations);
+				timings.addValidationNanos(System.nanoTime() - start);
 				return biochip;
 			}
 		} catch (final Exception e) {
@@ -124,6 +273,22 @@ public final class BioParser {
 		}
 	}
 
+	/**
+	 * Creates an empty biochip carrying the errors that prevented a parse.
+	 *
+	 * @param errors
+	 * 		the errors that occurred while parsing
+	 * @return an empty biochip whose hard errors are the given errors
+	 */
+	private static Biochip erroneousChip(final List<String> errors) {
+		Biochip chip = new Biochip();
+		for (final String msg : errors) {
+			logger.error(msg);
+			chip.hardErrors.add(msg);
+		}
+		return chip;
+	}
+
 	/**
 	 * Parses the annotations in a file.
 	 * @param input an ANTLRInputStream
@@ -153,4 +318,24 @@ public final class BioParser {
 		return channelTokens;
 	}
 
+	/**
+	 * Error strategy that works on unbuffered token streams.
+	 * <p>
+	 * The default strategy reports a missing alternative by printing all
+	 * tokens from the start of the decision up to the offending token. These
+	 * tokens may no longer be available in an unbuffered stream, hence only
+	 * the offending token is reported.
+	 */
+	private static final class StreamingErrorStrategy
+			extends DefaultErrorStrategy {
+
+		@Override
+		protected void reportNoViableAlternative(
+				final Parser recognizer, final NoViableAltException e) {
+			String msg = "no viable alternative at input " +
+						 getTokenErrorDisplay(e.getOffendingToken());
+			recognizer.notifyErrorListeners(e.getOffendingToken(), msg, e);
+		}
+	}
+
 }
@@ -72,7 +72,6 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
 import java.util.Set;
 
 /**
@@ -722,9 +721,9 @@ class BioParserListener extends BioBaseListener {
 
 		for (final PositionContext pos : positions) {
 			Point p = getPosition(pos);
-			Rectangle r = new Rectangle(p, 1, 1);
-			drop.addPosition(r);
+			drop.addPosition(p.fst, p.snd, p.fst, p.snd);
 		}
+		drop.trimToSize();
 
 		droplets.add(drop);
 
@@ -745,11 +744,11 @@ class BioParserListener extends BioBaseListener {
 			Point lowerLeft = getPosition(l.position(0));
 			Point upperRight = getPosition(l.position(1));
 
-			Rectangle r = new Rectangle(lowerLeft, upperRight);
-
-			drop.addPosition(r);
+			drop.addPosition(lowerLeft.fst, lowerLeft.snd,
+							 upperRight.fst, upperRight.snd);
 
 		}
+		drop.trimToSize();
 
 		droplets.add(drop);
 
@@ -826,14 +825,18 @@ class BioParserListener extends BioBaseListener {
 
 		droplets.forEach(chip::addDroplet);
 		errors.addAll(Validator.checkPathsForJumps(droplets));
-		errors.addAll(Validator.checkPathsForPositions(
-				droplets,
-				chip.getAllCoordinates())
-		);
+		errors.addAll(Validator.checkPathsForPositions(droplets, chip));
 
 		chip.addFluidTypes(fluidTypes);
 		chip.addNets(nets);
 
+		droplets.forEach(drop -> {
+			Net net = chip.getNetOf(drop);
+			if (net != null) {
+				drop.setNet(net);
+			}
+		});
+
 		nets.forEach(net -> {
 
 			Rectangle target = net.getTarget();
@@ -841,17 +844,6 @@ class BioParserListener extends BioBaseListener {
 			net.getSources().forEach(src -> {
 				int dropID = src.dropletID;
 
-				/*
-				kind of weird code to set the net of a droplet. But this
-				happens
-				when the Java people think that they have a clever idea for
-				'streams' when normal people would simply directly operate on
-				lists, maps etc.
-				 */
-				Optional<Droplet> drop = droplets.stream().filter(
-						it -> it.getID() == dropID).findFirst();
-				drop.ifPresent(it -> it.setNet(net));
-
 				target.positions().forEach(p ->
 				   chip.getFieldAt(p).targetIDs.add(dropID)
 				);
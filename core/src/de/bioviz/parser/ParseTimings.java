@@ -0,0 +1,83 @@
+/*
+ * BioViz, a visualization tool for digital microfluidic biochips (DMFB).
+ *
+ * Copyright (c) 2017 Oliver Keszocze, Jannis Stoppe, Maximilian Luenert
+ *
+ * This file is part of BioViz.
+ *
+ * BioViz is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * BioViz is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * See the GNU General Public License for more details. You should have
+ * received a copy of the GNU
+ * General Public License along with BioViz.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.bioviz.parser;
+
+/**
+ * Stores how long the different phases of parsing a BioGram file took.
+ * <p>
+ * The parse phase covers reading the input, lexing it and building the parse
+ * tree. The validation phase covers walking that tree, i.e. building the
+ * biochip and running all checks of the {@link Validator} on it.
+ *
+ * @author agent
+ */
+public final class ParseTimings {
+
+	/**
+	 * Time spent reading, lexing and parsing the input in nanoseconds.
+	 */
+	private long parseNanos = 0;
+
+	/**
+	 * Time spent building and validating the biochip in nanoseconds.
+	 */
+	private long validationNanos = 0;
+
+	/**
+	 * Returns the time spent reading, lexing and parsing the input.
+	 *
+	 * @return the time spent parsing in nanoseconds
+	 */
+	public long getParseNanos() {
+		return parseNanos;
+	}
+
+	/**
+	 * Returns the time spent building and validating the biochip.
+	 *
+	 * @return the time spent validating in nanoseconds
+	 */
+	public long getValidationNanos() {
+		return validationNanos;
+	}
+
+	/**
+	 * Adds time to the parse phase.
+	 *
+	 * @param nanos
+	 * 		the time to add in nanoseconds
+	 */
+	void addParseNanos(final long nanos) {
+		parseNanos += nanos;
+	}
+
+	/**
+	 * Adds time to the validation phase.
+	 *
+	 * @param nanos
+	 * 		the time to add in nanoseconds
+	 */
+	void addValidationNanos(final long nanos) {
+		validationNanos += nanos;
+	}
+}
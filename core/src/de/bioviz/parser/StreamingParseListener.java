@@ -0,0 +1,139 @@
+/*
+ * BioViz, a visualization tool for digital microfluidic biochips (DMFB).
+ *
+ * Copyright (c) 2017 Oliver Keszocze, Jannis Stoppe, Maximilian Luenert
+ *
+ * This file is part of BioViz.
+ *
+ * BioViz is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * BioViz is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * See the GNU General Public License for more details. You should have
+ * received a copy of the GNU
+ * General Public License along with BioViz.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.bioviz.parser;
+
+import de.bioviz.parser.generated.Bio.BioContext;
+import de.bioviz.parser.generated.Bio.MedaRouteContext;
+import de.bioviz.parser.generated.Bio.MedaRoutesContext;
+import de.bioviz.parser.generated.Bio.RouteContext;
+import de.bioviz.parser.generated.Bio.RoutesContext;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeListener;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+/**
+ * Feeds a {@link BioParserListener} while the input is still being parsed.
+ * <p>
+ * This listener is registered as a parse listener. Whenever the parser
+ * finishes a rule, the enter callback of the wrapped listener is triggered
+ * for that rule. At that point the context is complete, so the wrapped
+ * listener sees the same data it would see when walking a finished tree.
+ * <p>
+ * Once a route has been turned into a droplet, its subtree is removed from
+ * the parse tree. This way the routes, which make up the bulk of most files,
+ * are never held in memory as a whole.
+ * <p>
+ * After the first syntax error the wrapped listener is not called anymore,
+ * as the contexts created during error recovery may be incomplete. The
+ * biochip itself is only built when {@link #finish(BioContext)} is called.
+ *
+ * @author agent
+ */
+final class StreamingParseListener implements ParseTreeListener {
+
+	/**
+	 * The listener that collects the parsed elements and builds the chip.
+	 */
+	private final BioParserListener delegate;
+
+	/**
+	 * Used to find out whether syntax errors occurred.
+	 */
+	private final BioErrorListener errorListener;
+
+	/**
+	 * Creates a listener feeding the given delegate.
+	 *
+	 * @param delegate
+	 * 		The listener collecting the parsed elements
+	 * @param errorListener
+	 * 		The error listener of the parser
+	 */
+	StreamingParseListener(final BioParserListener delegate,
+						   final BioErrorListener errorListener) {
+		this.delegate = delegate;
+		this.errorListener = errorListener;
+	}
+
+	/**
+	 * Builds the biochip from everything that has been parsed.
+	 *
+	 * @param ctx
+	 * 		The context of the whole file as returned by the parser
+	 */
+	void finish(final BioContext ctx) {
+		ctx.exitRule(delegate);
+	}
+
+	@Override
+	public void visitTerminal(final TerminalNode node) {
+		// the newlines between routes are not needed either
+		ParseTree parent = node.getParent();
+		if (parent instanceof RoutesContext ||
+			parent instanceof MedaRoutesContext) {
+			detach(node);
+		}
+	}
+
+	@Override
+	public void visitErrorNode(final ErrorNode node) {
+		// errors are collected by the error listener
+	}
+
+	@Override
+	public void enterEveryRule(final ParserRuleContext ctx) {
+		// the context has no children yet, everything happens on exit
+	}
+
+	@Override
+	public void exitEveryRule(final ParserRuleContext ctx) {
+		if (errorListener.hasErrors() || ctx instanceof BioContext) {
+			return;
+		}
+
+		ctx.enterRule(delegate);
+
+		if (ctx instanceof RouteContext || ctx instanceof MedaRouteContext) {
+			detach(ctx);
+		}
+	}
+
+	/**
+	 * Removes a node from its parent.
+	 * <p>
+	 * Only the most recently added child is removed, which is the node that
+	 * has just been finished by the parser.
+	 *
+	 * @param node
+	 * 		The node to remove
+	 */
+	private static void detach(final ParseTree node) {
+		ParserRuleContext parent = (ParserRuleContext) node.getParent();
+		if (parent != null && parent.getChildCount() > 0 &&
+			parent.getChild(parent.getChildCount() - 1) == node) {
+			parent.removeLastChild();
+		}
+	}
+}
@@ -32,6 +32,7 @@ import de.bioviz.structures.Pin;
 import de.bioviz.structures.Point;
 import de.bioviz.structures.Rectangle;
 import de.bioviz.structures.Resource;
+import de.bioviz.util.ValidationPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,7 +41,6 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.stream.Collectors;
 
 
@@ -72,71 +72,106 @@ final class Validator {
 	/**
 	 * This method checks that all the positions a droplet moves along is
 	 * actually a position of the chip.
+	 * <p>
+	 * The droplets are checked in parallel on the {@link ValidationPool}.
 	 *
 	 * @param drops
 	 * 		Droplets, whose positions should be validated
-	 * @param points
-	 * 		The possible positions of
+	 * @param chip
+	 * 		The biochip whose fields are the possible positions
 	 * @return List of errors
 	 */
 	static ArrayList<String> checkPathsForPositions(
-			final ArrayList<Droplet> drops, final Set<Point> points) {
-		ArrayList<String> errors = new ArrayList<>();
-
-		for (final Droplet drop : drops) {
-			ArrayList<Rectangle> ps = drop.getPositions();
-
-			ps.forEach(rect ->
-							   rect.positions().forEach(pos -> {
-								   if (!points.contains(pos)) {
-									   errors.add("Droplet " + drop.getID() +
-												  ": position " + pos +
-												  " of route not on grid!");
-								   }
-
-							   })
+			final ArrayList<Droplet> drops, final Biochip chip) {
+		return ValidationPool.call(() ->
+				drops.parallelStream().
+						flatMap(drop -> checkPathForPositions(drop, chip)
+								.stream()).
+						collect(Collectors.toCollection(ArrayList::new))
+		);
+	}
 
-			);
+	/**
+	 * Checks that all the positions a single droplet moves along are
+	 * positions of the chip.
+	 *
+	 * @param drop
+	 * 		Droplet whose positions should be validated
+	 * @param chip
+	 * 		The biochip whose fields are the possible positions
+	 * @return List of errors
+	 */
+	private static List<String> checkPathForPositions(
+			final Droplet drop, final Biochip chip) {
+		ArrayList<String> errors = new ArrayList<>();
+		int[] coords = new int[Droplet.COORDS_PER_POSITION];
+
+		for (int timestep = drop.getSpawnTime();
+			 drop.getPositionAt(timestep, coords); timestep++) {
+			for (int x = coords[Droplet.MIN_X];
+				 x <= coords[Droplet.MAX_X]; x++) {
+				for (int y = coords[Droplet.MIN_Y];
+					 y <= coords[Droplet.MAX_Y]; y++) {
+					if (!chip.hasFieldAt(x, y)) {
+						errors.add("Droplet " + drop.getID() +
+								   ": position " + new Point(x, y) +
+								   " of route not on grid!");
+					}
+				}
+			}
 		}
 		return errors;
 	}
 
 	/**
 	 * Checks whether paths move through blockages.
+	 * <p>
+	 * The droplets are checked in parallel on the {@link ValidationPool}.
 	 *
 	 * @param chip
 	 * 		Biochips that is checked for errors
 	 * @return List of errors
 	 */
 	static ArrayList<String> checkPathForBlockages(final Biochip chip) {
-		Set<Droplet> droplets = chip.getDroplets();
-		ArrayList<String> errors = new ArrayList<>();
-
-		for (final Droplet drop : droplets) {
-			ArrayList<Rectangle> rectPositions = drop.getPositions();
-
-
-			for (int timeStep = 0;
-				 timeStep < rectPositions.size(); timeStep++) {
-				int timestep = timeStep + drop.getSpawnTime();
-				Rectangle rectPos = rectPositions.get(timeStep);
-				ArrayList<Point> positions =
-						rectPos.positions().stream().
-								filter(chip::hasFieldAt).
-								collect(Collectors.toCollection(
-										ArrayList::new));
-
-				positions.stream().
-						filter(
-								pos -> chip.getFieldAt(pos).isBlocked(
-										timestep)).
-						forEach(
-								pos -> errors.add(
-										"Droplet " + drop.getID() +
-										" moves into blockage at " + pos +
-										" in time step " + timestep)
-						);
+		// copy the droplets to get a deterministic order of the errors
+		ArrayList<Droplet> droplets = new ArrayList<>(chip.getDroplets());
+
+		return ValidationPool.call(() ->
+				droplets.parallelStream().
+						flatMap(drop -> checkPathForBlockages(chip, drop)
+								.stream()).
+						collect(Collectors.toCollection(ArrayList::new))
+		);
+	}
 
+	/**
+	 * Checks whether the path of a single droplet moves through blockages.
+	 *
+	 * @param chip
+	 * 		Biochips that is checked for errors
+	 * @param drop
+	 * 		The droplet whose path is checked
+	 * @return List of errors
+	 */
+	private static List<String> checkPathForBlockages(final Biochip chip,
+													  final Droplet drop) {
+		ArrayList<String> errors = new ArrayList<>();
+		int[] coords = new int[Droplet.COORDS_PER_POSITION];
+
+		for (int timestep = drop.getSpawnTime();
+			 drop.getPositionAt(timestep, coords); timestep++) {
+			for (int x = coords[Droplet.MIN_X];
+				 x <= coords[Droplet.MAX_X]; x++) {
+				for (int y = coords[Droplet.MIN_Y];
+					 y <= coords[Droplet.MAX_Y]; y++) {
+					if (chip.hasFieldAt(x, y) &&
+						chip.getFieldAt(x, y).isBlocked(timestep)) {
+						errors.add("Droplet " + drop.getID() +
+								   " moves into blockage at " +
+								   new Point(x, y) +
+								   " in time step " + timestep);
+					}
+				}
 			}
 		}
 		return errors;
@@ -148,6 +183,7 @@ final class Validator {
 	 * or vertical direction in one time step.
 	 * <p>
 	 * It also checks whether a route has been attached to the droplet at all.
+	 * The droplets are checked in parallel on the {@link ValidationPool}.
 	 *
 	 * @param drops
 	 * 		Droplets whose positions on the grid will be checked for 'jumps'
@@ -155,47 +191,58 @@ final class Validator {
 	 */
 	static ArrayList<String> checkPathsForJumps(
 			final ArrayList<Droplet> drops) {
+		return ValidationPool.call(() ->
+				drops.parallelStream().
+						flatMap(drop -> checkPathForJumps(drop).stream()).
+						collect(Collectors.toCollection(ArrayList::new))
+		);
+	}
+
+	/**
+	 * Checks whether a single droplet only moves a single cell in horizontal
+	 * or vertical direction in one time step.
+	 *
+	 * @param drop
+	 * 		Droplet whose positions on the grid will be checked for 'jumps'
+	 * @return List of errors
+	 */
+	private static List<String> checkPathForJumps(final Droplet drop) {
 		ArrayList<String> errors = new ArrayList<>();
+		int spawn = drop.getSpawnTime();
+		int[] prev = new int[Droplet.COORDS_PER_POSITION];
+		int[] curr = new int[Droplet.COORDS_PER_POSITION];
 
-		for (final Droplet drop : drops) {
-			ArrayList<Rectangle> points = drop.getPositions();
+		if (!drop.getPositionAt(spawn, prev)) {
+			errors.add("Droplet " + drop.getID() +
+					   " has no route attached to it!");
+			return errors;
+		}
 
-			if (points.isEmpty()) {
+		for (int t = spawn + 1; drop.getPositionAt(t, curr); t++) {
+			boolean upperLeftBadMove = !Point.reachable(
+					prev[Droplet.MIN_X], prev[Droplet.MAX_Y],
+					curr[Droplet.MIN_X], curr[Droplet.MAX_Y]);
+			boolean upperRightBadMove = !Point.reachable(
+					prev[Droplet.MAX_X], prev[Droplet.MAX_Y],
+					curr[Droplet.MAX_X], curr[Droplet.MAX_Y]);
+			boolean lowerLeftBadMove = !Point.reachable(
+					prev[Droplet.MIN_X], prev[Droplet.MIN_Y],
+					curr[Droplet.MIN_X], curr[Droplet.MIN_Y]);
+			boolean lowerRightBadMove = !Point.reachable(
+					prev[Droplet.MAX_X], prev[Droplet.MIN_Y],
+					curr[Droplet.MAX_X], curr[Droplet.MIN_Y]);
+
+
+			if (upperLeftBadMove || upperRightBadMove ||
+				lowerLeftBadMove || lowerRightBadMove) {
 				errors.add("Droplet " + drop.getID() +
-						   " has no route attached to it!");
-				return errors;
+						   ": Jump in route from " +
+						   drop.getPositionAt(t - 1) + " to " +
+						   drop.getPositionAt(t) + "!");
 			}
-
-			/**
-			 * This additional check is just here to make the indentation level
-			 * smaller.
-			 */
-			if (points.size() == 1) {
-				return errors;
-			}
-
-			Rectangle prev = points.get(0);
-			for (int i = 1; i < points.size(); i++) {
-				Rectangle curr = points.get(i);
-				boolean upperLeftBadMove =
-						!Point.reachable(prev.upperLeft(), curr.upperLeft());
-				boolean upperRightBadMove =
-						!Point.reachable(prev.upperRight, curr.upperRight);
-				boolean lowerLeftBadMove =
-						!Point.reachable(prev.lowerLeft, curr.lowerLeft);
-				boolean lowerRightBadMove =
-						!Point.reachable(prev.lowerRight(), curr.lowerRight());
-
-
-				if (upperLeftBadMove || upperRightBadMove ||
-					lowerLeftBadMove || lowerRightBadMove) {
-					errors.add("Droplet " + drop.getID() +
-							   ": Jump in route from " + prev + " to " + curr +
-							   "!");
-				}
-				prev = curr;
-			}
-
+			int[] tmp = prev;
+			prev = curr;
+			curr = tmp;
 		}
 
 		return errors;
@@ -0,0 +1,114 @@
+/*
+ * BioViz, a visualization tool for digital microfluidic biochips (DMFB).
+ *
+ * Copyright (c) 2017 Oliver Keszocze, Jannis Stoppe, Maximilian Luenert
+ *
+ * This file is part of BioViz.
+ *
+ * BioViz is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * BioViz is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * See the GNU General Public License for more details. You should have
+ * received a copy of the GNU
+ * General Public License along with BioViz.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.bioviz.structures;
+
+import java.util.HashSet;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork/join task computing the fluidic constraint violations of a biochip.
+ * <p>
+ * The time axis is split in halves until the ranges are small enough to be
+ * checked on a single thread. The violations of the halves are merged when
+ * joining the tasks.
+ *
+ * @author agent
+ */
+final class AdjacencyTask
+		extends RecursiveTask<HashSet<FluidicConstraintViolation>> {
+
+	/**
+	 * Ranges with at most this many time steps are not split any further.
+	 */
+	static final int MIN_CHUNK_SIZE = 64;
+
+	/**
+	 * Needed as RecursiveTask is serializable.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The chip whose violations are computed.
+	 */
+	private final transient Biochip chip;
+
+	/**
+	 * The nets of the droplets.
+	 */
+	private final transient NetIndex dropletNets;
+
+	/**
+	 * The first time step to check.
+	 */
+	private final int from;
+
+	/**
+	 * The last time step to check (inclusive).
+	 */
+	private final int to;
+
+	/**
+	 * Creates a task checking the given time range.
+	 *
+	 * @param chip
+	 * 		The chip whose violations are computed
+	 * @param dropletNets
+	 * 		The nets of the droplets
+	 * @param from
+	 * 		The first time step to check
+	 * @param to
+	 * 		The last time step to check (inclusive)
+	 */
+	AdjacencyTask(final Biochip chip,
+				  final NetIndex dropletNets,
+				  final int from,
+				  final int to) {
+		this.chip = chip;
+		this.dropletNets = dropletNets;
+		this.from = from;
+		this.to = to;
+	}
+
+	@Override
+	protected HashSet<FluidicConstraintViolation> compute() {
+		if (to - from < MIN_CHUNK_SIZE) {
+			return chip.getAdjacentActivations(from, to, dropletNets);
+		}
+
+		int mid = (from + to) >>> 1;
+		AdjacencyTask lower = new AdjacencyTask(chip, dropletNets, from, mid);
+		AdjacencyTask upper =
+				new AdjacencyTask(chip, dropletNets, mid + 1, to);
+		lower.fork();
+		HashSet<FluidicConstraintViolation> result = upper.compute();
+		HashSet<FluidicConstraintViolation> lowerResult = lower.join();
+
+		// merge the smaller set into the bigger one
+		if (lowerResult.size() > result.size()) {
+			lowerResult.addAll(result);
+			return lowerResult;
+		}
+		result.addAll(lowerResult);
+		return result;
+	}
+}
@@ -24,16 +24,21 @@ package de.bioviz.structures;
 
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.List;
 import java.util.stream.Collectors;
 
 import de.bioviz.util.Pair;
+import de.bioviz.util.ValidationPool;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -135,7 +140,18 @@ public class Biochip {
 	/**
 	 * The fields of this chip.
 	 */
-	private HashMap<Point, BiochipField> field = new HashMap<>();
+	private final FieldStore field = new FieldStore();
+
+	/**
+	 * For every time step, the indices of the fields covered by a droplet.
+	 * <p>
+	 * A value of null means that the occupancy has to be (re)computed. A
+	 * null entry within the array means that no field is covered in that
+	 * time step.
+	 *
+	 * @see #getOccupancy()
+	 */
+	private volatile BitSet[] occupancy = null;
 
 	/**
 	 * All droplets of this chip.
@@ -147,7 +163,25 @@ public class Biochip {
 	/**
 	 * The nets of this chip.
 	 */
-	private ArrayList<Net> nets = new ArrayList<>();
+	private final Set<Net> nets = new LinkedHashSet<>();
+
+	/**
+	 * Read-only view of {@link #nets} that is handed out to other classes.
+	 */
+	private final Set<Net> netsView = Collections.unmodifiableSet(nets);
+
+	/**
+	 * Caches the nets each field belongs to. A value of null means that the
+	 * cache has to be (re)computed.
+	 */
+	private volatile Map<BiochipField, Set<Net>> netsOfFields = null;
+
+	/**
+	 * Maps the IDs of the droplets to the nets they belong to.
+	 * <p>
+	 * The index is replaced whenever nets are added.
+	 */
+	private NetIndex netIndex = new NetIndex();
 
 
 	/**
@@ -168,17 +202,34 @@ public class Biochip {
 	 */
 	public void addNets(final Collection<Net> netCollection) {
 		this.nets.addAll(netCollection);
+		netIndex = new NetIndex(new ArrayList<>(nets));
 		resetCaches();
 	}
 
 	/**
 	 * Returns a set of all nets of this biochip.
+	 * <p>
+	 * The set is a read-only view that reflects nets added later on.
 	 *
 	 * @return Set of all nets of this biochip field. Might be empty (but not
 	 * NULL)
 	 */
 	public Set<Net> getNets() {
-		return new HashSet<>(this.nets);
+		return netsView;
+	}
+
+	/**
+	 * Returns the net a droplet belongs to according to the nets of this
+	 * chip.
+	 * <p>
+	 * The lookup takes constant time for all sensible droplet IDs.
+	 *
+	 * @param d
+	 * 		The droplet whose net is requested
+	 * @return The net of the droplet or null if it is not part of any net
+	 */
+	public Net getNetOf(final Droplet d) {
+		return netIndex.netOf(d.getID());
 	}
 
 	/**
@@ -186,15 +237,27 @@ public class Biochip {
 	 *
 	 * @param biochipField
 	 * 		the field to be tested
-	 * @return the nets that this field is a part of
+	 * @return the nets that this field is a part of as a read-only set, in
+	 * the order they were added to this biochip
 	 */
 	public Set<Net> getNetsOf(final BiochipField biochipField) {
-		HashSet<Net> result = new HashSet<>();
+		Map<BiochipField, Set<Net>> cache = netsOfFields;
+		if (cache == null) {
+			cache = new ConcurrentHashMap<>();
+			netsOfFields = cache;
+		}
 
-		for (final Net net : nets) {
-			if (net.containsField(biochipField)) {
-				result.add(net);
+		Set<Net> result = cache.get(biochipField);
+		if (result == null) {
+			Set<Net> found = new LinkedHashSet<>();
+			for (final Net net : nets) {
+				if (net.containsField(biochipField)) {
+					found.add(net);
+				}
 			}
+			result = found.isEmpty() ? Collections.emptySet() :
+					 Collections.unmodifiableSet(found);
+			cache.put(biochipField, result);
 		}
 
 		return result;
@@ -277,6 +340,8 @@ public class Biochip {
 		maxT = Optional.empty();
 		maxRouteLength = Optional.empty();
 		maxUsageCache = Optional.empty();
+		occupancy = null;
+		netsOfFields = null;
 	}
 
 
@@ -305,19 +370,110 @@ public class Biochip {
 	 * @return True iff there is a droplet present in the time step.
 	 */
 	boolean dropletOnPosition(final Point pos, final int t) {
+		return dropletOnPosition(pos.fst, pos.snd, t);
+	}
+
+	/**
+	 * Checks whether any droplet is present on a position in a given time
+	 * step.
+	 *
+	 * @param x
+	 * 		x coordinate of the position to check
+	 * @param y
+	 * 		y coordinate of the position to check
+	 * @param t
+	 * 		The time step to test for the presence.
+	 * @return True iff there is a droplet present in the time step.
+	 */
+	boolean dropletOnPosition(final int x, final int y, final int t) {
 
+		BiochipField f = field.get(x, y);
+		if (f != null) {
+			BitSet[] occ = getOccupancy();
+			return t >= 0 && t < occ.length && occ[t] != null &&
+				   occ[t].get(f.index);
+		}
+
+		// there is no field to store the occupancy for, ask the droplets
 		for (final Droplet d : droplets) {
-			Rectangle p = d.getPositionAt(t);
-			if (p != null && p.contains(pos)) {
+			if (d.coversAt(t, x, y)) {
 				return true;
 			}
 		}
 		return false;
 	}
 
+	/**
+	 * Returns which fields are covered by droplets in which time step.
+	 * <p>
+	 * For every time step there is one bitset containing the indices of
+	 * the covered fields. This turns the droplet presence checks done for
+	 * the actuation and the cell usage into a single bit lookup.
+	 * <p>
+	 * The bitsets are computed the first time they are needed after droplets
+	 * or fields have been added or the caches have been reset.
+	 *
+	 * @return The occupied field indices, indexed by time step.
+	 */
+	private BitSet[] getOccupancy() {
+		BitSet[] occ = occupancy;
+		if (occ == null) {
+			occ = computeOccupancy();
+		}
+		return occ;
+	}
+
+	/**
+	 * Computes the occupancy bitsets.
+	 * <p>
+	 * The routes are processed one time step after another so that all bits
+	 * written for a time step end up in the same bitset. This is synchronized
+	 * as the bitsets may be requested concurrently.
+	 *
+	 * @return The occupied field indices, indexed by time step.
+	 */
+	private synchronized BitSet[] computeOccupancy() {
+		if (occupancy != null) {
+			return occupancy;
+		}
+
+		Droplet[] drops = droplets.toArray(new Droplet[droplets.size()]);
+		int lastStep = 0;
+		for (final Droplet d : drops) {
+			lastStep = Math.max(lastStep, d.getMaxTime());
+		}
+
+		BitSet[] occ = new BitSet[lastStep + 1];
+		int[] coords = new int[Droplet.COORDS_PER_POSITION];
+		for (int t = 0; t <= lastStep; t++) {
+			for (final Droplet d : drops) {
+				if (!d.getPositionAt(t, coords)) {
+					continue;
+				}
+				for (int x = coords[Droplet.MIN_X];
+					 x <= coords[Droplet.MAX_X]; x++) {
+					for (int y = coords[Droplet.MIN_Y];
+						 y <= coords[Droplet.MAX_Y]; y++) {
+						BiochipField f = field.get(x, y);
+						if (f != null) {
+							if (occ[t] == null) {
+								occ[t] = new BitSet(field.indexBound());
+							}
+							occ[t].set(f.index);
+						}
+					}
+				}
+			}
+		}
+		occupancy = occ;
+		return occ;
+	}
 
 	/**
 	 * Checks whether two droplets are from the same net.
+	 * <p>
+	 * If the first droplet is listed in several nets, only the last of these
+	 * nets is considered. The second droplet has to be a source of that net.
 	 *
 	 * @param d1
 	 * 		First droplet to test.
@@ -326,19 +482,7 @@ public class Biochip {
 	 * @return true iff the droplets are from the same net
 	 */
 	public boolean sameNet(final Droplet d1, final Droplet d2) {
-		if (nets != null) {
-			// first find the net of one of the droplets
-			Net net = null;
-			for (final Net n : nets) {
-				if (n.containsDroplet(d1)) {
-					net = n;
-				}
-			}
-			return net != null && net.containsDroplet(d2);
-		} else {
-			// when there are no nets stored, they can't be from the same net
-			return false;
-		}
+		return netIndex.sameNet(d1.getID(), d2.getID());
 	}
 
 
@@ -348,8 +492,8 @@ public class Biochip {
 		if (Rectangle.adjacent(p1, p2)) {
 			logger.info("Points " + p1 + "(" + d1 + ") and " + p2 + "(" + d2 +
 						") are adjacent in time step " + timestep);
-			BiochipField f1 = field.get(p1.upperLeft());
-			BiochipField f2 = field.get(p2.upperLeft());
+			BiochipField f1 = field.get(p1.minX, p1.maxY);
+			BiochipField f2 = field.get(p2.minX, p2.maxY);
 
 			logger.info(
 					"New violation: " + d1 + " " + f1 + " " + d2 + " " + f2);
@@ -380,6 +524,12 @@ public class Biochip {
 	/**
 	 * Calculates all fields that are at some point activated with adjacently
 	 * placed droplets.
+	 * <p>
+	 * Instead of comparing every pair of droplets in every time step, the
+	 * droplet positions of each time step are put into a {@link DropletGrid}
+	 * and only droplets in neighbouring buckets are compared. The time steps
+	 * are split into chunks that are checked in parallel on the
+	 * {@link ValidationPool}.
 	 *
 	 * @return Set of fields with adjacent droplets (at any point in time)
 	 */
@@ -390,41 +540,86 @@ public class Biochip {
 		} else {
 			logger.debug("Recalculating adjacency");
 			recalculateAdjacency = false;
-			HashSet<FluidicConstraintViolation> result = new HashSet<>();
-
-			for (int timestep = 1; timestep <= getMaxT(); timestep++) {
-				for (final Droplet d1 : droplets) {
-					Rectangle p1 = d1.getPositionAt(timestep);
-					Rectangle pp1 = d1.getPositionAt(timestep + 1);
-					for (final Droplet d2 : droplets) {
-
-						logger.trace("Comparing droplets {} and {}", d1, d2);
-
-
-						if (!d1.equals(d2) && !sameNet(d1, d2)) {
-							Rectangle p2 = d2.getPositionAt(timestep);
-							Rectangle pp2 = d2.getPositionAt(timestep + 1);
-							/*
-							We actually need to differentiate the following
-							three cases. The dynamic fluidic constraints
-							should highlight the cell that in the upcoming
-							time step violates one of the constraints.
-							 */
-							addAdjacentPoint(p1, d1, p2, d2, result, timestep);
-							addAdjacentPoint(pp1, d1, p2, d2, result,
-											 timestep);
-							addAdjacentPoint(p1, d1, pp2, d2, result,
-											 timestep);
-						}
-					}
-				}
-			}
+
+			Set<FluidicConstraintViolation> result =
+					ValidationPool.invoke(
+							new AdjacencyTask(this, netIndex,
+											  1, getMaxT()));
 
 			adjacencyCache = result;
 			return result;
 		}
 	}
 
+	/**
+	 * Calculates the fluidic constraint violations within a range of time
+	 * steps.
+	 * <p>
+	 * This method only reads the chip and may thus be called concurrently for
+	 * disjoint time ranges.
+	 *
+	 * @param from
+	 * 		The first time step to check
+	 * @param to
+	 * 		The last time step to check (inclusive)
+	 * @param dropletNets
+	 * 		The nets of the droplets
+	 * @return The violations taking place within the time range.
+	 */
+	HashSet<FluidicConstraintViolation> getAdjacentActivations(
+			final int from,
+			final int to,
+			final NetIndex dropletNets) {
+
+		HashSet<FluidicConstraintViolation> result = new HashSet<>();
+
+		/*
+		The violations of a time step involve the positions of that and of
+		the following time step. The grid of the following time step is
+		kept for the next iteration so that every grid is only built once.
+		 */
+		DropletGrid next = new DropletGrid(droplets, from);
+		Set<Droplet> candidates = new HashSet<>();
+		for (int timestep = from; timestep <= to; timestep++) {
+			DropletGrid current = next;
+			next = new DropletGrid(droplets, timestep + 1);
+
+			for (final Droplet d1 : droplets) {
+				Rectangle p1 = current.positionOf(d1);
+				Rectangle pp1 = next.positionOf(d1);
+
+				candidates.clear();
+				current.collectNear(p1, candidates);
+				current.collectNear(pp1, candidates);
+				next.collectNear(p1, candidates);
+
+				for (final Droplet d2 : candidates) {
+
+					logger.trace("Comparing droplets {} and {}", d1, d2);
+
+					boolean sameNet =
+							dropletNets.sameNet(d1.getID(), d2.getID());
+
+					if (!d1.equals(d2) && !sameNet) {
+						Rectangle p2 = current.positionOf(d2);
+						Rectangle pp2 = next.positionOf(d2);
+						/*
+						We actually need to differentiate the following
+						three cases. The dynamic fluidic constraints
+						should highlight the cell that in the upcoming
+						time step violates one of the constraints.
+						 */
+						addAdjacentPoint(p1, d1, p2, d2, result, timestep);
+						addAdjacentPoint(pp1, d1, p2, d2, result, timestep);
+						addAdjacentPoint(p1, d1, pp2, d2, result, timestep);
+					}
+				}
+			}
+		}
+
+		return result;
+	}
+
 	/**
 	 * Calculates the last timestamp at which a droplet is moved.
 	 *
@@ -489,12 +684,27 @@ public class Biochip {
 	 */
 
 	public BiochipField getFieldAt(final Point coords) {
-		BiochipField f = this.field.get(coords);
+		return getFieldAt(coords.fst, coords.snd);
+	}
+
+	/**
+	 * Retrieves field that is located at given coordinates.
+	 *
+	 * @param x
+	 * 		the x coordinate at which the field is located
+	 * @param y
+	 * 		the y coordinate at which the field is located
+	 * @return the field
+	 * @throws RuntimeException
+	 * 		if there is no field at given coordinates
+	 */
+	public BiochipField getFieldAt(final int x, final int y) {
+		BiochipField f = this.field.get(x, y);
 		if (f != null) {
 			return f;
 		} else {
 			throw new RuntimeException("Could not retrieve field at " +
-									   coords);
+									   new Point(x, y));
 		}
 	}
 
@@ -509,7 +719,21 @@ public class Biochip {
 	 * otherwise
 	 */
 	public boolean hasFieldAt(final Point coords) {
-		return this.field.containsKey(coords);
+		return hasFieldAt(coords.fst, coords.snd);
+	}
+
+	/**
+	 * Checks whether there is a field ad the given position.
+	 *
+	 * @param x
+	 * 		The x coordinate to check for a field
+	 * @param y
+	 * 		The y coordinate to check for a field
+	 * @return true if there is a field at the specified positions, false
+	 * otherwise
+	 */
+	public boolean hasFieldAt(final int x, final int y) {
+		return this.field.get(x, y) != null;
 	}
 
 	/**
@@ -522,7 +746,15 @@ public class Biochip {
 	 * biochip.
 	 */
 	public List<Point> nonExistentFields(final Rectangle rec) {
-		return nonExistentFields(rec.positions());
+		ArrayList<Point> missing = new ArrayList<>();
+		for (int x = rec.minX; x <= rec.maxX; x++) {
+			for (int y = rec.minY; y <= rec.maxY; y++) {
+				if (!hasFieldAt(x, y)) {
+					missing.add(new Point(x, y));
+				}
+			}
+		}
+		return missing;
 	}
 
 	/**
@@ -561,7 +793,14 @@ public class Biochip {
 	 * @return true if no point is outside the boundary of the biochip.
 	 */
 	public boolean allPresent(final Rectangle rec) {
-		return allPresent(rec.positions());
+		for (int x = rec.minX; x <= rec.maxX; x++) {
+			for (int y = rec.minY; y <= rec.maxY; y++) {
+				if (!hasFieldAt(x, y)) {
+					return false;
+				}
+			}
+		}
+		return true;
 	}
 
 	/**
@@ -577,7 +816,14 @@ public class Biochip {
 	 * @return true if any of the points has a resource, false otherwise.
 	 */
 	public boolean hasResource(final Rectangle rec) {
-		return hasResource(rec.positions());
+		for (int x = rec.minX; x <= rec.maxX; x++) {
+			for (int y = rec.minY; y <= rec.maxY; y++) {
+				if (hasFieldAt(x, y) && getFieldAt(x, y).hasResource()) {
+					return true;
+				}
+			}
+		}
+		return false;
 	}
 
 	/**
@@ -604,7 +850,7 @@ public class Biochip {
 	 * @return all valid coordinates
 	 */
 	public Set<Point> getAllCoordinates() {
-		return this.field.keySet();
+		return this.field.coordinates();
 	}
 
 	/**
@@ -613,7 +859,7 @@ public class Biochip {
 	 * @return all field instances being used on this chip
 	 */
 	public Collection<BiochipField> getAllFields() {
-		return this.field.values();
+		return this.field.fields();
 	}
 
 
@@ -627,7 +873,7 @@ public class Biochip {
 	public List<BiochipField> getFieldsForPin(final Integer pinID) {
 
 		List<BiochipField> fields;
-		fields = field.values().
+		fields = field.fields().
 				parallelStream().
 				filter(f -> f.pin != null && f.pin.pinID == pinID).
 				collect(Collectors.toList());
@@ -642,11 +888,11 @@ public class Biochip {
 	 * 		The field to be added.
 	 */
 	public void addField(final BiochipField biochipField) {
-		Point coords = new Point(biochipField.x(), biochipField.y());
-		if (this.field.containsKey(coords)) {
-			logger.trace("Field added twice at {} removed older instance", coords);
+		occupancy = null;
+		if (this.field.add(biochipField) != null) {
+			logger.trace("Field added twice at {} removed older instance",
+						 biochipField.pos);
 		}
-		this.field.put(coords, biochipField);
 	}
 
 
@@ -658,17 +904,7 @@ public class Biochip {
 	 * @return The maximal (i.e. upper right) coordinate of the biochip.
 	 */
 	public Point getMaxCoord() {
-		int maxX = Integer.MIN_VALUE;
-		int maxY = Integer.MIN_VALUE;
-		for (final Point coord : this.field.keySet()) {
-			if (maxX < coord.fst) {
-				maxX = coord.fst;
-			}
-			if (maxY < coord.snd) {
-				maxY = coord.snd;
-			}
-		}
-		return new Point(maxX, maxY);
+		return new Point(field.maxX(), field.maxY());
 	}
 
 	/**
@@ -679,17 +915,7 @@ public class Biochip {
 	 * @return The minimal (i.e. lower left) coordinate of the biochip.
 	 */
 	public Point getMinCoord() {
-		int minX = Integer.MAX_VALUE;
-		int minY = Integer.MAX_VALUE;
-		for (final Point coord : this.field.keySet()) {
-			if (minX > coord.fst) {
-				minX = coord.fst;
-			}
-			if (minY > coord.snd) {
-				minY = coord.snd;
-			}
-		}
-		return new Point(minX, minY);
+		return new Point(field.minX(), field.minY());
 	}
 
 	/**
@@ -702,7 +928,7 @@ public class Biochip {
 	public int getMaxUsage() {
 		if (!maxUsageCache.isPresent()) {
 			maxUsageCache = Optional.of(
-					this.field.values().stream().
+					this.field.fields().stream().
 							map(BiochipField::getUsage).max(Integer::compare).
 							orElse(0)
 			);
@@ -725,8 +951,22 @@ public class Biochip {
 	public void computeCellUsage() {
 		logger.debug("Computing cell usage");
 
-		for (final BiochipField f : field.values()) {
-			f.computeUsage(getMaxT());
+		int max = getMaxT();
+
+		// count the time steps in which each field is covered by a droplet
+		BitSet[] occ = getOccupancy();
+		int[] occupiedSteps = new int[field.indexBound()];
+		for (int t = 1; t <= max && t < occ.length; t++) {
+			if (occ[t] != null) {
+				for (int i = occ[t].nextSetBit(0); i >= 0;
+					 i = occ[t].nextSetBit(i + 1)) {
+					occupiedSteps[i]++;
+				}
+			}
+		}
+
+		for (final BiochipField f : field.fields()) {
+			f.computeUsage(max, occupiedSteps[f.index]);
 		}
 	}
 }
@@ -41,6 +41,18 @@ public class BiochipField {
 	 */
 	public final Point pos;
 
+	/**
+	 * The x coordinate of the field's position.
+	 * <p>
+	 * Stored unboxed as it is read for every field in every frame.
+	 */
+	private final int x;
+
+	/**
+	 * The y coordinate of the field's position.
+	 */
+	private final int y;
+
 	/**
 	 * The pin that is assigned to this field.
 	 * <p>
@@ -91,6 +103,14 @@ public class BiochipField {
 	 */
 	private Range blockage;
 
+	/**
+	 * The index of this field within its biochip.
+	 * <p>
+	 * The index is assigned when the field is added to the chip and is used
+	 * to address the field in the occupancy bitsets of the chip.
+	 */
+	int index = -1;
+
 	/**
 	 * How often the field was actuated.
 	 */
@@ -113,6 +133,8 @@ public class BiochipField {
 	 */
 	public BiochipField(final Point p, final Biochip parent) {
 		this.pos = p;
+		this.x = p.fst;
+		this.y = p.snd;
 		this.parent = parent;
 	}
 
@@ -122,7 +144,7 @@ public class BiochipField {
 	 * @return The x position of this field
 	 */
 	public int x() {
-		return pos.fst;
+		return x;
 	}
 
 	/**
@@ -131,7 +153,7 @@ public class BiochipField {
 	 * @return The y position of this field
 	 */
 	public int y() {
-		return pos.snd;
+		return y;
 	}
 
 	/**
@@ -331,19 +353,19 @@ public class BiochipField {
 		Actuation act = Actuation.DONTCARE;
 
 		Map<Integer, ActuationVector> actVecs = circ.pinActuations;
-		if (pin != null && !actVecs.isEmpty()) {
+		if (actuatedByPin()) {
 			ActuationVector vec = actVecs.get(pin.pinID);
 			if (vec != null) {
 				act = vec.get(timeStep - 1);
 			}
-		} else if (actVec != null && !actVec.isEmpty()) {
+		} else if (actuatedByVector()) {
 			act = actVec.get(timeStep - 1);
 		} else {
-			if (circ.dropletOnPosition(pos, timeStep)) {
+			if (circ.dropletOnPosition(x, y, timeStep)) {
 				act = Actuation.ON;
 			}
 			for (final Mixer m : mixers) {
-				if (m.position.contains(pos) && m.timing.inRange(timeStep)) {
+				if (m.position.contains(x, y) && m.timing.inRange(timeStep)) {
 					act = Actuation.ON;
 				}
 			}
@@ -352,6 +374,27 @@ public class BiochipField {
 		return act;
 	}
 
+	/**
+	 * Checks whether the actuation of this field is given by its pin.
+	 *
+	 * @return true if the field has a pin and pin actuations are present
+	 */
+	private boolean actuatedByPin() {
+		return pin != null && !parent.pinActuations.isEmpty();
+	}
+
+	/**
+	 * Checks whether the actuation of this field is given by its own
+	 * actuation vector.
+	 * <p>
+	 * The pin actuations take precedence, see {@link #actuatedByPin()}.
+	 *
+	 * @return true if the field has a non-empty actuation vector
+	 */
+	private boolean actuatedByVector() {
+		return actVec != null && !actVec.isEmpty();
+	}
+
 	/**
 	 * Checks whether the field is actuated at the specified time step.
 	 * <p>
@@ -399,5 +442,29 @@ public class BiochipField {
 		return usage;
 	}
 
+	/**
+	 * Computes the usage of the field when the number of time steps the field
+	 * is covered by droplets is already known.
+	 * <p>
+	 * If the actuation of this field is determined by droplets alone, the
+	 * usage simply is that number. Otherwise, the usage is computed for
+	 * every time step via {@link #computeUsage(int)}.
+	 *
+	 * @param maxT
+	 * 		The upper bound for the time steps to consider when computing the
+	 * 		usage.
+	 * @param occupiedSteps
+	 * 		The number of time steps up to maxT in which a droplet covers this
+	 * 		field.
+	 * @return The usage of this field up to time step T.
+	 */
+	int computeUsage(final int maxT, final int occupiedSteps) {
+		if (actuatedByPin() || actuatedByVector() || !mixers.isEmpty()) {
+			return computeUsage(maxT);
+		}
+		usage = occupiedSteps;
+		return usage;
+	}
+
 
 }
@@ -23,6 +23,7 @@
 package de.bioviz.structures;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * Class that contains everything that is necessary to describe a DMFB droplet.
@@ -33,6 +34,44 @@ import java.util.ArrayList;
  */
 public class Droplet {
 
+	/**
+	 * Index of the minimal x coordinate within the coordinates of a position.
+	 *
+	 * @see #getPositionAt(int, int[])
+	 */
+	public static final int MIN_X = 0;
+
+	/**
+	 * Index of the minimal y coordinate within the coordinates of a position.
+	 *
+	 * @see #getPositionAt(int, int[])
+	 */
+	public static final int MIN_Y = 1;
+
+	/**
+	 * Index of the maximal x coordinate within the coordinates of a position.
+	 *
+	 * @see #getPositionAt(int, int[])
+	 */
+	public static final int MAX_X = 2;
+
+	/**
+	 * Index of the maximal y coordinate within the coordinates of a position.
+	 *
+	 * @see #getPositionAt(int, int[])
+	 */
+	public static final int MAX_Y = 3;
+
+	/**
+	 * The number of coordinates stored per position.
+	 */
+	public static final int COORDS_PER_POSITION = 4;
+
+	/**
+	 * The number of positions space is reserved for initially.
+	 */
+	private static final int INITIAL_CAPACITY = 16;
+
 	/**
 	 * The net the droplet belongs to. Note that not every droplet necessarily
 	 * is part of a net as for a plain routing solution this information is not
@@ -42,17 +81,26 @@ public class Droplet {
 
 	/**
 	 * The positions the droplet occupies on the grid. The order within the
-	 * vector corresponds to consecutive time steps.
+	 * array corresponds to consecutive time steps.
+	 * <p>
+	 * Each position is stored as {@link #COORDS_PER_POSITION} consecutive
+	 * values, indexed by {@link #MIN_X}, {@link #MIN_Y}, {@link #MAX_X} and
+	 * {@link #MAX_Y}. Storing plain ints instead of rectangles saves about
+	 * seven objects per time step, which matters for long routes.
 	 * <p>
 	 * Note that a droplet may be spawn at some point in time. Therefore, this
-	 * vector has an offset which is stored in the {@link Droplet#spawnTime}
+	 * array has an offset which is stored in the {@link Droplet#spawnTime}
 	 * variable.
 	 * <p>
-	 * Combined with the length of the vector, this also implicitly defines
-	 * when
-	 * the droplet vanishes from the chip.
+	 * Combined with the {@link #routeLength}, this also implicitly defines
+	 * when the droplet vanishes from the chip.
+	 */
+	private int[] positions = new int[INITIAL_CAPACITY * COORDS_PER_POSITION];
+
+	/**
+	 * The number of positions stored in {@link #positions}.
 	 */
-	private ArrayList<Rectangle> positions = new ArrayList<>();
+	private int routeLength = 0;
 
 
 	/**
@@ -132,13 +180,19 @@ public class Droplet {
 	}
 
 	/**
+	 * Returns the positions of the droplet.
+	 * <p>
+	 * The list is created on every call. Use {@link #getPositionAt(int,
+	 * int[])} in performance critical code.
+	 *
 	 * @return Positions of the droplet
-	 * @warning Do not modify this returned vector as it will modify the
-	 * droplet. We could think about returning a copy but than again we believe
-	 * in the non-evilness of our clients :)
 	 */
 	public ArrayList<Rectangle> getPositions() {
-		return positions;
+		ArrayList<Rectangle> result = new ArrayList<>(routeLength);
+		for (int i = 0; i < routeLength; i++) {
+			result.add(rectangleAt(i));
+		}
+		return result;
 	}
 
 
@@ -149,7 +203,88 @@ public class Droplet {
 	 * 		Position that is added
 	 */
 	public void addPosition(final Rectangle p) {
-		positions.add(p);
+		addPosition(p.lowerLeft.fst, p.lowerLeft.snd,
+					p.upperRight.fst, p.upperRight.snd);
+	}
+
+	/**
+	 * Appends a position the the droplet's route (i.e. positions)
+	 * <p>
+	 * Like for {@link Rectangle}, the corners may be given in any order.
+	 *
+	 * @param x1
+	 * 		x coordinate of the first corner
+	 * @param y1
+	 * 		y coordinate of the first corner
+	 * @param x2
+	 * 		x coordinate of the second corner
+	 * @param y2
+	 * 		y coordinate of the second corner
+	 */
+	public void addPosition(final int x1, final int y1,
+							final int x2, final int y2) {
+		int offset = routeLength * COORDS_PER_POSITION;
+		if (offset == positions.length) {
+			// a trimmed route may have no space at all
+			positions = Arrays.copyOf(positions, Math.max(
+					INITIAL_CAPACITY * COORDS_PER_POSITION,
+					2 * positions.length));
+		}
+		positions[offset + MIN_X] = Math.min(x1, x2);
+		positions[offset + MIN_Y] = Math.min(y1, y2);
+		positions[offset + MAX_X] = Math.max(x1, x2);
+		positions[offset + MAX_Y] = Math.max(y1, y2);
+		routeLength++;
+	}
+
+	/**
+	 * Releases the space reserved for positions that are not used.
+	 * <p>
+	 * This should be called once the route is complete.
+	 */
+	public void trimToSize() {
+		positions = Arrays.copyOf(positions,
+								  routeLength * COORDS_PER_POSITION);
+	}
+
+	/**
+	 * Creates the rectangle for a position.
+	 *
+	 * @param index
+	 * 		Index of the position within the route
+	 * @return The rectangle describing the position
+	 */
+	private Rectangle rectangleAt(final int index) {
+		int offset = index * COORDS_PER_POSITION;
+		return new Rectangle(positions[offset + MIN_X],
+							 positions[offset + MIN_Y],
+							 positions[offset + MAX_X],
+							 positions[offset + MAX_Y]);
+	}
+
+	/**
+	 * Copies the coordinates of a position.
+	 *
+	 * @param index
+	 * 		Index of the position within the route
+	 * @param coords
+	 * 		Receives the coordinates
+	 */
+	private void copyCoords(final int index, final int[] coords) {
+		System.arraycopy(positions, index * COORDS_PER_POSITION,
+						 coords, 0, COORDS_PER_POSITION);
+	}
+
+	/**
+	 * Computes the index of the position used at a time step when the
+	 * position is to be clamped to the route.
+	 *
+	 * @param t
+	 * 		Time step for which the position is requested
+	 * @return Index of the position at t or of the first/last position.
+	 */
+	private int safeIndex(final int t) {
+		return Math.max(0, Math.min(routeLength - 1, t - spawnTime));
 	}
 
 
@@ -161,6 +296,9 @@ public class Droplet {
 	 * stead.
 	 * <p>
 	 * The main feature of this function is that it does not return null.
+	 * <p>
+	 * A new rectangle is created on every call. Use
+	 * {@link #getSafePositionAt(int, int[])} in performance critical code.
 	 *
 	 * @param t
 	 * 		Time step for which the position is requested
@@ -168,34 +306,107 @@ public class Droplet {
 	 */
 	public Rectangle getSafePositionAt(final int t) {
 
-		int index = t - spawnTime;
-
-		if (positions.isEmpty()) {
+		if (routeLength == 0) {
 			return null;
 		}
 
-		if (index < 0) {
-			return getFirstPosition();
-		}
-		if (index >= positions.size()) {
-			return getLastPosition();
+		return rectangleAt(safeIndex(t));
+	}
+
+	/**
+	 * Retrieves the coordinates of the droplet at specified time step
+	 * without creating any objects.
+	 * <p>
+	 * If the time step is before the droplet is spawned or after the droplet
+	 * has vanished, the first or last position, respectively, is retrieved
+	 * instead.
+	 *
+	 * @param t
+	 * 		Time step for which the position is requested
+	 * @param coords
+	 * 		Array of at least {@link #COORDS_PER_POSITION} elements receiving
+	 * 		the coordinates at the indices {@link #MIN_X}, {@link #MIN_Y},
+	 * 		{@link #MAX_X} and {@link #MAX_Y}
+	 * @return false if the droplet has no route, true otherwise
+	 */
+	public boolean getSafePositionAt(final int t, final int[] coords) {
+		if (routeLength == 0) {
+			return false;
 		}
-		return positions.get(index);
+		copyCoords(safeIndex(t), coords);
+		return true;
 	}
 
 	/**
+	 * Checks whether the droplet is on the chip at a time step.
+	 *
+	 * @param t
+	 * 		The time step to check
+	 * @return true if the droplet has a position at time step t
+	 */
+	public boolean isPresentAt(final int t) {
+		int index = t - spawnTime;
+		return index >= 0 && index < routeLength;
+	}
+
+	/**
+	 * A new rectangle is created on every call. Use
+	 * {@link #getPositionAt(int, int[])} in performance critical code.
+	 *
 	 * @param t
 	 * 		Time step for which the position is requested
 	 * @return Position at time step t or null if outside time range
 	 */
 	public Rectangle getPositionAt(final int t) {
 
-		int index = t - spawnTime;
-
-		if (positions.isEmpty() || index < 0 || index >= positions.size()) {
+		if (!isPresentAt(t)) {
 			return null;
 		}
-		return positions.get(index);
+		return rectangleAt(t - spawnTime);
+	}
+
+	/**
+	 * Retrieves the coordinates of the droplet at specified time step
+	 * without creating any objects.
+	 *
+	 * @param t
+	 * 		Time step for which the position is requested
+	 * @param coords
+	 * 		Array of at least {@link #COORDS_PER_POSITION} elements receiving
+	 * 		the coordinates at the indices {@link #MIN_X}, {@link #MIN_Y},
+	 * 		{@link #MAX_X} and {@link #MAX_Y}. It is left untouched if the
+	 * 		droplet is not present.
+	 * @return true if the droplet is present at time step t
+	 */
+	public boolean getPositionAt(final int t, final int[] coords) {
+		if (!isPresentAt(t)) {
+			return false;
+		}
+		copyCoords(t - spawnTime, coords);
+		return true;
+	}
+
+	/**
+	 * Checks whether the droplet covers a cell at a time step.
+	 *
+	 * @param t
+	 * 		The time step to check
+	 * @param x
+	 * 		x coordinate of the cell
+	 * @param y
+	 * 		y coordinate of the cell
+	 * @return true if the droplet is present at time step t and covers the
+	 * cell
+	 */
+	public boolean coversAt(final int t, final int x, final int y) {
+		if (!isPresentAt(t)) {
+			return false;
+		}
+		int offset = (t - spawnTime) * COORDS_PER_POSITION;
+		return positions[offset + MIN_X] <= x &&
+			   x <= positions[offset + MAX_X] &&
+			   positions[offset + MIN_Y] <= y &&
+			   y <= positions[offset + MAX_Y];
 	}
 
 
@@ -206,7 +417,10 @@ public class Droplet {
 	 * 		if list of positions is empty
 	 */
 	public Rectangle getFirstPosition() {
-		return positions.get(0);
+		if (routeLength == 0) {
+			throw new IndexOutOfBoundsException("Droplet has no positions");
+		}
+		return rectangleAt(0);
 	}
 
 
@@ -216,7 +430,10 @@ public class Droplet {
 	 * 		if list of positions is empty
 	 */
 	public Rectangle getLastPosition() {
-		return positions.get(positions.size() - 1);
+		if (routeLength == 0) {
+			throw new IndexOutOfBoundsException("Droplet has no positions");
+		}
+		return rectangleAt(routeLength - 1);
 	}
 
 
@@ -234,10 +451,10 @@ public class Droplet {
 	public long getNextStep(final long current) {
 		long result = 0;
 
-		if (current > 0 && current < positions.size() - 1) {
+		if (current > 0 && current < routeLength - 1) {
 			result = current + 1;
 		} else {
-			result = positions.size();
+			result = routeLength;
 		}
 
 
@@ -285,7 +502,7 @@ public class Droplet {
 	 * this droplet
 	 */
 	public int getMaxTime() {
-		return positions.size() + spawnTime - 1;
+		return routeLength + spawnTime - 1;
 	}
 
 	/**
@@ -315,6 +532,6 @@ public class Droplet {
 	 * @return Length of the route of this droplet.
 	 */
 	int getRouteLength() {
-		return positions.size();
+		return routeLength;
 	}
 }
@@ -0,0 +1,181 @@
+/*
+ * BioViz, a visualization tool for digital microfluidic biochips (DMFB).
+ *
+ * Copyright (c) 2017 Oliver Keszocze, Jannis Stoppe, Maximilian Luenert
+ *
+ * This file is part of BioViz.
+ *
+ * BioViz is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * BioViz is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * See the GNU General Public License for more details. You should have
+ * received a copy of the GNU
+ * General Public License along with BioViz.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.bioviz.structures;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Spatial index of the droplet positions of a single time step.
+ * <p>
+ * The chip is divided into square buckets of {@link #BUCKET_SIZE} cells. A
+ * droplet is registered in every bucket its position touches. Querying the
+ * droplets near a rectangle then only needs to look at the buckets around
+ * that rectangle instead of at all droplets of the chip.
+ *
+ * @author agent
+ */
+final class DropletGrid {
+
+	/**
+	 * The width and height of a bucket in cells.
+	 */
+	static final int BUCKET_SIZE = 4;
+
+	/**
+	 * The number of bits used for each bucket coordinate in a bucket key.
+	 */
+	private static final int KEY_SHIFT = 32;
+
+	/**
+	 * Mask for the lower bucket coordinate of a bucket key.
+	 */
+	private static final long KEY_MASK = 0xFFFFFFFFL;
+
+	/**
+	 * Maps bucket keys to the droplets touching the bucket.
+	 */
+	private final Map<Long, List<Droplet>> buckets = new HashMap<>();
+
+	/**
+	 * The positions of the indexed droplets.
+	 */
+	private final Map<Droplet, Rectangle> positions = new HashMap<>();
+
+	/**
+	 * Builds the grid for the droplet positions at the given time step.
+	 * <p>
+	 * Droplets that are not present on the chip at that time step are not
+	 * added to the grid.
+	 *
+	 * @param droplets
+	 * 		The droplets to index
+	 * @param timeStep
+	 * 		The time step whose positions are indexed
+	 */
+	DropletGrid(final Collection<Droplet> droplets, final int timeStep) {
+		int[] coords = new int[Droplet.COORDS_PER_POSITION];
+		for (final Droplet d : droplets) {
+			if (d.getPositionAt(timeStep, coords)) {
+				insert(d, coords);
+			}
+		}
+	}
+
+	/**
+	 * Returns the position of a droplet at the time step of this grid.
+	 * <p>
+	 * The rectangle is created only once per droplet and grid, so repeated
+	 * calls do not allocate.
+	 *
+	 * @param d
+	 * 		The droplet whose position is requested
+	 * @return The position of the droplet, null if it is not present
+	 */
+	Rectangle positionOf(final Droplet d) {
+		return positions.get(d);
+	}
+
+	/**
+	 * Registers a droplet in all buckets its position touches.
+	 *
+	 * @param d
+	 * 		The droplet to register
+	 * @param coords
+	 * 		The coordinates of the position of the droplet
+	 */
+	private void insert(final Droplet d, final int[] coords) {
+		positions.put(d, new Rectangle(
+				coords[Droplet.MIN_X], coords[Droplet.MIN_Y],
+				coords[Droplet.MAX_X], coords[Droplet.MAX_Y]));
+		int minBX = bucket(coords[Droplet.MIN_X]);
+		int minBY = bucket(coords[Droplet.MIN_Y]);
+		int maxBX = bucket(coords[Droplet.MAX_X]);
+		int maxBY = bucket(coords[Droplet.MAX_Y]);
+		for (int bx = minBX; bx <= maxBX; bx++) {
+			for (int by = minBY; by <= maxBY; by++) {
+				buckets.computeIfAbsent(key(bx, by), k -> new ArrayList<>())
+						.add(d);
+			}
+		}
+	}
+
+	/**
+	 * Collects all droplets whose position might be adjacent to the given
+	 * rectangle.
+	 * <p>
+	 * The result is a superset of the droplets that are actually adjacent:
+	 * every droplet sharing a bucket with the rectangle extended by one cell
+	 * is returned. The caller still has to perform the exact adjacency test.
+	 *
+	 * @param rect
+	 * 		The rectangle to find neighbours of. May be null.
+	 * @param result
+	 * 		The set the found droplets are added to
+	 */
+	void collectNear(final Rectangle rect, final Set<Droplet> result) {
+		if (rect == null) {
+			return;
+		}
+		int minBX = bucket(rect.lowerLeft.fst - 1);
+		int minBY = bucket(rect.lowerLeft.snd - 1);
+		int maxBX = bucket(rect.upperRight.fst + 1);
+		int maxBY = bucket(rect.upperRight.snd + 1);
+		for (int bx = minBX; bx <= maxBX; bx++) {
+			for (int by = minBY; by <= maxBY; by++) {
+				List<Droplet> ds = buckets.get(key(bx, by));
+				if (ds != null) {
+					result.addAll(ds);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Computes the bucket coordinate of a cell coordinate.
+	 *
+	 * @param coord
+	 * 		The cell coordinate
+	 * @return The bucket coordinate
+	 */
+	private static int bucket(final int coord) {
+		return Math.floorDiv(coord, BUCKET_SIZE);
+	}
+
+	/**
+	 * Packs two bucket coordinates into a single key.
+	 *
+	 * @param bx
+	 * 		x coordinate of the bucket
+	 * @param by
+	 * 		y coordinate of the bucket
+	 * @return The key of the bucket
+	 */
+	private static long key(final int bx, final int by) {
+		return ((long) bx << KEY_SHIFT) | (by & KEY_MASK);
+	}
+}
@@ -0,0 +1,270 @@
+/*
+ * BioViz, a visualization tool for digital microfluidic biochips (DMFB).
+ *
+ * Copyright (c) 2017 Oliver Keszocze, Jannis Stoppe, Maximilian Luenert
+ *
+ * This file is part of BioViz.
+ *
+ * BioViz is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * BioViz is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * See the GNU General Public License for more details. You should have
+ * received a copy of the GNU
+ * General Public License along with BioViz.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.bioviz.structures;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Stores the fields of a biochip.
+ * <p>
+ * Most chips are rectangular grids. For those, the fields are additionally
+ * kept in a dense array spanning the bounding box of all fields so that a
+ * lookup is a plain array access. Layouts that cover only a small part of
+ * their bounding box fall back to the map from positions to fields.
+ * <p>
+ * The bounding box is updated whenever a field is added. The dense array is
+ * built lazily on the first lookup after the bounding box has grown.
+ *
+ * @author agent
+ */
+final class FieldStore {
+
+	/**
+	 * The maximal ratio between the area of the bounding box and the number
+	 * of fields for which the dense array is used.
+	 */
+	private static final int MAX_DENSE_RATIO = 4;
+
+	/**
+	 * The maximal number of cells of the dense array.
+	 */
+	private static final long MAX_DENSE_CELLS = 1L << 24;
+
+	/**
+	 * All fields, indexed by their position.
+	 */
+	private final Map<Point, BiochipField> fields = new HashMap<>();
+
+	/**
+	 * The minimal x coordinate of all fields.
+	 */
+	private int minX = Integer.MAX_VALUE;
+
+	/**
+	 * The minimal y coordinate of all fields.
+	 */
+	private int minY = Integer.MAX_VALUE;
+
+	/**
+	 * The maximal x coordinate of all fields.
+	 */
+	private int maxX = Integer.MIN_VALUE;
+
+	/**
+	 * The maximal y coordinate of all fields.
+	 */
+	private int maxY = Integer.MIN_VALUE;
+
+	/**
+	 * The fields of the bounding box in row major order, null where there is
+	 * no field.
+	 * <p>
+	 * A value of null means that the array has to be (re)built or that the
+	 * layout is too sparse for it, see {@link #sparse}.
+	 */
+	private volatile BiochipField[] dense = null;
+
+	/**
+	 * Whether the layout is too sparse to use the dense array.
+	 * <p>
+	 * This is reset whenever a field is added at a new position, as the
+	 * layout may have become dense enough.
+	 */
+	private volatile boolean sparse = false;
+
+	/**
+	 * The index assigned to the next field that is added.
+	 */
+	private int nextIndex = 0;
+
+	/**
+	 * Adds a field, replacing any field at the same position.
+	 * <p>
+	 * The field is assigned the next free {@link BiochipField#index}.
+	 *
+	 * @param f
+	 * 		The field to add
+	 * @return The field previously located at the same position, null if
+	 * there was none
+	 */
+	BiochipField add(final BiochipField f) {
+		int x = f.x();
+		int y = f.y();
+		f.index = nextIndex++;
+		BiochipField old = fields.put(new Point(x, y), f);
+
+		if (x < minX || x > maxX || y < minY || y > maxY) {
+			minX = Math.min(minX, x);
+			minY = Math.min(minY, y);
+			maxX = Math.max(maxX, x);
+			maxY = Math.max(maxY, y);
+			dense = null;
+			sparse = false;
+		} else {
+			BiochipField[] d = dense;
+			if (d != null) {
+				d[index(x, y)] = f;
+			} else if (old == null) {
+				// the layout got denser, check again on the next lookup
+				sparse = false;
+			}
+		}
+		return old;
+	}
+
+	/**
+	 * Retrieves the field at a position.
+	 *
+	 * @param x
+	 * 		The x coordinate of the field
+	 * @param y
+	 * 		The y coordinate of the field
+	 * @return The field at (x,y), null if there is none
+	 */
+	BiochipField get(final int x, final int y) {
+		if (x < minX || x > maxX || y < minY || y > maxY) {
+			return null;
+		}
+		BiochipField[] d = dense;
+		if (d == null && !sparse) {
+			d = buildDense();
+		}
+		if (d == null) {
+			return fields.get(new Point(x, y));
+		}
+		return d[index(x, y)];
+	}
+
+	/**
+	 * Retrieves the field at a position.
+	 *
+	 * @param p
+	 * 		The position of the field
+	 * @return The field at p, null if there is none
+	 */
+	BiochipField get(final Point p) {
+		return get(p.fst, p.snd);
+	}
+
+	/**
+	 * @return Whether lookups currently use the dense array.
+	 */
+	boolean isDense() {
+		return dense != null;
+	}
+
+	/**
+	 * @return An upper bound (exclusive) for the indices of the fields.
+	 */
+	int indexBound() {
+		return nextIndex;
+	}
+
+	/**
+	 * @return The positions of all fields.
+	 */
+	Set<Point> coordinates() {
+		return fields.keySet();
+	}
+
+	/**
+	 * @return All fields.
+	 */
+	Collection<BiochipField> fields() {
+		return fields.values();
+	}
+
+	/**
+	 * @return The minimal x coordinate, Integer.MAX_VALUE if there are no
+	 * fields.
+	 */
+	int minX() {
+		return minX;
+	}
+
+	/**
+	 * @return The minimal y coordinate, Integer.MAX_VALUE if there are no
+	 * fields.
+	 */
+	int minY() {
+		return minY;
+	}
+
+	/**
+	 * @return The maximal x coordinate, Integer.MIN_VALUE if there are no
+	 * fields.
+	 */
+	int maxX() {
+		return maxX;
+	}
+
+	/**
+	 * @return The maximal y coordinate, Integer.MIN_VALUE if there are no
+	 * fields.
+	 */
+	int maxY() {
+		return maxY;
+	}
+
+	/**
+	 * Computes the index of a position within the dense array.
+	 *
+	 * @param x
+	 * 		The x coordinate, must be within the bounding box
+	 * @param y
+	 * 		The y coordinate, must be within the bounding box
+	 * @return The index of (x,y) in the dense array
+	 */
+	private int index(final int x, final int y) {
+		return (y - minY) * (maxX - minX + 1) + (x - minX);
+	}
+
+	/**
+	 * Builds the dense array from the map of fields.
+	 * <p>
+	 * This is synchronized as the lookups may happen concurrently, e.g.
+	 * during the validation.
+	 *
+	 * @return The dense array or null if the layout is too sparse
+	 */
+	private synchronized BiochipField[] buildDense() {
+		if (dense != null || sparse) {
+			return dense;
+		}
+		long cells = (long) (maxX - minX + 1) * (maxY - minY + 1);
+		if (cells > MAX_DENSE_CELLS ||
+			cells > (long) MAX_DENSE_RATIO * fields.size()) {
+			sparse = true;
+			return null;
+		}
+		BiochipField[] d = new BiochipField[(int) cells];
+		for (final BiochipField f : fields.values()) {
+			d[index(f.x(), f.y())] = f;
+		}
+		dense = d;
+		return d;
+	}
+}
@@ -153,46 +153,33 @@ public final class Net {
 	 * @return true if it is part of this net, otherwise false
 	 */
 	public boolean containsField(final BiochipField f) {
-		int xMin = Integer.MAX_VALUE;
-		int yMin = Integer.MAX_VALUE;
-		int xMax = Integer.MIN_VALUE;
-		int yMax = Integer.MIN_VALUE;
+		return getBoundingBox().contains(f.x(), f.y());
+	}
 
-		for (final Source source : sources) {
-			final Point ll = source.startPosition.lowerLeft;
-			final Point ur = source.startPosition.upperRight;
-			if (ll.fst < xMin) {
-				xMin = ll.fst;
-			}
-			if (ll.snd < yMin) {
-				yMin = ll.snd;
-			}
-			if (ur.fst > xMax) {
-				xMax = ur.fst;
-			}
-			if (ur.snd > yMax) {
-				yMax = ur.snd;
-			}
-		}
+	/**
+	 * Computes the smallest rectangle containing the sources and the target
+	 * of this net.
+	 * <p>
+	 * A field is considered to be part of the net if it lies within this
+	 * rectangle.
+	 *
+	 * @return The bounding box of this net.
+	 */
+	public Rectangle getBoundingBox() {
+		int xMin = target.minX;
+		int yMin = target.minY;
+		int xMax = target.maxX;
+		int yMax = target.maxY;
 
-		final Point ll = target.lowerLeft;
-		final Point ur = target.upperRight;
-		if (ll.fst < xMin) {
-			xMin = ll.fst;
-		}
-		if (ll.snd < yMin) {
-			yMin = ll.snd;
-		}
-		if (ur.fst > xMax) {
-			xMax = ur.fst;
-		}
-		if (ur.snd > yMax) {
-			yMax = ur.snd;
+		for (final Source source : sources) {
+			final Rectangle start = source.startPosition;
+			xMin = Math.min(xMin, start.minX);
+			yMin = Math.min(yMin, start.minY);
+			xMax = Math.max(xMax, start.maxX);
+			yMax = Math.max(yMax, start.maxY);
 		}
 
-		final Rectangle netBoundingBox = new Rectangle(xMin, yMin, xMax, yMax);
-
-		return netBoundingBox.contains(f.pos);
+		return new Rectangle(xMin, yMin, xMax, yMax);
 	}
 
 	/**
@@ -0,0 +1,181 @@
+/*
+ * BioViz, a visualization tool for digital microfluidic biochips (DMFB).
+ *
+ * Copyright (c) 2017 Oliver Keszocze, Jannis Stoppe, Maximilian Luenert
+ *
+ * This file is part of BioViz.
+ *
+ * BioViz is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * BioViz is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * See the GNU General Public License for more details. You should have
+ * received a copy of the GNU
+ * General Public License along with BioViz.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.bioviz.structures;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps droplet IDs to the nets the droplets belong to.
+ * <p>
+ * The nets are numbered in the order they were added to the chip. For
+ * droplet IDs between zero and the largest ID of a source, the number of the
+ * net is stored in a plain int array so that looking up the net of a droplet
+ * or checking whether two droplets share a net does neither scan the nets nor
+ * box the IDs. Other IDs are kept in a map.
+ * <p>
+ * If a droplet is listed as source of several nets, the last of these nets
+ * is considered to be its net. When checking whether two droplets share a
+ * net, the droplet is still considered to be part of all of them, which
+ * requires looking at the sources of a net.
+ *
+ * @author agent
+ */
+final class NetIndex {
+
+	/**
+	 * The net index of droplets that are not part of any net.
+	 */
+	static final int NO_NET = -1;
+
+	/**
+	 * Droplet IDs up to this value are stored in the array.
+	 */
+	private static final int MAX_DENSE_ID = 1 << 20;
+
+	/**
+	 * The nets, indexed by their net index.
+	 */
+	private final List<Net> nets;
+
+	/**
+	 * Maps droplet IDs to net indices.
+	 */
+	private final int[] dense;
+
+	/**
+	 * Maps droplet IDs that do not fit into {@link #dense} to net indices.
+	 */
+	private final Map<Integer, Integer> sparse = new HashMap<>();
+
+	/**
+	 * Whether any droplet is listed as source of more than one net.
+	 */
+	private boolean ambiguous = false;
+
+	/**
+	 * Creates an index without any nets.
+	 */
+	NetIndex() {
+		this(Collections.emptyList());
+	}
+
+	/**
+	 * Creates the index for the given nets.
+	 *
+	 * @param nets
+	 * 		The nets to index. The list is not copied and must not be changed
+	 * 		afterwards.
+	 */
+	NetIndex(final List<Net> nets) {
+		this.nets = nets;
+
+		int maxID = NO_NET;
+		for (final Net n : nets) {
+			for (final Source src : n.getSources()) {
+				if (src.dropletID <= MAX_DENSE_ID) {
+					maxID = Math.max(maxID, src.dropletID);
+				}
+			}
+		}
+
+		dense = new int[maxID + 1];
+		Arrays.fill(dense, NO_NET);
+		for (int i = 0; i < nets.size(); i++) {
+			for (final Source src : nets.get(i).getSources()) {
+				int id = src.dropletID;
+				int previous;
+				if (id >= 0 && id < dense.length) {
+					previous = dense[id];
+					dense[id] = i;
+				} else {
+					previous = sparse.getOrDefault(id, NO_NET);
+					sparse.put(id, i);
+				}
+				ambiguous |= previous != NO_NET && previous != i;
+			}
+		}
+	}
+
+	/**
+	 * Returns the index of the net a droplet belongs to.
+	 *
+	 * @param dropletID
+	 * 		The ID of the droplet
+	 * @return The index of the net of the droplet or {@link #NO_NET}
+	 */
+	int netIndexOf(final int dropletID) {
+		if (dropletID >= 0 && dropletID < dense.length) {
+			return dense[dropletID];
+		}
+		return sparse.getOrDefault(dropletID, NO_NET);
+	}
+
+	/**
+	 * Returns the net a droplet belongs to.
+	 *
+	 * @param dropletID
+	 * 		The ID of the droplet
+	 * @return The net of the droplet or null if it is not part of any net
+	 */
+	Net netOf(final int dropletID) {
+		int i = netIndexOf(dropletID);
+		return i == NO_NET ? null : nets.get(i);
+	}
+
+	/**
+	 * Checks whether two droplets belong to the same net.
+	 * <p>
+	 * This is the case if the second droplet is a source of the net of the
+	 * first droplet. If the second droplet is listed in several nets, the
+	 * net of the first droplet does not need to be the last of them.
+	 *
+	 * @param id1
+	 * 		The ID of the first droplet
+	 * @param id2
+	 * 		The ID of the second droplet
+	 * @return true iff the second droplet is part of the net of the first
+	 */
+	boolean sameNet(final int id1, final int id2) {
+		int net1 = netIndexOf(id1);
+		if (net1 == NO_NET) {
+			return false;
+		}
+		int net2 = netIndexOf(id2);
+		if (net1 == net2) {
+			return true;
+		}
+		if (!ambiguous || net2 == NO_NET) {
+			return false;
+		}
+		for (final Source src : nets.get(net1).getSources()) {
+			if (src.dropletID == id2) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -145,15 +145,29 @@ public class Point extends Pair<Integer, Integer> {
 	 * @return true if p2 is reachable from p1 in one time step
 	 */
 	public static boolean reachable(final Point p1, final Point p2) {
-		if (p1.equals(p2)) {
-			return true;
-		}
-		for (final Point direction : DIRECTIONS) {
-			if (p1.add(direction).equals(p2)) {
-				return true;
-			}
-		}
-		return false;
+		return reachable(p1.fst, p1.snd, p2.fst, p2.snd);
+	}
+
+	/**
+	 * Checks whether a position is reachable from another position in one
+	 * time step.
+	 * <p>
+	 * This is the case if both positions are equal or if they differ by one
+	 * in exactly one coordinate.
+	 *
+	 * @param x1
+	 * 		x coordinate of the first position
+	 * @param y1
+	 * 		y coordinate of the first position
+	 * @param x2
+	 * 		x coordinate of the second position
+	 * @param y2
+	 * 		y coordinate of the second position
+	 * @return true if (x2,y2) is reachable from (x1,y1) in one time step
+	 */
+	public static boolean reachable(final int x1, final int y1,
+									final int x2, final int y2) {
+		return Math.abs(x1 - x2) + Math.abs(y1 - y2) <= 1;
 	}
 
 	/**
@@ -173,8 +187,25 @@ public class Point extends Pair<Integer, Integer> {
 			return false;
 		}
 
-		return (Math.abs(p1.snd - p2.snd) <= 1) &&
-			   (Math.abs(p1.fst - p2.fst) <= 1);
+		return adjacent(p1.fst, p1.snd, p2.fst, p2.snd);
+	}
+
+	/**
+	 * Checks whether two positions are adjacent to each other.
+	 *
+	 * @param x1
+	 * 		x coordinate of the first position
+	 * @param y1
+	 * 		y coordinate of the first position
+	 * @param x2
+	 * 		x coordinate of the second position
+	 * @param y2
+	 * 		y coordinate of the second position
+	 * @return true if the positions are adjacent, false otherwise
+	 */
+	public static boolean adjacent(final int x1, final int y1,
+								   final int x2, final int y2) {
+		return (Math.abs(y1 - y2) <= 1) && (Math.abs(x1 - x2) <= 1);
 	}
 
 
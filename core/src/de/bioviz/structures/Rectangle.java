@@ -35,12 +35,35 @@ public class Rectangle {
 	/**
 	 * The lower left corner of the rectangle.
 	 */
-	public Point lowerLeft;
+	public final Point lowerLeft;
 
 	/**
 	 * The upper right corner of the rectangle.
 	 */
-	public Point upperRight;
+	public final Point upperRight;
+
+	/**
+	 * The minimal x coordinate of the rectangle.
+	 * <p>
+	 * The coordinates are also stored as plain ints so that the frequently
+	 * called checks do not need to unbox the coordinates of the corners.
+	 */
+	public final int minX;
+
+	/**
+	 * The minimal y coordinate of the rectangle.
+	 */
+	public final int minY;
+
+	/**
+	 * The maximal x coordinate of the rectangle.
+	 */
+	public final int maxX;
+
+	/**
+	 * The maximal y coordinate of the rectangle.
+	 */
+	public final int maxY;
 
 
 	/**
@@ -115,10 +138,10 @@ public class Rectangle {
 	public Rectangle(final int x1, final int y1, final int x2, final int y2) {
 
 
-		int minX = Math.min(x1, x2);
-		int minY = Math.min(y1, y2);
-		int maxX = Math.max(x1, x2);
-		int maxY = Math.max(y1, y2);
+		minX = Math.min(x1, x2);
+		minY = Math.min(y1, y2);
+		maxX = Math.max(x1, x2);
+		maxY = Math.max(y1, y2);
 
 		lowerLeft = new Point(minX, minY);
 		upperRight = new Point(maxX, maxY);
@@ -138,13 +161,13 @@ public class Rectangle {
 			final Rectangle rec1,
 			final Rectangle rec2) {
 
-		boolean beside1 = rec1.lowerLeft.fst > rec2.upperRight.fst;
-		boolean beside2 = rec2.lowerLeft.fst > rec1.lowerLeft.fst;
+		boolean beside1 = rec1.minX > rec2.maxX;
+		boolean beside2 = rec2.minX > rec1.maxX;
 
-		boolean above1 = rec1.upperRight.snd < rec2.lowerLeft.snd;
-		boolean above2 = rec1.upperRight.snd < rec1.lowerLeft.snd;
+		boolean above1 = rec1.minY > rec2.maxY;
+		boolean above2 = rec2.minY > rec1.maxY;
 
-		return !(beside1 && beside2 && above1 && above2);
+		return !(beside1 || beside2 || above1 || above2);
 	}
 
 	/**
@@ -170,8 +193,8 @@ public class Rectangle {
 	 */
 	public boolean contains(final int x, final int y) {
 
-		return lowerLeft.fst <= x && x <= upperRight.fst &&
-			   lowerLeft.snd <= y && y <= upperRight.snd;
+		return minX <= x && x <= maxX &&
+			   minY <= y && y <= maxY;
 	}
 
 
@@ -185,8 +208,8 @@ public class Rectangle {
 	 * @return Point which is in the center of the rectangle.
 	 */
 	public Point center() {
-		int centerX = (lowerLeft.fst + upperRight.fst) / 2;
-		int centerY = (lowerLeft.snd + upperRight.snd) / 2;
+		int centerX = (minX + maxX) / 2;
+		int centerY = (minY + maxY) / 2;
 		return new Point(centerX, centerY);
 	}
 
@@ -200,12 +223,8 @@ public class Rectangle {
 	 * arithmetic.
 	 */
 	public FPoint centerFloat() {
-		float centerX =
-				(lowerLeft.fst.floatValue() + upperRight.fst.floatValue()) /
-				2f;
-		float centerY =
-				(lowerLeft.snd.floatValue() + upperRight.snd.floatValue()) /
-				2f;
+		float centerX = (minX + maxX) / 2f;
+		float centerY = (minY + maxY) / 2f;
 
 		return new FPoint(centerX, centerY);
 	}
@@ -268,10 +287,10 @@ public class Rectangle {
 	 */
 	public List<Point> positions() {
 
-		ArrayList<Point> result = new ArrayList<>();
+		ArrayList<Point> result = new ArrayList<>(width() * height());
 
-		for (int x = lowerLeft.fst; x <= upperRight.fst; x++) {
-			for (int y = lowerLeft.snd; y <= upperRight.snd; y++) {
+		for (int x = minX; x <= maxX; x++) {
+			for (int y = minY; y <= maxY; y++) {
 				result.add(new Point(x, y));
 			}
 		}
@@ -285,7 +304,7 @@ public class Rectangle {
 	 * @return true if the Rectangle is a single point only
 	 */
 	public boolean isPoint() {
-		return lowerLeft.equals(upperRight);
+		return minX == maxX && minY == maxY;
 	}
 
 	/**
@@ -311,11 +330,8 @@ public class Rectangle {
 	 * This method can be used to create neighbourhoods of rectangles.
 	 */
 	public static Rectangle extend(final Rectangle r, final int size) {
-		// use <new> to create a deep copy
-		Point ll = new Point(r.lowerLeft.fst - size, r.lowerLeft.snd - size);
-		Point ur = new Point(r.upperRight.fst + size, r.upperRight.snd + size);
-
-		return new Rectangle(ll, ur);
+		return new Rectangle(r.minX - size, r.minY - size,
+							 r.maxX + size, r.maxY + size);
 	}
 
 
@@ -330,13 +346,29 @@ public class Rectangle {
 	 * @return true iff the position pos can be reached from the Rectangle r.
 	 */
 	public static boolean reachable(final Rectangle r, final Point pos) {
-		Rectangle bigger = extend(r, 1);
-		List<Point> reachable = bigger.positions();
-		// we need to remove the extended as we explicitly want to ignore
-		// the diagonals
-		reachable.removeAll(bigger.corners());
+		return r.reachable(pos.fst, pos.snd);
+	}
+
+	/**
+	 * Checks if a position is reachable from this rectangle.
+	 * <p>
+	 * A position is reachable if it lies within the rectangle extended by one
+	 * cell but is none of the corners of that extended rectangle, as moving
+	 * diagonally is not possible.
+	 *
+	 * @param x
+	 * 		x-coordinate of the position to check for reachability.
+	 * @param y
+	 * 		y-coordinate of the position to check for reachability.
+	 * @return true iff the position (x,y) can be reached from this rectangle.
+	 */
+	public boolean reachable(final int x, final int y) {
+		boolean withinX = minX - 1 <= x && x <= maxX + 1;
+		boolean withinY = minY - 1 <= y && y <= maxY + 1;
+		boolean cornerX = x == minX - 1 || x == maxX + 1;
+		boolean cornerY = y == minY - 1 || y == maxY + 1;
 
-		return reachable.contains(pos);
+		return withinX && withinY && !(cornerX && cornerY);
 	}
 
 	/**
@@ -373,31 +405,28 @@ public class Rectangle {
 		boolean isPoint2 = r2.isPoint();
 
 		if (isPoint1 && isPoint2) {
-			return Point.adjacent(r1.getPoint(), r2.getPoint());
+			return Point.adjacent(r1.minX, r1.minY, r2.minX, r2.minY);
 		}
 
 		/*
-		Both rectangles are "real" rectangles. The algorithm now is to create
-		a rectangle that is bigger than the other by one cell and then see
-		whether these rectangles overlap.
+		Both rectangles are "real" rectangles. The algorithm now is to extend
+		one rectangle by one cell and then see whether it overlaps the other
+		one. The extension is done on the coordinates to avoid creating a new
+		rectangle.
 		 */
 		if (!isPoint1 && !isPoint2) {
-			Rectangle biggerRect = extend(r1, 1);
-			return Rectangle.overlapping(biggerRect, r2);
+			return r1.minX - 1 <= r2.maxX && r2.minX <= r1.maxX + 1 &&
+				   r1.minY - 1 <= r2.maxY && r2.minY <= r1.maxY + 1;
 		}
 
 		/*
-		Now we know that at least one  Rectangle is a point and can act
+		Now we know that exactly one Rectangle is a point and can act
 		accordingly
 		 */
-		Point p = r1.getPoint();
-		Rectangle rec = r2;
-		if (r2.isPoint()) {
-			p = r2.getPoint();
-			rec = r1;
+		if (isPoint1) {
+			return r2.contains(r1.minX, r1.minY);
 		}
-
-		return rec.contains(p);
+		return r1.contains(r2.minX, r2.minY);
 	}
 
 
@@ -407,10 +436,25 @@ public class Rectangle {
 	 * @return Point of type (width,height).
 	 */
 	public Point size() {
-		return new Point(
-				(upperRight.fst - lowerLeft.fst) + 1,
-				(upperRight.snd - lowerLeft.snd) + 1
-		);
+		return new Point(width(), height());
+	}
+
+	/**
+	 * Computes the width of the rectangle.
+	 *
+	 * @return The number of cells the rectangle spans in x direction.
+	 */
+	public int width() {
+		return maxX - minX + 1;
+	}
+
+	/**
+	 * Computes the height of the rectangle.
+	 *
+	 * @return The number of cells the rectangle spans in y direction.
+	 */
+	public int height() {
+		return maxY - minY + 1;
 	}
 
 	/**
@@ -441,7 +485,7 @@ public class Rectangle {
 	 * @return The upper left corner of the rectangle.
 	 */
 	public Point upperLeft() {
-		return new Point(lowerLeft.fst, upperRight.snd);
+		return new Point(minX, maxY);
 	}
 
 	/**
@@ -450,7 +494,7 @@ public class Rectangle {
 	 * @return The lower right corner of the rectangle.
 	 */
 	public Point lowerRight() {
-		return new Point(upperRight.fst, lowerLeft.snd);
+		return new Point(maxX, minY);
 	}
 
 	/**
@@ -469,11 +513,40 @@ public class Rectangle {
 	 * @return True if the point is adjacent to the rectangle.
 	 */
 	public boolean adjacent(final Point p, final int size) {
-		Rectangle biggerRect =
-				new Rectangle(lowerLeft.fst - size, lowerLeft.snd - size,
-							  upperRight.fst + size, upperRight.snd + size);
+		return adjacent(p.fst, p.snd, size);
+	}
 
-		return biggerRect.contains(p);
+	/**
+	 * Checks if a position is adjacent to this rectangle.
+	 * <p>
+	 * The check is done by testing whether the position is within the
+	 * rectangle extended by size cells.
+	 *
+	 * @param x
+	 * 		x-coordinate of the position to check for adjacency.
+	 * @param y
+	 * 		y-coordinate of the position to check for adjacency.
+	 * @param size
+	 * 		The size of the adjacency to be considered.
+	 * @return True if the position is adjacent to the rectangle.
+	 */
+	public boolean adjacent(final int x, final int y, final int size) {
+		return minX - size <= x && x <= maxX + size &&
+			   minY - size <= y && y <= maxY + size;
+	}
+
+	/**
+	 * Checks if a position is adjacent to this rectangle using a distance of
+	 * 1.
+	 *
+	 * @param x
+	 * 		x-coordinate of the position to check for adjacency.
+	 * @param y
+	 * 		y-coordinate of the position to check for adjacency.
+	 * @return True if the position is adjacent to the rectangle.
+	 */
+	public boolean adjacent(final int x, final int y) {
+		return adjacent(x, y, 1);
 	}
 
 
@@ -510,7 +583,8 @@ public class Rectangle {
 
 		Rectangle other = (Rectangle) o;
 
-		return lowerLeft.equals(other.lowerLeft) && upperRight.equals(other.upperRight);
+		return minX == other.minX && minY == other.minY &&
+			   maxX == other.maxX && maxY == other.maxY;
 	}
 
 
@@ -0,0 +1,223 @@
+/*
+ * BioViz, a visualization tool for digital microfluidic biochips (DMFB).
+ *
+ * Copyright (c) 2017 Oliver Keszocze, Jannis Stoppe, Maximilian Luenert
+ *
+ * This file is part of BioViz.
+ *
+ * BioViz is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * BioViz is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * See the GNU General Public License for more details. You should have
+ * received a copy of the GNU
+ * General Public License along with BioViz.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.bioviz.svg;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+/**
+ * The values an svg attribute takes over the time steps of an assay.
+ * <p>
+ * Only the time steps at which the value changes are stored. The track is
+ * turned into the values and keyTimes of a SMIL animation running once
+ * through all time steps, where time step t starts at (t - 1) / maxT.
+ * <p>
+ * A value may be null, meaning that the element is not shown.
+ *
+ * @author agent
+ */
+final class Keyframes {
+
+	/**
+	 * The number of decimal places of the key times.
+	 */
+	private static final int KEY_TIME_SCALE = 6;
+
+	/**
+	 * The time steps at which the value changes.
+	 */
+	private final List<Integer> times = new ArrayList<>();
+
+	/**
+	 * The values starting at the corresponding time steps.
+	 */
+	private final List<String> values = new ArrayList<>();
+
+	/**
+	 * Records the value at a time step.
+	 * <p>
+	 * The time steps have to be added in ascending order. The first value is
+	 * also used for all time steps before it. Values equal to the previous
+	 * one are dropped.
+	 *
+	 * @param timeStep
+	 * 		The time step
+	 * @param value
+	 * 		The value at that time step
+	 */
+	void add(final int timeStep, final String value) {
+		if (values.isEmpty() ||
+			!Objects.equals(values.get(values.size() - 1), value)) {
+			times.add(timeStep);
+			values.add(value);
+		}
+	}
+
+	/**
+	 * @return true if the value never changes.
+	 */
+	boolean isConstant() {
+		return values.size() <= 1;
+	}
+
+	/**
+	 * @return The value at the first time step.
+	 */
+	String getFirst() {
+		return values.isEmpty() ? null : values.get(0);
+	}
+
+	/**
+	 * Returns the value at a time step.
+	 *
+	 * @param timeStep
+	 * 		The time step
+	 * @return The last value added at or before the time step
+	 */
+	String valueAt(final int timeStep) {
+		int i = Collections.binarySearch(times, timeStep);
+		if (i < 0) {
+			i = Math.max(0, -i - 2);
+		}
+		return values.isEmpty() ? null : values.get(i);
+	}
+
+	/**
+	 * @return All values that are not null, in order of their first
+	 * occurrence.
+	 */
+	Set<String> distinctValues() {
+		Set<String> result = new LinkedHashSet<>(values);
+		result.remove(null);
+		return result;
+	}
+
+	/**
+	 * Creates the track of a function of the values.
+	 *
+	 * @param f
+	 * 		The function applied to every value
+	 * @return The track of the function values
+	 */
+	Keyframes map(final UnaryOperator<String> f) {
+		Keyframes result = new Keyframes();
+		for (int i = 0; i < values.size(); i++) {
+			result.add(times.get(i), f.apply(values.get(i)));
+		}
+		return result;
+	}
+
+	/**
+	 * Computes the values of a SMIL animation.
+	 *
+	 * @param linear
+	 * 		Whether the values are interpolated linearly. Each change then
+	 * 		happens during the time step before it. Otherwise, the values
+	 * 		change discretely at the start of the time steps.
+	 * @param maxT
+	 * 		The last time step of the assay
+	 * @return The values, separated by semicolons
+	 */
+	String values(final boolean linear, final int maxT) {
+		StringBuilder sb = new StringBuilder();
+		for (final Object[] frame : frames(linear, maxT)) {
+			if (sb.length() > 0) {
+				sb.append(';');
+			}
+			sb.append(frame[1]);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Computes the key times of a SMIL animation.
+	 *
+	 * @param linear
+	 * 		Whether the values are interpolated linearly
+	 * @param maxT
+	 * 		The last time step of the assay
+	 * @return The key times, separated by semicolons
+	 * @see #values(boolean, int)
+	 */
+	String keyTimes(final boolean linear, final int maxT) {
+		StringBuilder sb = new StringBuilder();
+		for (final Object[] frame : frames(linear, maxT)) {
+			if (sb.length() > 0) {
+				sb.append(';');
+			}
+			sb.append(keyTime((Integer) frame[0], maxT));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Computes the time steps and values of the key frames.
+	 * <p>
+	 * Linear animations hold each value until the time step before the next
+	 * change and end with the last value at the end of the assay.
+	 *
+	 * @param linear
+	 * 		Whether the values are interpolated linearly
+	 * @param maxT
+	 * 		The last time step of the assay
+	 * @return Pairs of time step and value
+	 */
+	private List<Object[]> frames(final boolean linear, final int maxT) {
+		List<Object[]> frames = new ArrayList<>();
+		int previous = 1;
+		for (int i = 0; i < values.size(); i++) {
+			int t = i == 0 ? 1 : times.get(i);
+			if (linear && i > 0 && t - 1 > previous) {
+				frames.add(new Object[]{t - 1, values.get(i - 1)});
+			}
+			frames.add(new Object[]{t, values.get(i)});
+			previous = t;
+		}
+		if (linear && !values.isEmpty()) {
+			frames.add(new Object[]{maxT + 1, values.get(values.size() - 1)});
+		}
+		return frames;
+	}
+
+	/**
+	 * Computes the key time at which a time step starts.
+	 *
+	 * @param timeStep
+	 * 		The time step
+	 * @param maxT
+	 * 		The last time step of the assay
+	 * @return The key time, between 0 and 1
+	 */
+	private static String keyTime(final int timeStep, final int maxT) {
+		return BigDecimal.valueOf((timeStep - 1) / (double) maxT)
+				.setScale(KEY_TIME_SCALE, RoundingMode.HALF_UP)
+				.stripTrailingZeros().toPlainString();
+	}
+}
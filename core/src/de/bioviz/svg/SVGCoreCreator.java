@@ -27,8 +27,7 @@ import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Color;
 import de.bioviz.structures.Net;
 import de.bioviz.structures.Point;
-import de.bioviz.ui.DrawableDroplet;
-import de.bioviz.ui.DrawableField;
+import de.bioviz.ui.DisplayValues;
 import de.bioviz.ui.TextureE;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,9 +43,16 @@ import javax.xml.parsers.ParserConfigurationException;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.Map;
 
 /**
+ * Creates the svg definitions (cores) used by the exported svgs.
+ * <p>
+ * An instance is not thread safe; every thread exporting svgs needs its own
+ * creator.
+ *
  * @author Maximilian Luenert
  */
 class SVGCoreCreator {
@@ -72,12 +78,34 @@ class SVGCoreCreator {
 	 */
 	private String baseFolder = "images";
 
+	/**
+	 * The uncolored cores that have been loaded so far.
+	 */
+	private final Map<TextureE, String> uncoloredCores =
+			new EnumMap<>(TextureE.class);
+
+	/**
+	 * The parser used to read the cores, created on first use.
+	 */
+	private DocumentBuilder parser = null;
+
+	/**
+	 * The settings of the export the cores are created for.
+	 */
+	private final SVGExportSettings settings;
+
 	/**
 	 * Creates a new SVGCoreCreator.
+	 *
+	 * @param doc
+	 * 		The Document owning the created cores
+	 * @param settings
+	 * 		The settings of the export the cores are created for
 	 */
-	SVGCoreCreator(Document doc) {
+	SVGCoreCreator(Document doc, final SVGExportSettings settings) {
 		// default constructor
 		this.doc = doc;
+		this.settings = settings;
 	}
 
 	/**
@@ -92,18 +120,22 @@ class SVGCoreCreator {
 	 */
 	void setFolder(final String folder) {
 		svgCoreFolder = folder;
+		uncoloredCores.clear();
+		coloredCores.clear();
 	}
 
 	/**
-	 * Sets the Document to use.
-	 *
-	 * @param doc The Document to use
+	 * The Document owning the created cores.
 	 */
-	void setDocument(final Document doc) {
-		this.doc = doc;
-	}
+	private final Document doc;
 
-	private Document doc;
+	/**
+	 * The colored cores that have been created so far.
+	 * <p>
+	 * The cores are never modified once created and can thus be shared by
+	 * all svgs exported with this creator.
+	 */
+	private final Map<String, Element> coloredCores = new HashMap<>();
 
 	/**
 	 * Return the svg core without color.
@@ -113,6 +145,17 @@ class SVGCoreCreator {
 	 * @return the svg code for the given type as a string
 	 */
 	private String getSVGFileAsString(final TextureE type) {
+		return uncoloredCores.computeIfAbsent(type, this::loadSVGFile);
+	}
+
+	/**
+	 * Loads the svg core without color from the theme folder.
+	 *
+	 * @param type
+	 * 		The type of the core.
+	 * @return the svg code for the given type as a string
+	 */
+	private String loadSVGFile(final TextureE type) {
 
 		String svgCoreFile =
 				baseFolder + "/" + svgCoreFolder + "/" + type + ".plain.svg";
@@ -138,6 +181,32 @@ class SVGCoreCreator {
 	 */
 	Element getSVGCode(final TextureE type, final Color fillColor,
 							 final Color strokeColor) {
+		// the id of the core depends on the colorful export setting
+		final String key = type + "/" + fillColor + "/" + strokeColor + "/" +
+						   settings.getColorfulExport();
+		Element core = coloredCores.get(key);
+		if (core == null) {
+			core = createSVGCode(type, fillColor, strokeColor);
+			if (core != null) {
+				coloredCores.put(key, core);
+			}
+		}
+		return core;
+	}
+
+	/**
+	 * Creates the svg core data with the given fill and stroke color.
+	 *
+	 * @param type
+	 * 		The type of the core.
+	 * @param fillColor
+	 * 		The fill color.
+	 * @param strokeColor
+	 * 		The stroke color.
+	 * @return String containing svg core data.
+	 */
+	private Element createSVGCode(final TextureE type, final Color fillColor,
+								  final Color strokeColor) {
 		String uncoloredCore = getSVGFileAsString(type);
 
 		if(uncoloredCore == null){
@@ -147,15 +216,16 @@ class SVGCoreCreator {
 
 		Element coloredCore = null;
 
-		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-		DocumentBuilder builder;
 		ByteArrayInputStream input;
 
 		try {
-			builder = factory.newDocumentBuilder();
+			if (parser == null) {
+				parser = DocumentBuilderFactory.newInstance()
+						.newDocumentBuilder();
+			}
 
 			input = new ByteArrayInputStream(uncoloredCore.getBytes("UTF-8"));
-			Document parseDoc = builder.parse(input);
+			Document parseDoc = parser.parse(input);
 
 			parseDoc.getDocumentElement().normalize();
 
@@ -179,7 +249,7 @@ class SVGCoreCreator {
 					Element elem = (Element) group;
 					elem.setAttribute("id", SVGUtils.generateColoredID(
 							type.toString(),
-							fillColor));
+							fillColor, settings));
 				}
 			}
 			if (strokeColor != null) {
@@ -387,22 +457,38 @@ class SVGCoreCreator {
 	 *
 	 * @param svgs
 	 * 		the map
-	 * @param field
-	 * 		the field
+	 * @param vals
+	 * 		the unhovered display values of the field
 	 */
 	void appendFieldSVG(final Map<String, Element> svgs,
-							   final DrawableField field) {
-
-		final String key = SVGUtils.generateColoredID(field.getDisplayValues()
-															  .getTexture()
-															  .toString(),
-													  SVGUtils
-															  .getUnhoveredColor(
-																	  field));
+							   final DisplayValues vals) {
+		appendCore(svgs, vals.getTexture(), vals.getColor());
+	}
+
+	/**
+	 * Puts the svg code for a core with the given color into the given map.
+	 * <p>
+	 * If the export is not colorful, the uncolored core is used as its id
+	 * is the one referenced by the exported elements.
+	 *
+	 * @param svgs
+	 * 		the map
+	 * @param type
+	 * 		the type of the core
+	 * @param color
+	 * 		the color of the core
+	 */
+	private void appendCore(final Map<String, Element> svgs,
+							final TextureE type,
+							final Color color) {
+		final String key =
+				SVGUtils.generateColoredID(type.toString(), color, settings);
 		// don't create the svg core code twice
 		if (!svgs.containsKey(key)) {
-			Element elem = getSVGCode(field.getDisplayValues().getTexture(),
-					SVGUtils.getUnhoveredColor(field), null);
+			final Color fillColor =
+					settings.getColorfulExport() ?
+					color : null;
+			Element elem = getSVGCode(type, fillColor, null);
 			if (elem != null) {
 				svgs.put(key, elem);
 			}
@@ -422,12 +508,12 @@ class SVGCoreCreator {
 	void appendGradSVG(final Map<String, Element> svgs,
 							  final Net net, final
 							  GradDir dir) {
+		final Color netColor = SVGUtils.getNetColor(net, settings);
 		final String key =
 				SVGUtils.generateColoredID("Gradient-" + dir.toString(),
-										   SVGUtils.getNetColor(net));
+										   netColor, settings);
 		if (!svgs.containsKey(key)) {
-			svgs.put(key, getSVGLinearGradient(key, dir,
-											   SVGUtils.getNetColor(net)));
+			svgs.put(key, getSVGLinearGradient(key, dir, netColor));
 		}
 	}
 
@@ -436,22 +522,12 @@ class SVGCoreCreator {
 	 *
 	 * @param svgs
 	 * 		the map to insert into
-	 * @param drop
-	 * 		the droplet
+	 * @param dropColor
+	 * 		the color of the droplet
 	 */
 	void appendDropletSVG(final Map<String, Element> svgs,
-								 final
-								 DrawableDroplet
-										 drop) {
-		final String key =
-				SVGUtils.generateColoredID("Droplet", drop.getColor());
-		// don't create the svg core code twice
-		if (!svgs.containsKey(key)) {
-			Element elem = getSVGCode(TextureE.Droplet, drop.getColor(), null);
-			if (elem != null) {
-				svgs.put(key, elem);
-			}
-		}
+								 final Color dropColor) {
+		appendCore(svgs, TextureE.Droplet, dropColor);
 	}
 
 	/**
@@ -467,51 +543,55 @@ class SVGCoreCreator {
 										 dropColor) {
 		final Color[] colors =
 				{
-						SVGUtils.getLighterLongNetIndicatorColor(dropColor),
-						SVGUtils.getDarkerLongNetIndicatorColor(dropColor)
+						SVGUtils.getLighterLongNetIndicatorColor(
+								dropColor, settings),
+						SVGUtils.getDarkerLongNetIndicatorColor(
+								dropColor, settings)
 				};
 		for (final Color color : colors) {
-			final String key = SVGUtils.generateColoredID("ArrowHead", color);
-			if (!svgs.containsKey(key)) {
-				svgs.put(key, getArrowHead(key, color));
-			}
+			appendArrowhead(svgs, color);
 		}
 	}
 
 	/**
-	 * Puts the svg code for a sourceTargetArrowHead into the given map.
+	 * Puts the svg code for an arrowhead of the given color into the given
+	 * map.
 	 *
 	 * @param svgs
 	 * 		the map
+	 * @param color
+	 * 		the color of the arrowhead
 	 */
-	void appendSourceTargetArrowHead(final Map<String, Element> svgs) {
-		final Color color = Color.BLACK;
-		final String key = SVGUtils.generateColoredID("ArrowHead", color);
+	void appendArrowhead(final Map<String, Element> svgs,
+						 final Color color) {
+		final String key =
+				SVGUtils.generateColoredID("ArrowHead", color, settings);
 		if (!svgs.containsKey(key)) {
 			svgs.put(key, getArrowHead(key, color));
 		}
 	}
 
+	/**
+	 * Puts the svg code for a sourceTargetArrowHead into the given map.
+	 *
+	 * @param svgs
+	 * 		the map
+	 */
+	void appendSourceTargetArrowHead(final Map<String, Element> svgs) {
+		appendArrowhead(svgs, Color.BLACK);
+	}
+
 	/**
 	 * Puts the svg code of a route into the given map.
 	 *
 	 * @param svgs
 	 * 		the map to append to
-	 * @param drop
-	 * 		the droplet
+	 * @param routeColor
+	 * 		the color of the route
 	 */
 	void appendRoute(final Map<String, Element> svgs,
-							final DrawableDroplet
-									drop) {
-		final Color routeColor = drop.route.getColor();
-		final String key = SVGUtils.generateColoredID("StepMarker",
-													  routeColor);
-		if (!svgs.containsKey(key)) {
-			Element elem = getSVGCode(TextureE.StepMarker, routeColor, null);
-			if (elem != null) {
-				svgs.put(key, elem);
-			}
-		}
+							final Color routeColor) {
+		appendCore(svgs, TextureE.StepMarker, routeColor);
 	}
 
 }
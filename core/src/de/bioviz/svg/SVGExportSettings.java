@@ -37,6 +37,12 @@ public final class SVGExportSettings {
 	private boolean informationString = false;
 	/** export series of images for the entirety of the experiment. */
 	private boolean exportSeries = false;
+	/** only export the definitions that are referenced by the svg. */
+	private boolean compactDefinitions = true;
+	/** export the entirety of the experiment as a single animated image. */
+	private boolean animatedExport = false;
+	/** export a series as the first image followed by the changes. */
+	private boolean deltaSeries = false;
 
 	/**
 	 * private constructor.
@@ -56,6 +62,25 @@ public final class SVGExportSettings {
 		return instance;
 	}
 
+	/**
+	 * Copies the settings.
+	 * <p>
+	 * An export uses a copy so that the settings can be changed while it is
+	 * running.
+	 *
+	 * @return a new instance with the same values
+	 */
+	public SVGExportSettings copy() {
+		final SVGExportSettings copy = new SVGExportSettings();
+		copy.colorfulExport = colorfulExport;
+		copy.informationString = informationString;
+		copy.exportSeries = exportSeries;
+		copy.compactDefinitions = compactDefinitions;
+		copy.animatedExport = animatedExport;
+		copy.deltaSeries = deltaSeries;
+		return copy;
+	}
+
 	/**
 	 * getter for colorfulExport.
 	 * @return value of colorfulExport
@@ -103,4 +128,52 @@ public final class SVGExportSettings {
 	public void setExportSeries(final boolean exportSeries) {
 		this.exportSeries = exportSeries;
 	}
+
+	/**
+	 * getter for compactDefinitions.
+	 * @return value of compactDefinitions
+	 */
+	public boolean getCompactDefinitions() {
+		return compactDefinitions;
+	}
+
+	/**
+	 * setter for compactDefinitions.
+	 * @param compactDefinitions new value for compactDefinitions
+	 */
+	public void setCompactDefinitions(final boolean compactDefinitions) {
+		this.compactDefinitions = compactDefinitions;
+	}
+
+	/**
+	 * getter for animatedExport.
+	 * @return value of animatedExport
+	 */
+	public boolean getAnimatedExport() {
+		return animatedExport;
+	}
+
+	/**
+	 * setter for animatedExport.
+	 * @param animatedExport new value for animatedExport
+	 */
+	public void setAnimatedExport(final boolean animatedExport) {
+		this.animatedExport = animatedExport;
+	}
+
+	/**
+	 * getter for deltaSeries.
+	 * @return value of deltaSeries
+	 */
+	public boolean getDeltaSeries() {
+		return deltaSeries;
+	}
+
+	/**
+	 * setter for deltaSeries.
+	 * @param deltaSeries new value for deltaSeries
+	 */
+	public void setDeltaSeries(final boolean deltaSeries) {
+		this.deltaSeries = deltaSeries;
+	}
 }
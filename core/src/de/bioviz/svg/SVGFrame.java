@@ -0,0 +1,201 @@
+/*
+ * BioViz, a visualization tool for digital microfluidic biochips (DMFB).
+ *
+ * Copyright (c) 2017 Oliver Keszocze, Jannis Stoppe, Maximilian Luenert
+ *
+ * This file is part of BioViz.
+ *
+ * BioViz is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * BioViz is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * See the GNU General Public License for more details. You should have
+ * received a copy of the GNU
+ * General Public License along with BioViz.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.bioviz.svg;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An exported svg split into identifiable parts.
+ * <p>
+ * Every part is a group (g element) with a unique id holding the elements
+ * of one field, droplet, message etc. The parts are the direct children of
+ * the svg root element and always appear in the same order. This allows to
+ * describe a frame by the changes to the previous frame, see
+ * {@link #writePatch(SVGFrame, int, Writer)} and {@link SVGPatchReplay}.
+ * <p>
+ * A frame is recorded while the svg is written to a buffer: the text
+ * written between {@link #beginPart(String)} and {@link #endPart()} forms a
+ * part, the text before the first and after the last part is the header and
+ * footer of the document.
+ *
+ * @author agent
+ */
+final class SVGFrame {
+
+	/**
+	 * The buffer the svg is written to while the frame is recorded.
+	 */
+	private StringBuffer text;
+
+	/**
+	 * The text preceding the first part.
+	 */
+	private String header = null;
+
+	/**
+	 * The text following the last part.
+	 */
+	private String footer = "";
+
+	/**
+	 * The parts by id, in document order.
+	 */
+	private final Map<String, String> parts = new LinkedHashMap<>();
+
+	/**
+	 * The id of the part that is currently recorded.
+	 */
+	private String currentId = null;
+
+	/**
+	 * The position in the buffer where the current part starts.
+	 */
+	private int partStart = 0;
+
+	/**
+	 * The position in the buffer where the last part ended.
+	 */
+	private int lastEnd = 0;
+
+	/**
+	 * Starts recording a frame.
+	 *
+	 * @param text
+	 * 		The buffer the svg is written to
+	 */
+	SVGFrame(final StringBuffer text) {
+		this.text = text;
+	}
+
+	/**
+	 * Starts a new part.
+	 * <p>
+	 * Everything written to the buffer so far has to be flushed.
+	 *
+	 * @param id
+	 * 		The id of the part, unique within the frame
+	 */
+	void beginPart(final String id) {
+		if (header == null) {
+			header = text.substring(0);
+		}
+		currentId = id;
+		partStart = text.length();
+	}
+
+	/**
+	 * Ends the current part.
+	 * <p>
+	 * Everything written to the buffer so far has to be flushed. Parts
+	 * without any content are dropped.
+	 */
+	void endPart() {
+		if (text.length() > partStart) {
+			parts.put(currentId, "<g id=\"" + currentId + "\">\n" +
+								 text.substring(partStart) + "</g>\n");
+		}
+		currentId = null;
+		lastEnd = text.length();
+	}
+
+	/**
+	 * Ends the recording after the whole svg has been written.
+	 * <p>
+	 * The buffer is released afterwards.
+	 */
+	void finish() {
+		if (header == null) {
+			header = text.substring(0);
+		} else {
+			footer = text.substring(lastEnd);
+		}
+		text = null;
+	}
+
+	/**
+	 * Writes the complete svg of this frame.
+	 *
+	 * @param writer
+	 * 		The writer the svg is written to
+	 * @throws IOException
+	 * 		if the svg could not be written
+	 */
+	void writeTo(final Writer writer) throws IOException {
+		writer.write(header);
+		for (final String part : parts.values()) {
+			writer.write(part);
+		}
+		writer.write(footer);
+	}
+
+	/**
+	 * Writes the changes from the previous frame to this one.
+	 * <p>
+	 * The patch lists the ids of the parts that are gone and the new content
+	 * of every part that was added or changed, together with the id of the
+	 * part it follows. Unchanged parts are not written at all.
+	 *
+	 * @param previous
+	 * 		The frame of the previous time step
+	 * @param timeStep
+	 * 		The time step of this frame
+	 * @param writer
+	 * 		The writer the patch is written to
+	 * @return The number of parts that were removed, added or changed
+	 * @throws IOException
+	 * 		if the patch could not be written
+	 */
+	int writePatch(final SVGFrame previous,
+				   final int timeStep,
+				   final Writer writer) throws IOException {
+		int changes = 0;
+
+		writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		writer.write("<patch timeStep=\"" + timeStep + "\" " +
+					 "xmlns:xlink=\"http://www.w3.org/1999/xlink\">\n");
+
+		for (final String id : previous.parts.keySet()) {
+			if (!parts.containsKey(id)) {
+				writer.write("<remove id=\"" + id + "\"/>\n");
+				++changes;
+			}
+		}
+
+		String after = "";
+		for (final Map.Entry<String, String> part : parts.entrySet()) {
+			if (!part.getValue().equals(previous.parts.get(part.getKey()))) {
+				writer.write("<set after=\"" + after + "\">\n");
+				writer.write(part.getValue());
+				writer.write("</set>\n");
+				++changes;
+			}
+			after = part.getKey();
+		}
+
+		writer.write("</patch>\n");
+		return changes;
+	}
+}
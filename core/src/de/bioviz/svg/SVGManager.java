@@ -26,11 +26,14 @@ package de.bioviz.svg;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.utils.StringBuilder;
 import de.bioviz.structures.Biochip;
+import de.bioviz.structures.FPoint;
 import de.bioviz.structures.Net;
 import de.bioviz.structures.Point;
+import de.bioviz.structures.Rectangle;
 import de.bioviz.structures.Source;
+import de.bioviz.ui.AssayStep;
 import de.bioviz.ui.BDisplayOptions;
-import de.bioviz.ui.Colors;
+import de.bioviz.ui.DisplaySettings;
 import de.bioviz.ui.DisplayValues;
 import de.bioviz.ui.DrawableAssay;
 import de.bioviz.ui.DrawableDroplet;
@@ -42,22 +45,23 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
 
-import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.StringWriter;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -68,15 +72,17 @@ import java.util.Set;
  *         This class manages texture themes. One can specify a folder in which
  *         the png files that are loaded as textures are stored. These images
  *         are thenn either loaded on demand or returned from the cache.
+ *         <p>
+ *         The svgs are written element by element to the output file while
+ *         the assay is traversed. Only the definitions used by the svg are
+ *         kept in memory, the svg itself never is.
+ *         <p>
+ *         An instance renders one svg at a time and is not thread safe.
+ *         Series exports are rendered by a {@link SVGSeriesExporter} that
+ *         gives each of its threads its own manager.
  */
 public class SVGManager {
 
-	/**
-	 * svgExportSettings.
-	 */
-	private static SVGExportSettings svgExportSettings = SVGExportSettings
-			.getInstance();
-
 	/**
 	 * logger.
 	 */
@@ -95,6 +101,18 @@ public class SVGManager {
 	 * size of one block in pixels.
 	 */
 	private static final int COORDINATE_MULTIPLIER = 256;
+	/**
+	 * duration of one time step in the animated export in milliseconds.
+	 */
+	private static final int STEP_DURATION_MS = 500;
+	/**
+	 * visibility of an element that is shown.
+	 */
+	private static final String VISIBLE = "visible";
+	/**
+	 * visibility of an element that is not shown.
+	 */
+	private static final String HIDDEN = "hidden";
 
 	// font options
 	/**
@@ -132,9 +150,12 @@ public class SVGManager {
 	private SVGCoreCreator svgCoreCreator;
 
 	/**
-	 * hashMap for uncolored svg elements.
+	 * The definitions written to the svg, by id.
+	 * <p>
+	 * The insertion order is kept so that the definitions are written in the
+	 * same order for identical frames.
 	 */
-	private Map<String, Element> svgs = new HashMap<>();
+	private Map<String, Element> svgs = new LinkedHashMap<>();
 
 
 	/**
@@ -179,20 +200,60 @@ public class SVGManager {
 	private DrawableAssay assay;
 
 	/**
-	 * The documentBuilder to create a new document.
+	 * The view of the assay at the exported time step.
+	 */
+	private AssayStep step;
+
+	/**
+	 * The display settings of the exported assay.
+	 */
+	private DisplaySettings display;
+
+	/**
+	 * The settings of the export, never changed by the user.
+	 */
+	private final SVGExportSettings settings;
+
+	/**
+	 * The name of the folder containing the theme.
+	 */
+	private final String themeFolder;
+
+	/**
+	 * The series or animated export that is currently running, null if
+	 * there is none.
 	 */
-	private DocumentBuilder docBuilder;
+	private volatile SVGSeriesExporter seriesExporter = null;
 
 	/**
-	 * The Document used to create the svg.
+	 * The Document owning the definitions created by the svgCoreCreator.
 	 */
 	private Document doc;
 
+	/**
+	 * The factory creating the writers for the svg files.
+	 */
+	private final XMLOutputFactory outputFactory =
+			XMLOutputFactory.newInstance();
+
+	/**
+	 * The writer of the svg that is currently exported.
+	 */
+	private XMLStreamWriter out;
+
+	/**
+	 * The frame that is recorded while writing, null if none is.
+	 */
+	private SVGFrame frame = null;
+
 	/**
 	 * SVGManager loading the default theme.
+	 *
+	 * @param settings
+	 * 		The settings of the exports, must not be changed afterwards
 	 */
-	public SVGManager() {
-		this("default");
+	public SVGManager(final SVGExportSettings settings) {
+		this("default", settings);
 	}
 
 	/**
@@ -203,19 +264,23 @@ public class SVGManager {
 	 * 		folder
 	 * 		<p>
 	 * 		The location is relative to the assets folder.
+	 * @param settings
+	 * 		The settings of the exports, must not be changed afterwards
 	 * @warning The folder name must not begin or end with a slash!
 	 */
-	public SVGManager(final String folder) {
+	public SVGManager(final String folder,
+					  final SVGExportSettings settings) {
+		themeFolder = folder;
+		this.settings = settings;
 		try {
 			final DocumentBuilderFactory docFactory =
 													DocumentBuilderFactory.newInstance();
-			docBuilder = docFactory.newDocumentBuilder();
-			doc = docBuilder.newDocument();
+			doc = docFactory.newDocumentBuilder().newDocument();
 		} catch (final ParserConfigurationException e) {
 			LOGGER.error("Could not create xml document builder. " + e.getMessage());
 		}
 
-		svgCoreCreator = new SVGCoreCreator(doc);
+		svgCoreCreator = new SVGCoreCreator(doc, settings);
 		svgCoreCreator.setFolder(folder);
 	}
 
@@ -288,9 +353,31 @@ public class SVGManager {
 
 	}
 
+	/**
+	 * Returns the series or animated export that is currently running.
+	 * <p>
+	 * The export can be used to query the progress and to cancel it.
+	 *
+	 * @return the running export, null if there is none
+	 */
+	public SVGSeriesExporter getSeriesExporter() {
+		return seriesExporter;
+	}
+
 	/**
 	 * Exports the created SVG into the given file.
 	 * Handles the creation of an SVG series export.
+	 * <p>
+	 * Neither export changes the time step displayed on screen. A series
+	 * export renders the time steps in parallel and blocks until all of them
+	 * are written or the export is cancelled via {@link #getSeriesExporter()}.
+	 * An animated export writes all time steps into the single given file
+	 * and can be cancelled the same way.
+	 * A delta encoded series only writes the changes after the first time
+	 * step, see {@link SVGPatchReplay}.
+	 * <p>
+	 * The export only reads the passed display settings and the settings of
+	 * this manager, so the user may change the live ones while it runs.
 	 *
 	 * @param file
 	 *					The File to store the SVG in
@@ -298,13 +385,25 @@ public class SVGManager {
 	 * 					The circuit to export
 	 * @param timeStep
 	 * 					The timestep for the export
+	 * @param view
+	 * 					The display settings of the circuit, copied on the
+	 * 					render thread
 	 */
 	public void exportSVG(final File file,
 												 final DrawableAssay circ,
-												 final int timeStep) {
-		//check if the series export option is active
-		if (svgExportSettings.getExportSeries()) {
-			int oldTime = circ.getCurrentTime();
+												 final int timeStep,
+												 final DisplaySettings view) {
+		if (settings.getAnimatedExport()) {
+			final SVGSeriesExporter exporter =
+					new SVGSeriesExporter(themeFolder, settings);
+			seriesExporter = exporter;
+			try {
+				exporter.exportAnimated(file, circ, view);
+			} finally {
+				seriesExporter = null;
+			}
+		} else if (settings.getExportSeries()) {
+			//the series export option is active
 			// this is problematic if the file contains
 			// .svg inside the name
 			int svgPosition = file.getAbsolutePath().indexOf(".svg");
@@ -315,21 +414,20 @@ public class SVGManager {
 			if (svgPosition != -1) {
 				pathWithoutSuffix = file.getAbsolutePath().substring(0, svgPosition);
 			}
-			final int maxT = circ.getData().getMaxT();
-			final int numDigits = (int) (Math.log10(maxT) + 1);
-			final String numberFormatString = "%0" + numDigits + "d";
-
-			// create a series of files
-			for (int t = 1; t <= maxT; t++) {
-				String filePath = pathWithoutSuffix + "_ts" +
-						String.format(numberFormatString, t) + ".svg";
-				File curFile = new File(filePath);
-				this.saveSVG(curFile, circ, t);
+			final SVGSeriesExporter exporter =
+					new SVGSeriesExporter(themeFolder, settings);
+			seriesExporter = exporter;
+			try {
+				if (settings.getDeltaSeries()) {
+					exporter.exportDelta(pathWithoutSuffix, circ, view);
+				} else {
+					exporter.export(pathWithoutSuffix, circ, view);
+				}
+			} finally {
+				seriesExporter = null;
 			}
-			// restore time from start
-			circ.setCurrentTime(oldTime);
 		} else {
-			this.saveSVG(file, circ, timeStep);
+			this.saveSVG(file, new AssayStep(circ, timeStep, view));
 		}
 
 	}
@@ -339,181 +437,497 @@ public class SVGManager {
 	 *
 	 * @param file
 	 * 					The File to store the svg in.
-	 * @param circ
-	 * 					The circuit to export.
-	 * @param timeStep
-	 * 					The timestep for the export.
+	 * @param assayStep
+	 * 					The view of the assay at the time step to export.
 	 */
-	private void saveSVG(final File file, final DrawableAssay circ, final int
-			timeStep) {
-
-		doc = docBuilder.newDocument();
-		svgCoreCreator.setDocument(doc);
+	void saveSVG(final File file, final AssayStep assayStep) {
 
-		try (FileWriter fileWriter = new FileWriter(file, false)) {
-			fileWriter.write(this.toSVG(circ, timeStep));
-		} catch (final IOException e) {
+		try (Writer fileWriter = Files.newBufferedWriter(
+				file.toPath(), StandardCharsets.UTF_8)) {
+			writeSVG(assayStep, fileWriter);
+		} catch (final IOException | XMLStreamException e) {
 			LOGGER.error("Failed to write file: {}", file.getAbsolutePath());
 			LOGGER.error("Exception: ", e.getMessage());
 		}
 	}
 
+	/**
+	 * Renders a time step into a frame of a delta encoded series.
+	 * <p>
+	 * Nothing is written to disk; the frame is kept in memory.
+	 *
+	 * @param assayStep
+	 * 					The view of the assay at the time step to export.
+	 * @return The svg of the time step, split into its parts
+	 * @throws XMLStreamException
+	 * 		if the svg could not be created
+	 */
+	SVGFrame createFrame(final AssayStep assayStep)
+			throws XMLStreamException {
+		final StringWriter buffer = new StringWriter();
+		frame = new SVGFrame(buffer.getBuffer());
+		try {
+			writeSVG(assayStep, buffer);
+			frame.finish();
+			return frame;
+		} finally {
+			frame = null;
+		}
+	}
+
 	/**
 	 * Export the assay to svg.
+	 * <p>
+	 * The elements are written to the writer as soon as they are created,
+	 * i.e. the svg is never held in memory as a whole. If a frame is
+	 * recorded, the elements are additionally grouped into its parts.
 	 *
-	 * @param circ
-	 * 		The assay to export
-	 * @param timeStep
-	 * 		The timeStep for the export
-	 * @return svg string representation
+	 * @param assayStep
+	 * 		The view of the assay at the time step to export
+	 * @param writer
+	 * 		The writer the svg is written to
+	 * @throws XMLStreamException
+	 * 		if the svg could not be written
 	 */
-	private String toSVG(final DrawableAssay circ, final int timeStep) {
+	private void writeSVG(final AssayStep assayStep, final Writer writer)
+			throws XMLStreamException {
 
-		Element rootNode = doc.createElement("svg");;
+		step = assayStep;
+		assay = assayStep.getAssay();
+		display = assayStep.getDisplaySettings();
 
-		assay = circ;
+		startDocument(writer);
+		try {
+			// Every element puts the definitions it references into svgs.
+			// In the compact mode, only these are written after all elements.
+			// Otherwise every definition is put in the file up front.
+			final boolean compact = settings.getCompactDefinitions();
+			if (compact) {
+				svgs.clear();
+			} else {
+				createDefCores();
+				beginPart("defs");
+				writeDefs();
+				endPart();
+			}
 
-		// set the export timeStep
-		assay.setCurrentTime(timeStep);
+			for (final DrawableField field : assay.getFields()) {
+				beginPart("field-" + partId(field));
+				toSVG(field);
+				endPart();
+			}
+			for (final DrawableDroplet drop : assay.getDroplets()) {
+				if (step.isVisible(drop)) {
+					beginPart("droplet-" + drop.droplet.getID());
+					toSVG(drop);
+					endPart();
+				}
+			}
+			// run over each droplet again and draw the arrows
+			// otherwise arrows can get under droplets
+			final boolean dropletArrows = display.getOption(
+					BDisplayOptions.LongNetIndicatorsOnDroplets);
+			for (final DrawableDroplet drop : assay.getDroplets()) {
+				if (dropletArrows && step.isVisible(drop)) {
+					beginPart("arrows-" + drop.droplet.getID());
+					createDropletArrows(drop);
+					endPart();
+				}
+			}
 
-		calculateViewboxDimensions();
+			beginPart("netarrows");
+			createSourceTargetArrows();
+			endPart();
 
-		if (assay.getDisplayOptions().getOption(BDisplayOptions
-														.Coordinates)) {
-			int coordinateOffsetX = (int) (COORDINATE_MULTIPLIER * 0.75);
-			int coordinateOffsetY = (int) (COORDINATE_MULTIPLIER * 0.75);
-			viewBoxX -= coordinateOffsetX;
-			viewBoxY -= coordinateOffsetY;
-			viewBoxWidth += coordinateOffsetX;
-			viewBoxHeight += coordinateOffsetY;
-		}
+			// export msg strings for fields
+			for (final DrawableField field : assay.getFields()) {
+				beginPart("fieldmsg-" + partId(field));
+				createFieldMsg(field);
+				endPart();
+			}
 
-		if (svgExportSettings.getInformationString()) {
-			int infoStringOffset = FONT_SIZE_INFO_STRING * 2;
-			viewBoxHeight += infoStringOffset;
-		}
+			// export msg strings for droplets
+			for (final DrawableDroplet drop : assay.getDroplets()) {
+				//
+				if (step.isVisible(drop)) {
+					beginPart("dropletmsg-" + drop.droplet.getID());
+					createDropletMsg(drop);
+					endPart();
+				}
+			}
 
-		LOGGER.debug("[SVG] Starting to create SVG String");
+			if (settings.getInformationString()) {
+				beginPart("info");
+				createInfoString("Timestep: " + step.getTimeStep());
+				endPart();
+			}
 
-		rootNode.setAttribute("width", "100%");
-		rootNode.setAttribute("height", "100%");
-		rootNode.setAttribute("viewBox",
-									viewBoxX + " " + viewBoxY + " " +
-									viewBoxWidth + " " + viewBoxHeight
-									);
-		rootNode.setAttribute("version", "1.0");
-		rootNode.setAttribute("xmlns", "http://www.w3.org/2000/svg");
-		rootNode.setAttribute("xmlns:xlink", "http://www.w3.org/1999/xlink");
+			if (display.getOption(
+					BDisplayOptions.Coordinates)) {
+				beginPart("coordinates");
+				createCoordinates();
+				endPart();
+			}
 
-		doc.appendChild(rootNode);
+			if (compact) {
+				beginPart("defs");
+				writeDefs();
+				endPart();
+			}
 
-		// simply always put every definition in the file. File size and/or
-		// computation time does not really matter here.
-		Element defs = doc.createElement("defs");
+			endDocument();
+		} finally {
+			out.close();
+			out = null;
+		}
+	}
 
-		// create all def elements and save them in svgs
-		createDefCores();
+	/**
+	 * Saves the whole assay as a single animated svg.
+	 * <p>
+	 * If the export is cancelled, nothing is written and the file is
+	 * removed.
+	 *
+	 * @param file
+	 * 		The File to store the svg in.
+	 * @param circ
+	 * 		The assay to export
+	 * @param view
+	 * 		The display settings of the assay
+	 * @param exporter
+	 * 		The export tracking the progress
+	 * @return true if the svg was written
+	 */
+	boolean saveAnimatedSVG(final File file,
+							final DrawableAssay circ,
+							final DisplaySettings view,
+							final SVGSeriesExporter exporter) {
+
+		boolean written = false;
+		try (Writer fileWriter = Files.newBufferedWriter(
+				file.toPath(), StandardCharsets.UTF_8)) {
+			written = writeAnimatedSVG(circ, view, exporter, fileWriter);
+		} catch (final IOException | XMLStreamException e) {
+			LOGGER.error("Failed to write file: {}", file.getAbsolutePath());
+			LOGGER.error("Exception: ", e.getMessage());
+		}
+		if (!written) {
+			try {
+				Files.deleteIfExists(file.toPath());
+			} catch (final IOException e) {
+				LOGGER.error("Could not remove file: {}",
+							 file.getAbsolutePath());
+			}
+		}
+		return written;
+	}
 
-		// append all cores to the svg
-		svgs.forEach((name, svgcode) -> defs.appendChild(svgcode));
+	/**
+	 * Exports all time steps of the assay to a single svg.
+	 * <p>
+	 * Everything that does not change over time is written once. Fields and
+	 * messages that change get one element per appearance that is only
+	 * visible while it is shown. Droplets, their arrows and messages move via
+	 * SMIL animations with one key frame per change. Routes are shown
+	 * together with their droplets. The definitions are always limited to
+	 * the ones that are referenced.
+	 *
+	 * @param circ
+	 * 		The assay to export
+	 * @param view
+	 * 		The display settings of the assay
+	 * @param exporter
+	 * 		The export tracking the progress, checked for cancellation after
+	 * 		every time step
+	 * @param writer
+	 * 		The writer the svg is written to
+	 * @return false if the export was cancelled before anything was written
+	 * @throws XMLStreamException
+	 * 		if the svg could not be written
+	 */
+	private boolean writeAnimatedSVG(
+			final DrawableAssay circ,
+			final DisplaySettings view,
+			final SVGSeriesExporter exporter,
+			final Writer writer) throws XMLStreamException {
 
-		rootNode.appendChild(defs);
+		assay = circ;
+		display = view;
+		svgs.clear();
 
-		for (final DrawableField field : assay.getFields()) {
-			toSVG(field).forEach(
-					fieldElem -> rootNode.appendChild(fieldElem)
-			);
-		}
-		for (final DrawableDroplet drop : assay.getDroplets()) {
-			if (SVGUtils.isNotHiddenOrInvisible(drop)) {
-				toSVG(drop).forEach(
-						dropElem -> rootNode.appendChild(dropElem)
-				);
+		// record how the appearance of the elements changes over time
+		final Map<DrawableField, Keyframes> fieldIDs = new IdentityHashMap<>();
+		final Map<DrawableField, Keyframes> fieldMsgs =
+				new IdentityHashMap<>();
+		final Map<DrawableDroplet, Keyframes> dropletIDs =
+				new IdentityHashMap<>();
+		final Map<DrawableDroplet, Color> dropletColors =
+				new IdentityHashMap<>();
+		final Map<DrawableDroplet, String> dropletMsgs =
+				new IdentityHashMap<>();
+		final Map<DrawableDroplet, Color> routeColors = new IdentityHashMap<>();
+		final int maxT = assay.getData().getMaxT();
+		for (int t = 1; t <= maxT && !exporter.isCancelled(); t++) {
+			step = new AssayStep(assay, t, view);
+			for (final DrawableField field : assay.getFields()) {
+				DisplayValues vals = step.getDisplayValues(field);
+				svgCoreCreator.appendFieldSVG(svgs, vals);
+				fieldIDs.computeIfAbsent(field, f -> new Keyframes()).add(
+						t, SVGUtils.generateColoredID(
+								vals.getTexture().toString(), vals.getColor(),
+								settings));
+				fieldMsgs.computeIfAbsent(field, f -> new Keyframes()).add(
+						t, vals.getMsg());
 			}
-		}
-		// run over each droplet again and draw the arrows
-		// otherwise arrows can get under droplets
-		for (final DrawableDroplet drop : assay.getDroplets()) {
-			if (assay.getDisplayOptions().
-					getOption(BDisplayOptions.LongNetIndicatorsOnDroplets) &&
-				SVGUtils.isNotHiddenOrInvisible(drop)) {
-				createDropletArrows(drop).forEach(
-						arrow -> rootNode.appendChild(arrow)
-				);
+			for (final DrawableDroplet drop : assay.getDroplets()) {
+				String dropletID = null;
+				if (step.isVisible(drop)) {
+					Color dropColor = step.getDropletColor(drop);
+					svgCoreCreator.appendDropletSVG(svgs, dropColor);
+					dropletID = SVGUtils.generateColoredID(
+							"Droplet", dropColor, settings);
+					dropletColors.putIfAbsent(drop, dropColor);
+					dropletMsgs.putIfAbsent(drop, step.getDropletMsg(drop));
+					routeColors.putIfAbsent(drop, step.getRouteColor(drop));
+				}
+				dropletIDs.computeIfAbsent(drop, d -> new Keyframes()).add(
+						t, dropletID);
 			}
+			exporter.stepExported();
+		}
+		step = null;
+		if (exporter.isCancelled()) {
+			return false;
 		}
 
-		// append longNetIndicatorsOnFields when needed
-		for (final Net net : assay.getData().getNets()) {
-			if (assay.getDisplayOptions().getOption(BDisplayOptions
-															.LongNetIndicatorsOnFields)) {
-				createSourceTargetArrow(net).forEach(
-						arrow -> rootNode.appendChild(arrow)
-				);
+		startDocument(writer);
+		try {
+			for (final DrawableField field : assay.getFields()) {
+				writeAnimatedField(field, fieldIDs.get(field));
 			}
-		}
 
-		// export msg strings for fields
-		for (final DrawableField field : assay.getFields()) {
-			Element fieldMsg = createFieldMsg(field);
-			if (fieldMsg != null) {
-				rootNode.appendChild(fieldMsg);
+			// droplets that are never visible are not exported at all
+			final Map<DrawableDroplet, Keyframes> translations =
+					new IdentityHashMap<>();
+			for (final DrawableDroplet drop : assay.getDroplets()) {
+				if (dropletColors.containsKey(drop)) {
+					translations.put(drop, writeAnimatedDroplet(
+							drop, dropletIDs.get(drop), routeColors.get(drop)));
+				}
 			}
-		}
 
-		// export msg strings for droplets
-		for (final DrawableDroplet drop : assay.getDroplets()) {
-			//
-			if (SVGUtils.isNotHiddenOrInvisible(drop)) {
-				Element dropMsg = createDropletMsg(drop);
-				if (dropMsg != null) {
-					rootNode.appendChild(dropMsg);
+			if (display.getOption(
+					BDisplayOptions.LongNetIndicatorsOnDroplets)) {
+				for (final DrawableDroplet drop : translations.keySet()) {
+					writeAnimatedDropletArrows(drop, dropletIDs.get(drop),
+											   dropletColors.get(drop));
 				}
 			}
+
+			createSourceTargetArrows();
+
+			for (final DrawableField field : assay.getFields()) {
+				writeAnimatedFieldMsg(field, fieldMsgs.get(field));
+			}
+
+			for (final DrawableDroplet drop : translations.keySet()) {
+				writeAnimatedDropletMsg(dropletMsgs.get(drop),
+						dropletIDs.get(drop), translations.get(drop));
+			}
+
+			if (settings.getInformationString()) {
+				createInfoString("Timesteps: 1-" + maxT);
+			}
+
+			if (display.getOption(
+					BDisplayOptions.Coordinates)) {
+				createCoordinates();
+			}
+
+			writeDefs();
+
+			endDocument();
+		} finally {
+			out.close();
+			out = null;
 		}
+		return true;
+	}
 
-		if (svgExportSettings.getInformationString()) {
-			rootNode.appendChild(createInfoString());
+	/**
+	 * Writes the start of the svg document including the root element.
+	 * <p>
+	 * The view box is computed for the current assay.
+	 *
+	 * @param writer
+	 * 		The writer the svg is written to
+	 * @throws XMLStreamException
+	 * 		if the svg could not be written
+	 */
+	private void startDocument(final Writer writer)
+			throws XMLStreamException {
+
+		calculateViewboxDimensions();
+
+		if (display.getOption(BDisplayOptions
+														.Coordinates)) {
+			int coordinateOffsetX = (int) (COORDINATE_MULTIPLIER * 0.75);
+			int coordinateOffsetY = (int) (COORDINATE_MULTIPLIER * 0.75);
+			viewBoxX -= coordinateOffsetX;
+			viewBoxY -= coordinateOffsetY;
+			viewBoxWidth += coordinateOffsetX;
+			viewBoxHeight += coordinateOffsetY;
 		}
 
-		if (assay.getDisplayOptions().getOption(
-				BDisplayOptions.Coordinates)) {
-			createCoordinates().forEach(
-					coord -> rootNode.appendChild(coord)
-			);
+		if (settings.getInformationString()) {
+			int infoStringOffset = FONT_SIZE_INFO_STRING * 2;
+			viewBoxHeight += infoStringOffset;
 		}
 
-		return transformXML(doc);
+		LOGGER.debug("[SVG] Starting to create SVG String");
+
+		out = outputFactory.createXMLStreamWriter(writer);
+		out.writeStartDocument("UTF-8", "1.0");
+		newline();
+		out.writeStartElement("svg");
+		out.writeAttribute("width", "100%");
+		out.writeAttribute("height", "100%");
+		out.writeAttribute("viewBox",
+						   viewBoxX + " " + viewBoxY + " " +
+						   viewBoxWidth + " " + viewBoxHeight
+		);
+		out.writeAttribute("version", "1.0");
+		out.writeAttribute("xmlns", "http://www.w3.org/2000/svg");
+		out.writeAttribute("xmlns:xlink", "http://www.w3.org/1999/xlink");
+		newline();
 	}
 
 	/**
-	 * Transforms the given xml document into a string.
+	 * Closes the root element and ends the svg document.
 	 *
-	 * @param document
-	 * 							The document that should be transformed into a string.
-	 * @return A string representation of the XML document.
+	 * @throws XMLStreamException
+	 * 		if the svg could not be written
 	 */
-	private String transformXML(final Document document) {
-		StreamResult result = new StreamResult();
-		StringWriter writer = new StringWriter();
-		try {
+	private void endDocument() throws XMLStreamException {
+		out.writeEndElement();
+		newline();
+		out.writeEndDocument();
+		out.flush();
+	}
 
-			TransformerFactory transformerFactory = TransformerFactory.newInstance();
-			Transformer transformer = transformerFactory.newTransformer();
-			transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+	/**
+	 * Starts a part of the frame that is recorded, if any.
+	 *
+	 * @param id
+	 * 		The id of the part
+	 * @throws XMLStreamException
+	 * 		if the svg written so far could not be flushed
+	 */
+	private void beginPart(final String id) throws XMLStreamException {
+		if (frame != null) {
+			out.flush();
+			frame.beginPart(id);
+		}
+	}
 
-			DOMSource source = new DOMSource(document);
+	/**
+	 * Ends the current part of the frame that is recorded, if any.
+	 *
+	 * @throws XMLStreamException
+	 * 		if the svg written so far could not be flushed
+	 */
+	private void endPart() throws XMLStreamException {
+		if (frame != null) {
+			out.flush();
+			frame.endPart();
+		}
+	}
 
-			// Output to stream writer
-			result = new StreamResult(writer);
+	/**
+	 * Computes the part of the id of a frame part that identifies a field.
+	 *
+	 * @param field
+	 * 		the field
+	 * @return the coordinates of the field
+	 */
+	private static String partId(final DrawableField field) {
+		return field.getField().x() + "_" + field.getField().y();
+	}
 
-			transformer.transform(source, result);
+	/**
+	 * Writes the definitions collected in svgs.
+	 * <p>
+	 * Each definition is written once, no matter how many elements
+	 * reference it.
+	 *
+	 * @throws XMLStreamException
+	 * 		if the definitions could not be written
+	 */
+	private void writeDefs() throws XMLStreamException {
+		out.writeStartElement("defs");
+		newline();
+		for (final Element svgcode : svgs.values()) {
+			writeNode(svgcode);
+			newline();
+		}
+		out.writeEndElement();
+		newline();
+	}
 
-		} catch (final TransformerException e) {
-			e.printStackTrace();
+	/**
+	 * Ends the current line of the svg.
+	 * <p>
+	 * Every element of the svg is put on its own line to keep the files
+	 * readable.
+	 *
+	 * @throws XMLStreamException
+	 * 		if the line break could not be written
+	 */
+	private void newline() throws XMLStreamException {
+		out.writeCharacters("\n");
+	}
+
+	/**
+	 * Writes a DOM node and all of its children to the svg.
+	 * <p>
+	 * This is used for the definitions loaded from the theme files. Comments
+	 * and processing instructions are dropped.
+	 *
+	 * @param node
+	 * 		The node to write
+	 * @throws XMLStreamException
+	 * 		if the node could not be written
+	 */
+	private void writeNode(final Node node) throws XMLStreamException {
+		switch (node.getNodeType()) {
+			case Node.ELEMENT_NODE:
+				final boolean empty = !node.hasChildNodes();
+				if (empty) {
+					out.writeEmptyElement(node.getNodeName());
+				} else {
+					out.writeStartElement(node.getNodeName());
+				}
+				final NamedNodeMap attributes = node.getAttributes();
+				for (int i = 0; i < attributes.getLength(); i++) {
+					final Node attribute = attributes.item(i);
+					out.writeAttribute(attribute.getNodeName(),
+									   attribute.getNodeValue());
+				}
+				if (!empty) {
+					final NodeList children = node.getChildNodes();
+					for (int i = 0; i < children.getLength(); i++) {
+						writeNode(children.item(i));
+					}
+					out.writeEndElement();
+				}
+				break;
+			case Node.TEXT_NODE:
+			case Node.CDATA_SECTION_NODE:
+				out.writeCharacters(node.getNodeValue());
+				break;
+			default:
+				break;
 		}
-		System.out.println("File saved!");
-		return writer.toString();
 	}
 
 	/**
@@ -521,44 +935,37 @@ public class SVGManager {
 	 *
 	 * @param field
 	 * 		The field to export
-	 * @return svg string representation of a field
+	 * @throws XMLStreamException
+	 * 		if the field could not be written
 	 */
-	private List<Element> toSVG(final DrawableField field) {
+	private void toSVG(final DrawableField field) throws XMLStreamException {
 		Point pos = getFieldPosInSVGCoords(field);
 		int yCoord = pos.snd;
 		int xCoord = pos.fst;
 
-		DisplayValues vals = field.getDisplayValues();
+		DisplayValues vals = step.getDisplayValues(field);
 
 		Color fieldCol = vals.getColor();
 
-		if (field.isHovered()) {
-			fieldCol.sub(Colors.HOVER_DIFF_COLOR);
-		}
-
 		String fieldID =
 				SVGUtils.generateColoredID(vals.getTexture().toString(),
-										   fieldCol);
-
-		List<Element> fieldElems = new ArrayList<>();
-
-		Element elem = doc.createElement("use");
-		elem.setAttribute("x", String.valueOf(xCoord));
-		elem.setAttribute("y", String.valueOf(yCoord));
-		elem.setAttribute("transform",
-											"scale(" + SCALE_FACTOR + " " +
-													SCALE_FACTOR + ")"
+										   fieldCol, settings);
+		svgCoreCreator.appendFieldSVG(svgs, vals);
+
+		out.writeEmptyElement("use");
+		out.writeAttribute("x", String.valueOf(xCoord));
+		out.writeAttribute("y", String.valueOf(yCoord));
+		out.writeAttribute("transform",
+						   "scale(" + SCALE_FACTOR + " " +
+						   SCALE_FACTOR + ")"
 		);
-		elem.setAttribute("xlink:href", "#" + fieldID);
-
-		fieldElems.add(elem);
+		out.writeAttribute("xlink:href", "#" + fieldID);
+		newline();
 
-		if (assay.getDisplayOptions().getOption(
+		if (display.getOption(
 				BDisplayOptions.NetColorOnFields)) {
-			fieldElems.addAll(createGradient(field));
+			createGradient(field);
 		}
-
-		return fieldElems;
 	}
 
 	/**
@@ -566,14 +973,16 @@ public class SVGManager {
 	 *
 	 * @param drawableDrop
 	 * 		The drawableDroplet to export
-	 * @return svg string representation of the drop
+	 * @throws XMLStreamException
+	 * 		if the droplet could not be written
 	 */
-	private List<Element> toSVG(final DrawableDroplet drawableDrop) {
+	private void toSVG(final DrawableDroplet drawableDrop)
+			throws XMLStreamException {
 
 		Point dropletPos = getDropletPosInSVGCoords(drawableDrop);
 
 		Pair<Integer, Integer> scaleFactors = SVGUtils.getScaleFactors(
-				drawableDrop, assay.getCurrentTime());
+				drawableDrop, step.getTimeStep());
 
 		String scale =
 				"scale(" + scaleFactors.fst + " " + scaleFactors.snd + ")";
@@ -588,24 +997,22 @@ public class SVGManager {
 		String transformation = translateToZero + " " +
 												  scale + " " + translateBack;
 
-		List<Element> route = toSVG(drawableDrop.route);
-
-		String dropletID = SVGUtils.generateColoredID("Droplet", drawableDrop
-				.getColor());
-
-		Element dropShape = doc.createElement("use");
-		dropShape.setAttribute("x", String.valueOf(dropletPos.fst));
-		dropShape.setAttribute("y", String.valueOf(dropletPos.snd));
-		dropShape.setAttribute("transform", transformation);
-		dropShape.setAttribute("xlink:href", "#" + dropletID);
+		Color dropColor = step.getDropletColor(drawableDrop);
+		String dropletID =
+				SVGUtils.generateColoredID("Droplet", dropColor, settings);
+		svgCoreCreator.appendDropletSVG(svgs, dropColor);
 
-		List<Element> dropElements = new ArrayList<>();
-		dropElements.add(dropShape);
-		dropElements.addAll(route);
+		out.writeEmptyElement("use");
+		out.writeAttribute("x", String.valueOf(dropletPos.fst));
+		out.writeAttribute("y", String.valueOf(dropletPos.snd));
+		out.writeAttribute("transform", transformation);
+		out.writeAttribute("xlink:href", "#" + dropletID);
+		newline();
 
-		return dropElements;
+		toSVG(drawableDrop.route, step.getRouteColor(drawableDrop));
 	}
 
+
 	/**
 	 * Creates svg code to draw a route.
 	 * <p>
@@ -615,23 +1022,24 @@ public class SVGManager {
 	 *
 	 * @param drawableRoute
 	 * 		The route to export to svg
-	 * @return SVG code for that particular route
+	 * @param routeColor
+	 * 		The color of the route
+	 * @throws XMLStreamException
+	 * 		if the svg could not be written
 	 */
-	private List<Element> toSVG(final DrawableRoute drawableRoute) {
+	private void toSVG(final DrawableRoute drawableRoute,
+					   final Color routeColor) throws XMLStreamException {
 
-		List<Element> elements = new ArrayList<>();
 		DrawableDroplet droplet = drawableRoute.droplet;
 
 		int currentTime = droplet.droplet.getSpawnTime();
 
 		int displayAt;
 
-		int displayLength = assay.getDisplayRouteLength();
+		int displayLength = display.getDisplayRouteLength();
 
 		Biochip biochip = assay.getData();
 
-		Color routeColor = drawableRoute.getColor();
-
 		/*
 		The prevoius code did some weird stuff here. The new rationale is
 		that we go from the currentTime either as long as there actually
@@ -645,7 +1053,7 @@ public class SVGManager {
 			LOGGER.debug("i: {}", i);
 			float alpha = 1;
 
-			if (!assay.getDisplayOptions().getOption(
+			if (!display.getOption(
 					BDisplayOptions.SolidPaths)) {
 				alpha -= Math.abs((float) i) / (float) displayLength;
 			}
@@ -699,24 +1107,38 @@ public class SVGManager {
 
 				String routeID =
 						SVGUtils.generateColoredID("StepMarker",
-								routeColor);
-
+								routeColor, settings);
+				svgCoreCreator.appendRoute(svgs, routeColor);
 
-				Element route = doc.createElement("use");
-				route.setAttribute("x", String.valueOf(targetX));
-				route.setAttribute("y", String.valueOf(targetY));
-				route.setAttribute("width", "1");
-				route.setAttribute("height", "1");
-				route.setAttribute("transform", transFormParams.toString());
-				route.setAttribute("opacity", String.valueOf(alpha));
-				route.setAttribute("xlink:href", "#" + routeID);
 
-				elements.add(route);
+				out.writeEmptyElement("use");
+				out.writeAttribute("x", String.valueOf(targetX));
+				out.writeAttribute("y", String.valueOf(targetY));
+				out.writeAttribute("width", "1");
+				out.writeAttribute("height", "1");
+				out.writeAttribute("transform", transFormParams.toString());
+				out.writeAttribute("opacity", String.valueOf(alpha));
+				out.writeAttribute("xlink:href", "#" + routeID);
+				newline();
 
 				LOGGER.debug("[SVG] StepMarker color: {}", routeColor);
 			}
 		}
-		return elements;
+	}
+
+	/**
+	 * Creates the source target arrows of all nets if they are displayed.
+	 *
+	 * @throws XMLStreamException
+	 * 		if the svg could not be written
+	 */
+	private void createSourceTargetArrows() throws XMLStreamException {
+		if (display.getOption(
+				BDisplayOptions.LongNetIndicatorsOnFields)) {
+			for (final Net net : assay.getData().getNets()) {
+				createSourceTargetArrow(net);
+			}
+		}
 	}
 
 	/**
@@ -724,11 +1146,12 @@ public class SVGManager {
 	 *
 	 * @param net
 	 * 		the droplet
-	 * @return svg string containing all start end arrows
+	 * @throws XMLStreamException
+	 * 		if the svg could not be written
 	 */
-	private List<Element> createSourceTargetArrow(final Net net) {
+	private void createSourceTargetArrow(final Net net)
+			throws XMLStreamException {
 
-		List<Element> arrows = new ArrayList<>();
 		if (net != null) {
 			List<Source> startPoints = net.getSources();
 			Pair<Float, Float> endPoint = net.getTarget().centerFloat();
@@ -738,12 +1161,10 @@ public class SVGManager {
 				Pair<Float, Float> startPoint =
 						startSource.startPosition.centerFloat();
 				if (!startPoint.equals(endPoint)) {
-					arrows.add(createSVGArrow(startPoint, endPoint, arrowColor));
+					createSVGArrow(startPoint, endPoint, arrowColor);
 				}
 			}
 		}
-
-		return arrows;
 	}
 
 	/**
@@ -751,18 +1172,17 @@ public class SVGManager {
 	 *
 	 * @param drawableDrop
 	 * 		the drop
-	 * @return svg string
+	 * @throws XMLStreamException
+	 * 		if the svg could not be written
 	 */
-	private List<Element> createDropletArrows(final DrawableDroplet
-	drawableDrop) {
+	private void createDropletArrows(final DrawableDroplet
+	drawableDrop) throws XMLStreamException {
 
 		Net net = drawableDrop.droplet.getNet();
 
-		List<Element> arrows = new ArrayList<>();
-
 		if (net != null) {
 
-			int time = assay.getCurrentTime();
+			int time = step.getTimeStep();
 			Pair<Float, Float> startPoint = drawableDrop.droplet
 					.getFirstPosition()
 					.centerFloat();
@@ -770,25 +1190,23 @@ public class SVGManager {
 			Pair<Float, Float> dropletPos = drawableDrop.droplet.
 					getSafePositionAt(time).centerFloat();
 
-			Color dropColor = drawableDrop.getColor();
+			Color dropColor = step.getDropletColor(drawableDrop);
 
 			if (startPoint != null && dropletPos != null &&
 				!startPoint.equals(dropletPos)) {
-				Color arrowColor =
-						SVGUtils.getLighterLongNetIndicatorColor(dropColor);
+				Color arrowColor = SVGUtils.getLighterLongNetIndicatorColor(
+						dropColor, settings);
 
-				arrows.add(createSVGArrow(startPoint, dropletPos, arrowColor));
+				createSVGArrow(startPoint, dropletPos, arrowColor);
 			}
 
 			if (dropletPos != null && endPoint != null &&
 				!dropletPos.equals(endPoint)) {
-				Color arrowColor =
-						SVGUtils.getDarkerLongNetIndicatorColor(dropColor);
-				arrows.add(createSVGArrow(dropletPos, endPoint, arrowColor));
+				Color arrowColor = SVGUtils.getDarkerLongNetIndicatorColor(
+						dropColor, settings);
+				createSVGArrow(dropletPos, endPoint, arrowColor);
 			}
 		}
-
-		return arrows;
 	}
 
 	/**
@@ -796,18 +1214,17 @@ public class SVGManager {
 	 *
 	 * @param drawableDrop
 	 * 		The droplet
-	 * @return Svg text element
+	 * @throws XMLStreamException
+	 * 		if the svg could not be written
 	 */
-	private Element createDropletMsg(final DrawableDroplet drawableDrop) {
+	private void createDropletMsg(final DrawableDroplet drawableDrop)
+			throws XMLStreamException {
 		Point dropPos = getDropletPosInSVGCoords(drawableDrop);
 
-		Element msg = null;
-
-		if (drawableDrop.getMsg() != null) {
-			msg = createMsg(dropPos.fst, dropPos.snd, drawableDrop.getMsg());
+		String msg = step.getDropletMsg(drawableDrop);
+		if (msg != null) {
+			createMsg(dropPos.fst, dropPos.snd, msg);
 		}
-
-		return msg;
 	}
 
 	/**
@@ -815,20 +1232,18 @@ public class SVGManager {
 	 *
 	 * @param field
 	 * 		the field
-	 * @return svg text element
+	 * @throws XMLStreamException
+	 * 		if the svg could not be written
 	 */
-	private Element createFieldMsg(final DrawableField field) {
-		Point fieldPos = getFieldPosInSVGCoords(field);
-
-		Element fieldMsg = null;
-
-		DisplayValues vals = field.getDisplayValues();
+	private void createFieldMsg(final DrawableField field)
+			throws XMLStreamException {
+		DisplayValues vals = step.getDisplayValues(field);
 		// create the msg text for the svg
 		// use the text-anchor middle to get a centered position
 		if (vals.getMsg() != null) {
-			fieldMsg = createMsg(fieldPos.fst, fieldPos.snd, vals.getMsg());
+			Point fieldPos = getFieldPosInSVGCoords(field);
+			createMsg(fieldPos.fst, fieldPos.snd, vals.getMsg());
 		}
-		return fieldMsg;
 	}
 
 	/**
@@ -837,19 +1252,34 @@ public class SVGManager {
 	 * @param x x position of the text
 	 * @param y y position of the text
 	 * @param message the text to print
-	 * @return svg text element
-	 */
-	private Element createMsg(final int x, final int y, final String message) {
-		Element msg = doc.createElement("text");
-		msg.setAttribute("text-anchor", "middle");
-		msg.setAttribute("x", String.valueOf(x + FONT_OFFSET_X));
-		msg.setAttribute("y", String.valueOf(y + FONT_OFFSET_Y));
-		msg.setAttribute("font-family", FONT);
-		msg.setAttribute("font-size", String.valueOf(FONT_SIZE));
-		msg.setAttribute("fill", "#" + FONT_COLOR);
-		msg.appendChild(doc.createTextNode(message));
-
-		return msg;
+	 * @throws XMLStreamException if the text could not be written
+	 */
+	private void createMsg(final int x, final int y, final String message)
+			throws XMLStreamException {
+		startMsg(x, y);
+		out.writeCharacters(message);
+		out.writeEndElement();
+		newline();
+	}
+
+	/**
+	 * Starts an svg text field at the given position.
+	 * <p>
+	 * The caller has to write the text and end the element.
+	 *
+	 * @param x x position of the text
+	 * @param y y position of the text
+	 * @throws XMLStreamException if the text could not be written
+	 */
+	private void startMsg(final int x, final int y)
+			throws XMLStreamException {
+		out.writeStartElement("text");
+		out.writeAttribute("text-anchor", "middle");
+		out.writeAttribute("x", String.valueOf(x + FONT_OFFSET_X));
+		out.writeAttribute("y", String.valueOf(y + FONT_OFFSET_Y));
+		out.writeAttribute("font-family", FONT);
+		out.writeAttribute("font-size", String.valueOf(FONT_SIZE));
+		out.writeAttribute("fill", "#" + FONT_COLOR);
 	}
 
 	/**
@@ -857,34 +1287,32 @@ public class SVGManager {
 	 *
 	 * @param field
 	 * 		the field
-	 * @return an svg rect string
+	 * @throws XMLStreamException
+	 * 		if the svg could not be written
 	 */
-	private List<Element> createGradient(final DrawableField field) {
-		List<Element> gradients = new ArrayList<>();
-
+	private void createGradient(final DrawableField field)
+			throws XMLStreamException {
 		for (final Net n : assay.getData().getNetsOf(field.getField())) {
 			GradDir dir = getGradientDirection(field, n);
 			Point fieldPos = getFieldPosInSVGCoords(field);
 			if (dir != null) {
 
-				Element gradientSvg = doc.createElement("rect");
-				gradientSvg.setAttribute("x", String.valueOf(fieldPos.fst + 24));
-				gradientSvg.setAttribute("y", String.valueOf(fieldPos.snd + 24));
-				gradientSvg.setAttribute("rx", "24");
-				gradientSvg.setAttribute("ry", "24");
-				gradientSvg.setAttribute("height", "208");
-				gradientSvg.setAttribute("width", "208");
+				out.writeEmptyElement("rect");
+				out.writeAttribute("x", String.valueOf(fieldPos.fst + 24));
+				out.writeAttribute("y", String.valueOf(fieldPos.snd + 24));
+				out.writeAttribute("rx", "24");
+				out.writeAttribute("ry", "24");
+				out.writeAttribute("height", "208");
+				out.writeAttribute("width", "208");
 
 				final String fillUrl = "url(#" +	SVGUtils.generateColoredID(
 						"Gradient-" + dir.toString(),
-						SVGUtils.getNetColor(n)) + ")";
-				gradientSvg.setAttribute("fill", fillUrl);
-
-				gradients.add(gradientSvg);
-
+						SVGUtils.getNetColor(n, settings), settings) + ")";
+				svgCoreCreator.appendGradSVG(svgs, n, dir);
+				out.writeAttribute("fill", fillUrl);
+				newline();
 			}
 		}
-		return gradients;
 	}
 
 	/**
@@ -900,15 +1328,18 @@ public class SVGManager {
 	 */
 	private GradDir getGradientDirection(final DrawableField field, final Net
 			net) {
-		Point fieldPos = field.getField().pos;
+		int fieldX = field.getField().x();
+		int fieldY = field.getField().y();
 
 		for (final GradDir dir : GradDir.values()) {
 			List<Point> dirs = dir.getOrientation();
 			boolean dirMatch = true;
 			for (final Point p : dirs) {
-				dirMatch &= !assay.getData().hasFieldAt(fieldPos.add(p)) ||
+				int x = fieldX + p.fst;
+				int y = fieldY + p.snd;
+				dirMatch &= !assay.getData().hasFieldAt(x, y) ||
 							!net.containsField(assay.getData().
-									getFieldAt(fieldPos.add(p)));
+									getFieldAt(x, y));
 			}
 			if (dirMatch) {
 				return dir;
@@ -927,12 +1358,54 @@ public class SVGManager {
 	 * 		the endpoint for the arrow
 	 * @param color
 	 * 		the color for the arrow
-	 * @return svg string of an arrow
+	 * @throws XMLStreamException
+	 * 		if the svg could not be written
+	 */
+	private void createSVGArrow(final Pair<Float, Float> startPoint,
+								final Pair<Float, Float> endPoint,
+								final Color color)
+			throws XMLStreamException {
+		float[] line = arrowLine(startPoint, endPoint);
+
+		out.writeEmptyElement("line");
+		out.writeAttribute("x1", String.valueOf(line[0]));
+		out.writeAttribute("y1", String.valueOf(line[1]));
+		out.writeAttribute("x2", String.valueOf(line[2]));
+		out.writeAttribute("y2", String.valueOf(line[3]));
+		writeArrowStyle(color);
+		newline();
+	}
+
+	/**
+	 * Writes the stroke and arrow head of an arrow.
+	 *
+	 * @param color
+	 * 		the color for the arrow
+	 * @throws XMLStreamException
+	 * 		if the svg could not be written
 	 */
-	private Element createSVGArrow(final Pair<Float, Float> startPoint,
-								  final Pair<Float, Float> endPoint,
-								  final Color
-										  color) {
+	private void writeArrowStyle(final Color color)
+			throws XMLStreamException {
+		out.writeAttribute("stroke", "#" + SVGUtils.colorToSVG(color));
+		out.writeAttribute("stroke-width", "10");
+		final String markerEndUrl = "url(#" +
+				SVGUtils.generateColoredID("ArrowHead", color, settings) +
+						")";
+		svgCoreCreator.appendArrowhead(svgs, color);
+		out.writeAttribute("marker-end", markerEndUrl);
+	}
+
+	/**
+	 * Computes the line of an svgArrow with the given start and endpoint.
+	 *
+	 * @param startPoint
+	 * 		the startpoint for the arrow
+	 * @param endPoint
+	 * 		the endpoint for the arrow
+	 * @return x1, y1, x2 and y2 of the line in svg coordinates
+	 */
+	private float[] arrowLine(final Pair<Float, Float> startPoint,
+							  final Pair<Float, Float> endPoint) {
 		Pair<Float, Float> start = SVGUtils.toSVGCoords(startPoint, assay,
 														COORDINATE_MULTIPLIER);
 		Pair<Float, Float> end = SVGUtils.toSVGCoords(endPoint, assay,
@@ -967,54 +1440,45 @@ public class SVGManager {
 		}
 		y2 -= yDiff;
 
-		final Element line = doc.createElement("line");
-		line.setAttribute("x1", String.valueOf(x1));
-		line.setAttribute("y1", String.valueOf(y1));
-		line.setAttribute("x2", String.valueOf(x2));
-		line.setAttribute("y2", String.valueOf(y2));
-		line.setAttribute("stroke", "#" + SVGUtils.colorToSVG(color));
-		line.setAttribute("stroke-width", "10");
-		final String markerEndUrl = "url(#" +
-				SVGUtils.generateColoredID("ArrowHead", color) +
-						")";
-		line.setAttribute("marker-end", markerEndUrl);
-
-		return line;
+		return new float[]{x1, y1, x2, y2};
 	}
 
 	/**
 	 * Creates a string with informations about this svg.
 	 *
-	 * @return information string
+	 * @param timeInfo
+	 * 		the exported time steps
+	 * @throws XMLStreamException
+	 * 		if the svg could not be written
 	 */
-	private Element createInfoString() {
+	private void createInfoString(final String timeInfo)
+			throws XMLStreamException {
 
 		float xCoord = infoPos.fst;
 		float yCoord = infoPos.snd + 1.5f * FONT_SIZE_INFO_STRING;
 
 		String circName = assay.getParent().getFileName();
-		String timeStep = String.valueOf(assay.getCurrentTime());
-		String fileInfo = "Filename: " + circName + " Timestep: " + timeStep;
-
-		Element textElem = doc.createElement("text");
-		textElem.setAttribute("x", String.valueOf(xCoord));
-		textElem.setAttribute("y", String.valueOf(yCoord));
-		textElem.setAttribute("fill", SVGUtils.colorToSVG(Color.BLACK));
-		textElem.setAttribute("font-family", FONT);
-		textElem.setAttribute("font-size",
-													String.valueOf(FONT_SIZE_INFO_STRING));
-		textElem.appendChild(doc.createTextNode(fileInfo));
-
-		return textElem;
+		String fileInfo = "Filename: " + circName + " " + timeInfo;
+
+		out.writeStartElement("text");
+		out.writeAttribute("x", String.valueOf(xCoord));
+		out.writeAttribute("y", String.valueOf(yCoord));
+		out.writeAttribute("fill", SVGUtils.colorToSVG(Color.BLACK));
+		out.writeAttribute("font-family", FONT);
+		out.writeAttribute("font-size",
+						   String.valueOf(FONT_SIZE_INFO_STRING));
+		out.writeCharacters(fileInfo);
+		out.writeEndElement();
+		newline();
 	}
 
 	/**
 	 * Creates coordinates around the grid.
 	 *
-	 * @return String containing the svg code for the coordinates
+	 * @throws XMLStreamException
+	 * 		if the svg could not be written
 	 */
-	private List<Element> createCoordinates() {
-		List<Element> coordElems = new ArrayList<>();
+	private void createCoordinates() throws XMLStreamException {
 		int coordSize = FONT_SIZE_INFO_STRING;
 
 		for (int xCoord = topLeftCoord.fst; xCoord <= bottomRightCoord.fst;
@@ -1023,15 +1487,15 @@ public class SVGManager {
 																								0.5f * COORDINATE_MULTIPLIER);
 			final String yCoordStr = String.valueOf(coordPos.snd - coordSize);
 
-			Element coord = doc.createElement("text");
-			coord.setAttribute("text-anchor", "middle");
-			coord.setAttribute("x", xCoordStr);
-			coord.setAttribute("y", yCoordStr);
-			coord.setAttribute("font-family", FONT);
-			coord.setAttribute("font-size", String.valueOf(coordSize));
-			coord.appendChild(doc.createTextNode(String.valueOf(xCoord)));
-
-			coordElems.add(coord);
+			out.writeStartElement("text");
+			out.writeAttribute("text-anchor", "middle");
+			out.writeAttribute("x", xCoordStr);
+			out.writeAttribute("y", yCoordStr);
+			out.writeAttribute("font-family", FONT);
+			out.writeAttribute("font-size", String.valueOf(coordSize));
+			out.writeCharacters(String.valueOf(xCoord));
+			out.writeEndElement();
+			newline();
 		}
 
 		for (int yCoord = topLeftCoord.snd; yCoord <= bottomRightCoord.snd;
@@ -1043,16 +1507,15 @@ public class SVGManager {
 					0.5f * coordSize +
 					0.5f * COORDINATE_MULTIPLIER);
 
-			Element coord = doc.createElement("text");
-			coord.setAttribute("x", xCoordStr);
-			coord.setAttribute("y", yCoordStr);
-			coord.setAttribute("font-family", FONT);
-			coord.setAttribute("font-size", String.valueOf(coordSize));
-			coord.appendChild(doc.createTextNode(String.valueOf(yCoord)));
-
-			coordElems.add(coord);
+			out.writeStartElement("text");
+			out.writeAttribute("x", xCoordStr);
+			out.writeAttribute("y", yCoordStr);
+			out.writeAttribute("font-family", FONT);
+			out.writeAttribute("font-size", String.valueOf(coordSize));
+			out.writeCharacters(String.valueOf(yCoord));
+			out.writeEndElement();
+			newline();
 		}
-		return coordElems;
 	}
 
 	/**
@@ -1065,7 +1528,7 @@ public class SVGManager {
 		createCores();
 
 		// create the svg def for the arrowhead for the source target arrows
-		if (assay.getDisplayOptions().getOption(BDisplayOptions
+		if (display.getOption(BDisplayOptions
 														.LongNetIndicatorsOnFields)) {
 			// this is needed for source target arrows
 			svgCoreCreator.appendSourceTargetArrowHead(svgs);
@@ -1073,11 +1536,11 @@ public class SVGManager {
 
 		// create all needed svg defs for the fields
 		for (final DrawableField f : assay.getFields()) {
-			svgCoreCreator.appendFieldSVG(svgs, f);
+			svgCoreCreator.appendFieldSVG(svgs, step.getDisplayValues(f));
 		}
 
 		// create gradients for every net if netColorOnFields is selected
-		if (assay.getDisplayOptions().getOption(BDisplayOptions
+		if (display.getOption(BDisplayOptions
 				.NetColorOnFields)) {
 			Set<Net> nets = assay.getData().getNets();
 			for (final Net n : nets) {
@@ -1090,23 +1553,364 @@ public class SVGManager {
 		// create all needed svg defs for the droplets
 		// and droplet based features
 		for (final DrawableDroplet d : assay.getDroplets()) {
-			svgCoreCreator.appendDropletSVG(svgs, d);
+			final Color dropColor = step.getDropletColor(d);
+			svgCoreCreator.appendDropletSVG(svgs, dropColor);
 
 			// Add every needed color for the arrowheads
-			if (assay.getDisplayOptions().getOption(BDisplayOptions
+			if (display.getOption(BDisplayOptions
 															.LongNetIndicatorsOnDroplets)) {
-				svgCoreCreator.appendArrowheads(svgs, d.getColor());
+				svgCoreCreator.appendArrowheads(svgs, dropColor);
 
 			}
 
 			if (d.route != null) {
-				svgCoreCreator.appendRoute(svgs, d);
+				svgCoreCreator.appendRoute(svgs, step.getRouteColor(d));
 			}
 		}
 
 		LOGGER.debug("[SVG] Done creating colored cores.");
 	}
 
+	/**
+	 * Exports a field whose appearance may change over time.
+	 * <p>
+	 * Every appearance of the field gets its own element that is only
+	 * visible during the time steps it is shown.
+	 *
+	 * @param field
+	 * 		The field to export
+	 * @param fieldIDs
+	 * 		The ids of the definitions of the field over time
+	 * @throws XMLStreamException
+	 * 		if the field could not be written
+	 */
+	private void writeAnimatedField(final DrawableField field,
+									final Keyframes fieldIDs)
+			throws XMLStreamException {
+		Point pos = getFieldPosInSVGCoords(field);
+
+		for (final String fieldID : fieldIDs.distinctValues()) {
+			out.writeStartElement("use");
+			out.writeAttribute("x", String.valueOf(pos.fst));
+			out.writeAttribute("y", String.valueOf(pos.snd));
+			out.writeAttribute("transform",
+							   "scale(" + SCALE_FACTOR + " " +
+							   SCALE_FACTOR + ")"
+			);
+			out.writeAttribute("xlink:href", "#" + fieldID);
+			animateVisibility(visibilityOf(fieldIDs, fieldID));
+			out.writeEndElement();
+			newline();
+		}
+
+		if (display.getOption(
+				BDisplayOptions.NetColorOnFields)) {
+			createGradient(field);
+		}
+	}
+
+	/**
+	 * Exports a moving droplet together with its route.
+	 *
+	 * @param drawableDrop
+	 * 		The droplet to export
+	 * @param dropletIDs
+	 * 		The ids of the definitions of the droplet over time, null while
+	 * 		it is not visible
+	 * @param routeColor
+	 * 		The color of the route of the droplet
+	 * @return The positions of the droplet over time
+	 * @throws XMLStreamException
+	 * 		if the droplet could not be written
+	 */
+	private Keyframes writeAnimatedDroplet(final DrawableDroplet drawableDrop,
+										   final Keyframes dropletIDs,
+										   final Color routeColor)
+			throws XMLStreamException {
+
+		if (drawableDrop.route != null) {
+			out.writeStartElement("g");
+			animateVisibility(dropletIDs.map(id -> id == null ? HIDDEN :
+												   VISIBLE));
+			newline();
+			toSVG(drawableDrop.route, routeColor);
+			out.writeEndElement();
+			newline();
+		}
+
+		Keyframes translation = new Keyframes();
+		Keyframes scale = new Keyframes();
+		for (int t = 1; t <= assay.getData().getMaxT(); t++) {
+			Rectangle position = drawableDrop.droplet.getSafePositionAt(t);
+			Point pos = SVGUtils.toSVGCoords(position.upperLeft(), assay,
+											 COORDINATE_MULTIPLIER);
+			translation.add(t, pos.fst + " " + pos.snd);
+			scale.add(t, position.width() + " " + position.height());
+		}
+
+		// the use element at (0, 0) is moved to its position and then scaled
+		for (final String dropletID : dropletIDs.distinctValues()) {
+			out.writeStartElement("use");
+			out.writeAttribute("transform",
+							   "translate(" + translation.getFirst() + ") " +
+							   "scale(" + scale.getFirst() + ")");
+			out.writeAttribute("xlink:href", "#" + dropletID);
+			animateVisibility(visibilityOf(dropletIDs, dropletID));
+			if (!translation.isConstant() || !scale.isConstant()) {
+				animateTransform("translate", translation, false);
+				animateTransform("scale", scale, true);
+			}
+			out.writeEndElement();
+			newline();
+		}
+
+		return translation;
+	}
+
+	/**
+	 * Exports the moving longNetIndicator arrows of a droplet.
+	 *
+	 * @param drawableDrop
+	 * 		the drop
+	 * @param dropletIDs
+	 * 		The ids of the definitions of the droplet over time, null while
+	 * 		it is not visible
+	 * @param dropColor
+	 * 		the color of the droplet
+	 * @throws XMLStreamException
+	 * 		if the svg could not be written
+	 */
+	private void writeAnimatedDropletArrows(final DrawableDroplet drawableDrop,
+											final Keyframes dropletIDs,
+											final Color dropColor)
+			throws XMLStreamException {
+
+		Net net = drawableDrop.droplet.getNet();
+		if (net == null) {
+			return;
+		}
+
+		FPoint startPoint = drawableDrop.droplet.getFirstPosition()
+				.centerFloat();
+		FPoint endPoint = net.getTarget().centerFloat();
+
+		// one line from the start to the droplet, one from the droplet to
+		// the target
+		final int nArrows = 2;
+		final int nCoords = 4;
+		Keyframes[][] lines = new Keyframes[nArrows][nCoords];
+		Keyframes[] visibilities = new Keyframes[nArrows];
+		for (int i = 0; i < nArrows; i++) {
+			visibilities[i] = new Keyframes();
+			for (int c = 0; c < nCoords; c++) {
+				lines[i][c] = new Keyframes();
+			}
+		}
+
+		for (int t = 1; t <= assay.getData().getMaxT(); t++) {
+			FPoint dropletPos =
+					drawableDrop.droplet.getSafePositionAt(t).centerFloat();
+			boolean shown = dropletIDs.valueAt(t) != null;
+			FPoint[] ends = {startPoint, dropletPos, dropletPos, endPoint};
+			for (int i = 0; i < nArrows; i++) {
+				FPoint from = ends[2 * i];
+				FPoint to = ends[2 * i + 1];
+				boolean exists = !from.equals(to);
+				visibilities[i].add(t, shown && exists ? VISIBLE : HIDDEN);
+				if (exists) {
+					float[] line = arrowLine(from, to);
+					for (int c = 0; c < nCoords; c++) {
+						lines[i][c].add(t, String.valueOf(line[c]));
+					}
+				}
+			}
+		}
+
+		Color[] colors = {
+				SVGUtils.getLighterLongNetIndicatorColor(dropColor, settings),
+				SVGUtils.getDarkerLongNetIndicatorColor(dropColor, settings)};
+		String[] attributes = {"x1", "y1", "x2", "y2"};
+		for (int i = 0; i < nArrows; i++) {
+			if (visibilities[i].distinctValues().contains(VISIBLE)) {
+				out.writeStartElement("line");
+				for (int c = 0; c < nCoords; c++) {
+					out.writeAttribute(attributes[c], lines[i][c].getFirst());
+				}
+				writeArrowStyle(colors[i]);
+				animateVisibility(visibilities[i]);
+				for (int c = 0; c < nCoords; c++) {
+					if (!lines[i][c].isConstant()) {
+						animate(attributes[c], lines[i][c], true);
+					}
+				}
+				out.writeEndElement();
+				newline();
+			}
+		}
+	}
+
+	/**
+	 * Exports the messages of a field that may change over time.
+	 *
+	 * @param field
+	 * 		the field
+	 * @param msgs
+	 * 		the messages of the field over time, null while there is none
+	 * @throws XMLStreamException
+	 * 		if the svg could not be written
+	 */
+	private void writeAnimatedFieldMsg(final DrawableField field,
+									   final Keyframes msgs)
+			throws XMLStreamException {
+		Point fieldPos = getFieldPosInSVGCoords(field);
+
+		for (final String msg : msgs.distinctValues()) {
+			startMsg(fieldPos.fst, fieldPos.snd);
+			animateVisibility(visibilityOf(msgs, msg));
+			out.writeCharacters(msg);
+			out.writeEndElement();
+			newline();
+		}
+	}
+
+	/**
+	 * Exports the message of a moving droplet.
+	 *
+	 * @param msg
+	 * 		The message of the droplet
+	 * @param dropletIDs
+	 * 		The ids of the definitions of the droplet over time, null while
+	 * 		it is not visible
+	 * @param translation
+	 * 		The positions of the droplet over time
+	 * @throws XMLStreamException
+	 * 		if the svg could not be written
+	 */
+	private void writeAnimatedDropletMsg(final String msg,
+										 final Keyframes dropletIDs,
+										 final Keyframes translation)
+			throws XMLStreamException {
+
+		if (msg != null) {
+			// the text is placed relative to the translated origin
+			startMsg(0, 0);
+			out.writeAttribute("transform",
+							   "translate(" + translation.getFirst() + ")");
+			animateVisibility(
+					dropletIDs.map(id -> id == null ? HIDDEN : VISIBLE));
+			if (!translation.isConstant()) {
+				animateTransform("translate", translation, false);
+			}
+			out.writeCharacters(msg);
+			out.writeEndElement();
+			newline();
+		}
+	}
+
+	/**
+	 * Computes when one of the values of a track is shown.
+	 *
+	 * @param frames
+	 * 		the values over time
+	 * @param value
+	 * 		the value whose visibility is computed
+	 * @return the visibility over time
+	 */
+	private static Keyframes visibilityOf(final Keyframes frames,
+										  final String value) {
+		return frames.map(v -> value.equals(v) ? VISIBLE : HIDDEN);
+	}
+
+	/**
+	 * Sets the visibility of the current element and animates it if it
+	 * changes.
+	 * <p>
+	 * This has to be called after all other attributes of the element have
+	 * been written. Further animations may follow.
+	 *
+	 * @param visibility
+	 * 		the visibility over time
+	 * @throws XMLStreamException
+	 * 		if the svg could not be written
+	 */
+	private void animateVisibility(final Keyframes visibility)
+			throws XMLStreamException {
+		out.writeAttribute("visibility", visibility.getFirst());
+		if (!visibility.isConstant()) {
+			animate("visibility", visibility, false);
+		}
+	}
+
+	/**
+	 * Animates an attribute of the current element.
+	 *
+	 * @param attribute
+	 * 		the name of the attribute
+	 * @param frames
+	 * 		the values of the attribute over time
+	 * @param linear
+	 * 		whether the values are interpolated, otherwise they change
+	 * 		discretely
+	 * @throws XMLStreamException
+	 * 		if the svg could not be written
+	 */
+	private void animate(final String attribute,
+						 final Keyframes frames,
+						 final boolean linear) throws XMLStreamException {
+		out.writeEmptyElement("animate");
+		out.writeAttribute("attributeName", attribute);
+		if (!linear) {
+			out.writeAttribute("calcMode", "discrete");
+		}
+		writeTiming(frames, linear);
+	}
+
+	/**
+	 * Animates the transformation of the current element.
+	 *
+	 * @param type
+	 * 		the type of the transformation, e.g. translate
+	 * @param frames
+	 * 		the parameters of the transformation over time
+	 * @param additive
+	 * 		whether the transformation is applied after the previous animated
+	 * 		transformation instead of replacing it
+	 * @throws XMLStreamException
+	 * 		if the svg could not be written
+	 */
+	private void animateTransform(final String type,
+								  final Keyframes frames,
+								  final boolean additive)
+			throws XMLStreamException {
+		out.writeEmptyElement("animateTransform");
+		out.writeAttribute("attributeName", "transform");
+		out.writeAttribute("type", type);
+		if (additive) {
+			out.writeAttribute("additive", "sum");
+		}
+		writeTiming(frames, true);
+	}
+
+	/**
+	 * Writes the timing of an animation running once through the assay and
+	 * then starting over.
+	 *
+	 * @param frames
+	 * 		the values over time
+	 * @param linear
+	 * 		whether the values are interpolated
+	 * @throws XMLStreamException
+	 * 		if the svg could not be written
+	 */
+	private void writeTiming(final Keyframes frames, final boolean linear)
+			throws XMLStreamException {
+		final int maxT = assay.getData().getMaxT();
+		out.writeAttribute("values", frames.values(linear, maxT));
+		out.writeAttribute("keyTimes", frames.keyTimes(linear, maxT));
+		out.writeAttribute("dur", maxT * STEP_DURATION_MS + "ms");
+		out.writeAttribute("repeatCount", "indefinite");
+	}
+
 	/**
 	 * Gets the position of a field in svg coordinates.
 	 *
@@ -1130,7 +1934,7 @@ public class SVGManager {
 												   drawableDrop) {
 		return SVGUtils.toSVGCoords(
 				drawableDrop.droplet.getSafePositionAt(
-						assay.getCurrentTime()).upperLeft(), assay,
+						step.getTimeStep()).upperLeft(), assay,
 				COORDINATE_MULTIPLIER);
 	}
 }
@@ -0,0 +1,271 @@
+/*
+ * BioViz, a visualization tool for digital microfluidic biochips (DMFB).
+ *
+ * Copyright (c) 2017 Oliver Keszocze, Jannis Stoppe, Maximilian Luenert
+ *
+ * This file is part of BioViz.
+ *
+ * BioViz is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * BioViz is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * See the GNU General Public License for more details. You should have
+ * received a copy of the GNU
+ * General Public License along with BioViz.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.bioviz.svg;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reconstructs the svg of a time step from a delta encoded series.
+ * <p>
+ * A delta encoded series consists of the complete svg of the first time
+ * step and one patch per further time step, as written by
+ * {@link SVGSeriesExporter#exportDelta}. Applying the patches of the time
+ * steps 2 to t in order to the first svg yields the svg of time step t.
+ * <p>
+ * A patch contains two kinds of instructions that refer to the parts of the
+ * svg, i.e. the g elements with an id directly below the svg root:
+ * <ul>
+ * <li>&lt;remove id="..."/&gt; removes the part with the given id.</li>
+ * <li>&lt;set after="..."&gt; replaces the part with the id of the
+ * contained part. If there is no such part, the contained part is inserted
+ * after the part with the id given by after, or as the first part if after
+ * is empty.</li>
+ * </ul>
+ *
+ * @author agent
+ */
+public final class SVGPatchReplay {
+
+	/**
+	 * The minimal number of command line arguments.
+	 */
+	private static final int MIN_ARGS = 2;
+
+	/**
+	 * The frame the patches are applied to.
+	 */
+	private final Document frame;
+
+	/**
+	 * The parts of the frame by id.
+	 */
+	private final Map<String, Element> parts = new HashMap<>();
+
+	/**
+	 * The parser used for the base frame and all patches.
+	 */
+	private final DocumentBuilder builder;
+
+	/**
+	 * Loads the svg of the first time step.
+	 *
+	 * @param base
+	 * 		The svg file of the first time step
+	 * @throws IOException
+	 * 		if the file could not be read or parsed
+	 */
+	public SVGPatchReplay(final File base) throws IOException {
+		try {
+			builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+			frame = builder.parse(base);
+		} catch (final ParserConfigurationException | SAXException e) {
+			throw new IOException("Could not parse " + base, e);
+		}
+		for (Node n = frame.getDocumentElement().getFirstChild(); n != null;
+			 n = n.getNextSibling()) {
+			if (n instanceof Element) {
+				Element part = (Element) n;
+				parts.put(part.getAttribute("id"), part);
+			}
+		}
+	}
+
+	/**
+	 * Applies the patch of the next time step.
+	 *
+	 * @param patchFile
+	 * 		The patch file
+	 * @throws IOException
+	 * 		if the file could not be read or does not fit the frame
+	 */
+	public void apply(final File patchFile) throws IOException {
+		final Document patch;
+		try {
+			patch = builder.parse(patchFile);
+		} catch (final SAXException e) {
+			throw new IOException("Could not parse " + patchFile, e);
+		}
+
+		final Element root = frame.getDocumentElement();
+		for (Node n = patch.getDocumentElement().getFirstChild(); n != null;
+			 n = n.getNextSibling()) {
+			if (!(n instanceof Element)) {
+				continue;
+			}
+			final Element instruction = (Element) n;
+			if ("remove".equals(instruction.getTagName())) {
+				final Element part =
+						parts.remove(instruction.getAttribute("id"));
+				if (part != null) {
+					root.removeChild(part);
+				}
+			} else if ("set".equals(instruction.getTagName())) {
+				final Element part = (Element) frame.importNode(
+						firstElement(instruction, patchFile), true);
+				final Element old = parts.put(part.getAttribute("id"), part);
+				if (old != null) {
+					root.replaceChild(part, old);
+				} else {
+					root.insertBefore(part, successor(
+							instruction.getAttribute("after"), patchFile));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes the svg of the time step of the last applied patch.
+	 *
+	 * @param target
+	 * 		The file to write the svg to
+	 * @throws IOException
+	 * 		if the file could not be written
+	 */
+	public void write(final File target) throws IOException {
+		try {
+			Transformer transformer =
+					TransformerFactory.newInstance().newTransformer();
+			transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+			transformer.transform(new DOMSource(frame),
+								  new StreamResult(target));
+		} catch (final TransformerException e) {
+			throw new IOException("Could not write " + target, e);
+		}
+	}
+
+	/**
+	 * Finds the node a part that follows the part with the given id has to
+	 * be inserted before.
+	 *
+	 * @param after
+	 * 		The id of the preceding part, empty for the first part
+	 * @param patchFile
+	 * 		The patch file, for error messages
+	 * @return The node to insert before, null to append
+	 * @throws IOException
+	 * 		if there is no part with the given id
+	 */
+	private Node successor(final String after, final File patchFile)
+			throws IOException {
+		if (after.isEmpty()) {
+			Node n = frame.getDocumentElement().getFirstChild();
+			while (n != null && !(n instanceof Element)) {
+				n = n.getNextSibling();
+			}
+			return n;
+		}
+		final Element predecessor = parts.get(after);
+		if (predecessor == null) {
+			throw new IOException(
+					patchFile + " refers to the unknown part " + after);
+		}
+		return predecessor.getNextSibling();
+	}
+
+	/**
+	 * Returns the first child element of an element.
+	 *
+	 * @param parent
+	 * 		The element
+	 * @param patchFile
+	 * 		The patch file, for error messages
+	 * @return The first child element
+	 * @throws IOException
+	 * 		if the element has no child element
+	 */
+	private static Element firstElement(final Element parent,
+										final File patchFile)
+			throws IOException {
+		for (Node n = parent.getFirstChild(); n != null;
+			 n = n.getNextSibling()) {
+			if (n instanceof Element) {
+				return (Element) n;
+			}
+		}
+		throw new IOException(patchFile + " contains an empty set");
+	}
+
+	/**
+	 * Reconstructs the svg of a time step.
+	 *
+	 * @param base
+	 * 		The svg file of the first time step
+	 * @param patches
+	 * 		The patch files of the time steps 2 to t, in order
+	 * @param target
+	 * 		The file to write the svg of time step t to
+	 * @throws IOException
+	 * 		if a file could not be read or written
+	 */
+	public static void reconstruct(final File base,
+								   final List<File> patches,
+								   final File target) throws IOException {
+		SVGPatchReplay replay = new SVGPatchReplay(base);
+		for (final File patch : patches) {
+			replay.apply(patch);
+		}
+		replay.write(target);
+	}
+
+	/**
+	 * Reconstructs the svg of a time step from the command line.
+	 * <p>
+	 * Usage: SVGPatchReplay &lt;target&gt; &lt;base&gt; [patch ...]
+	 *
+	 * @param args
+	 * 		The target file, the base file and the patch files in order
+	 * @throws IOException
+	 * 		if a file could not be read or written
+	 */
+	public static void main(final String[] args) throws IOException {
+		if (args.length < MIN_ARGS) {
+			System.err.println(
+					"Usage: SVGPatchReplay <target> <base> [patch ...]");
+			System.exit(1);
+		}
+		List<File> patches = new ArrayList<>();
+		for (int i = MIN_ARGS; i < args.length; i++) {
+			patches.add(new File(args[i]));
+		}
+		reconstruct(new File(args[1]), patches, new File(args[0]));
+	}
+}
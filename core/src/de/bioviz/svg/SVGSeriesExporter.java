@@ -0,0 +1,422 @@
+/*
+ * BioViz, a visualization tool for digital microfluidic biochips (DMFB).
+ *
+ * Copyright (c) 2017 Oliver Keszocze, Jannis Stoppe, Maximilian Luenert
+ *
+ * This file is part of BioViz.
+ *
+ * BioViz is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * BioViz is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * See the GNU General Public License for more details. You should have
+ * received a copy of the GNU
+ * General Public License along with BioViz.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.bioviz.svg;
+
+import de.bioviz.ui.AssayStep;
+import de.bioviz.ui.DisplaySettings;
+import de.bioviz.ui.DrawableAssay;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exports every time step of an assay into its own svg file.
+ * <p>
+ * The time steps are rendered concurrently by a pool of worker threads.
+ * Every worker renders from an immutable {@link AssayStep} view and uses
+ * its own {@link SVGManager}, i.e. its own document builder, transformer
+ * and file writer. The assay displayed on screen is not modified by the
+ * export.
+ * <p>
+ * The progress of a running export can be queried from any thread and the
+ * export can be cancelled at any time. Time steps that are being written
+ * when the export is cancelled are completed, all others are skipped.
+ * <p>
+ * Instead of complete files, the series can also be exported as a base
+ * frame followed by the changes of each time step, see
+ * {@link #exportDelta(String, DrawableAssay, DisplaySettings)}, or as a single
+ * animated svg, see
+ * {@link #exportAnimated(File, DrawableAssay, DisplaySettings)}.
+ *
+ * @author agent
+ */
+public final class SVGSeriesExporter {
+
+	/**
+	 * logger.
+	 */
+	private static final Logger LOGGER =
+			LoggerFactory.getLogger(SVGSeriesExporter.class);
+
+	/**
+	 * The amount of frames per worker thread that a delta export renders
+	 * ahead of the frame that is written.
+	 */
+	private static final int FRAMES_PER_THREAD = 2;
+
+	/**
+	 * The name of the folder containing the theme.
+	 */
+	private final String folder;
+
+	/**
+	 * The settings of the export.
+	 */
+	private final SVGExportSettings settings;
+
+	/**
+	 * The amount of worker threads.
+	 */
+	private final int threads;
+
+	/**
+	 * The amount of time steps that have been written so far.
+	 */
+	private final AtomicInteger exported = new AtomicInteger();
+
+	/**
+	 * The amount of time steps to write.
+	 */
+	private volatile int total = 0;
+
+	/**
+	 * Whether the export has been cancelled.
+	 */
+	private volatile boolean cancelled = false;
+
+	/**
+	 * Creates an exporter using one worker thread per available processor.
+	 *
+	 * @param folder
+	 * 		The name of the folder containing the theme, relative to the
+	 * 		assets folder
+	 * @param settings
+	 * 		The settings of the export, must not be changed afterwards
+	 */
+	public SVGSeriesExporter(final String folder,
+							 final SVGExportSettings settings) {
+		this(folder, settings, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates an exporter.
+	 *
+	 * @param folder
+	 * 		The name of the folder containing the theme, relative to the
+	 * 		assets folder
+	 * @param settings
+	 * 		The settings of the export, must not be changed afterwards
+	 * @param threads
+	 * 		The amount of worker threads, must be positive.
+	 * @throws IllegalArgumentException
+	 * 		if threads is smaller than one
+	 */
+	public SVGSeriesExporter(final String folder,
+							 final SVGExportSettings settings,
+							 final int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException(
+					"Parallelism must be positive but was " + threads);
+		}
+		this.folder = folder;
+		this.settings = settings;
+		this.threads = threads;
+	}
+
+	/**
+	 * Exports all time steps of an assay.
+	 * <p>
+	 * The file of time step t is named
+	 * &lt;pathWithoutSuffix&gt;_ts&lt;t&gt;.svg where t is padded with zeros
+	 * to the number of digits of the last time step. This method blocks
+	 * until all files are written or the export is cancelled.
+	 *
+	 * @param pathWithoutSuffix
+	 * 		The path of the files without the time step and the suffix
+	 * @param assay
+	 * 		The assay to export
+	 * @param view
+	 * 		The display settings of the assay, copied on the render thread
+	 * @return true if all time steps were written, false if the export was
+	 * cancelled or failed
+	 */
+	public boolean export(final String pathWithoutSuffix,
+						  final DrawableAssay assay,
+						  final DisplaySettings view) {
+		final int maxT = assay.getData().getMaxT();
+
+		total = maxT;
+		exported.set(0);
+
+		final ThreadLocal<SVGManager> managers =
+				ThreadLocal.withInitial(() -> new SVGManager(folder, settings));
+		final ExecutorService pool = createPool();
+
+		try {
+			final List<Future<?>> steps = new ArrayList<>(maxT);
+			for (int t = 1; t <= maxT; t++) {
+				final int timeStep = t;
+				final File file =
+						stepFile(pathWithoutSuffix, maxT, t, ".svg");
+				steps.add(pool.submit(() -> {
+					if (!cancelled) {
+						managers.get().saveSVG(file, new AssayStep(
+								assay, timeStep, view));
+						exported.incrementAndGet();
+					}
+				}));
+			}
+
+			for (final Future<?> f : steps) {
+				try {
+					f.get();
+				} catch (final ExecutionException e) {
+					LOGGER.error("[SVG] Could not export time step: {}",
+								 e.getCause().getMessage());
+					cancel();
+				}
+			}
+		} catch (final InterruptedException e) {
+			cancel();
+			Thread.currentThread().interrupt();
+		} finally {
+			pool.shutdownNow();
+		}
+
+		if (cancelled) {
+			LOGGER.info("[SVG] Series export stopped after {} of {} time steps",
+						exported.get(), maxT);
+		} else {
+			LOGGER.info("[SVG] Exported {} time steps", maxT);
+		}
+		return !cancelled;
+	}
+
+	/**
+	 * Exports all time steps of an assay as a base frame and the changes
+	 * between consecutive time steps.
+	 * <p>
+	 * The first time step is written completely to
+	 * &lt;pathWithoutSuffix&gt;_ts&lt;t&gt;.svg, numbered as in
+	 * {@link #export(String, DrawableAssay, DisplaySettings)}. Every further
+	 * time step t is written to &lt;pathWithoutSuffix&gt;_ts&lt;t&gt;.patch.xml
+	 * and only contains the parts of the svg that differ from time step
+	 * t - 1. {@link SVGPatchReplay} reconstructs the svg of any time step
+	 * from these files.
+	 * <p>
+	 * The frames are rendered concurrently but compared and written in
+	 * order, holding only a few frames per worker in memory. This method
+	 * blocks until all files are written or the export is cancelled.
+	 *
+	 * @param pathWithoutSuffix
+	 * 		The path of the files without the time step and the suffix
+	 * @param assay
+	 * 		The assay to export
+	 * @param view
+	 * 		The display settings of the assay, copied on the render thread
+	 * @return true if all time steps were written, false if the export was
+	 * cancelled or failed
+	 */
+	public boolean exportDelta(
+			final String pathWithoutSuffix,
+			final DrawableAssay assay,
+			final DisplaySettings view) {
+		final int maxT = assay.getData().getMaxT();
+
+		total = maxT;
+		exported.set(0);
+
+		final ThreadLocal<SVGManager> managers =
+				ThreadLocal.withInitial(() -> new SVGManager(folder, settings));
+		final ExecutorService pool = createPool();
+		final Deque<Future<SVGFrame>> frames = new ArrayDeque<>();
+		int changes = 0;
+
+		try {
+			SVGFrame previous = null;
+			int next = 1;
+			for (int t = 1; t <= maxT && !cancelled; t++) {
+				while (next <= maxT &&
+					   frames.size() < threads * FRAMES_PER_THREAD) {
+					final int timeStep = next++;
+					frames.add(pool.submit(() -> managers.get().createFrame(
+							new AssayStep(assay, timeStep, view))));
+				}
+				final SVGFrame current = frames.remove().get();
+
+				final File file = stepFile(pathWithoutSuffix, maxT, t,
+										   previous == null ? ".svg" :
+										   ".patch.xml");
+				try (Writer writer = Files.newBufferedWriter(
+						file.toPath(), StandardCharsets.UTF_8)) {
+					if (previous == null) {
+						current.writeTo(writer);
+					} else {
+						changes += current.writePatch(previous, t, writer);
+					}
+				}
+				previous = current;
+				exported.incrementAndGet();
+			}
+		} catch (final ExecutionException e) {
+			LOGGER.error("[SVG] Could not export time step: {}",
+						 e.getCause().getMessage());
+			cancel();
+		} catch (final IOException e) {
+			LOGGER.error("[SVG] Could not write time step: {}",
+						 e.getMessage());
+			cancel();
+		} catch (final InterruptedException e) {
+			cancel();
+			Thread.currentThread().interrupt();
+		} finally {
+			pool.shutdownNow();
+		}
+
+		if (cancelled) {
+			LOGGER.info("[SVG] Series export stopped after {} of {} time steps",
+						exported.get(), maxT);
+		} else {
+			LOGGER.info("[SVG] Exported {} time steps with {} changes",
+						maxT, changes);
+		}
+		return !cancelled;
+	}
+
+	/**
+	 * Exports all time steps of an assay into a single animated svg.
+	 * <p>
+	 * The time steps are recorded in order on the calling thread and the
+	 * progress counts the recorded ones. If the export is cancelled, the
+	 * file is removed again. This method blocks until the file is written or
+	 * the export is cancelled.
+	 *
+	 * @param file
+	 * 		The file to store the svg in
+	 * @param assay
+	 * 		The assay to export
+	 * @param view
+	 * 		The display settings of the assay, copied on the render thread
+	 * @return true if the file was written, false if the export was
+	 * cancelled or failed
+	 */
+	public boolean exportAnimated(
+			final File file,
+			final DrawableAssay assay,
+			final DisplaySettings view) {
+		final int maxT = assay.getData().getMaxT();
+
+		total = maxT;
+		exported.set(0);
+
+		final SVGManager manager = new SVGManager(folder, settings);
+		final boolean written =
+				manager.saveAnimatedSVG(file, assay, view, this);
+
+		if (cancelled) {
+			LOGGER.info("[SVG] Animated export stopped after {} of {} time " +
+						"steps", exported.get(), maxT);
+		} else if (written) {
+			LOGGER.info("[SVG] Exported {} time steps as animation", maxT);
+		}
+		return written && !cancelled;
+	}
+
+	/**
+	 * Counts a time step as exported.
+	 */
+	void stepExported() {
+		exported.incrementAndGet();
+	}
+
+	/**
+	 * Creates the pool of worker threads.
+	 *
+	 * @return a pool with the configured amount of daemon threads
+	 */
+	private ExecutorService createPool() {
+		return Executors.newFixedThreadPool(
+				threads, r -> {
+					Thread t = new Thread(r, "BioViz SVG export");
+					t.setDaemon(true);
+					return t;
+				});
+	}
+
+	/**
+	 * Computes the file of a time step.
+	 *
+	 * @param pathWithoutSuffix
+	 * 		The path of the files without the time step and the suffix
+	 * @param maxT
+	 * 		The last time step, determines the padding of the numbers
+	 * @param timeStep
+	 * 		The time step
+	 * @param suffix
+	 * 		The suffix of the file
+	 * @return The file of the time step
+	 */
+	private static File stepFile(final String pathWithoutSuffix,
+								 final int maxT,
+								 final int timeStep,
+								 final String suffix) {
+		final int numDigits = (int) (Math.log10(maxT) + 1);
+		return new File(pathWithoutSuffix + "_ts" +
+						String.format("%0" + numDigits + "d", timeStep) +
+						suffix);
+	}
+
+	/**
+	 * Cancels the export.
+	 * <p>
+	 * Time steps that are being written are completed, all remaining ones
+	 * are skipped.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * @return true if the export has been cancelled.
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Returns how much of the export is done.
+	 *
+	 * @return The fraction of time steps written so far, between 0 and 1.
+	 */
+	public float getProgress() {
+		final int t = total;
+		if (t == 0) {
+			return 0;
+		}
+		return exported.get() / (float) t;
+	}
+}
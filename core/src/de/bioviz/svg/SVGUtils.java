@@ -37,12 +37,6 @@ import de.bioviz.util.Pair;
  */
 public final class SVGUtils {
 
-	/**
-	 * svgExportSettings instance.
-	 */
-	private static final SVGExportSettings SVG_EXPORT_SETTINGS =
-			SVGExportSettings.getInstance();
-
 	/**
 	 * Constructor to satisfy checkstyle.
 	 */
@@ -69,11 +63,14 @@ public final class SVGUtils {
 	 *
 	 * @param net
 	 * 		the net
+	 * @param settings
+	 * 		The settings of the export
 	 * @return the color of the net or Color.DARK_GREY if the colorfulExport is
 	 * off
 	 */
-	public static Color getNetColor(final Net net) {
-		if (SVG_EXPORT_SETTINGS.getColorfulExport()) {
+	public static Color getNetColor(final Net net,
+									final SVGExportSettings settings) {
+		if (settings.getColorfulExport()) {
 			return net.getColor().buildGdxColor();
 		} else {
 			return Color.DARK_GRAY;
@@ -85,12 +82,14 @@ public final class SVGUtils {
 	 *
 	 * @param dropColor
 	 * 		the droplet to get the base color
+	 * @param settings
+	 * 		The settings of the export
 	 * @return the color for the lighter arrowHead or Color.DARK_GREY if the
 	 * colorfulExport is off
 	 */
-	public static Color getLighterLongNetIndicatorColor(final Color
-																dropColor) {
-		if (SVG_EXPORT_SETTINGS.getColorfulExport()) {
+	public static Color getLighterLongNetIndicatorColor(
+			final Color dropColor, final SVGExportSettings settings) {
+		if (settings.getColorfulExport()) {
 			return dropColor.cpy().sub(
 					Colors.LONG_NET_INDICATORS_ON_DROPLET_DIFF);
 		} else {
@@ -103,11 +102,14 @@ public final class SVGUtils {
 	 *
 	 * @param dropColor
 	 * 		the droplet to get the base color
+	 * @param settings
+	 * 		The settings of the export
 	 * @return the color for the darker arrowHead or Color.DARK_GREY if the
 	 * colorfulExport is off
 	 */
-	public static Color getDarkerLongNetIndicatorColor(final Color dropColor) {
-		if (SVG_EXPORT_SETTINGS.getColorfulExport()) {
+	public static Color getDarkerLongNetIndicatorColor(
+			final Color dropColor, final SVGExportSettings settings) {
+		if (settings.getColorfulExport()) {
 			return dropColor.cpy().add(
 					Colors.LONG_NET_INDICATORS_ON_DROPLET_DIFF);
 		} else {
@@ -122,11 +124,14 @@ public final class SVGUtils {
 	 * 		The part of thename in front of the '-'
 	 * @param c
 	 * 		The color that will be put after the '-'
+	 * @param settings
+	 * 		The settings of the export
 	 * @return "<baseName>-<color>"
 	 */
 	public static String generateColoredID(final String baseName,
-										   final Color c) {
-		if (SVG_EXPORT_SETTINGS.getColorfulExport()) {
+										   final Color c,
+										   final SVGExportSettings settings) {
+		if (settings.getColorfulExport()) {
 			return baseName + "-" + colorToSVG(c);
 		} else {
 			return baseName;
@@ -0,0 +1,152 @@
+/*
+ * BioViz, a visualization tool for digital microfluidic biochips (DMFB).
+ *
+ * Copyright (c) 2017 Oliver Keszocze, Jannis Stoppe, Maximilian Luenert
+ *
+ * This file is part of BioViz.
+ *
+ * BioViz is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * BioViz is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * See the GNU General Public License for more details. You should have
+ * received a copy of the GNU
+ * General Public License along with BioViz.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.bioviz.ui;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Counts the bytes allocated by the rendering thread per frame.
+ * <p>
+ * This is a debugging aid for keeping the frame loop free of allocations:
+ * once the visualization has settled, a frame should allocate (close to)
+ * nothing. The allocated bytes are taken from the thread management bean.
+ * Measuring them is not part of the standard API, so the counter only works
+ * on virtual machines providing the com.sun.management extension.
+ *
+ * @author agent
+ */
+final class AllocationMonitor {
+
+	/**
+	 * The minimal time between two reports in ns.
+	 */
+	static final long REPORT_INTERVAL = CpuLoadMonitor.SAMPLE_INTERVAL;
+
+	/**
+	 * Provides the allocated bytes, null if they are not available.
+	 */
+	private final com.sun.management.ThreadMXBean threads;
+
+	/**
+	 * The bytes allocated by the rendering thread when the current frame
+	 * started.
+	 */
+	private long frameStart;
+
+	/**
+	 * The bytes allocated in the frames since the last report.
+	 */
+	private long allocated = 0;
+
+	/**
+	 * The number of frames since the last report.
+	 */
+	private int frames = 0;
+
+	/**
+	 * The wall clock time of the last report in ns.
+	 */
+	private long lastReport = System.nanoTime();
+
+	/**
+	 * The average number of bytes allocated per frame as of the last report.
+	 */
+	private long bytesPerFrame = -1;
+
+	/**
+	 * Creates a new monitor and enables the measurement of the allocated
+	 * bytes if possible.
+	 */
+	AllocationMonitor() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean &&
+			((com.sun.management.ThreadMXBean) bean)
+					.isThreadAllocatedMemorySupported()) {
+			threads = (com.sun.management.ThreadMXBean) bean;
+			threads.setThreadAllocatedMemoryEnabled(true);
+		} else {
+			threads = null;
+		}
+	}
+
+	/**
+	 * Checks whether the allocated bytes can be measured at all.
+	 *
+	 * @return true if the virtual machine reports the allocated bytes
+	 */
+	boolean isSupported() {
+		return threads != null;
+	}
+
+	/**
+	 * Retrieves the bytes allocated by the current thread so far.
+	 *
+	 * @return The allocated bytes, negative if they are unknown
+	 */
+	private long allocatedBytes() {
+		return threads == null ? -1 :
+			   threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * Marks the start of a frame. Must be called by the rendering thread.
+	 */
+	void beginFrame() {
+		frameStart = allocatedBytes();
+	}
+
+	/**
+	 * Marks the end of a frame. Must be called by the rendering thread.
+	 *
+	 * @return true if the report interval has passed and {@link
+	 * #getBytesPerFrame()} has been updated
+	 */
+	boolean endFrame() {
+		if (threads == null) {
+			return false;
+		}
+		allocated += allocatedBytes() - frameStart;
+		++frames;
+
+		long now = System.nanoTime();
+		if (now - lastReport < REPORT_INTERVAL) {
+			return false;
+		}
+		bytesPerFrame = allocated / frames;
+		allocated = 0;
+		frames = 0;
+		lastReport = now;
+		return true;
+	}
+
+	/**
+	 * Returns the average number of bytes allocated per frame.
+	 *
+	 * @return The bytes allocated per frame within the last report interval,
+	 * negative if there has not been a report yet
+	 */
+	long getBytesPerFrame() {
+		return bytesPerFrame;
+	}
+}
@@ -0,0 +1,223 @@
+/*
+ * BioViz, a visualization tool for digital microfluidic biochips (DMFB).
+ *
+ * Copyright (c) 2017 Oliver Keszocze, Jannis Stoppe, Maximilian Luenert
+ *
+ * This file is part of BioViz.
+ *
+ * BioViz is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * BioViz is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * See the GNU General Public License for more details. You should have
+ * received a copy of the GNU
+ * General Public License along with BioViz.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.bioviz.ui;
+
+import com.badlogic.gdx.graphics.Color;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable view of an assay at a single time step.
+ * <p>
+ * The view computes everything that depends on the time step (the colors,
+ * textures and messages of the fields, the colors and messages of the
+ * droplets, the colors of their routes and whether the droplets are
+ * visible) when it is created. Neither
+ * creating nor using the view touches the current time, the hover state or
+ * the animations of the assay that is displayed on screen. Views of
+ * different time steps can therefore be created and used concurrently,
+ * e.g. by the threads of an export.
+ * <p>
+ * The display options, hidden droplets and route length are taken from a
+ * {@link DisplaySettings} copy instead of the assay, as the user may change
+ * them while the view is used.
+ *
+ * @author agent
+ */
+public final class AssayStep {
+
+	/**
+	 * The alpha value a droplet's color needs to exceed to be visible.
+	 */
+	private static final float VISIBILITY_THRESHOLD = 0.1f;
+
+	/**
+	 * The assay this is a view of.
+	 */
+	private final DrawableAssay assay;
+
+	/**
+	 * The time step this is a view of.
+	 */
+	private final int timeStep;
+
+	/**
+	 * The display settings this is a view for.
+	 */
+	private final DisplaySettings settings;
+
+	/**
+	 * The color, message and texture of each field.
+	 */
+	private final Map<DrawableField, DisplayValues> fieldValues =
+			new IdentityHashMap<>();
+
+	/**
+	 * The color of each droplet.
+	 */
+	private final Map<DrawableDroplet, Color> dropletColors =
+			new IdentityHashMap<>();
+
+	/**
+	 * The message of each droplet.
+	 */
+	private final Map<DrawableDroplet, String> dropletMsgs =
+			new IdentityHashMap<>();
+
+	/**
+	 * The color of each droplet's route.
+	 */
+	private final Map<DrawableDroplet, Color> routeColors =
+			new IdentityHashMap<>();
+
+	/**
+	 * The droplets that are displayed on the chip at this time step.
+	 */
+	private final Set<DrawableDroplet> visibleDroplets =
+			Collections.newSetFromMap(new IdentityHashMap<>());
+
+	/**
+	 * Creates the view of an assay at a time step.
+	 *
+	 * @param assay
+	 * 		The assay to create the view of
+	 * @param timeStep
+	 * 		The time step to create the view of
+	 * @param settings
+	 * 		The display settings of the assay, copied on the render thread
+	 */
+	public AssayStep(final DrawableAssay assay,
+					 final int timeStep,
+					 final DisplaySettings settings) {
+		this.assay = assay;
+		this.timeStep = timeStep;
+		this.settings = settings;
+
+		final DisplayOptions options = settings.getDisplayOptions();
+		final RenderSnapshot snapshot =
+				new RenderSnapshot(assay.getData(), timeStep, options);
+		for (final DrawableField f : assay.getFields()) {
+			fieldValues.put(f, f.getDisplayValues(timeStep, snapshot));
+		}
+
+		for (final DrawableDroplet d : assay.getDroplets()) {
+			final boolean hidden = settings.isHidden(d);
+			final Color c = d.computeDisplayColor(
+					new Color(), timeStep, hidden, options);
+			dropletColors.put(d, c);
+			dropletMsgs.put(d, d.computeMsg(options));
+			if (d.route != null) {
+				routeColors.put(d, d.route.computeColor(c, options));
+			}
+			if (!hidden && c.a > VISIBILITY_THRESHOLD) {
+				visibleDroplets.add(d);
+			}
+		}
+	}
+
+	/**
+	 * @return The assay this is a view of.
+	 */
+	public DrawableAssay getAssay() {
+		return assay;
+	}
+
+	/**
+	 * @return The time step this is a view of.
+	 */
+	public int getTimeStep() {
+		return timeStep;
+	}
+
+	/**
+	 * @return The display settings this is a view for.
+	 */
+	public DisplaySettings getDisplaySettings() {
+		return settings;
+	}
+
+	/**
+	 * Retrieves the color, message and texture of a field at this time step.
+	 * <p>
+	 * The field is never displayed as hovered. The returned values are
+	 * shared and must not be modified.
+	 *
+	 * @param field
+	 * 		The field of the assay
+	 * @return The color, message and texture of the field
+	 */
+	public DisplayValues getDisplayValues(final DrawableField field) {
+		return fieldValues.get(field);
+	}
+
+	/**
+	 * Retrieves the color of a droplet at this time step.
+	 * <p>
+	 * The returned color is shared and must not be modified.
+	 *
+	 * @param droplet
+	 * 		The droplet of the assay
+	 * @return The color of the droplet
+	 */
+	public Color getDropletColor(final DrawableDroplet droplet) {
+		return dropletColors.get(droplet);
+	}
+
+	/**
+	 * Retrieves the text displayed on top of a droplet.
+	 *
+	 * @param droplet
+	 * 		The droplet of the assay
+	 * @return The text displayed on top of the droplet
+	 */
+	public String getDropletMsg(final DrawableDroplet droplet) {
+		return dropletMsgs.get(droplet);
+	}
+
+	/**
+	 * Retrieves the color of a droplet's route at this time step.
+	 * <p>
+	 * The returned color is shared and must not be modified.
+	 *
+	 * @param droplet
+	 * 		The droplet of the assay
+	 * @return The color of the droplet's route, null if it has no route
+	 */
+	public Color getRouteColor(final DrawableDroplet droplet) {
+		return routeColors.get(droplet);
+	}
+
+	/**
+	 * Checks whether a droplet is displayed on the chip at this time step.
+	 *
+	 * @param droplet
+	 * 		The droplet of the assay
+	 * @return true if the droplet is present and not hidden, false otherwise
+	 */
+	public boolean isVisible(final DrawableDroplet droplet) {
+		return visibleDroplets.contains(droplet);
+	}
+}
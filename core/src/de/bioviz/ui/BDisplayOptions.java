@@ -188,7 +188,12 @@ public enum BDisplayOptions {
 	/**
 	 * Highlight annotated fields.
 	 */
-	HighlightAnnotatedFields("Highlight annotated fields");
+	HighlightAnnotatedFields("Highlight annotated fields"),
+
+	/**
+	 * Display the CPU load of BioViz in the upper right corner.
+	 */
+	CpuLoad("Show CPU load");
 
 	/**
 	 * The description that is used in the menus to display this option.
@@ -34,16 +34,19 @@ import de.bioviz.messages.MessageCenter;
 import de.bioviz.messages.MsgAppender;
 import de.bioviz.parser.BioParser;
 import de.bioviz.structures.Biochip;
+import de.bioviz.svg.SVGExportSettings;
 import de.bioviz.svg.SVGManager;
+import de.bioviz.svg.SVGSeriesExporter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Random;
+import java.util.Timer;
+import java.util.TimerTask;
 
 
 
@@ -54,6 +57,16 @@ public class BioViz implements ApplicationListener {
      */
     private static Logger logger = LoggerFactory.getLogger(BioViz.class);
 
+    /**
+     * The number of nanoseconds per millisecond.
+     */
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    /**
+     * Factor converting a share into percent.
+     */
+    private static final float PERCENT = 100f;
+
 
 
     public BioVizSpriteBatch batch;
@@ -85,9 +98,16 @@ public class BioViz implements ApplicationListener {
     private BioVizInputProcessor inputProcessor;
 
 	/**
-     * Manages exporting the biochips to svg images.
+     * Manages the svg export running in the background, null if none has
+     * been started.
+     */
+    private volatile SVGManager svgManager = null;
+
+    /**
+     * The thread running the current svg series export, null if none has
+     * been started.
      */
-    private SVGManager svgManager;
+    private volatile Thread svgExportThread = null;
 
     /**
      * The desired framerate in fps.
@@ -96,6 +116,48 @@ public class BioViz implements ApplicationListener {
      */
     private int targetFramerate = 60;
 
+    /**
+     * Whether frames are only drawn when something changed.
+     * <p>
+     * If set, the scene is only redrawn after input, time changes, file
+     * loads and while animations are running. Otherwise the scene is redrawn
+     * continuously at the target framerate.
+     */
+    private static boolean onDemandRendering = true;
+
+    /**
+     * Measures the CPU load for displaying it in the HUD.
+     */
+    private final CpuLoadMonitor cpuLoad = new CpuLoadMonitor();
+
+    /**
+     * Whether the CPU load is currently displayed.
+     * <p>
+     * This flag is read by the {@link #statusTimer} thread.
+     */
+    private volatile boolean showCpuLoad = false;
+
+    /**
+     * Wakes up the rendering to update the displayed CPU load.
+     */
+    private Timer statusTimer;
+
+    /**
+     * Counts the bytes allocated per frame; only present if debug logging is
+     * enabled.
+     */
+    private AllocationMonitor allocations = null;
+
+    /**
+     * The time (in ms) at which the current frame started.
+     */
+    private long frameTime = System.currentTimeMillis();
+
+    /**
+     * Whether a frame is currently being rendered.
+     */
+    private boolean inFrame = false;
+
 
     private List<BioVizEvent> timeChangedListeners = new ArrayList<>();
     private List<BioVizEvent> loadFileListeners = new ArrayList<>();
@@ -139,6 +201,9 @@ public class BioViz implements ApplicationListener {
     public static void setAnimationDuration(final int newDuration) {
         DrawableDroplet.setTransitionDuration(newDuration);
         DrawableSprite.setColorTransitionDuration(newDuration);
+        if (Gdx.graphics != null) {
+            Gdx.graphics.requestRendering();
+        }
     }
 
     /**
@@ -150,6 +215,45 @@ public class BioViz implements ApplicationListener {
         return DrawableDroplet.getTransitionDuration();
     }
 
+    /**
+     * Sets whether frames are only drawn when something changed.
+     * <p>
+     * By default, this on-demand rendering is enabled so that an idle BioViz
+     * does not use the CPU.
+     *
+     * @param onDemand
+     *         true to only draw frames on changes, false to draw frames
+     *         continuously
+     */
+    public static void setOnDemandRendering(final boolean onDemand) {
+        onDemandRendering = onDemand;
+        if (Gdx.graphics != null) {
+            Gdx.graphics.setContinuousRendering(!onDemand);
+            Gdx.graphics.requestRendering();
+        }
+    }
+
+    /**
+     * Returns whether frames are only drawn when something changed.
+     *
+     * @return true if on-demand rendering is enabled
+     */
+    public static boolean isOnDemandRendering() {
+        return onDemandRendering;
+    }
+
+    /**
+     * Requests a new frame to be drawn.
+     * <p>
+     * This needs to be called whenever anything that is displayed has
+     * changed. It may be called from any thread.
+     */
+    public void requestRendering() {
+        if (Gdx.graphics != null) {
+            Gdx.graphics.requestRendering();
+        }
+    }
+
     public String getFileName() {
         if (bioFile == null) {
             return "Default example";
@@ -162,18 +266,16 @@ public class BioViz implements ApplicationListener {
         return inputProcessor;
     }
 
-
     /**
-     * This method creates an SVGManager if not already present. The problem is
-     * that the manager tries to access the Gdx.files object, which is not
-     * available when creating a BioViz instance.
+     * Returns the manager providing the textures of this visualization.
+     *
+     * @return The texture manager of this visualization
      */
-    private void spawnSVGManager() {
-        if (svgManager == null) {
-            svgManager = new SVGManager();
-        }
+    TextureManager getTextureManager() {
+        return textures;
     }
 
+
     @Override
     public void create() {
         messageCenter = new MessageCenter(this);
@@ -189,11 +291,37 @@ public class BioViz implements ApplicationListener {
         inputProcessor = new BioVizInputProcessor(this);
         Gdx.input.setInputProcessor(inputProcessor);
 
+        textures.preload();
+
+        Gdx.graphics.setContinuousRendering(!onDemandRendering);
+        statusTimer = new Timer("BioViz status", true);
+        final long interval =
+                CpuLoadMonitor.SAMPLE_INTERVAL / NANOS_PER_MILLI;
+        statusTimer.scheduleAtFixedRate(new TimerTask() {
+            @Override
+            public void run() {
+                if (showCpuLoad) {
+                    requestRendering();
+                }
+            }
+        }, interval, interval);
+
+        if (logger.isDebugEnabled()) {
+            allocations = new AllocationMonitor();
+            if (!allocations.isSupported()) {
+                logger.debug("Counting allocations is not supported");
+                allocations = null;
+            }
+        }
+
         logger.trace("BioViz started");
     }
 
     @Override
     public void dispose() {
+        statusTimer.cancel();
+        loadedBiochips.values().forEach(DrawableAssay::dispose);
+        messageCenter.dispose();
         batch.dispose();
         this.textures.dispose();
         Gdx.app.exit();
@@ -202,7 +330,13 @@ public class BioViz implements ApplicationListener {
     @Override
     public synchronized void render() {
 
-        long currentTimestamp = new Date().getTime();
+        if (allocations != null) {
+            allocations.beginFrame();
+        }
+
+        // all animations of this frame use the same point in time
+        frameTime = System.currentTimeMillis();
+        inFrame = true;
 
 
         if (loadFileOnUpdate) {
@@ -221,30 +355,102 @@ public class BioViz implements ApplicationListener {
         batch.setProjectionMatrix(camera.combined);
         batch.begin();
 
-        for (final Drawable drawable : drawables) {
-            drawable.draw();
+        boolean texturesLoaded = textures.update();
+        if (texturesLoaded) {
+            for (final Drawable drawable : drawables) {
+                drawable.draw();
+            }
+            updateCpuLoad();
+            updateExportStatus();
+        } else {
+            messageCenter.setStatusMessage(String.format(
+                    "Loading textures: %.0f%%",
+                    textures.getProgress() * PERCENT));
         }
 
+        // messages that are visible now need to be removed once they expire
+        boolean animating = !texturesLoaded ||
+                            messageCenter.hasMessages() ||
+                            isExportingSVG() ||
+                            (currentAssay != null &&
+                             currentAssay.isAnimating());
+
         messageCenter.render();
 
         batch.end();
+        inFrame = false;
+
+        if (allocations != null && allocations.endFrame()) {
+            logger.debug("Allocated {} bytes per frame",
+                         allocations.getBytesPerFrame());
+        }
+
+        if (onDemandRendering) {
+            if (!animating) {
+                // nothing will change until the next event
+                return;
+            }
+            Gdx.graphics.requestRendering();
+        }
 
         /*
         We limit the frame rate to targetFramerate here
          */
-        long waitUntil = currentTimestamp + (1000 / this.targetFramerate);
+        long waitUntil = frameTime + (1000 / this.targetFramerate);
         try {
-            Thread.sleep(Math.max(0, waitUntil - new Date().getTime()));
+            Thread.sleep(Math.max(0,
+                                  waitUntil - System.currentTimeMillis()));
         } catch (final InterruptedException e) {
             logger.info("Sleep was interrupted");
         }
     }
 
 
+    /**
+     * Returns the time used for all animations of the current frame.
+     * <p>
+     * The time is sampled once at the beginning of each frame, so every
+     * element drawn in a frame uses the same point in time and no clock has
+     * to be queried per element. Outside of a frame (e.g. when handling
+     * input), the current time is returned.
+     *
+     * @return the time of the current frame in ms
+     */
+    public long getFrameTime() {
+        return inFrame ? frameTime : System.currentTimeMillis();
+    }
+
+    /**
+     * Updates the CPU load displayed in the HUD.
+     * <p>
+     * The load is only sampled when the corresponding display option is set.
+     */
+    private void updateCpuLoad() {
+        boolean wasShown = showCpuLoad;
+        showCpuLoad = currentAssay != null &&
+                      currentAssay.getDisplayOptions().getOption(
+                              BDisplayOptions.CpuLoad);
+        if (!showCpuLoad) {
+            messageCenter.setStatusMessage(null);
+        } else if (cpuLoad.sample() || !wasShown) {
+            float load = cpuLoad.getLoad();
+            String status;
+            if (!cpuLoad.isSupported()) {
+                status = "CPU load: n/a";
+            } else if (load < 0) {
+                status = "CPU load: measuring";
+            } else {
+                status = String.format("CPU load: %.1f%%", load * PERCENT);
+            }
+            messageCenter.setStatusMessage(status);
+        }
+    }
+
     @Override
     public void resize(final int width, final int height) {
         camera.viewportHeight = height;
         camera.viewportWidth = width;
+        requestRendering();
         if (firstRun && currentAssay != null) {
             currentAssay.zoomExtents();
             firstRun = false;
@@ -265,6 +471,8 @@ public class BioViz implements ApplicationListener {
             if (this.loadedBiochips.containsKey(path)) {
                 DrawableAssay c = loadedBiochips.get(path);
 
+                c.dispose();
+
                 // remove the visualization if it is currently active.
                 if (currentAssay == c) {
                     this.drawables.remove(c);
@@ -350,6 +558,7 @@ public class BioViz implements ApplicationListener {
             logger.debug("Scheduling loading of file " + f);
             bioFile = f;
             loadFileOnUpdate = true;
+            requestRendering();
         }
     }
 
@@ -429,23 +638,118 @@ public class BioViz implements ApplicationListener {
 
     /**
      * Exports the currently displayed biochip to a svg image file.
+     * <p>
+     * A series or animated export runs in the background while the
+     * visualization stays usable. Its progress is shown in the status line
+     * and it can be cancelled via {@link #cancelSVGExport()}. Only one of
+     * them can run at a time.
+     * <p>
+     * The export is started on the render thread. There, the export settings
+     * and the display settings of the assay are copied between two frames,
+     * so that the user can change them while the export is running.
      *
      * @param file The file where the svg should be stored.
      * @param timeStep The timestep of the current biochip to store.
      */
     public void saveSVG(final File file, final int timeStep) {
-        spawnSVGManager();
         logger.debug("[SVG] Within saveSVG(String) method");
-        logger.debug("[SVG] svgManager: {}", svgManager);
+        Gdx.app.postRunnable(() -> startSVGExport(file, timeStep));
+    }
+
+    /**
+     * Copies the settings and starts the svg export.
+     * <p>
+     * Must be called on the render thread.
+     *
+     * @param file The file where the svg should be stored.
+     * @param timeStep The timestep of the current biochip to store.
+     */
+    private void startSVGExport(final File file, final int timeStep) {
+        final SVGExportSettings settings =
+                SVGExportSettings.getInstance().copy();
+        final DrawableAssay assay = currentAssay;
+        final DisplaySettings view = new DisplaySettings(assay);
+
+        if (settings.getExportSeries() || settings.getAnimatedExport()) {
+            if (isExportingSVG()) {
+                logger.info("[SVG] Another export is still running");
+                return;
+            }
+            final SVGManager manager = new SVGManager(settings);
+            Thread exporter = new Thread(() -> {
+                storeSVG(manager, file, assay, timeStep, view);
+                requestRendering();
+            }, "BioViz SVG series export");
+            exporter.setDaemon(true);
+            svgManager = manager;
+            svgExportThread = exporter;
+            exporter.start();
+            requestRendering();
+        } else {
+            storeSVG(new SVGManager(settings), file, assay, timeStep, view);
+        }
+    }
 
+    /**
+     * Exports a biochip to a svg image file.
+     *
+     * @param manager The manager exporting the biochip.
+     * @param file The file where the svg should be stored.
+     * @param assay The biochip to store.
+     * @param timeStep The timestep of the biochip to store.
+     * @param view The display settings of the biochip.
+     */
+    private void storeSVG(final SVGManager manager,
+                          final File file,
+                          final DrawableAssay assay,
+                          final int timeStep,
+                          final DisplaySettings view) {
         try {
             //Export SVG file
-            svgManager.exportSVG(file, currentAssay, timeStep);
+            manager.exportSVG(file, assay, timeStep, view);
         } catch (final Exception e) {
             logger.error("[SVG] Could not store SVG; exception message: {}", e);
         }
     }
 
+    /**
+     * @return true if a svg export is running in the background.
+     */
+    public boolean isExportingSVG() {
+        Thread exporter = svgExportThread;
+        return exporter != null && exporter.isAlive();
+    }
+
+    /**
+     * Cancels the running svg series or animated export.
+     * <p>
+     * Does nothing if no such export is running.
+     */
+    public void cancelSVGExport() {
+        SVGManager manager = svgManager;
+        SVGSeriesExporter exporter =
+                manager == null ? null : manager.getSeriesExporter();
+        if (exporter != null && !exporter.isCancelled()) {
+            logger.info("[SVG] Cancelling export");
+            exporter.cancel();
+        }
+    }
+
+    /**
+     * Shows the progress of a running svg series or animated export in the
+     * status line.
+     */
+    private void updateExportStatus() {
+        SVGManager manager = svgManager;
+        SVGSeriesExporter exporter =
+                manager == null ? null : manager.getSeriesExporter();
+        if (exporter != null) {
+            messageCenter.setStatusMessage(String.format(
+                    "Exporting SVG: %.0f%% (Esc to cancel)",
+                    exporter.getProgress() * PERCENT));
+        }
+    }
+
 	/**
      * Choses the icon used by the application.
      *
@@ -535,6 +839,7 @@ public class BioViz implements ApplicationListener {
      */
     private void callListeners(final List<BioVizEvent> events) {
         events.forEach(BioVizEvent::bioVizEvent);
+        requestRendering();
     }
 
 }
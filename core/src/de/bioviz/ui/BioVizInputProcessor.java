@@ -71,6 +71,7 @@ class BioVizInputProcessor implements InputProcessor {
 
 	@Override
 	public boolean keyDown(final int keycode) {
+		parentViz.requestRendering();
 		if (keycode == Keys.CONTROL_LEFT || keycode == Keys.CONTROL_RIGHT) {
 			ctrl = true;
 		} else if (keycode == Keys.ALT_LEFT || keycode == Keys.ALT_RIGHT) {
@@ -83,6 +84,7 @@ class BioVizInputProcessor implements InputProcessor {
 
 	@Override
 	public boolean keyUp(final int keycode) {
+		parentViz.requestRendering();
 		if (keycode == Keys.CONTROL_LEFT || keycode == Keys.CONTROL_RIGHT) {
 			ctrl = false;
 		}
@@ -122,6 +124,8 @@ class BioVizInputProcessor implements InputProcessor {
 			}
 		} else if (keycode == Keys.T && ctrl) {
 			parentViz.callLoadFileListeners();
+		} else if (keycode == Keys.ESCAPE) {
+			parentViz.cancelSVGExport();
 		} else if (keycode == Keys.Z) {
 			if (shift) {
 				parentViz.currentAssay.zoomExtents();
@@ -150,6 +154,7 @@ class BioVizInputProcessor implements InputProcessor {
 	@Override
 	public boolean touchDown(final int x, final int y, final int pointer,
 							 final int button) {
+		parentViz.requestRendering();
 		if (pointer == 0) {
 			oldX = x;
 			oldY = y;
@@ -166,6 +171,7 @@ class BioVizInputProcessor implements InputProcessor {
 	@Override
 	public boolean touchUp(final int x, final int y, final int pointer, final
 	int button) {
+		parentViz.requestRendering();
 		if (pointer == 0) {
 			isMoving = false;
 		} else if (pointer == 1) {
@@ -193,6 +199,7 @@ class BioVizInputProcessor implements InputProcessor {
 
 	@Override
 	public boolean touchDragged(final int x, final int y, final int pointer) {
+		parentViz.requestRendering();
 
 		final float minimalZoomFactor = 0.01f;
 
@@ -240,6 +247,7 @@ class BioVizInputProcessor implements InputProcessor {
 	@Override
 	// TODO @Jannis comment this ^^
 	public boolean scrolled(final int amount) {
+		parentViz.requestRendering();
 		float mouseAtWidth = (float) oldX / Gdx.graphics.getWidth();
 		float mouseAtHeight = (float) oldY / Gdx.graphics.getHeight();
 
@@ -266,6 +274,7 @@ class BioVizInputProcessor implements InputProcessor {
 
 	@Override
 	public boolean mouseMoved(final int screenX, final int screenY) {
+		parentViz.requestRendering();
 		oldX = screenX;
 		oldY = screenY;
 		return false;
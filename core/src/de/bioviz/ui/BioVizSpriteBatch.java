@@ -22,17 +22,20 @@
 
 package de.bioviz.ui;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.BitmapFontCache;
 import com.badlogic.gdx.graphics.g2d.GlyphLayout;
 import com.badlogic.gdx.graphics.g2d.Sprite;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
 import com.badlogic.gdx.math.Matrix4;
 
-import de.bioviz.util.Pair;
-
 /**
  * This class serves as a wrapper around the original libgdx sprite batch but
  * adds depth sorting functionality.
@@ -43,20 +46,200 @@ import de.bioviz.util.Pair;
  * This class therefore collects them to be sorted and executed via a given
  * priority value.
  *
+ * The draw calls are recorded in plain arrays that are reused from frame to
+ * frame, so recording a sprite only copies its vertices. When the batch ends,
+ * the calls are ordered by their depth using stable radix sorting. Calls with
+ * the same depth are executed in the order they were placed in, so
+ * overlapping sprites at the same depth are drawn as they were submitted.
+ * The only exception are sprites that overlap none of the calls they are
+ * moved past: these are pulled forward to a preceding call using the same
+ * texture, so that the wrapped batch needs to be flushed less often.
+ *
  * @author jannis
  *
  */
 public class BioVizSpriteBatch {
+
+	/**
+	 * The number of draw calls space is reserved for initially.
+	 */
+	private static final int INITIAL_CAPACITY = 1024;
+
+	/**
+	 * The number of floats describing the four vertices of a sprite, i.e.
+	 * position, color and texture coordinates of each vertex.
+	 * <p>
+	 * This equals the package private Sprite.SPRITE_SIZE of libgdx.
+	 */
+	private static final int SPRITE_SIZE = 20;
+
+	/**
+	 * The number of floats describing a single vertex of a sprite.
+	 */
+	private static final int VERTEX_SIZE = SPRITE_SIZE / 4;
+
+	/**
+	 * The offset of the x coordinate within the floats of a vertex.
+	 */
+	private static final int VERTEX_X = 0;
+
+	/**
+	 * The offset of the y coordinate within the floats of a vertex.
+	 */
+	private static final int VERTEX_Y = 1;
+
+	/**
+	 * The number of draw calls following a sprite that are searched for
+	 * sprites using the same texture.
+	 */
+	private static final int GROUP_WINDOW = 32;
+
+	/**
+	 * The number of bits of the depth key sorted in one radix pass.
+	 */
+	private static final int RADIX_BITS = 8;
+
+	/**
+	 * The number of buckets of a radix pass.
+	 */
+	private static final int RADIX_BUCKETS = 1 << RADIX_BITS;
+
+	/**
+	 * The number of bits of a depth key.
+	 */
+	private static final int KEY_BITS = 32;
+
+	/**
+	 * The group of draw calls that draw text instead of textures.
+	 */
+	private static final int TEXT_GROUP = 0;
+
+	/**
+	 * The offset of the x coordinate of a text draw call within its
+	 * vertices.
+	 */
+	private static final int TEXT_X = 0;
+
+	/**
+	 * The offset of the y coordinate of a text draw call within its
+	 * vertices.
+	 */
+	private static final int TEXT_Y = 1;
+
+	/**
+	 * The offset of the red value of the tint of a text draw call within its
+	 * vertices.
+	 */
+	private static final int TEXT_RED = 2;
+
+	/**
+	 * The offset of the green value of the tint of a text draw call within
+	 * its vertices.
+	 */
+	private static final int TEXT_GREEN = 3;
+
+	/**
+	 * The offset of the blue value of the tint of a text draw call within
+	 * its vertices.
+	 */
+	private static final int TEXT_BLUE = 4;
+
+	/**
+	 * The offset of the alpha value of the tint of a text draw call within
+	 * its vertices.
+	 */
+	private static final int TEXT_ALPHA = 5;
+
 	/**
 	 * The original sprite batch to draw things in.
 	 */
 	private SpriteBatch sb;
 
 	/**
-	 * This field collects all draw calls and their associated priority.
+	 * The number of draw calls recorded since the last flush.
 	 */
-	private ArrayList<Pair<Float, Runnable>> drawCalls =
-			new ArrayList<>();
+	private int size = 0;
+
+	/**
+	 * The depth of each draw call, encoded so that comparing the keys as
+	 * unsigned integers orders them like {@link Float#compare(float, float)}.
+	 */
+	private int[] depthKeys = new int[INITIAL_CAPACITY];
+
+	/**
+	 * The index of the projection matrix of each draw call within
+	 * {@link #matrices}.
+	 */
+	private int[] matrixIDs = new int[INITIAL_CAPACITY];
+
+	/**
+	 * The index of the texture of each draw call within {@link #textures}, or
+	 * {@link #TEXT_GROUP} for text.
+	 */
+	private int[] textureIDs = new int[INITIAL_CAPACITY];
+
+	/**
+	 * The sprite vertices of each draw call. Text draw calls store their
+	 * position and tint instead, see {@link #TEXT_X} to {@link #TEXT_ALPHA}.
+	 */
+	private float[] vertices = new float[INITIAL_CAPACITY * SPRITE_SIZE];
+
+	/**
+	 * The font of each text draw call.
+	 */
+	private BitmapFont[] fonts = new BitmapFont[INITIAL_CAPACITY];
+
+	/**
+	 * The message of each text draw call, either a {@link CharSequence} or a
+	 * {@link GlyphLayout}.
+	 */
+	private Object[] messages = new Object[INITIAL_CAPACITY];
+
+	/**
+	 * The tint of the text draw call that is currently drawn.
+	 */
+	private final Color textTint = new Color();
+
+	/**
+	 * The distinct projection matrices used since the last flush.
+	 */
+	private Matrix4[] matrices = new Matrix4[1];
+
+	/**
+	 * The number of entries used in {@link #matrices}.
+	 */
+	private int matrixCount = 0;
+
+	/**
+	 * The distinct textures used since the last flush. The first entry is
+	 * reserved for the {@link #TEXT_GROUP}.
+	 */
+	private Texture[] textures = new Texture[RADIX_BUCKETS];
+
+	/**
+	 * The number of entries used in {@link #textures}.
+	 */
+	private int textureCount = 1;
+
+	/**
+	 * The order in which the draw calls are executed.
+	 */
+	private int[] order = new int[INITIAL_CAPACITY];
+
+	/**
+	 * Scratch space for the sorting passes.
+	 */
+	private int[] sortBuffer = new int[INITIAL_CAPACITY];
+
+	/**
+	 * Bucket counts for the sorting passes.
+	 */
+	private int[] counts = new int[RADIX_BUCKETS + 1];
+
+	/**
+	 * The draw calls passed over while grouping sprites by their texture.
+	 */
+	private final int[] skipped = new int[GROUP_WINDOW];
 
 	/**
 	 * Creates a new batch to draw elements with.
@@ -85,20 +268,11 @@ public class BioVizSpriteBatch {
 	 * @param z the depth value of the sprite.
 	 */
 	public void draw(final Sprite s, final Matrix4 m, final float z) {
-		float[] vertices = s.getVertices().clone();
-		Texture tex = s.getTexture();
-		drawCalls.add(new Pair<>(
-					z,
-					() -> {
-						Matrix4 old = sb.getProjectionMatrix();
-						if (!(old.equals(m))) {
-							sb.end();
-							sb.setProjectionMatrix(m);
-							sb.begin();
-						}
-						sb.draw(tex, vertices, 0, 20);
-					}
-				));
+		int i = record(m, z);
+		textureIDs[i] = textureID(s.getTexture());
+		System.arraycopy(s.getVertices(), 0,
+						 vertices, i * SPRITE_SIZE,
+						 SPRITE_SIZE);
 	}
 
 
@@ -108,12 +282,117 @@ public class BioVizSpriteBatch {
 	 * original batch's draw functions in the order specified.
 	 */
 	public void end() {
-		drawCalls.sort((dca, dcb) -> dca.fst.compareTo(dcb.fst));
-		for (final Pair<Float, Runnable> pair : drawCalls) {
-			pair.snd.run();
+		execute(0);
+		sb.end();
+	}
+
+	/**
+	 * Returns a mark identifying the draw calls recorded from now on.
+	 * @return the mark to pass to
+	 * {@link #flushTo(int, float, FrameBuffer, Color)}.
+	 */
+	int mark() {
+		return size;
+	}
+
+	/**
+	 * Executes the draw calls recorded at a given depth since the given mark
+	 * into a frame buffer instead of the screen. All other calls are kept
+	 * and executed as usual.
+	 * @param mark the mark returned by {@link #mark()}.
+	 * @param z the depth of the draw calls to execute.
+	 * @param target the frame buffer to draw into.
+	 * @param background the color the frame buffer is cleared with.
+	 */
+	void flushTo(final int mark,
+				 final float z,
+				 final FrameBuffer target,
+				 final Color background) {
+		int key = depthKey(z);
+		sb.end();
+		target.begin();
+		Gdx.gl.glClearColor(background.r, background.g, background.b,
+							background.a);
+		Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+		sb.begin();
+		// all calls share the same depth, so they are drawn in the order
+		// they were recorded in
+		Matrix4 current = sb.getProjectionMatrix();
+		for (int i = mark; i < size; i++) {
+			if (depthKeys[i] == key) {
+				current = execute(i, current);
+			}
 		}
-		drawCalls.clear();
 		sb.end();
+		target.end();
+		sb.begin();
+
+		int kept = mark;
+		for (int i = mark; i < size; i++) {
+			if (depthKeys[i] != key) {
+				move(i, kept++);
+			}
+		}
+		clear(kept);
+	}
+
+	/**
+	 * Executes the draw calls recorded since the given mark in the order
+	 * determined by their depth and forgets about them afterwards.
+	 * @param from the index of the first draw call to execute.
+	 */
+	private void execute(final int from) {
+		sort(from);
+		group(size - from);
+
+		Matrix4 current = sb.getProjectionMatrix();
+		for (int k = 0; k < size - from; k++) {
+			current = execute(order[k], current);
+		}
+
+		clear(from);
+	}
+
+	/**
+	 * Executes a single recorded draw call.
+	 * @param i the index of the draw call.
+	 * @param current the projection matrix currently set.
+	 * @return the projection matrix set after the call.
+	 */
+	private Matrix4 execute(final int i, final Matrix4 current) {
+		Matrix4 m = matrices[matrixIDs[i]];
+		if (m != current && !current.equals(m)) {
+			sb.end();
+			sb.setProjectionMatrix(m);
+			sb.begin();
+		}
+
+		int offset = i * SPRITE_SIZE;
+		if (textureIDs[i] == TEXT_GROUP) {
+			drawText(fonts[i], messages[i], offset);
+		} else {
+			sb.draw(textures[textureIDs[i]], vertices, offset,
+					SPRITE_SIZE);
+		}
+		return m;
+	}
+
+	/**
+	 * Moves a recorded draw call to another index.
+	 * @param from the index of the draw call.
+	 * @param to the new index of the draw call.
+	 */
+	private void move(final int from, final int to) {
+		if (from == to) {
+			return;
+		}
+		depthKeys[to] = depthKeys[from];
+		matrixIDs[to] = matrixIDs[from];
+		textureIDs[to] = textureIDs[from];
+		System.arraycopy(vertices, from * SPRITE_SIZE,
+						 vertices, to * SPRITE_SIZE, SPRITE_SIZE);
+		fonts[to] = fonts[from];
+		messages[to] = messages[from];
 	}
 
 	/**
@@ -131,17 +410,8 @@ public class BioVizSpriteBatch {
 			final float startY,
 			final Matrix4 m,
 			final float z) {
-		drawCalls.add(new Pair<>(
-				z,
-				() -> {
-					Matrix4 old = sb.getProjectionMatrix();
-					if (!(old.equals(m))) {
-						sb.end();
-						sb.setProjectionMatrix(m);
-						sb.begin();
-					}
-					messageFont.draw(sb, message, startX, startY);
-				}));
+		recordMessage(messageFont, message, Color.WHITE, startX, startY, m,
+					  z);
 	}
 
 	/**
@@ -159,17 +429,33 @@ public class BioVizSpriteBatch {
 			final float startY,
 			final Matrix4 m,
 			final float z) {
-		drawCalls.add(new Pair<Float, Runnable>(
-				z,
-				() -> {
-					Matrix4 old = sb.getProjectionMatrix();
-					if (!(old.equals(m))) {
-						sb.end();
-						sb.setProjectionMatrix(m);
-						sb.begin();
-					}
-					messageFont.draw(sb, message, startX, startY);
-				}));
+		recordMessage(messageFont, message, Color.WHITE, startX, startY, m,
+					  z);
+	}
+
+	/**
+	 * Draws a message in a color.
+	 * <p>
+	 * The colors of the layout are multiplied with the tint. Laying out a
+	 * text in white and passing its color here allows to reuse the layout
+	 * when only the color, e.g. the transparency, changes.
+	 * @param messageFont the font to use.
+	 * @param message the message to draw.
+	 * @param tint the color to tint the message with.
+	 * @param startX the x coordinate.
+	 * @param startY the y coordinate.
+	 * @param m the transformation matrix to use.
+	 * @param z the depth value of the message.
+	 */
+	public void drawMessage(
+			final BitmapFont messageFont,
+			final GlyphLayout message,
+			final Color tint,
+			final float startX,
+			final float startY,
+			final Matrix4 m,
+			final float z) {
+		recordMessage(messageFont, message, tint, startX, startY, m, z);
 	}
 
 	/**
@@ -202,4 +488,339 @@ public class BioVizSpriteBatch {
 	void setProjectionMatrix(final Matrix4 matrix) {
 		sb.setProjectionMatrix(matrix);
 	}
+
+	/**
+	 * Records a text draw call.
+	 * @param font the font to use.
+	 * @param message the message, a CharSequence or GlyphLayout.
+	 * @param tint the color to tint a GlyphLayout with.
+	 * @param x the x coordinate.
+	 * @param y the y coordinate.
+	 * @param m the transformation matrix to use.
+	 * @param z the depth value of the message.
+	 */
+	private void recordMessage(
+			final BitmapFont font,
+			final Object message,
+			final Color tint,
+			final float x,
+			final float y,
+			final Matrix4 m,
+			final float z) {
+		int i = record(m, z);
+		textureIDs[i] = TEXT_GROUP;
+		fonts[i] = font;
+		messages[i] = message;
+		int offset = i * SPRITE_SIZE;
+		vertices[offset + TEXT_X] = x;
+		vertices[offset + TEXT_Y] = y;
+		vertices[offset + TEXT_RED] = tint.r;
+		vertices[offset + TEXT_GREEN] = tint.g;
+		vertices[offset + TEXT_BLUE] = tint.b;
+		vertices[offset + TEXT_ALPHA] = tint.a;
+	}
+
+	/**
+	 * Draws a recorded message.
+	 * @param font the font to use.
+	 * @param message the message, a CharSequence or GlyphLayout.
+	 * @param offset the offset of the draw call within {@link #vertices}.
+	 */
+	private void drawText(
+			final BitmapFont font,
+			final Object message,
+			final int offset) {
+		float x = vertices[offset + TEXT_X];
+		float y = vertices[offset + TEXT_Y];
+		if (message instanceof GlyphLayout) {
+			textTint.set(vertices[offset + TEXT_RED],
+						 vertices[offset + TEXT_GREEN],
+						 vertices[offset + TEXT_BLUE],
+						 vertices[offset + TEXT_ALPHA]);
+			// this is what font.draw does, plus the tint
+			BitmapFontCache cache = font.getCache();
+			cache.clear();
+			cache.addText((GlyphLayout) message, x, y);
+			cache.tint(textTint);
+			cache.draw(sb);
+		} else {
+			font.draw(sb, (CharSequence) message, x, y);
+		}
+	}
+
+	/**
+	 * Reserves space for a new draw call and stores its matrix and depth.
+	 * @param m the transformation matrix of the call.
+	 * @param z the depth value of the call.
+	 * @return the index of the new draw call.
+	 */
+	private int record(final Matrix4 m, final float z) {
+		if (size == depthKeys.length) {
+			grow();
+		}
+		int i = size++;
+		depthKeys[i] = depthKey(z);
+		matrixIDs[i] = matrixID(m);
+		return i;
+	}
+
+	/**
+	 * Encodes a depth value such that the unsigned order of the keys matches
+	 * the order of the depth values.
+	 * @param z the depth value.
+	 * @return the key of the depth value.
+	 */
+	private static int depthKey(final float z) {
+		int bits = Float.floatToIntBits(z);
+		// negative values: flip all bits, positive values: flip the sign
+		return bits ^ ((bits >> (KEY_BITS - 1)) | Integer.MIN_VALUE);
+	}
+
+	/**
+	 * Looks up the index of a projection matrix, adding it if necessary.
+	 * @param m the matrix.
+	 * @return the index of the matrix within {@link #matrices}.
+	 */
+	private int matrixID(final Matrix4 m) {
+		for (int i = matrixCount - 1; i >= 0; i--) {
+			if (matrices[i] == m) {
+				return i;
+			}
+		}
+		if (matrixCount == matrices.length) {
+			matrices = Arrays.copyOf(matrices, matrixCount * 2);
+		}
+		matrices[matrixCount] = m;
+		return matrixCount++;
+	}
+
+	/**
+	 * Looks up the index of a texture, adding it if necessary.
+	 * @param tex the texture.
+	 * @return the index of the texture within {@link #textures}.
+	 */
+	private int textureID(final Texture tex) {
+		for (int i = textureCount - 1; i > TEXT_GROUP; i--) {
+			if (textures[i] == tex) {
+				return i;
+			}
+		}
+		if (textureCount == textures.length) {
+			textures = Arrays.copyOf(textures, textureCount * 2);
+		}
+		textures[textureCount] = tex;
+		return textureCount++;
+	}
+
+	/**
+	 * Doubles the capacity of the per draw call arrays.
+	 */
+	private void grow() {
+		int capacity = depthKeys.length * 2;
+		depthKeys = Arrays.copyOf(depthKeys, capacity);
+		matrixIDs = Arrays.copyOf(matrixIDs, capacity);
+		textureIDs = Arrays.copyOf(textureIDs, capacity);
+		vertices = Arrays.copyOf(vertices, capacity * SPRITE_SIZE);
+		fonts = Arrays.copyOf(fonts, capacity);
+		messages = Arrays.copyOf(messages, capacity);
+		order = new int[capacity];
+		sortBuffer = new int[capacity];
+	}
+
+	/**
+	 * Forgets the recorded draw calls starting at the given index while
+	 * keeping the allocated space.
+	 * @param from the index of the first draw call to forget.
+	 */
+	private void clear(final int from) {
+		Arrays.fill(fonts, from, size, null);
+		Arrays.fill(messages, from, size, null);
+		size = from;
+		if (size == 0) {
+			Arrays.fill(matrices, 0, matrixCount, null);
+			Arrays.fill(textures, 0, textureCount, null);
+			matrixCount = 0;
+			textureCount = 1;
+		}
+	}
+
+	/**
+	 * Computes the {@link #order} of the recorded draw calls starting at the
+	 * given index.
+	 * <p>
+	 * The depth is the only key. As every pass is stable, calls with the
+	 * same depth keep the order they were recorded in.
+	 * @param from the index of the first draw call to sort.
+	 */
+	private void sort(final int from) {
+		int count = size - from;
+		for (int k = 0; k < count; k++) {
+			order[k] = from + k;
+		}
+		for (int shift = 0; shift < KEY_BITS; shift += RADIX_BITS) {
+			sortPass(depthKeys, count, shift, RADIX_BUCKETS - 1,
+					 RADIX_BUCKETS);
+		}
+	}
+
+	/**
+	 * Reorders each run of calls with equal depth within the {@link #order}
+	 * so that sprites using the same texture follow each other.
+	 * @param count the number of entries of the order array.
+	 */
+	private void group(final int count) {
+		int start = 0;
+		while (start < count) {
+			int key = depthKeys[order[start]];
+			int end = start + 1;
+			while (end < count && depthKeys[order[end]] == key) {
+				end++;
+			}
+			if (end - start > 2) {
+				group(start, end);
+			}
+			start = end;
+		}
+	}
+
+	/**
+	 * Pulls sprites within a run of calls with equal depth forward to the
+	 * closest preceding sprite using the same texture.
+	 * <p>
+	 * A sprite is only moved past sprites it does not overlap, so the result
+	 * looks exactly as if the calls were executed in the order they were
+	 * recorded. Text and calls using another projection matrix are never
+	 * moved past, and only the next {@link #GROUP_WINDOW} calls are searched
+	 * to keep the effort linear.
+	 * @param start the index of the first call of the run in the order.
+	 * @param end the index after the last call of the run in the order.
+	 */
+	private void group(final int start, final int end) {
+		int out = start;
+		for (int k = start; k < end; k++) {
+			int i = order[k];
+			if (i < 0) {
+				// already pulled forward
+				continue;
+			}
+			sortBuffer[out++] = i;
+			if (textureIDs[i] == TEXT_GROUP) {
+				continue;
+			}
+			int passed = 0;
+			int limit = Math.min(end, k + 1 + GROUP_WINDOW);
+			for (int j = k + 1; j < limit; j++) {
+				int c = order[j];
+				if (c < 0) {
+					continue;
+				}
+				if (textureIDs[c] == TEXT_GROUP ||
+					matrixIDs[c] != matrixIDs[i]) {
+					break;
+				}
+				if (textureIDs[c] == textureIDs[i] &&
+					!overlapsAny(c, passed)) {
+					sortBuffer[out++] = c;
+					order[j] = -1;
+				} else {
+					skipped[passed++] = c;
+				}
+			}
+		}
+		System.arraycopy(sortBuffer, start, order, start, end - start);
+	}
+
+	/**
+	 * Checks whether a sprite overlaps any of the {@link #skipped} calls.
+	 * @param i the index of the sprite.
+	 * @param passed the number of skipped calls.
+	 * @return true iff the sprite overlaps one of the skipped calls.
+	 */
+	private boolean overlapsAny(final int i, final int passed) {
+		for (int s = 0; s < passed; s++) {
+			if (overlap(i, skipped[s], VERTEX_X) &&
+				overlap(i, skipped[s], VERTEX_Y)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks whether the extents of two sprites along an axis overlap.
+	 * Sprites that merely touch, like neighbouring fields, do not overlap.
+	 * @param a the index of the first sprite.
+	 * @param b the index of the second sprite.
+	 * @param axis the offset of the coordinate within a vertex.
+	 * @return true iff the extents share more than their border.
+	 */
+	private boolean overlap(final int a, final int b, final int axis) {
+		return min(a, axis) < max(b, axis) && min(b, axis) < max(a, axis);
+	}
+
+	/**
+	 * Computes the smallest coordinate of a sprite along an axis.
+	 * @param i the index of the sprite.
+	 * @param axis the offset of the coordinate within a vertex.
+	 * @return the smallest coordinate of the sprite's vertices.
+	 */
+	private float min(final int i, final int axis) {
+		int offset = i * SPRITE_SIZE + axis;
+		float v = vertices[offset];
+		for (int c = VERTEX_SIZE; c < SPRITE_SIZE; c += VERTEX_SIZE) {
+			v = Math.min(v, vertices[offset + c]);
+		}
+		return v;
+	}
+
+	/**
+	 * Computes the largest coordinate of a sprite along an axis.
+	 * @param i the index of the sprite.
+	 * @param axis the offset of the coordinate within a vertex.
+	 * @return the largest coordinate of the sprite's vertices.
+	 */
+	private float max(final int i, final int axis) {
+		int offset = i * SPRITE_SIZE + axis;
+		float v = vertices[offset];
+		for (int c = VERTEX_SIZE; c < SPRITE_SIZE; c += VERTEX_SIZE) {
+			v = Math.max(v, vertices[offset + c]);
+		}
+		return v;
+	}
+
+	/**
+	 * Performs a stable counting sort of the {@link #order} array.
+	 * @param keys the keys of the draw calls.
+	 * @param count the number of entries of the order array to sort.
+	 * @param shift the amount of bits the keys are shifted by.
+	 * @param mask the mask applied to the shifted keys.
+	 * @param buckets the number of distinct masked keys.
+	 */
+	private void sortPass(final int[] keys,
+						  final int count,
+						  final int shift,
+						  final int mask,
+						  final int buckets) {
+		if (counts.length <= buckets) {
+			counts = new int[buckets + 1];
+		}
+		Arrays.fill(counts, 0, buckets + 1, 0);
+		for (int k = 0; k < count; k++) {
+			counts[((keys[order[k]] >>> shift) & mask) + 1]++;
+		}
+		for (int b = 0; b < buckets; b++) {
+			if (counts[b + 1] == count) {
+				// all calls share this key, nothing to reorder
+				return;
+			}
+			counts[b + 1] += counts[b];
+		}
+		for (int k = 0; k < count; k++) {
+			int i = order[k];
+			sortBuffer[counts[(keys[i] >>> shift) & mask]++] = i;
+		}
+		int[] tmp = order;
+		order = sortBuffer;
+		sortBuffer = tmp;
+	}
 }
@@ -0,0 +1,134 @@
+/*
+ * BioViz, a visualization tool for digital microfluidic biochips (DMFB).
+ *
+ * Copyright (c) 2017 Oliver Keszocze, Jannis Stoppe, Maximilian Luenert
+ *
+ * This file is part of BioViz.
+ *
+ * BioViz is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * BioViz is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * See the GNU General Public License for more details. You should have
+ * received a copy of the GNU
+ * General Public License along with BioViz.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.bioviz.ui;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+
+/**
+ * Measures the share of the processing power used by this process.
+ * <p>
+ * The load is computed from the CPU time consumed by the process between
+ * two samples, divided by the elapsed time and the number of processors.
+ * Measuring the CPU time is not part of the standard API, so the load is
+ * only available on virtual machines providing the
+ * com.sun.management extension (which are the common ones).
+ *
+ * @author agent
+ */
+final class CpuLoadMonitor {
+
+	/**
+	 * The minimal time between two samples in ns.
+	 */
+	static final long SAMPLE_INTERVAL = 1_000_000_000L;
+
+	/**
+	 * Provides the consumed CPU time, null if it is not available.
+	 */
+	private final com.sun.management.OperatingSystemMXBean os;
+
+	/**
+	 * The number of processors available to the process.
+	 */
+	private final int processors;
+
+	/**
+	 * The wall clock time of the last sample in ns.
+	 */
+	private long lastWallTime;
+
+	/**
+	 * The CPU time consumed until the last sample in ns.
+	 */
+	private long lastCpuTime;
+
+	/**
+	 * The load measured by the last sample, negative if there is none.
+	 */
+	private float load = -1f;
+
+	/**
+	 * Creates a new monitor and takes the first sample.
+	 */
+	CpuLoadMonitor() {
+		OperatingSystemMXBean bean =
+				ManagementFactory.getOperatingSystemMXBean();
+		if (bean instanceof com.sun.management.OperatingSystemMXBean) {
+			os = (com.sun.management.OperatingSystemMXBean) bean;
+		} else {
+			os = null;
+		}
+		processors = Runtime.getRuntime().availableProcessors();
+		lastWallTime = System.nanoTime();
+		lastCpuTime = cpuTime();
+	}
+
+	/**
+	 * Checks whether the CPU load can be measured at all.
+	 *
+	 * @return true if the virtual machine reports the consumed CPU time
+	 */
+	boolean isSupported() {
+		return os != null;
+	}
+
+	/**
+	 * Retrieves the CPU time consumed by the process so far.
+	 *
+	 * @return The consumed CPU time in ns, negative if it is unknown
+	 */
+	private long cpuTime() {
+		return os == null ? -1 : os.getProcessCpuTime();
+	}
+
+	/**
+	 * Takes a new sample if the last one is older than the sample interval.
+	 *
+	 * @return true if the load has been updated
+	 */
+	boolean sample() {
+		long now = System.nanoTime();
+		long elapsed = now - lastWallTime;
+		if (elapsed < SAMPLE_INTERVAL) {
+			return false;
+		}
+		long cpu = cpuTime();
+		if (cpu >= 0 && lastCpuTime >= 0) {
+			load = (float) (cpu - lastCpuTime) / (elapsed * processors);
+		}
+		lastWallTime = now;
+		lastCpuTime = cpu;
+		return true;
+	}
+
+	/**
+	 * Returns the load measured by the last sample.
+	 *
+	 * @return The share of the available processing power used by this
+	 * process (between 0 and 1), negative if it could not be measured
+	 */
+	float getLoad() {
+		return load;
+	}
+}
@@ -80,6 +80,18 @@ public class DisplayOptions {
 		setOption(BDisplayOptions.HideTextOnZoom, true);
 	}
 
+	/**
+	 * Copies the values of all options.
+	 * <p>
+	 * The events listening to changes are not copied.
+	 *
+	 * @param other
+	 * 		The options to copy
+	 */
+	DisplayOptions(final DisplayOptions other) {
+		options = new HashMap<>(other.options);
+	}
+
 
 	/**
 	 * Returns whether an option is set.
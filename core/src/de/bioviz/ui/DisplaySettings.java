@@ -0,0 +1,108 @@
+/*
+ * BioViz, a visualization tool for digital microfluidic biochips (DMFB).
+ *
+ * Copyright (c) 2017 Oliver Keszocze, Jannis Stoppe, Maximilian Luenert
+ *
+ * This file is part of BioViz.
+ *
+ * BioViz is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * BioViz is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * See the GNU General Public License for more details. You should have
+ * received a copy of the GNU
+ * General Public License along with BioViz.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.bioviz.ui;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Immutable copy of the settings the user chose for displaying an assay.
+ * <p>
+ * The copy consists of the display options, the droplets hidden by the user
+ * and the length of the displayed routes. All of them may be changed on the
+ * render thread at any time. Threads rendering the assay in the background,
+ * e.g. the threads of an export, use a copy taken on the render thread
+ * instead.
+ *
+ * @author agent
+ */
+public final class DisplaySettings {
+
+	/**
+	 * The display options, never modified after the copy is taken.
+	 */
+	private final DisplayOptions options;
+
+	/**
+	 * The droplets hidden by the user.
+	 */
+	private final Set<DrawableDroplet> hiddenDroplets =
+			Collections.newSetFromMap(new IdentityHashMap<>());
+
+	/**
+	 * The amount of time steps a route is displayed for.
+	 */
+	private final int routeLength;
+
+	/**
+	 * Copies the current display settings of an assay.
+	 * <p>
+	 * This must be called on the thread changing the settings, i.e. the
+	 * render thread.
+	 *
+	 * @param assay
+	 * 		The assay whose settings are copied
+	 */
+	public DisplaySettings(final DrawableAssay assay) {
+		options = new DisplayOptions(assay.getDisplayOptions());
+		hiddenDroplets.addAll(assay.getHiddenDroplets());
+		routeLength = assay.getDisplayRouteLength();
+	}
+
+	/**
+	 * Returns whether an option was set when the copy was taken.
+	 *
+	 * @param opt
+	 * 		Option to check
+	 * @return true if the option opt is turned on, false otherwise
+	 */
+	public boolean getOption(final BDisplayOptions opt) {
+		return options.getOption(opt);
+	}
+
+	/**
+	 * @return The display options, must not be modified.
+	 */
+	DisplayOptions getDisplayOptions() {
+		return options;
+	}
+
+	/**
+	 * Checks whether a droplet was hidden by the user.
+	 *
+	 * @param droplet
+	 * 		The droplet of the assay
+	 * @return true if the droplet was hidden when the copy was taken
+	 */
+	public boolean isHidden(final DrawableDroplet droplet) {
+		return hiddenDroplets.contains(droplet);
+	}
+
+	/**
+	 * @return The amount of time steps a route is displayed for.
+	 */
+	public int getDisplayRouteLength() {
+		return routeLength;
+	}
+}
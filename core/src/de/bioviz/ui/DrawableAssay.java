@@ -25,7 +25,9 @@ package de.bioviz.ui;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.math.Rectangle;
+import de.bioviz.messages.LabelLayer;
 import de.bioviz.structures.Biochip;
+import de.bioviz.structures.BiochipField;
 import de.bioviz.structures.Dispenser;
 import de.bioviz.structures.Droplet;
 import de.bioviz.structures.Net;
@@ -36,8 +38,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * The DrawableAssay class collects the data of an assay that is executed on
@@ -54,6 +60,18 @@ public class DrawableAssay implements Drawable {
 	 */
 	private static final float DEFAULT_SCALING_DELAY = 4f;
 
+	/**
+	 * The distance in cells by which elements may lie outside of the screen
+	 * and still be drawn.
+	 */
+	private static final float CULLING_MARGIN = 1f;
+
+	/**
+	 * The relative distance below which the smoothed zoom and offsets are
+	 * considered to have reached their targets.
+	 */
+	private static final float SMOOTHING_PRECISION = 1e-4f;
+
 	/**
 	 * The logger for this instance.
 	 */
@@ -144,7 +162,7 @@ public class DrawableAssay implements Drawable {
 	/**
 	 * The last timestep at which time was automatically advanced.
 	 */
-	private long lastAutoStepAt = new Date().getTime();
+	private long lastAutoStepAt = System.currentTimeMillis();
 
 	/**
 	 * This contains instances that need to be notified as soon as the
@@ -214,6 +232,100 @@ public class DrawableAssay implements Drawable {
 	 */
 	private int displayRouteLength = 0;
 
+	/**
+	 * The information the fields need to compute their colors in the current
+	 * time step.
+	 * <p>
+	 * A value of null means that the snapshot needs to be recomputed.
+	 *
+	 * @see #getRenderSnapshot()
+	 */
+	private RenderSnapshot renderSnapshot = null;
+
+	/**
+	 * The fields rendered into an off-screen buffer.
+	 */
+	private final StaticLayer staticLayer = new StaticLayer();
+
+	/**
+	 * Draws all fields as a single texture when zoomed out.
+	 */
+	private final HeatmapLayer heatmap = new HeatmapLayer();
+
+	/**
+	 * Maps the structural fields to the drawables drawing them.
+	 */
+	private Map<BiochipField, DrawableField> fieldDrawables = new HashMap<>();
+
+	/**
+	 * The field the mouse was over in the previous frame. May be null.
+	 */
+	private DrawableField fieldUnderMouse = null;
+
+	/**
+	 * Whether the chip has fields that look differently in different time
+	 * steps regardless of the display options (i.e. blockages and mixers).
+	 * A value of null means that this has not been determined yet.
+	 */
+	private Boolean hasTimedFields = null;
+
+	/**
+	 * Scratch list to collect the visible fields in.
+	 */
+	private final ArrayList<DrawableField> visibleFields = new ArrayList<>();
+
+	/**
+	 * The fields that were drawn in the last frame and may thus have a label.
+	 */
+	private final Set<DrawableField> labelledFields =
+			Collections.newSetFromMap(new IdentityHashMap<>());
+
+	/**
+	 * Scratch set of the fields drawn in the current frame.
+	 */
+	private final Set<DrawableField> drawnFields =
+			Collections.newSetFromMap(new IdentityHashMap<>());
+
+	/**
+	 * The labels displayed on top of the fields and droplets.
+	 */
+	private final LabelLayer labels = new LabelLayer();
+
+	/**
+	 * Counts the changes that might alter the texts of the labels, i.e. time
+	 * step and display option changes.
+	 * <p>
+	 * Fields and droplets only recompute their label texts if this revision
+	 * differs from the one they have computed their texts for.
+	 */
+	private int labelRevision = 0;
+
+	/**
+	 * The smallest x coordinate (in cells) that is drawn.
+	 */
+	private float visibleMinX = -Float.MAX_VALUE;
+
+	/**
+	 * The smallest y coordinate (in cells) that is drawn.
+	 */
+	private float visibleMinY = -Float.MAX_VALUE;
+
+	/**
+	 * The largest x coordinate (in cells) that is drawn.
+	 */
+	private float visibleMaxX = Float.MAX_VALUE;
+
+	/**
+	 * The largest y coordinate (in cells) that is drawn.
+	 */
+	private float visibleMaxY = Float.MAX_VALUE;
+
+	/**
+	 * Whether the last drawn frame contained an animation, i.e. whether the
+	 * next frame would look different even without any input.
+	 */
+	private boolean animating = false;
+
 	/**
 	 * Creates a drawable entity based on the data given.
 	 *
@@ -228,6 +340,10 @@ public class DrawableAssay implements Drawable {
 		this.setParent(parent);
 		this.initializeDrawables();
 		this.getDisplayOptions().addOptionChangedEvent(e -> {
+			renderSnapshot = null;
+			invalidateFieldLayers();
+			++labelRevision;
+			requestRendering();
 			if (e.equals(BDisplayOptions.CellUsage) ||
 				e.equals(BDisplayOptions.CellUsageCount)) {
 				boolean doIt = getDisplayOptions().getOption(e);
@@ -272,6 +388,12 @@ public class DrawableAssay implements Drawable {
 	public void setCurrentTime(final int timeStep) {
 		if (getParent() != null) {
 			if (timeStep >= 1 && timeStep <= getData().getMaxT()) {
+				if (timeStep != currentTime) {
+					++labelRevision;
+					if (fieldsDependOnTime()) {
+						invalidateFieldLayers();
+					}
+				}
 				currentTime = timeStep;
 				getParent().callTimeChangedListeners();
 			}
@@ -291,6 +413,7 @@ public class DrawableAssay implements Drawable {
 	public void setDisplayRouteLength(final int length) {
 		if (length >= 0 && length <= getData().getMaxRouteLength()) {
 			displayRouteLength=length;
+			requestRendering();
 		}
 	}
 
@@ -311,6 +434,12 @@ public class DrawableAssay implements Drawable {
 		// clear remaining old data first, if any
 		this.getFields().clear();
 		this.getDroplets().clear();
+		fieldDrawables.clear();
+		visibleFields.clear();
+		labelledFields.clear();
+		labels.clear();
+		++labelRevision;
+		invalidateFieldLayers();
 
 		LOGGER.debug("Initializing drawables: {} fields, {} droplets",
 					 getData().getAllCoordinates().size(), getData()
@@ -328,6 +457,7 @@ public class DrawableAssay implements Drawable {
 			}
 
 		});
+		fields.forEach(f -> fieldDrawables.put(f.getField(), f));
 
 		LOGGER.debug("Fields set up.");
 
@@ -360,6 +490,9 @@ public class DrawableAssay implements Drawable {
 						 (getOffsetX() - getSmoothOffsetX()) / scalingDelay);
 		setSmoothOffsetY(getSmoothOffsetY() +
 						 (getOffsetY() - getSmoothOffsetY()) / scalingDelay);
+		animating = !snapSmoothedView() || isAutoAdvance();
+		labels.setView(getSmoothScale(), getSmoothOffsetX(),
+					   getSmoothOffsetY());
 
 		if (getDisplayOptions().getOption(BDisplayOptions.Coordinates)) {
 			displayCoordinates();
@@ -371,7 +504,7 @@ public class DrawableAssay implements Drawable {
 		final long scaledAutoDelay =
 				(long) ((this.getAutoDelay()) * autoDelayScaling);
 		if (isAutoAdvance()) {
-			long current = new Date().getTime();
+			long current = getParent().getFrameTime();
 			if (lastAutoStepAt + scaledAutoDelay < current) {
 				lastAutoStepAt = current;
 
@@ -391,23 +524,332 @@ public class DrawableAssay implements Drawable {
 			}
 		}
 
-		for (final DrawableField f : this.getFields()) {
-			if (f.isHovered()) {
-				this.hoveredField = f;
-			}
-			f.draw();
+		// compute the per time step information once for all fields
+		getRenderSnapshot();
+
+		updateVisibleArea();
+
+		updateHoveredField();
+
+		BioVizSpriteBatch batch = getParent().batch;
+		if (HeatmapLayer.isApplicable(getSmoothScale())) {
+			drawHeatmap(batch);
+		} else if (staticLayer.isValid(getSmoothScale(), getSmoothOffsetX(),
+								getSmoothOffsetY())) {
+			LOGGER.trace("Reusing rendered fields");
+		} else if (staticLayer.isEnabled()) {
+			int mark = batch.mark();
+			boolean settled = drawFields();
+			staticLayer.capture(batch, mark, getSmoothScale(),
+								getSmoothOffsetX(), getSmoothOffsetY(),
+								settled);
+			animating |= !settled;
+		} else {
+			animating |= !drawFields();
+		}
+		if (!HeatmapLayer.isApplicable(getSmoothScale())) {
+			staticLayer.draw(batch);
 		}
 
+		long now = getParent().getFrameTime();
 		for (final DrawableDroplet d : this.getDroplets()) {
 			d.draw();
+			animating |= d.isAnimating(now);
 		}
 
 		for (final DrawableNet n : this.getNets()) {
 			n.draw();
+			animating |= n.isColorTransitioning(now);
+		}
+
+	}
+
+
+	/**
+	 * Moves the smoothed zoom and offsets onto their targets once the
+	 * remaining distance is no longer visible.
+	 *
+	 * @return true if the smoothed values have reached their targets
+	 */
+	private boolean snapSmoothedView() {
+		float precision = SMOOTHING_PRECISION * Math.max(1f, getScaleX());
+		if (Math.abs(getScaleX() - getSmoothScale()) > precision ||
+			Math.abs(getOffsetX() - getSmoothOffsetX()) > SMOOTHING_PRECISION ||
+			Math.abs(getOffsetY() - getSmoothOffsetY()) > SMOOTHING_PRECISION) {
+			return false;
+		}
+		setSmoothScale(getScaleX());
+		setSmoothOffsetX(getOffsetX());
+		setSmoothOffsetY(getOffsetY());
+		return true;
+	}
+
+	/**
+	 * Checks whether the last drawn frame is part of an animation.
+	 * <p>
+	 * This is the case while the view is zooming or panning towards its
+	 * target, while droplets move or change their colors, while fields fade
+	 * to new colors and during autoplay.
+	 *
+	 * @return true if the next frame would differ from the last one
+	 */
+	boolean isAnimating() {
+		return animating;
+	}
+
+	/**
+	 * Returns the labels displayed on top of the fields and droplets.
+	 *
+	 * @return the label layer of this assay
+	 */
+	public LabelLayer getLabels() {
+		return labels;
+	}
+
+	/**
+	 * Returns the current label revision.
+	 * <p>
+	 * The revision changes whenever the texts of the labels might change,
+	 * i.e. when the time step or the display options change.
+	 *
+	 * @return the current label revision
+	 */
+	int getLabelRevision() {
+		return labelRevision;
+	}
+
+	/**
+	 * Asks the parent visualization to draw a new frame.
+	 */
+	void requestRendering() {
+		if (getParent() != null) {
+			getParent().requestRendering();
+		}
+	}
+
+	/**
+	 * Draws all fields that are visible on the screen.
+	 * <p>
+	 * Fields outside of the screen are not drawn at all, i.e. their colors and
+	 * texts are not computed. The labels of fields that left the screen are
+	 * removed, as they would otherwise keep the texts of the time step they
+	 * were last drawn in.
+	 *
+	 * @return true if none of the drawn fields is fading towards a new color
+	 */
+	private boolean drawFields() {
+		long now = getParent().getFrameTime();
+		boolean settled = true;
+
+		visibleFields.clear();
+		collectVisibleFields(visibleFields);
+		drawnFields.clear();
+		for (final DrawableField f : visibleFields) {
+			f.draw();
+			settled &= !f.isColorTransitioning(now);
+			drawnFields.add(f);
+		}
+
+		for (final DrawableField f : labelledFields) {
+			if (!drawnFields.contains(f)) {
+				labels.removeLabel(f);
+			}
+		}
+		labelledFields.clear();
+		labelledFields.addAll(drawnFields);
+
+		return settled;
+	}
+
+	/**
+	 * Draws all fields as a single texture.
+	 * <p>
+	 * The texture is only updated if the colors of the fields might have
+	 * changed. As the fields themselves are not drawn, their labels are
+	 * removed; they are added again once the fields are drawn individually.
+	 *
+	 * @param batch
+	 * 		The batch to draw with
+	 */
+	private void drawHeatmap(final BioVizSpriteBatch batch) {
+		if (!heatmap.isValid()) {
+			LOGGER.trace("Updating heatmap of {} fields", fields.size());
+			heatmap.update(getData(), fields);
+			for (final DrawableField f : fields) {
+				labels.removeLabel(f);
+			}
+			labelledFields.clear();
+		}
+		heatmap.draw(batch, getParent().camera.combined,
+					 xCoordOnScreen(heatmap.getMinX() -
+									DrawableSprite.COORDINATE_SHIFT),
+					 yCoordOnScreen(heatmap.getMaxY() +
+									DrawableSprite.COORDINATE_SHIFT),
+					 getSmoothScale(), DisplayValues.DEFAULT_FIELD_DEPTH);
+	}
+
+	/**
+	 * Marks the rendered fields as outdated, both the off-screen layer and
+	 * the heatmap.
+	 */
+	private void invalidateFieldLayers() {
+		staticLayer.invalidate();
+		heatmap.invalidate();
+	}
+
+	/**
+	 * Collects the fields within the visible area.
+	 * <p>
+	 * If the visible part of the chip has fewer cells than there are fields,
+	 * the cells are looked up one by one. Otherwise, all fields are tested.
+	 *
+	 * @param result
+	 * 		The list the visible fields are added to
+	 */
+	private void collectVisibleFields(final List<DrawableField> result) {
+		Point min = getData().getMinCoord();
+		Point max = getData().getMaxCoord();
+		int minX = Math.max(min.fst, (int) Math.ceil(visibleMinX));
+		int minY = Math.max(min.snd, (int) Math.ceil(visibleMinY));
+		int maxX = Math.min(max.fst, (int) Math.floor(visibleMaxX));
+		int maxY = Math.min(max.snd, (int) Math.floor(visibleMaxY));
+
+		long area = (long) Math.max(0, maxX - minX + 1) *
+					Math.max(0, maxY - minY + 1);
+		if (area < fields.size()) {
+			for (int x = minX; x <= maxX; x++) {
+				for (int y = minY; y <= maxY; y++) {
+					if (getData().hasFieldAt(x, y)) {
+						DrawableField f =
+								fieldDrawables.get(getData().getFieldAt(x, y));
+						if (f != null) {
+							result.add(f);
+						}
+					}
+				}
+			}
+		} else {
+			for (final DrawableField f : fields) {
+				if (isVisible(f.getField().x(), f.getField().y())) {
+					result.add(f);
+				}
+			}
 		}
+	}
 
+	/**
+	 * Computes the area (in cells) that is currently shown on the screen.
+	 */
+	private void updateVisibleArea() {
+		float halfWidth = Gdx.graphics.getWidth() / 2f / getSmoothScale();
+		float halfHeight = Gdx.graphics.getHeight() / 2f / getSmoothScale();
+		float centerX = xCoordInCells(0);
+		float centerY = yCoordInCells(0);
+		visibleMinX = centerX - halfWidth - CULLING_MARGIN;
+		visibleMaxX = centerX + halfWidth + CULLING_MARGIN;
+		visibleMinY = centerY - halfHeight - CULLING_MARGIN;
+		visibleMaxY = centerY + halfHeight + CULLING_MARGIN;
+	}
+
+	/**
+	 * Checks whether a position is shown on the screen.
+	 *
+	 * @param x
+	 * 		x coordinate in cells
+	 * @param y
+	 * 		y coordinate in cells
+	 * @return true if the position is visible
+	 */
+	boolean isVisible(final float x, final float y) {
+		return visibleMinX <= x && x <= visibleMaxX &&
+			   visibleMinY <= y && y <= visibleMaxY;
 	}
 
+	/**
+	 * Checks whether any part of an area is shown on the screen.
+	 *
+	 * @param minX
+	 * 		smallest x coordinate of the area in cells
+	 * @param minY
+	 * 		smallest y coordinate of the area in cells
+	 * @param maxX
+	 * 		largest x coordinate of the area in cells
+	 * @param maxY
+	 * 		largest y coordinate of the area in cells
+	 * @return true if the area is at least partially visible
+	 */
+	boolean isAreaVisible(final float minX, final float minY,
+						  final float maxX, final float maxY) {
+		return minX <= visibleMaxX && visibleMinX <= maxX &&
+			   minY <= visibleMaxY && visibleMinY <= maxY;
+	}
+
+	/**
+	 * Determines the field the mouse is over and updates the hovered field.
+	 * <p>
+	 * Instead of asking every field whether it is hovered, the mouse position
+	 * is translated into cell coordinates and only the field at that position
+	 * is asked. As the hovered field is highlighted, the rendered fields are
+	 * invalidated whenever the mouse moves to another field.
+	 */
+	private void updateHoveredField() {
+		Rectangle viewport = getViewBounds();
+		float viewMouseX =
+				((float) Gdx.input.getX() / (float) Gdx.graphics.getWidth()) *
+				viewport.width + viewport.x;
+		float viewMouseY =
+				-(((float) Gdx.input.getY() /
+				   (float) Gdx.graphics.getHeight()) *
+				  viewport.height + viewport.y);
+
+		int cellX = Math.round(viewMouseX);
+		int cellY = Math.round(viewMouseY);
+		DrawableField candidate = null;
+		if (getData().hasFieldAt(cellX, cellY)) {
+			candidate = fieldDrawables.get(getData().getFieldAt(cellX, cellY));
+		}
+
+		if (candidate != fieldUnderMouse) {
+			fieldUnderMouse = candidate;
+			invalidateFieldLayers();
+		}
+		if (candidate != null && candidate.isHovered()) {
+			this.hoveredField = candidate;
+		}
+	}
+
+	/**
+	 * Checks whether the fields may look differently in another time step.
+	 * <p>
+	 * This is the case if a display option depending on the droplets or the
+	 * actuations is enabled or if the chip contains blockages or mixers.
+	 *
+	 * @return true if a change of the time step requires the fields to be
+	 * drawn again
+	 */
+	private boolean fieldsDependOnTime() {
+		DisplayOptions opts = getDisplayOptions();
+		if (opts.getOption(BDisplayOptions.Actuations) ||
+			opts.getOption(BDisplayOptions.ActuationSymbols) ||
+			opts.getOption(BDisplayOptions.InterferenceRegion) ||
+			opts.getOption(BDisplayOptions.MovementNeighbourhood)) {
+			return true;
+		}
+		if (hasTimedFields == null) {
+			hasTimedFields = !getData().mixers.isEmpty() ||
+							 getData().getAllFields().stream().anyMatch(
+									 BiochipField::isPotentiallyBlocked);
+		}
+		return hasTimedFields;
+	}
+
+	/**
+	 * Releases the resources held by this assay.
+	 */
+	void dispose() {
+		staticLayer.dispose();
+		heatmap.dispose();
+	}
 
 	/**
 	 * Draws the coordinates of the grid on top of and to the left of the grid.
@@ -604,6 +1046,7 @@ public class DrawableAssay implements Drawable {
 	 */
 	public void setScaleX(final float scaleX) {
 		this.scale = scaleX;
+		requestRendering();
 	}
 
 	/**
@@ -636,6 +1079,7 @@ public class DrawableAssay implements Drawable {
 	 */
 	public void setScaleY(final float scaleY) {
 		this.scaleY = scaleY;
+		requestRendering();
 	}
 
 	/**
@@ -679,6 +1123,7 @@ public class DrawableAssay implements Drawable {
 	public void zoomTo1Px() {
 		this.scale = 1;
 		this.scaleY = 1;
+		requestRendering();
 	}
 
 
@@ -725,6 +1170,7 @@ public class DrawableAssay implements Drawable {
 	public void setScaleImmediately(final float newScale) {
 		this.scale = newScale;
 		this.setSmoothScale(newScale);
+		requestRendering();
 	}
 
 	public void addTimeChangedListener(final BioVizEvent listener) {
@@ -740,12 +1186,33 @@ public class DrawableAssay implements Drawable {
 		return this.hoveredField;
 	}
 
+	/**
+	 * Retrieves the information the fields need to compute their colors.
+	 * <p>
+	 * The snapshot is computed when it is requested for the first time after
+	 * the current time step or the display options have changed. All fields
+	 * drawn for the same time step share it.
+	 *
+	 * @return The snapshot for the current time step.
+	 */
+	RenderSnapshot getRenderSnapshot() {
+		if (renderSnapshot == null ||
+			renderSnapshot.getTimeStep() != currentTime) {
+			renderSnapshot =
+					new RenderSnapshot(data, currentTime, displayOptions);
+		}
+		return renderSnapshot;
+	}
+
 	public Biochip getData() {
 		return data;
 	}
 
 	public void setData(final Biochip data) {
 		this.data = data;
+		this.renderSnapshot = null;
+		this.hasTimedFields = null;
+		invalidateFieldLayers();
 	}
 
 	float getOffsetX() {
@@ -754,6 +1221,7 @@ public class DrawableAssay implements Drawable {
 
 	void setOffsetX(final float offsetX) {
 		this.offsetX = offsetX;
+		requestRendering();
 	}
 
 	float getOffsetY() {
@@ -762,6 +1230,7 @@ public class DrawableAssay implements Drawable {
 
 	void setOffsetY(final float offsetY) {
 		this.offsetY = offsetY;
+		requestRendering();
 	}
 
 	float getSmoothScale() {
@@ -794,6 +1263,7 @@ public class DrawableAssay implements Drawable {
 
 	public void setAutoAdvance(final boolean autoAdvance) {
 		this.autoAdvance = autoAdvance;
+		requestRendering();
 	}
 
 	public float getAutoDelay() {
@@ -878,6 +1348,8 @@ public class DrawableAssay implements Drawable {
 
 	public void setDisplayOptions(final DisplayOptions displayOptions) {
 		this.displayOptions = displayOptions;
+		this.renderSnapshot = null;
+		invalidateFieldLayers();
 	}
 
 	public BioViz getParent() {
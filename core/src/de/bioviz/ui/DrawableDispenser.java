@@ -54,23 +54,24 @@ public class DrawableDispenser extends DrawableField {
 	}
 
 	/**
-	 * @copydoc DrawableField::getMsgTexture()
+	 * @copydoc DrawableField::getMsgTexture(int, DisplayOptions)
 	 */
 	@Override
-	public Pair<String, TextureE> getMsgTexture() {
+	protected Pair<String, TextureE> getMsgTexture(
+			final int timeStep, final DisplayOptions options) {
 		String fieldHUDMsg = null;
 		TextureE texture = TextureE.GridMarker;
-		if (getOption(DispenserIcon)) {
+		if (options.getOption(DispenserIcon)) {
 			texture = TextureE.Dispenser;
 		}
 
 		int fluidID = ((Dispenser) field).fluidID;
 		ArrayList<String> msgs = new ArrayList<>();
 
-		if (getOption(DispenserFluidID)) {
+		if (options.getOption(DispenserFluidID)) {
 			msgs.add(Integer.toString(fluidID));
 		}
-		if (getOption(DispenserFluidName)) {
+		if (options.getOption(DispenserFluidName)) {
 			String fluidName =
 					getParentAssay().getData().fluidType(fluidID);
 			if (fluidName != null) {
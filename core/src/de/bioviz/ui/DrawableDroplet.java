@@ -25,7 +25,6 @@ package de.bioviz.ui;
 import de.bioviz.structures.Droplet;
 
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.Random;
 
 import com.badlogic.gdx.Gdx;
@@ -33,7 +32,6 @@ import com.badlogic.gdx.graphics.Color;
 
 import de.bioviz.structures.Net;
 import de.bioviz.structures.Point;
-import de.bioviz.structures.Rectangle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -152,6 +150,28 @@ public class DrawableDroplet extends DrawableSprite {
 	 */
 	private Color dropletColor;
 
+	/**
+	 * The text displayed on top of the droplet as computed for {@link
+	 * #msgRevision}.
+	 */
+	private String msg = null;
+
+	/**
+	 * The label revision of the parent assay the cached text has been
+	 * computed for.
+	 */
+	private int msgRevision = -1;
+
+	/**
+	 * The color the droplet is displayed with, reused in every frame.
+	 */
+	private final Color displayColor = new Color();
+
+	/**
+	 * The coordinates of the droplet's position, reused in every frame.
+	 */
+	private final int[] coords = new int[Droplet.COORDS_PER_POSITION];
+
 	/**
 	 * @param droplet
 	 * 		The 'data' droplet that is to be visualized.
@@ -220,6 +240,18 @@ public class DrawableDroplet extends DrawableSprite {
 		DrawableDroplet.transitionDuration = transitionDuration;
 	}
 
+	/**
+	 * Checks whether this droplet is still moving or fading towards a new
+	 * color.
+	 *
+	 * @param now
+	 * 		The current time in ms
+	 * @return true if the droplet looks different in later frames
+	 */
+	boolean isAnimating(final long now) {
+		return now < movementTransitionEndTime || isColorTransitioning(now);
+	}
+
 	public void updateCoords() {
 		float totalProgress = 1;
 		if (movementTransitionStartTime != movementTransitionEndTime) {
@@ -227,7 +259,7 @@ public class DrawableDroplet extends DrawableSprite {
 									  movementTransitionStartTime);
 			float transitionProgress =
 					Math.max(0, Math.min(1, (float) (
-							new Date().getTime() - movementTransitionStartTime)
+							viz.getFrameTime() - movementTransitionStartTime)
 											/ timeDiff));
 			totalProgress =
 					(float) (-(Math.pow((transitionProgress - 1), 4)) + 1);
@@ -261,10 +293,9 @@ public class DrawableDroplet extends DrawableSprite {
 			originY = this.smoothY;
 			this.targetX = x;
 			this.targetY = y;
-			Date d = new Date();
-			this.movementTransitionStartTime = d.getTime();
-			this.movementTransitionEndTime =
-					d.getTime() + transitionDuration;
+			long now = viz.getFrameTime();
+			this.movementTransitionStartTime = now;
+			this.movementTransitionEndTime = now + transitionDuration;
 		}
 	}
 
@@ -278,10 +309,9 @@ public class DrawableDroplet extends DrawableSprite {
 		this.targetHeight = height;
 		this.originHeight = this.smoothHeight;
 		if (done) {
-			Date d = new Date();
-			this.movementTransitionStartTime = d.getTime();
-			this.movementTransitionEndTime =
-					d.getTime() + transitionDuration;
+			long now = viz.getFrameTime();
+			this.movementTransitionStartTime = now;
+			this.movementTransitionEndTime = now + transitionDuration;
 		}
 	}
 
@@ -292,34 +322,61 @@ public class DrawableDroplet extends DrawableSprite {
 	 * @return The color used to display the droplet
 	 */
 	public Color getDisplayColor() {
+		return computeDisplayColor(new Color());
+	}
+
+	/**
+	 * Computes the droplet's color into a given instance.
+	 *
+	 * @param color
+	 * 		The instance to store the color in
+	 * @return The passed instance
+	 */
+	private Color computeDisplayColor(final Color color) {
+		return computeDisplayColor(color, parentAssay.getCurrentTime(),
+								   isHidden(), parentAssay.getDisplayOptions());
+	}
+
+	/**
+	 * Computes the droplet's color at a given time step into a given
+	 * instance.
+	 * <p>
+	 * This does not depend on the state of the parent assay and can thus be
+	 * used to render time steps other than the displayed one.
+	 *
+	 * @param color
+	 * 		The instance to store the color in
+	 * @param timeStep
+	 * 		The time step to compute the color for
+	 * @param hidden
+	 * 		Whether the droplet is to be displayed as hidden
+	 * @param options
+	 * 		The display options to compute the color for
+	 * @return The passed instance
+	 */
+	Color computeDisplayColor(final Color color,
+							  final int timeStep,
+							  final boolean hidden,
+							  final DisplayOptions options) {
 
-		Color color = this.dropletColor.cpy();
+		color.set(this.dropletColor);
 
 		Net net = droplet.getNet();
 		if (net != null &&
-			parentAssay.getDisplayOptions().getOption(
-					BDisplayOptions.NetColorOnDroplets)) {
-			color = net.getColor().buildGdxColor();
+			options.getOption(BDisplayOptions.NetColorOnDroplets)) {
+			de.bioviz.ui.Color netColor = net.getColor();
+			color.set(netColor.r, netColor.g, netColor.b, netColor.a);
 		}
 
-		Rectangle pos = droplet.getPositionAt(parentAssay.getCurrentTime());
-
-		if (pos != null) {
-			Point p = pos.upperLeft();
-
-			// if the droplet is currently not present, make it 'invisible' by
-			// making it totally transparent
-			if (p == null) {
-				color.sub(Color.BLACK).clamp();
-
+		if (droplet.isPresentAt(timeStep)) {
+			if (hidden) {
+				color.a = 0.25f;
 			} else {
-				if (this.isHidden()) {
-					color.a = 0.25f;
-				} else {
-					color.add(Color.BLACK).clamp();
-				}
+				color.add(Color.BLACK).clamp();
 			}
 		} else {
+			// if the droplet is currently not present, make it 'invisible' by
+			// making it totally transparent
 			color.sub(Color.BLACK).clamp();
 		}
 
@@ -342,18 +399,27 @@ public class DrawableDroplet extends DrawableSprite {
 	 * @return Text to be displayed on top of the droplets
 	 */
 	public String getMsg() {
+		return computeMsg(parentAssay.getDisplayOptions());
+	}
+
+	/**
+	 * Computes the text that is displayed on top of the droplet for given
+	 * display options.
+	 *
+	 * @param options
+	 * 		The display options to compute the text for
+	 * @return Text to be displayed on top of the droplets
+	 */
+	String computeMsg(final DisplayOptions options) {
 		ArrayList<String> msgs = new ArrayList<>();
 
 		int dropID = droplet.getID();
 
-		boolean dispDropIDs = parentAssay.getDisplayOptions().getOption(
-				BDisplayOptions.DropletIDs);
+		boolean dispDropIDs = options.getOption(BDisplayOptions.DropletIDs);
 
-		boolean dispFluidIDs = parentAssay.getDisplayOptions().getOption(
-				BDisplayOptions.FluidIDs);
+		boolean dispFluidIDs = options.getOption(BDisplayOptions.FluidIDs);
 
-		boolean dispFluidName = parentAssay.getDisplayOptions()
-				.getOption(BDisplayOptions.FluidNames);
+		boolean dispFluidName = options.getOption(BDisplayOptions.FluidNames);
 
 		Integer fluidID = parentAssay.getData().fluidID(dropID);
 
@@ -394,30 +460,22 @@ public class DrawableDroplet extends DrawableSprite {
 
 		DrawableAssay circ = parentAssay;
 
-		Rectangle p = droplet.getPositionAt(circ.getCurrentTime());
-		boolean withinTimeRange = false;
-
-		if (p == null) {
+		// the coordinates are copied into a reused array instead of creating
+		// rectangles and points in every frame
+		final int t = circ.getCurrentTime();
+		boolean withinTimeRange = droplet.getPositionAt(t, coords);
 
-			if (circ.getCurrentTime() < droplet.getSpawnTime()) {
-				p = droplet.getFirstPosition();
-			} else if (circ.getCurrentTime() > droplet.getMaxTime()) {
-				p = droplet.getLastPosition();
-			}
-		} else {
-			withinTimeRange = true;
+		// before its spawn time and after its last step, the droplet is
+		// shown at its first or last position, respectively
+		if (!withinTimeRange && !droplet.getSafePositionAt(t, coords)) {
+			return;
 		}
 
-		this.setColor(getDisplayColor());
-
-		Point upperLeft = p.upperLeft();
-		Point size = p.size();
-		setScale(size.fst, size.snd);
-
-		// at this point, p is definitely not null. The getFirst/LastPosition
-		// methods would have thrown an exception
+		setScale(coords[Droplet.MAX_X] - coords[Droplet.MIN_X] + 1,
+				 coords[Droplet.MAX_Y] - coords[Droplet.MIN_Y] + 1);
 
-		this.setTargetPosition(upperLeft.fst, upperLeft.snd);
+		// the droplet is positioned by its upper left corner
+		this.setTargetPosition(coords[Droplet.MIN_X], coords[Droplet.MAX_Y]);
 		this.updateCoords();
 
 		// only draw the route when the droplet is to be displayed normally.
@@ -426,21 +484,32 @@ public class DrawableDroplet extends DrawableSprite {
 		}
 
 
+		// if hidden, place below grid
+		int invisibleIndex =
+				this.parentAssay.getHiddenDroplets().indexOf(this);
+
+		// droplets outside of the screen neither need colors nor texts
+		if (invisibleIndex < 0 &&
+			!circ.isAreaVisible(smoothX, smoothY - smoothHeight + 1,
+								smoothX + smoothWidth - 1, smoothY)) {
+			circ.getLabels().removeLabel(this);
+			return;
+		}
+
+		this.setColor(computeDisplayColor(displayColor));
+
 		if (isVisible() && viz.currentAssay.getDisplayOptions().
 				getOption(BDisplayOptions.Droplets)) {
 
 
-			float xCoord = circ.xCoordOnScreen(
-					smoothX + (smoothWidth - 1) / 2f);
-			float yCoord = circ.yCoordOnScreen(
-					smoothY - (smoothHeight - 1) / 2f);
+			final float xCell = smoothX + (smoothWidth - 1) / 2f;
+			final float yCell = smoothY - (smoothHeight - 1) / 2f;
+			float xCoord = circ.xCoordOnScreen(xCell);
+			float yCoord = circ.yCoordOnScreen(yCell);
 
 			this.setScaleX(circ.getSmoothScale() * smoothWidth);
 			this.setScaleY(circ.getSmoothScale() * smoothHeight);
 
-			// if hidden, place below grid
-			int invisibleIndex =
-					this.parentAssay.getHiddenDroplets().indexOf(this);
 			if (invisibleIndex >= 0) {
 
 				this.setScaleX(32f);
@@ -454,17 +523,27 @@ public class DrawableDroplet extends DrawableSprite {
 			this.setX(xCoord);
 			this.setY(yCoord);
 
-			String msg = getMsg();
+			// the text only changes with the display options
+			if (msg == null || msgRevision != circ.getLabelRevision()) {
+				msg = getMsg();
+				msgRevision = circ.getLabelRevision();
+			}
 
-			displayText(msg);
+			if (invisibleIndex >= 0) {
+				circ.getLabels().setScreenLabel(this, msg, xCoord, yCoord);
+			} else {
+				circ.getLabels().setLabel(this, msg, xCell, yCell);
+			}
 
 			super.draw();
+		} else {
+			circ.getLabels().removeLabel(this);
 		}
 
 		if (!withinTimeRange) {
 			// make sure that previous numbers are removed when the droplet is
 			// removed.
-			displayText(null);
+			circ.getLabels().removeLabel(this);
 		}
 	}
 
@@ -487,5 +566,6 @@ public class DrawableDroplet extends DrawableSprite {
 	 */
 	public void setDropletColor(final Color c) {
 		this.dropletColor = c;
+		parentAssay.requestRendering();
 	}
 }
@@ -27,22 +27,14 @@ import de.bioviz.structures.Actuation;
 import de.bioviz.structures.Biochip;
 import de.bioviz.structures.BiochipField;
 import de.bioviz.structures.Dispenser;
-import de.bioviz.structures.Droplet;
-import de.bioviz.structures.FluidicConstraintViolation;
 import de.bioviz.structures.Mixer;
 import de.bioviz.structures.Net;
-import de.bioviz.structures.Point;
-import de.bioviz.structures.Rectangle;
 import de.bioviz.structures.Sink;
 import de.bioviz.util.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
-import java.util.Objects;
-import java.util.Set;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import static de.bioviz.ui.BDisplayOptions.Actuations;
 import static de.bioviz.ui.BDisplayOptions.ActuationSymbols;
@@ -52,7 +44,6 @@ import static de.bioviz.ui.BDisplayOptions.CellUsageCount;
 import static de.bioviz.ui.BDisplayOptions.DetectorIcon;
 import static de.bioviz.ui.BDisplayOptions.HighlightAnnotatedFields;
 import static de.bioviz.ui.BDisplayOptions.InterferenceRegion;
-import static de.bioviz.ui.BDisplayOptions.LingeringInterferenceRegions;
 import static de.bioviz.ui.BDisplayOptions.MovementNeighbourhood;
 import static de.bioviz.ui.BDisplayOptions.NetColorOnFields;
 import static de.bioviz.ui.BDisplayOptions.Pins;
@@ -102,6 +93,18 @@ public class DrawableField extends DrawableSprite {
 	 */
 	private DrawableAssay parentAssay;
 
+	/**
+	 * The message and texture of this field as computed for {@link
+	 * #msgTextureRevision}.
+	 */
+	private Pair<String, TextureE> msgTexture = null;
+
+	/**
+	 * The label revision of the parent assay the cached message and texture
+	 * have been computed for.
+	 */
+	private int msgTextureRevision = -1;
+
 	/**
 	 * Creates an object that draws a given field for a biochip.
 	 * <p/>
@@ -138,17 +141,62 @@ public class DrawableField extends DrawableSprite {
 	 * @return the current color, message and texture
 	 */
 	public DisplayValues getDisplayValues() {
-		Pair<String, TextureE> msgTexture = getMsgTexture();
+		// the message and the texture only change with the time step and the
+		// display options, so they are not recomputed for every frame
+		final int revision = getParentAssay().getLabelRevision();
+		if (msgTexture == null || msgTextureRevision != revision) {
+			msgTexture = getMsgTexture();
+			msgTextureRevision = revision;
+		}
 		Color color = getColor();
 		return new DisplayValues(color, msgTexture.fst, msgTexture.snd);
 	}
 
+	/**
+	 * Retrieves the color, message and texture this field has at a given
+	 * time step.
+	 * <p>
+	 * In contrast to {@link #getDisplayValues()}, this neither depends on the
+	 * current time of the parent assay nor on the field being hovered and
+	 * does not modify this field. It can thus be used to render time steps
+	 * other than the displayed one, e.g. from an export thread.
+	 *
+	 * @param timeStep
+	 * 		The time step to compute the values for
+	 * @param snapshot
+	 * 		The render snapshot of that time step
+	 * @return the color, message and texture at the given time step
+	 */
+	DisplayValues getDisplayValues(final int timeStep,
+								   final RenderSnapshot snapshot) {
+		Pair<String, TextureE> mt =
+				getMsgTexture(timeStep, snapshot.getDisplayOptions());
+		Color color = computeColor(timeStep, snapshot, false);
+		return new DisplayValues(color, mt.fst, mt.snd);
+	}
+
 	/**
 	 * Retrieves this field's texture and the message being displayed on top.
 	 *
 	 * @return a {@link Pair} of message and texture.
 	 */
 	public Pair<String, TextureE> getMsgTexture() {
+		return getMsgTexture(getParentAssay().getCurrentTime(),
+							 getParentAssay().getDisplayOptions());
+	}
+
+	/**
+	 * Retrieves this field's texture and the message being displayed on top
+	 * at a given time step.
+	 *
+	 * @param timeStep
+	 * 		The time step to compute the message for
+	 * @param options
+	 * 		The display options to compute the message for
+	 * @return a {@link Pair} of message and texture.
+	 */
+	protected Pair<String, TextureE> getMsgTexture(
+			final int timeStep, final DisplayOptions options) {
 
 		String fieldHUDMsg = null;
 		TextureE texture = TextureE.GridMarker;
@@ -168,18 +216,18 @@ public class DrawableField extends DrawableSprite {
 		if (field.isPotentiallyBlocked()) {
 			texture = TextureE.Blockage;
 		} else if (field.getDetector() != null &&
-				   getOption(DetectorIcon)) {
+				   options.getOption(DetectorIcon)) {
 			texture = TextureE.Detector;
 		} else if (field.getMagnet() != null) {
 			texture = TextureE.Magnet;
 		} else if (field.getHeater() != null) {
 			texture = TextureE.Heater;
 		} else if (field.isSource()) {
-			if (getOption(SourceTargetIcons)) {
+			if (options.getOption(SourceTargetIcons)) {
 				texture = TextureE.Start;
 			}
 
-			if (getOption(SourceTargetIDs)) {
+			if (options.getOption(SourceTargetIDs)) {
 				ArrayList<Integer> sources = field.sourceIDs;
 				fieldHUDMsg = sources.get(0).toString();
 				if (sources.size() > 1) {
@@ -189,10 +237,10 @@ public class DrawableField extends DrawableSprite {
 				}
 			}
 		} else if (field.isTarget()) {
-			if (getOption(SourceTargetIcons)) {
+			if (options.getOption(SourceTargetIcons)) {
 				texture = TextureE.Target;
 			}
-			if (getOption(SourceTargetIDs)) {
+			if (options.getOption(SourceTargetIDs)) {
 				ArrayList<Integer> targets = field.targetIDs;
 				fieldHUDMsg = targets.get(0).toString();
 				if (targets.size() > 1) {
@@ -205,17 +253,16 @@ public class DrawableField extends DrawableSprite {
 
 
 		// note: this overwrites any previous message
-		if (getOption(Pins) && field.pin != null) {
+		if (options.getOption(Pins) && field.pin != null) {
 			fieldHUDMsg = Integer.toString(field.pin.pinID);
 		}
 
-		if (getOption(CellUsageCount)) {
+		if (options.getOption(CellUsageCount)) {
 			fieldHUDMsg = Integer.toString(field.getUsage());
 		}
 
-		int t = getParentAssay().getCurrentTime();
-		if (getOption(ActuationSymbols)) {
-			Actuation act = field.getActuation(t);
+		if (options.getOption(ActuationSymbols)) {
+			Actuation act = field.getActuation(timeStep);
 
 			switch (act) {
 				case ON:
@@ -240,10 +287,13 @@ public class DrawableField extends DrawableSprite {
 	 *
 	 * @param result
 	 * 		The color that is to be adjusted by this method.
+	 * @param options
+	 * 		The display options to color the cell for
 	 * @return 1 if cell usage was used, 0 otherwise
 	 */
-	private int cellUsageColoring(final de.bioviz.ui.Color result) {
-		if (getOption(CellUsage)) {
+	private int cellUsageColoring(final de.bioviz.ui.Color result,
+								  final DisplayOptions options) {
+		if (options.getOption(CellUsage)) {
 			float scalingFactor = this.parentAssay.getData().getMaxUsage();
 			int usage = field.getUsage();
 			float color = usage / scalingFactor;
@@ -279,49 +329,51 @@ public class DrawableField extends DrawableSprite {
 
 
 			for (int i = 0; i < cornerColors.length; i++) {
-				// Create non-null array contents
-				cornerColors[i] = Color.BLACK.cpy();
+				// Create non-null array contents, reusing existing colors
+				if (cornerColors[i] == null) {
+					cornerColors[i] = Color.BLACK.cpy();
+				} else {
+					cornerColors[i].set(Color.BLACK);
+				}
 			}
-			for (final Net net : this.getParentAssay().getData().
-					getNetsOf(this.getField())) {
+			final RenderSnapshot snapshot =
+					getParentAssay().getRenderSnapshot();
+			final DrawableField hovered = getParentAssay().getHoveredField();
+			final int x = field.x();
+			final int y = field.y();
+
+			for (final Net net : snapshot.netsAt(x, y)) {
 				de.bioviz.ui.Color netCol = net.getColor().cpy();
 
 				// Increase brightness for hovered nets
-				if (this.parentAssay.getHoveredField() != null &&
-					this.getParentAssay().getData().
-							getNetsOf(this.getParentAssay().
-									getHoveredField().field).contains(net)) {
+				if (hovered != null &&
+					snapshot.netsAt(hovered.field.x(), hovered.field.y())
+							.contains(net)) {
 					netCol.add(Colors.HOVER_NET_DIFF_COLOR);
 
 				}
-				Point top = new Point(field.x(), field.y() + 1);
-				Point bottom = new Point(field.x(), field.y() - 1);
-				Point left = new Point(field.x() - 1, field.y());
-				Point right = new Point(field.x() + 1, field.y());
 
 				Color color = netCol.buildGdxColor();
 
 
 				Biochip parent = getParentAssay().getData();
 
-				boolean fieldAtTop = parent.hasFieldAt(top);
-				boolean fieldAtBottom = parent.hasFieldAt(bottom);
-				boolean fieldAtLeft = parent.hasFieldAt(left);
-				boolean fieldAtRight = parent.hasFieldAt(right);
+				boolean fieldAtTop = parent.hasFieldAt(x, y + 1);
+				boolean fieldAtBottom = parent.hasFieldAt(x, y - 1);
+				boolean fieldAtLeft = parent.hasFieldAt(x - 1, y);
+				boolean fieldAtRight = parent.hasFieldAt(x + 1, y);
 
 
-				boolean containsTop = fieldAtTop
-									  && net.containsField(
-									  		parent.getFieldAt(top));
+				boolean containsTop = fieldAtTop &&
+									  snapshot.netsAt(x, y + 1).contains(net);
 				boolean containsBottom = fieldAtBottom &&
-										 net.containsField(
-												 parent.getFieldAt(bottom));
-				boolean containsLeft =
-						fieldAtLeft &&
-						net.containsField(parent.getFieldAt(left));
+										 snapshot.netsAt(x, y - 1)
+												 .contains(net);
+				boolean containsLeft = fieldAtLeft &&
+									   snapshot.netsAt(x - 1, y).contains(net);
 				boolean containsRight = fieldAtRight &&
-										net.containsField(
-												parent.getFieldAt(right));
+										snapshot.netsAt(x + 1, y)
+												.contains(net);
 
 				if (!fieldAtTop || !containsTop) {
 					this.cornerColors[topleft].add(color);
@@ -358,6 +410,28 @@ public class DrawableField extends DrawableSprite {
 	 */
 	@Override
 	public Color getColor() {
+		netColoring();
+		return computeColor(getParentAssay().getCurrentTime(),
+							getParentAssay().getRenderSnapshot(),
+							isHovered());
+	}
+
+	/**
+	 * Computes the color of the field at a given time step.
+	 *
+	 * @param t
+	 * 		The time step to compute the color for
+	 * @param snapshot
+	 * 		The render snapshot of that time step
+	 * @param hovered
+	 * 		Whether the field is to be highlighted as hovered
+	 * @return the field's color.
+	 */
+	private Color computeColor(final int t,
+							   final RenderSnapshot snapshot,
+							   final boolean hovered) {
+
+		final DisplayOptions options = snapshot.getDisplayOptions();
 
 		/**
 		 * This value stores the amount of colors being overlaid in the process
@@ -375,26 +449,23 @@ public class DrawableField extends DrawableSprite {
 		 */
 		de.bioviz.ui.Color result = new de.bioviz.ui.Color(Color.BLACK);
 
-		if (getField().isBlocked(getParentAssay().getCurrentTime())) {
+		if (getField().isBlocked(t)) {
 			result.add(Colors.BLOCKED_COLOR);
 			colorOverlayCount++;
 		}
 
 
-		netColoring();
-
-		colorOverlayCount += cellUsageColoring(result);
+		colorOverlayCount += cellUsageColoring(result, options);
 
-		colorOverlayCount += inteferenceRegionColoring(result);
+		colorOverlayCount += inteferenceRegionColoring(result, t, snapshot);
 
-		colorOverlayCount += reachableRegionColoring(result);
+		colorOverlayCount += reachableRegionColoring(result, snapshot);
 
 
 		/**
 		 * Here we highlight cells based on their actuation value
 		 */
-		int t = getParentAssay().getCurrentTime();
-		if (getOption(Actuations)) {
+		if (options.getOption(Actuations)) {
 			Actuation act = field.getActuation(t);
 
 			switch (act) {
@@ -417,14 +488,9 @@ public class DrawableField extends DrawableSprite {
 		}
 
 
-		if (getOption(Adjacency)) {
-			final Stream<FluidicConstraintViolation> violations =
-					getParentAssay().getData().getAdjacentActivations()
-							.stream();
-
-			if (violations.anyMatch(v -> v.containsField(this.field))) {
-				result.add(Colors.ADJACENT_ACTIVATION_COLOR);
-			}
+		if (options.getOption(Adjacency) &&
+			snapshot.isViolated(field.x(), field.y())) {
+			result.add(Colors.ADJACENT_ACTIVATION_COLOR);
 		}
 
 		if (colorOverlayCount > 0) {
@@ -434,15 +500,16 @@ public class DrawableField extends DrawableSprite {
 			result = new de.bioviz.ui.Color(Colors.FIELD_COLOR);
 		}
 
-		if (this.isHovered()) {
+		if (hovered) {
 			result.add(Colors.HOVER_DIFF_COLOR);
 		}
 
-		if (getOption(HighlightAnnotatedFields) && field.hasAnnotations()) {
+		if (options.getOption(HighlightAnnotatedFields) &&
+			field.hasAnnotations()) {
 			result = new de.bioviz.ui.Color(Color.VIOLET);
 		}
 
-		return result.buildGdxColor().cpy();
+		return result.buildGdxColor();
 	}
 
 	/**
@@ -484,23 +551,17 @@ public class DrawableField extends DrawableSprite {
 	 *
 	 * @param result Return parameter storing the color that is computed after
 	 *               applying the reachability check.
+	 * @param snapshot The render snapshot of the time step to color.
 	 * @return 1 if the field can be reached within one time step by any
 	 * droplet, 0 otherwise.
 	 */
-	private int reachableRegionColoring(final de.bioviz.ui.Color result) {
+	private int reachableRegionColoring(final de.bioviz.ui.Color result,
+										final RenderSnapshot snapshot) {
 		int colorOverlayCount = 0;
-		if (getOption(MovementNeighbourhood)) {
-
-
-			int t = getParentAssay().getCurrentTime();
-
-			final Set<Droplet> dropsSet =
-					getParentAssay().getData().getDroplets();
+		if (snapshot.getDisplayOptions().getOption(
+				MovementNeighbourhood)) {
 			boolean fieldIsReachable =
-					dropsSet.stream().
-							map(d -> d.getPositionAt(t)).
-							filter(Objects::nonNull).
-							anyMatch(p -> p.reachable(field.pos));
+					snapshot.isReachable(field.x(), field.y());
 			if (fieldIsReachable) {
 				result.add(Colors.REACHABLE_FIELD_COLOR);
 				colorOverlayCount = 1;
@@ -515,50 +576,35 @@ public class DrawableField extends DrawableSprite {
 	 *
 	 * @param result
 	 * 		The color that results from this method call.
+	 * @param timeStep
+	 * 		The time step to color.
+	 * @param snapshot
+	 * 		The render snapshot of that time step.
 	 * @return The amount of color overlays produced by this method.
 	 */
-	private int inteferenceRegionColoring(final de.bioviz.ui.Color result) {
+	private int inteferenceRegionColoring(final de.bioviz.ui.Color result,
+										  final int timeStep,
+										  final RenderSnapshot snapshot) {
 		int colorOverlayCount = 0;
 
-		boolean isBlocked = getField().isBlocked(getParentAssay()
-														 .getCurrentTime());
+		boolean isBlocked = getField().isBlocked(timeStep);
 
 		/** Colours the interference region **/
-		if (getOption(InterferenceRegion)) {
-			int amountOfInterferenceRegions = 0;
-			final Set<Droplet> dropsSet =
-					getParentAssay().getData().getDroplets();
-
-			ArrayList<Droplet> drops = dropsSet.stream().
-					filter(d -> isPartOfInterferenceRegion(d)).
-					collect(Collectors.toCollection(ArrayList<Droplet>::new));
-
-			for (int i = 0; i < drops.size(); ++i) {
-				boolean interferenceViolation = false;
-				for (int j = i + 1; j < drops.size(); j++) {
-					final Droplet drop1 = drops.get(i);
-					final Droplet drop2 = drops.get(j);
-					boolean sameNet =
-							getParentAssay().getData().sameNet(drop1, drop2);
-					if (!sameNet && !isBlocked) {
-						result.add(Colors.INTERFERENCE_REGION_OVERLAP_COLOR);
-						++colorOverlayCount;
-						interferenceViolation = true;
-					}
-				}
-
-				/*
-				We only increase the amount of interference regions if no
-				violation took place. This makes sense as a violation is
-				handled
-				differently.
-				 */
-				if (!interferenceViolation) {
-					++amountOfInterferenceRegions;
-				}
+		if (snapshot.getDisplayOptions().getOption(InterferenceRegion) &&
+			!isBlocked) {
+			int overlaps = snapshot.interferenceOverlaps(field.x(), field.y());
+			for (int i = 0; i < overlaps; i++) {
+				result.add(Colors.INTERFERENCE_REGION_OVERLAP_COLOR);
+				++colorOverlayCount;
 			}
 
-			if (amountOfInterferenceRegions > 0 && !isBlocked) {
+			/*
+			Regions overlapping with regions of droplets from other nets are
+			not counted here as a violation is handled differently.
+			 */
+			int amountOfInterferenceRegions =
+					snapshot.interferenceRegions(field.x(), field.y());
+			if (amountOfInterferenceRegions > 0) {
 				float scale = (float) Math.sqrt(amountOfInterferenceRegions);
 				Color c = new Color(Colors.INTERFERENCE_REGION_COLOR);
 				result.add(c.mul(scale));
@@ -573,7 +619,6 @@ public class DrawableField extends DrawableSprite {
 	public void draw() {
 		DisplayValues vals = getDisplayValues();
 
-		displayText(vals.getMsg());
 		setColor(vals.getColor());
 
 		DrawableAssay circ = getParentAssay();
@@ -590,42 +635,18 @@ public class DrawableField extends DrawableSprite {
 		super.draw();
 
 		// show the first annotation for this field
+		String label = vals.getMsg();
 		if (isHovered() && !field.areaAnnotations.isEmpty()) {
-			displayText(field.areaAnnotations.get(0).getAnnotation());
+			label = field.areaAnnotations.get(0).getAnnotation();
 		}
+		circ.getLabels().setLabel(this, label, getField().x(),
+								  getField().y());
 
 		// TODO why is drawing of lines in any way tied to the actual fields?!
 
 	}
 
 
-	/**
-	 * Calculates whether or not this field is part of a droplet's interference
-	 * region.
-	 *
-	 * @param d
-	 * 		the droplet to calculate it for
-	 * @return whether or not this field is part of its interference region
-	 */
-	private boolean isPartOfInterferenceRegion(final Droplet d) {
-		Rectangle currPos = d.getPositionAt(
-				getParentAssay().getCurrentTime()
-		);
-		Rectangle prevPos = d.getPositionAt(
-				getParentAssay().getCurrentTime() - 1
-		);
-
-		boolean currAdj = currPos != null && currPos.adjacent(field.pos);
-
-		if (getOption(LingeringInterferenceRegions)) {
-			boolean prevAdj = prevPos != null && prevPos.adjacent(field.pos);
-			return currAdj || prevAdj;
-		} else {
-			return currAdj;
-		}
-	}
-
-
 	/**
 	 * Retrieves the *structural* field that is drawn by this {@link
 	 * DrawableField}.
@@ -73,11 +73,20 @@ public class DrawableLine extends DrawableSprite {
 	 * Draws the line on the biochip.
 	 */
     public void draw() {
+        final DrawableAssay assay = viz.currentAssay;
+
+        // lines outside of the screen are not drawn
+        if (!assay.isAreaVisible(Math.min(from.x, to.x),
+                                 Math.min(from.y, to.y),
+                                 Math.max(from.x, to.x),
+                                 Math.max(from.y, to.y))) {
+            return;
+        }
+
         Color col = this.getColor();
         col.a = 1f;
         Vector2 toTarget = from.cpy().sub(to);
         final float len = toTarget.len();
-        final DrawableAssay assay = viz.currentAssay;
         setX(assay.xCoordOnScreen((to.x + from.x) / 2f));
         setY(assay.yCoordOnScreen((to.y + from.y) / 2f));
         setScaleX(assay.getSmoothScale() * len);
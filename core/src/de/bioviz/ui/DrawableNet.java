@@ -53,6 +53,12 @@ public class DrawableNet extends DrawableSprite {
 	 */
 	private DrawableAssay parentAssay;
 
+	/**
+	 * The droplets of the net. As the droplets of an assay never change, they
+	 * are only searched once.
+	 */
+	private List<DrawableDroplet> netDroplets = null;
+
 	/**
 	 * Creates a drawableNet for a given Net.
 	 *
@@ -84,11 +90,15 @@ public class DrawableNet extends DrawableSprite {
 				showHead = true;
 			}
 
-			// Search for all Droplets that
-			List<DrawableDroplet> netDroplets = new ArrayList<>();
-			parentAssay.getDroplets().stream().filter(
-					d -> net.containsDroplet(d.droplet)).
-					forEach(netDroplets::add);
+			// Search for all Droplets that are part of the net
+			if (netDroplets == null) {
+				netDroplets = new ArrayList<>();
+				for (final DrawableDroplet d : parentAssay.getDroplets()) {
+					if (net.containsDroplet(d.droplet)) {
+						netDroplets.add(d);
+					}
+				}
+			}
 
 			if (!netDroplets.isEmpty()) {
 				for (final DrawableDroplet droplet : netDroplets) {
@@ -23,15 +23,22 @@
 package de.bioviz.ui;
 
 import com.badlogic.gdx.graphics.Color;
+import de.bioviz.structures.Droplet;
 import de.bioviz.structures.FPoint;
 import de.bioviz.structures.Rectangle;
 
+import java.util.Arrays;
+
 /**
  * Class responsible for drawing the routes that droplets may follow.
  * <p/>
  * Note that there is no corresponding class in the structure package. The
  * path's positions are computed by queyring the positions of the parent droplet
  * for each time step.
+ * <p/>
+ * As the positions of a droplet never change, the arrows of the route are
+ * computed once when the route is created. Drawing then only selects the
+ * arrows of the displayed time window.
  */
 public class DrawableRoute extends DrawableSprite {
 
@@ -53,6 +60,41 @@ public class DrawableRoute extends DrawableSprite {
 	 */
 	private Color baseColor = Color.BLACK;
 
+	/**
+	 * The time steps at which the arrows start, in ascending order.
+	 * <p/>
+	 * An arrow starting at time step t points from the position of the
+	 * droplet at t to its position at t+1. Time steps in which the droplet
+	 * does not move have no arrow.
+	 */
+	private int[] arrowTimes;
+
+	/**
+	 * The x coordinates (in cells) of the centers of the arrows.
+	 */
+	private float[] arrowX;
+
+	/**
+	 * The y coordinates (in cells) of the centers of the arrows.
+	 */
+	private float[] arrowY;
+
+	/**
+	 * The rotations of the arrows.
+	 */
+	private float[] arrowAngles;
+
+	/**
+	 * The bounding boxes (in cells) of the two positions connected by the
+	 * arrows, stored as consecutive minX, minY, maxX, maxY values.
+	 */
+	private int[] arrowBounds;
+
+	/**
+	 * The color the arrows are drawn with, reused for every arrow.
+	 */
+	private final Color arrowColor = new Color();
+
 	/**
 	 * Creates a route for a given droplet.
 	 *
@@ -64,6 +106,70 @@ public class DrawableRoute extends DrawableSprite {
 		this.droplet = droplet;
 		super.addLOD(DEFAULT_LOD_THRESHOLD, TextureE.BlackPixel);
 		this.setZ(DisplayValues.DEFAULT_ROUTE_DEPTH);
+		computeArrows();
+	}
+
+	/**
+	 * Computes the positions and rotations of all arrows of the route.
+	 */
+	private void computeArrows() {
+		final Droplet d = droplet.droplet;
+		final int first = d.getSpawnTime();
+		final int last = d.getMaxTime();
+		final int maxArrows = Math.max(0, last - first);
+
+		arrowTimes = new int[maxArrows];
+		arrowX = new float[maxArrows];
+		arrowY = new float[maxArrows];
+		arrowAngles = new float[maxArrows];
+		arrowBounds = new int[maxArrows * Droplet.COORDS_PER_POSITION];
+
+		int n = 0;
+		for (int t = first; t < last; t++) {
+			final Rectangle r1 = d.getSafePositionAt(t);
+			final Rectangle r2 = d.getSafePositionAt(t + 1);
+
+			if (r1.equals(r2)) {
+				continue;
+			}
+
+			final FPoint p1 = r1.centerFloat();
+			final FPoint p2 = r2.centerFloat();
+
+			/*
+			The routes are drawn by placing the arrow halfway between the two
+			adjacent cells and then rotating it until it faces the correct
+			direction.
+
+			The position to place the arrow on is determined by computing the
+			line between the two centers of the cells and then halving it.
+			 */
+			final FPoint halfWay = FPoint.halfwayBetween(p1, p2);
+
+			arrowTimes[n] = t;
+			arrowX[n] = halfWay.fst;
+			arrowY[n] = halfWay.snd;
+
+			// the angle is set according to the relative positions of the cell
+			// centers that are the source and target of the arrow.
+			arrowAngles[n] = FPoint.angleOfLineBetween(p1, p2);
+
+			final int b = n * Droplet.COORDS_PER_POSITION;
+			arrowBounds[b + Droplet.MIN_X] = Math.min(r1.minX, r2.minX);
+			arrowBounds[b + Droplet.MIN_Y] = Math.min(r1.minY, r2.minY);
+			arrowBounds[b + Droplet.MAX_X] = Math.max(r1.maxX, r2.maxX);
+			arrowBounds[b + Droplet.MAX_Y] = Math.max(r1.maxY, r2.maxY);
+			++n;
+		}
+
+		if (n < maxArrows) {
+			arrowTimes = Arrays.copyOf(arrowTimes, n);
+			arrowX = Arrays.copyOf(arrowX, n);
+			arrowY = Arrays.copyOf(arrowY, n);
+			arrowAngles = Arrays.copyOf(arrowAngles, n);
+			arrowBounds = Arrays.copyOf(arrowBounds,
+										n * Droplet.COORDS_PER_POSITION);
+		}
 	}
 
 	/**
@@ -84,13 +190,35 @@ public class DrawableRoute extends DrawableSprite {
 		return c;
 	}
 
+	/**
+	 * Returns the color used for drawing the route for a given droplet color.
+	 * <p/>
+	 * Like {@link #getColor()}, but does not depend on the color the droplet
+	 * currently has on screen.
+	 *
+	 * @param dropletColor
+	 * 		The color of the droplet
+	 * @param options
+	 * 		The display options to compute the color for
+	 * @return The color of the route
+	 */
+	Color computeColor(final Color dropletColor,
+					   final DisplayOptions options) {
+		if (options.getOption(BDisplayOptions.ColorfulRoutes)) {
+			return dropletColor.cpy();
+		}
+		return baseColor.cpy();
+	}
+
 
 	/**
 	 * Actually draws the route on the canvas.
 	 *
 	 * This includes computing the length of the route to show (i.e. how many
 	 * steps in time you go backwards and/or forward), the color of the route
-	 * and the transparency.
+	 * and the transparency. The arrows within the displayed time window are
+	 * looked up in the precomputed arrays and drawn as copies of a single
+	 * sprite.
 	 */
 	@Override
 	public void draw() {
@@ -98,7 +226,6 @@ public class DrawableRoute extends DrawableSprite {
 
 		DrawableAssay circ = droplet.parentAssay;
 		int currentTime = circ.getCurrentTime();
-		int displayAt;
 
 		disableForcedLOD();
 
@@ -109,66 +236,60 @@ public class DrawableRoute extends DrawableSprite {
 			stepsToUse = hoverTimesteps;
 		}
 
-		for (int i = -stepsToUse; i < stepsToUse; i++) {
-
-			Color c = getColor();
-
-
-			if (circ.getDisplayOptions().getOption(
-					BDisplayOptions.SolidPaths)) {
-				c.a = noTransparency;
-			} else {
-				if (i >= 0) {
-					c.a = 1 -
-						  (Math.abs((float) i + 1) / ((float) stepsToUse + 1));
-				} else {
-					c.a = 1 - (Math.abs((float) i) / ((float) stepsToUse + 1));
-				}
-			}
+		if (stepsToUse <= 0 || arrowTimes.length == 0) {
+			return;
+		}
 
-			setColorImmediately(c);
+		setScaleX(circ.getSmoothScale());
+		setScaleY(circ.getSmoothScale());
+		if (!beginInstances()) {
+			return;
+		}
 
+		// same as getColor(), but without copying the colors
+		if (circ.getDisplayOptions().getOption(
+				BDisplayOptions.ColorfulRoutes)) {
+			arrowColor.set(droplet.getTargetColor());
+		} else {
+			arrowColor.set(baseColor);
+		}
+		final boolean solid =
+				circ.getDisplayOptions().getOption(BDisplayOptions.SolidPaths);
 
-			displayAt = currentTime + i;
-			final Rectangle r1 = droplet.droplet.getSafePositionAt(displayAt);
-			final Rectangle r2 =
-					droplet.droplet.getSafePositionAt(displayAt + 1);
+		// the first arrow within the time window
+		int start = Arrays.binarySearch(arrowTimes, currentTime - stepsToUse);
+		if (start < 0) {
+			start = -(start + 1);
+		}
+		final int end = currentTime + stepsToUse;
 
+		for (int k = start; k < arrowTimes.length && arrowTimes[k] < end;
+			 k++) {
 
-			if (r1.equals(r2)) {
+			// skip arrows outside of the screen
+			final int b = k * Droplet.COORDS_PER_POSITION;
+			if (!circ.isAreaVisible(arrowBounds[b + Droplet.MIN_X],
+									arrowBounds[b + Droplet.MIN_Y],
+									arrowBounds[b + Droplet.MAX_X],
+									arrowBounds[b + Droplet.MAX_Y])) {
 				continue;
 			}
 
-			final FPoint p1 = r1.centerFloat();
-			final FPoint p2 = r2.centerFloat();
-
-
-
-			/*
-			The routes are drawn by placing the arrow halfway between the two
-			adjacent cells and then rotating it until it faces the correct
-			direction.
-
-			The position to place the arrow on is determined by computing the
-			line between the two centers of the cells and then halving it.
-			 */
-
-			final FPoint halfWay = FPoint.halfwayBetween(p1,p2);
-			final float xCoord = circ.xCoordOnScreen(halfWay.fst);
-			final float yCoord = circ.yCoordOnScreen(halfWay.snd);
-
-
-			// the angle is set according to the relative positions of the cell
-			// centers that are the source and target of the arrow.
-			float rotationAngle = FPoint.angleOfLineBetween(p1,p2);
-			setRotation(rotationAngle);
-
-			setX(xCoord);
-			setY(yCoord);
-			setScaleX(circ.getSmoothScale());
-			setScaleY(circ.getSmoothScale());
+			final int i = arrowTimes[k] - currentTime;
+			if (solid) {
+				arrowColor.a = noTransparency;
+			} else {
+				final float steps = (float) stepsToUse + 1;
+				if (i >= 0) {
+					arrowColor.a = 1 - (Math.abs((float) i + 1) / steps);
+				} else {
+					arrowColor.a = 1 - (Math.abs((float) i) / steps);
+				}
+			}
 
-			super.draw();
+			drawInstance(circ.xCoordOnScreen(arrowX[k]),
+						 circ.yCoordOnScreen(arrowY[k]),
+						 arrowAngles[k], arrowColor);
 		}
 	}
 }
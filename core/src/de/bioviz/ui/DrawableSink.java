@@ -43,12 +43,13 @@ public class DrawableSink extends DrawableField {
 	}
 
 	/**
-	 * @copydoc DrawableField::getMsgTexture()
+	 * @copydoc DrawableField::getMsgTexture(int, DisplayOptions)
 	 */
 	@Override
-	public Pair<String, TextureE> getMsgTexture() {
+	protected Pair<String, TextureE> getMsgTexture(
+			final int timeStep, final DisplayOptions options) {
 		TextureE texture = TextureE.GridMarker;
-		if (getOption(BDisplayOptions.SinkIcon)) {
+		if (options.getOption(BDisplayOptions.SinkIcon)) {
 			texture = TextureE.Sink;
 		}
 		return Pair.mkPair(null, texture);
@@ -36,7 +36,6 @@ import de.bioviz.messages.MessageCenter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Date;
 import java.util.HashMap;
 
 /**
@@ -146,18 +145,18 @@ public abstract class DrawableSprite implements Drawable {
 	 * The color that is currently being targeted (important for the smooth
 	 * transition, together with currentColor and originColor).
 	 */
-	private Color targetColor = Color.WHITE.cpy();
+	private final Color targetColor = Color.WHITE.cpy();
 
 	/**
 	 * The current color - could be any color between originColor and
 	 * targetColor.
 	 */
-	private Color currentColor = Color.WHITE.cpy();
+	private final Color currentColor = Color.WHITE.cpy();
 
 	/**
 	 * The color the current transition was started from.
 	 */
-	private Color originColor = Color.WHITE.cpy();
+	private final Color originColor = Color.WHITE.cpy();
 
 	/**
 	 * The time at which the current color transition started.
@@ -202,7 +201,7 @@ public abstract class DrawableSprite implements Drawable {
 
 
 		if (textures == null) {
-			textures = new TextureManager();
+			textures = parent.getTextureManager();
 		}
 
 
@@ -251,33 +250,7 @@ public abstract class DrawableSprite implements Drawable {
 
 		if (isVisible()) {
 
-			if (sprite == null) {
-				TextureRegion region = textures.getTexture(currentTexture);
-				initializeSprite(1, 1, region);
-			}
-
-			// if LOD is set, enable LOD calculation and set
-			// sprite accordingly
-			if (this.levelOfDetailTextures.size() > 0) {
-				float bestLODFactor = Float.MAX_VALUE;
-				float targetLODFactor = this.scaleX;
-				if (this.forcedLOD >= 0) {
-					targetLODFactor = this.forcedLOD;
-				}
-				boolean foundLOD = false;
-				for (final Float factor : levelOfDetailTextures.keySet()) {
-					if (factor >= targetLODFactor && factor <= bestLODFactor) {
-						bestLODFactor = factor;
-						foundLOD = true;
-					}
-				}
-				if (foundLOD) {
-					currentTexture =
-							levelOfDetailTextures.get(bestLODFactor);
-				}
-
-				this.setTexture();
-			}
+			prepareSprite();
 
 			update();
 
@@ -323,6 +296,81 @@ public abstract class DrawableSprite implements Drawable {
 		}
 	}
 
+	/**
+	 * Creates the sprite if necessary and selects its texture according to
+	 * the level of detail for the current scale.
+	 */
+	private void prepareSprite() {
+		if (sprite == null) {
+			TextureRegion region = textures.getTexture(currentTexture);
+			initializeSprite(1, 1, region);
+		}
+
+		// if LOD is set, enable LOD calculation and set
+		// sprite accordingly
+		if (this.levelOfDetailTextures.size() > 0) {
+			float bestLODFactor = Float.MAX_VALUE;
+			float targetLODFactor = this.scaleX;
+			if (this.forcedLOD >= 0) {
+				targetLODFactor = this.forcedLOD;
+			}
+			boolean foundLOD = false;
+			for (final Float factor : levelOfDetailTextures.keySet()) {
+				if (factor >= targetLODFactor && factor <= bestLODFactor) {
+					bestLODFactor = factor;
+					foundLOD = true;
+				}
+			}
+			if (foundLOD) {
+				currentTexture =
+						levelOfDetailTextures.get(bestLODFactor);
+			}
+
+			this.setTexture();
+		}
+	}
+
+	/**
+	 * Prepares drawing several copies of this sprite with {@link
+	 * #drawInstance(float, float, float, Color)}.
+	 * <p>
+	 * The texture and the scale are determined once for all copies. The
+	 * copies do not take part in the color transition of this sprite.
+	 *
+	 * @return false if this sprite is invisible and no copies are to be drawn
+	 */
+	protected boolean beginInstances() {
+		if (!isVisible()) {
+			return false;
+		}
+		prepareSprite();
+		this.sprite.setScale(getScaleX(), getScaleY());
+		return true;
+	}
+
+	/**
+	 * Draws a copy of this sprite.
+	 * <p>
+	 * {@link #beginInstances()} must have been called before.
+	 *
+	 * @param instX
+	 * 		the x coordinate of the copy on the screen
+	 * @param instY
+	 * 		the y coordinate of the copy on the screen
+	 * @param instRotation
+	 * 		the rotation of the copy
+	 * @param color
+	 * 		the color of the copy
+	 */
+	protected void drawInstance(final float instX, final float instY,
+								final float instRotation, final Color color) {
+		this.sprite.setPosition(instX - sprite.getWidth() / 2f,
+								instY - sprite.getHeight() / 2f);
+		this.sprite.setRotation(instRotation);
+		this.sprite.setColor(color);
+		viz.batch.draw(this.sprite, this.viz.camera.combined, z);
+	}
+
 	public void setDimensions(final float dimX, final float dimY) {
 		this.setScaleX(dimX / this.sprite.getWidth());
 		this.setScaleY(dimY / this.sprite.getHeight());
@@ -398,14 +446,14 @@ public abstract class DrawableSprite implements Drawable {
 		float totalProgress = 1;
 		if (colorTransitionEndTime > colorTransitionStartTime) {
 			float transitionProgress = Math.max(0, Math.min(1, (float) (
-					new Date().getTime() - colorTransitionStartTime) / (float) (
+					viz.getFrameTime() - colorTransitionStartTime) / (float) (
 					colorTransitionEndTime - colorTransitionStartTime)));
 			totalProgress =
 					(float) -Math.pow(transitionProgress - 1, 4) + 1;
 		}
 
-		currentColor = originColor.cpy().mul(1 - totalProgress).add(
-				targetColor.cpy().mul(totalProgress));
+		// interpolate in place instead of creating intermediate colors
+		currentColor.set(originColor).lerp(targetColor, totalProgress);
 	}
 
 	/**
@@ -417,23 +465,46 @@ public abstract class DrawableSprite implements Drawable {
 		return targetColor.cpy();
 	}
 
+	/**
+	 * Returns the sprite's target color without copying it.
+	 * <p>
+	 * The returned color must not be modified.
+	 *
+	 * @return The targetColor variable.
+	 */
+	Color getTargetColor() {
+		return targetColor;
+	}
+
 	/**
 	 * Sets the sprite's color.
+	 * <p>
+	 * The color is copied, so the caller may reuse the passed instance.
 	 *
 	 * @param color
 	 * 		The color this sprite is going to have
 	 */
 	public void setColor(final Color color) {
 		if (!this.targetColor.equals(color)) {
-			originColor = this.currentColor;
-			this.targetColor = color;
-			Date d = new Date();
-			this.colorTransitionStartTime = d.getTime();
-			this.colorTransitionEndTime = d.getTime() +
-										  getColorTransitionDuration();
+			originColor.set(this.currentColor);
+			this.targetColor.set(color);
+			long now = viz.getFrameTime();
+			this.colorTransitionStartTime = now;
+			this.colorTransitionEndTime = now + getColorTransitionDuration();
 		}
 	}
 
+	/**
+	 * Checks whether this sprite is still fading towards its target color.
+	 *
+	 * @param now
+	 * 		The current time in ms
+	 * @return true if the color of the sprite will change in later frames
+	 */
+	public boolean isColorTransitioning(final long now) {
+		return now < colorTransitionEndTime;
+	}
+
 	/**
 	 * Sets the color of this sprite without fading towards it.
 	 *
@@ -441,12 +512,11 @@ public abstract class DrawableSprite implements Drawable {
 	 * 		the color this sprite should assume immediately
 	 */
 	public void setColorImmediately(final Color color) {
-		this.originColor = color;
-		this.targetColor = color;
-		Date d = new Date();
-		this.colorTransitionStartTime = d.getTime();
-		this.colorTransitionEndTime = d.getTime() +
-									  getColorTransitionDuration();
+		this.originColor.set(color);
+		this.targetColor.set(color);
+		long now = viz.getFrameTime();
+		this.colorTransitionStartTime = now;
+		this.colorTransitionEndTime = now + getColorTransitionDuration();
 	}
 
 	/**
@@ -0,0 +1,220 @@
+/*
+ * BioViz, a visualization tool for digital microfluidic biochips (DMFB).
+ *
+ * Copyright (c) 2017 Oliver Keszocze, Jannis Stoppe, Maximilian Luenert
+ *
+ * This file is part of BioViz.
+ *
+ * BioViz is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * BioViz is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * See the GNU General Public License for more details. You should have
+ * received a copy of the GNU
+ * General Public License along with BioViz.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.bioviz.ui;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.badlogic.gdx.math.Matrix4;
+import de.bioviz.structures.Biochip;
+import de.bioviz.structures.Point;
+
+import java.util.Collection;
+
+/**
+ * Draws all fields of an assay as a single texture when zoomed out.
+ * <p>
+ * Below {@link DrawableField#PIXELIZED_ZOOM_LEVEL} every field is drawn as a
+ * plain colored square anyway. Instead of issuing one draw call per field,
+ * the colors of the fields are written into a pixmap with one pixel per
+ * cell. The pixmap is uploaded into a texture that is drawn stretched over
+ * the whole chip.
+ * <p>
+ * The texture becomes invalid whenever the owner calls {@link #invalidate()},
+ * i.e. whenever the colors of the fields might have changed. Panning and
+ * zooming do not require the texture to be updated.
+ *
+ * @author agent
+ */
+final class HeatmapLayer {
+
+	/**
+	 * The tint applied to the texture. It matches the color of the
+	 * {@link TextureE#BlackPixel} texture the fields are drawn with when
+	 * zoomed out, so switching between both representations is not visible.
+	 */
+	@SuppressWarnings("checkstyle:magicnumber")
+	private static final Color PIXEL_TINT =
+			new Color(128 / 255f, 128 / 255f, 128 / 255f, 1f);
+
+	/**
+	 * The pixmap holding the colors of the fields.
+	 */
+	private Pixmap pixmap = null;
+
+	/**
+	 * The texture the pixmap is uploaded to.
+	 */
+	private Texture texture = null;
+
+	/**
+	 * The sprite drawing the texture.
+	 */
+	private Sprite sprite = null;
+
+	/**
+	 * The smallest x coordinate of the chip.
+	 */
+	private int minX;
+
+	/**
+	 * The largest y coordinate of the chip.
+	 */
+	private int maxY;
+
+	/**
+	 * Whether the texture contains the current colors of the fields.
+	 */
+	private boolean valid = false;
+
+	/**
+	 * Checks whether the fields are to be drawn as a single texture.
+	 *
+	 * @param scale
+	 * 		The size of a cell on the screen
+	 * @return true if the fields are that small that they would be drawn as
+	 * plain colored squares
+	 */
+	static boolean isApplicable(final float scale) {
+		return scale <= DrawableField.PIXELIZED_ZOOM_LEVEL;
+	}
+
+	/**
+	 * Marks the texture as outdated.
+	 */
+	void invalidate() {
+		valid = false;
+	}
+
+	/**
+	 * @return true if the texture shows the current colors of the fields
+	 */
+	boolean isValid() {
+		return valid && texture != null;
+	}
+
+	/**
+	 * Writes the colors of all fields into the texture.
+	 *
+	 * @param chip
+	 * 		The chip the fields belong to
+	 * @param fields
+	 * 		The fields to draw
+	 */
+	void update(final Biochip chip, final Collection<DrawableField> fields) {
+		final Point min = chip.getMinCoord();
+		final Point max = chip.getMaxCoord();
+		final int width = Math.max(1, max.fst - min.fst + 1);
+		final int height = Math.max(1, max.snd - min.snd + 1);
+
+		if (pixmap == null || pixmap.getWidth() != width ||
+			pixmap.getHeight() != height) {
+			dispose();
+			pixmap = new Pixmap(width, height, Pixmap.Format.RGBA8888);
+			texture = new Texture(pixmap);
+			texture.setFilter(Texture.TextureFilter.Nearest,
+							  Texture.TextureFilter.Nearest);
+			sprite = new Sprite(texture);
+			sprite.setColor(PIXEL_TINT);
+		}
+		minX = min.fst;
+		maxY = max.snd;
+
+		// the blending mode is shared by all pixmaps, e.g. the ones the fonts
+		// are rendered into, so it is only switched off while writing
+		final Pixmap.Blending blending = Pixmap.getBlending();
+		Pixmap.setBlending(Pixmap.Blending.None);
+		try {
+			// cells without a field stay transparent
+			pixmap.setColor(0, 0, 0, 0);
+			pixmap.fill();
+			for (final DrawableField f : fields) {
+				final Color c = f.getColor();
+				pixmap.drawPixel(f.getField().x() - minX,
+								 maxY - f.getField().y(),
+								 Color.rgba8888(c));
+			}
+		} finally {
+			Pixmap.setBlending(blending);
+		}
+		texture.draw(pixmap, 0, 0);
+		valid = true;
+	}
+
+	/**
+	 * Draws the texture.
+	 *
+	 * @param batch
+	 * 		The batch to draw with
+	 * @param matrix
+	 * 		The matrix the fields are drawn with
+	 * @param left
+	 * 		The left border of the chip on the screen
+	 * @param top
+	 * 		The top border of the chip on the screen
+	 * @param scale
+	 * 		The size of a cell on the screen
+	 * @param z
+	 * 		The depth of the fields
+	 */
+	void draw(final BioVizSpriteBatch batch, final Matrix4 matrix,
+			  final float left, final float top, final float scale,
+			  final float z) {
+		if (sprite != null) {
+			final float h = pixmap.getHeight() * scale;
+			sprite.setBounds(left, top - h, pixmap.getWidth() * scale, h);
+			batch.draw(sprite, matrix, z);
+		}
+	}
+
+	/**
+	 * Releases the pixmap and the texture.
+	 */
+	void dispose() {
+		if (texture != null) {
+			texture.dispose();
+			texture = null;
+		}
+		if (pixmap != null) {
+			pixmap.dispose();
+			pixmap = null;
+		}
+		sprite = null;
+		valid = false;
+	}
+
+	/**
+	 * @return the smallest x coordinate of the chip as of the last update
+	 */
+	int getMinX() {
+		return minX;
+	}
+
+	/**
+	 * @return the largest y coordinate of the chip as of the last update
+	 */
+	int getMaxY() {
+		return maxY;
+	}
+}
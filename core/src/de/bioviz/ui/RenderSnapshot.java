@@ -0,0 +1,458 @@
+/*
+ * BioViz, a visualization tool for digital microfluidic biochips (DMFB).
+ *
+ * Copyright (c) 2017 Oliver Keszocze, Jannis Stoppe, Maximilian Luenert
+ *
+ * This file is part of BioViz.
+ *
+ * BioViz is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * BioViz is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * See the GNU General Public License for more details. You should have
+ * received a copy of the GNU
+ * General Public License along with BioViz.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.bioviz.ui;
+
+import de.bioviz.structures.Biochip;
+import de.bioviz.structures.BiochipField;
+import de.bioviz.structures.Droplet;
+import de.bioviz.structures.FluidicConstraintViolation;
+import de.bioviz.structures.Net;
+import de.bioviz.structures.Point;
+import de.bioviz.structures.Rectangle;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+import static de.bioviz.ui.BDisplayOptions.Adjacency;
+import static de.bioviz.ui.BDisplayOptions.InterferenceRegion;
+import static de.bioviz.ui.BDisplayOptions.LingeringInterferenceRegions;
+import static de.bioviz.ui.BDisplayOptions.MovementNeighbourhood;
+import static de.bioviz.ui.BDisplayOptions.NetColorOnFields;
+
+/**
+ * Collects the information the {@link DrawableField}s need to compute their
+ * colors for a single time step.
+ * <p>
+ * Without this class, every field would have to look at all droplets, nets
+ * and fluidic constraint violations on its own, every frame. Instead, the
+ * snapshot walks these structures once and stores the per-cell results in
+ * arrays spanning the bounding box of the chip. The fields then only do
+ * constant time lookups.
+ * <p>
+ * Only the information required by the enabled display options is computed.
+ * A snapshot is therefore only valid for the time step and the display
+ * options it was created for; {@link DrawableAssay#getRenderSnapshot()}
+ * takes care of creating a new one when either of them changes.
+ *
+ * @author agent
+ */
+final class RenderSnapshot {
+
+	/**
+	 * The time step this snapshot was created for.
+	 */
+	private final int timeStep;
+
+	/**
+	 * The display options this snapshot was created for.
+	 */
+	private final DisplayOptions options;
+
+	/**
+	 * The smallest x coordinate of the chip.
+	 */
+	private final int minX;
+
+	/**
+	 * The smallest y coordinate of the chip.
+	 */
+	private final int minY;
+
+	/**
+	 * The width of the bounding box of the chip.
+	 */
+	private final int width;
+
+	/**
+	 * The height of the bounding box of the chip.
+	 */
+	private final int height;
+
+	/**
+	 * Per cell, the number of pairs of droplets from different nets whose
+	 * interference regions overlap in that cell.
+	 */
+	private int[] interferenceOverlaps = null;
+
+	/**
+	 * Per cell, the number of interference regions that do not overlap with
+	 * the region of a droplet from another net.
+	 */
+	private int[] interferenceRegions = null;
+
+	/**
+	 * The cells that can be reached by a droplet within one time step.
+	 */
+	private BitSet reachable = null;
+
+	/**
+	 * The cells that are involved in a fluidic constraint violation.
+	 */
+	private BitSet violations = null;
+
+	/**
+	 * Per cell, the nets whose bounding box contains the cell.
+	 */
+	private List<List<Net>> nets = null;
+
+	/**
+	 * Creates the snapshot for a time step.
+	 *
+	 * @param chip
+	 * 		The chip that is drawn
+	 * @param timeStep
+	 * 		The time step that is drawn
+	 * @param options
+	 * 		The display options determining what information is needed
+	 */
+	RenderSnapshot(final Biochip chip,
+				   final int timeStep,
+				   final DisplayOptions options) {
+		this.timeStep = timeStep;
+		this.options = options;
+
+		Point min = chip.getMinCoord();
+		Point max = chip.getMaxCoord();
+		minX = min.fst;
+		minY = min.snd;
+		width = Math.max(0, max.fst - minX + 1);
+		height = Math.max(0, max.snd - minY + 1);
+
+		if (options.getOption(InterferenceRegion)) {
+			computeInterferenceRegions(
+					chip, options.getOption(LingeringInterferenceRegions));
+		}
+		if (options.getOption(MovementNeighbourhood)) {
+			computeReachable(chip);
+		}
+		if (options.getOption(Adjacency)) {
+			computeViolations(chip);
+		}
+		if (options.getOption(NetColorOnFields)) {
+			computeNets(chip);
+		}
+	}
+
+	/**
+	 * @return The time step this snapshot was created for.
+	 */
+	int getTimeStep() {
+		return timeStep;
+	}
+
+	/**
+	 * @return The display options this snapshot was created for.
+	 */
+	DisplayOptions getDisplayOptions() {
+		return options;
+	}
+
+	/**
+	 * Computes the index of a cell within the arrays of this snapshot.
+	 *
+	 * @param x
+	 * 		x coordinate of the cell
+	 * @param y
+	 * 		y coordinate of the cell
+	 * @return The index of the cell or -1 if it lies outside of the chip
+	 */
+	private int index(final int x, final int y) {
+		int dx = x - minX;
+		int dy = y - minY;
+		if (dx < 0 || dy < 0 || dx >= width || dy >= height) {
+			return -1;
+		}
+		return dy * width + dx;
+	}
+
+	/**
+	 * Returns the number of pairs of droplets from different nets whose
+	 * interference regions overlap in a cell.
+	 *
+	 * @param x
+	 * 		x coordinate of the cell
+	 * @param y
+	 * 		y coordinate of the cell
+	 * @return The number of overlapping pairs, zero if the interference
+	 * regions were not computed
+	 */
+	int interferenceOverlaps(final int x, final int y) {
+		int i = index(x, y);
+		return interferenceOverlaps == null || i < 0 ? 0 :
+			   interferenceOverlaps[i];
+	}
+
+	/**
+	 * Returns the number of interference regions covering a cell that do not
+	 * overlap with the region of a droplet from another net.
+	 *
+	 * @param x
+	 * 		x coordinate of the cell
+	 * @param y
+	 * 		y coordinate of the cell
+	 * @return The number of interference regions, zero if the interference
+	 * regions were not computed
+	 */
+	int interferenceRegions(final int x, final int y) {
+		int i = index(x, y);
+		return interferenceRegions == null || i < 0 ? 0 :
+			   interferenceRegions[i];
+	}
+
+	/**
+	 * Checks whether a cell can be reached by a droplet within one time step.
+	 *
+	 * @param x
+	 * 		x coordinate of the cell
+	 * @param y
+	 * 		y coordinate of the cell
+	 * @return true if the cell is reachable, false if it is not or if the
+	 * reachable cells were not computed
+	 */
+	boolean isReachable(final int x, final int y) {
+		int i = index(x, y);
+		return reachable != null && i >= 0 && reachable.get(i);
+	}
+
+	/**
+	 * Checks whether a cell is involved in a fluidic constraint violation.
+	 *
+	 * @param x
+	 * 		x coordinate of the cell
+	 * @param y
+	 * 		y coordinate of the cell
+	 * @return true if the cell is part of a violation, false if it is not or
+	 * if the violations were not computed
+	 */
+	boolean isViolated(final int x, final int y) {
+		int i = index(x, y);
+		return violations != null && i >= 0 && violations.get(i);
+	}
+
+	/**
+	 * Returns the nets a cell belongs to.
+	 *
+	 * @param x
+	 * 		x coordinate of the cell
+	 * @param y
+	 * 		y coordinate of the cell
+	 * @return The nets of the cell, empty if there are none or if the nets
+	 * were not computed
+	 */
+	List<Net> netsAt(final int x, final int y) {
+		int i = index(x, y);
+		if (nets == null || i < 0 || nets.get(i) == null) {
+			return Collections.emptyList();
+		}
+		return nets.get(i);
+	}
+
+	/**
+	 * Computes the number of overlapping and non-overlapping interference
+	 * regions for every cell.
+	 * <p>
+	 * The droplets covering a cell with their interference region are
+	 * considered in the iteration order of the droplets of the chip. A region
+	 * is counted as non-overlapping if none of the droplets following it in
+	 * that order belongs to a different net.
+	 *
+	 * @param chip
+	 * 		The chip that is drawn
+	 * @param lingering
+	 * 		Whether the regions of the previous time step are considered, too
+	 */
+	private void computeInterferenceRegions(final Biochip chip,
+											final boolean lingering) {
+		List<List<Droplet>> regions =
+				new ArrayList<>(Collections.nCopies(width * height, null));
+		int[] curr = new int[Droplet.COORDS_PER_POSITION];
+		int[] prev = new int[Droplet.COORDS_PER_POSITION];
+
+		for (final Droplet d : chip.getDroplets()) {
+			boolean hasCurr = d.getPositionAt(timeStep, curr);
+			boolean hasPrev = lingering && d.getPositionAt(timeStep - 1, prev);
+			if (hasCurr) {
+				addToRegion(regions, d, curr, null);
+			}
+			if (hasPrev) {
+				addToRegion(regions, d, prev, hasCurr ? curr : null);
+			}
+		}
+
+		interferenceOverlaps = new int[width * height];
+		interferenceRegions = new int[width * height];
+		for (int i = 0; i < regions.size(); i++) {
+			List<Droplet> drops = regions.get(i);
+			if (drops == null) {
+				continue;
+			}
+			for (int j = 0; j < drops.size(); j++) {
+				boolean overlapping = false;
+				for (int k = j + 1; k < drops.size(); k++) {
+					if (!chip.sameNet(drops.get(j), drops.get(k))) {
+						interferenceOverlaps[i]++;
+						overlapping = true;
+					}
+				}
+				if (!overlapping) {
+					interferenceRegions[i]++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds a droplet to all cells adjacent to one of its positions.
+	 *
+	 * @param regions
+	 * 		The droplets per cell
+	 * @param d
+	 * 		The droplet to add
+	 * @param pos
+	 * 		The coordinates of the position of the droplet
+	 * @param skip
+	 * 		The coordinates of a position whose adjacent cells already contain
+	 * 		the droplet, may be null
+	 */
+	private void addToRegion(final List<List<Droplet>> regions,
+							 final Droplet d,
+							 final int[] pos,
+							 final int[] skip) {
+		for (int x = pos[Droplet.MIN_X] - 1; x <= pos[Droplet.MAX_X] + 1;
+			 x++) {
+			for (int y = pos[Droplet.MIN_Y] - 1; y <= pos[Droplet.MAX_Y] + 1;
+				 y++) {
+				int i = index(x, y);
+				if (i < 0 || (skip != null && adjacent(skip, x, y))) {
+					continue;
+				}
+				if (regions.get(i) == null) {
+					regions.set(i, new ArrayList<>());
+				}
+				regions.get(i).add(d);
+			}
+		}
+	}
+
+	/**
+	 * Checks whether a cell is adjacent to a droplet position.
+	 *
+	 * @param pos
+	 * 		The coordinates of the droplet position
+	 * @param x
+	 * 		x coordinate of the cell
+	 * @param y
+	 * 		y coordinate of the cell
+	 * @return true if the cell is adjacent to the position
+	 */
+	private static boolean adjacent(final int[] pos, final int x,
+									final int y) {
+		return pos[Droplet.MIN_X] - 1 <= x && x <= pos[Droplet.MAX_X] + 1 &&
+			   pos[Droplet.MIN_Y] - 1 <= y && y <= pos[Droplet.MAX_Y] + 1;
+	}
+
+	/**
+	 * Computes the cells that can be reached by a droplet within one time
+	 * step.
+	 *
+	 * @param chip
+	 * 		The chip that is drawn
+	 */
+	private void computeReachable(final Biochip chip) {
+		reachable = new BitSet(width * height);
+		int[] pos = new int[Droplet.COORDS_PER_POSITION];
+		for (final Droplet d : chip.getDroplets()) {
+			if (!d.getPositionAt(timeStep, pos)) {
+				continue;
+			}
+			Rectangle r = new Rectangle(
+					pos[Droplet.MIN_X], pos[Droplet.MIN_Y],
+					pos[Droplet.MAX_X], pos[Droplet.MAX_Y]);
+			for (int x = r.minX - 1; x <= r.maxX + 1; x++) {
+				for (int y = r.minY - 1; y <= r.maxY + 1; y++) {
+					int i = index(x, y);
+					if (i >= 0 && r.reachable(x, y)) {
+						reachable.set(i);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Computes the cells that are involved in fluidic constraint violations.
+	 *
+	 * @param chip
+	 * 		The chip that is drawn
+	 */
+	private void computeViolations(final Biochip chip) {
+		violations = new BitSet(width * height);
+		for (final FluidicConstraintViolation v :
+				chip.getAdjacentActivations()) {
+			markViolated(v.f1);
+			markViolated(v.f2);
+		}
+	}
+
+	/**
+	 * Marks a field as being involved in a violation.
+	 *
+	 * @param f
+	 * 		The field to mark, may be null
+	 */
+	private void markViolated(final BiochipField f) {
+		if (f != null) {
+			int i = index(f.x(), f.y());
+			if (i >= 0) {
+				violations.set(i);
+			}
+		}
+	}
+
+	/**
+	 * Computes which cells belong to which nets.
+	 *
+	 * @param chip
+	 * 		The chip that is drawn
+	 */
+	private void computeNets(final Biochip chip) {
+		nets = new ArrayList<>(Collections.nCopies(width * height, null));
+		for (final Net n : chip.getNets()) {
+			Rectangle box = n.getBoundingBox();
+			for (int x = box.minX; x <= box.maxX; x++) {
+				for (int y = box.minY; y <= box.maxY; y++) {
+					int i = index(x, y);
+					if (i < 0) {
+						continue;
+					}
+					if (nets.get(i) == null) {
+						nets.set(i, new ArrayList<>());
+					}
+					nets.get(i).add(n);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,264 @@
+/*
+ * BioViz, a visualization tool for digital microfluidic biochips (DMFB).
+ *
+ * Copyright (c) 2017 Oliver Keszocze, Jannis Stoppe, Maximilian Luenert
+ *
+ * This file is part of BioViz.
+ *
+ * BioViz is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * BioViz is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * See the GNU General Public License for more details. You should have
+ * received a copy of the GNU
+ * General Public License along with BioViz.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.bioviz.ui;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.math.Matrix4;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the fields of an assay rendered in an off-screen frame buffer.
+ * <p>
+ * The fields are the bottom-most layer of the visualization and usually do
+ * not change from one frame to the next. Instead of drawing every field in
+ * every frame, the fields are drawn into a frame buffer once and the frame
+ * buffer is then drawn as a single screen-sized sprite. Only the draw calls
+ * at the depth of the fields are captured. The sprite is drawn behind
+ * everything else, so the droplets, routes and anything drawn at or below
+ * the depth of the fields still appear on top of it.
+ * <p>
+ * The layer becomes invalid when the camera or the size of the window
+ * changes, and whenever the owner calls {@link #invalidate()} (e.g. when the
+ * display options, the hovered field or, for fields depending on the time
+ * step, the time step change). As the layer is kept in screen coordinates,
+ * it is then rendered again as a whole: while panning or zooming, the layer
+ * thus saves nothing. If frame buffers are not supported, the layer disables
+ * itself and the fields are drawn directly.
+ *
+ * @author agent
+ */
+final class StaticLayer {
+
+	/**
+	 * The logger for this class.
+	 */
+	private static final Logger LOGGER =
+			LoggerFactory.getLogger(StaticLayer.class);
+
+	/**
+	 * The color the frame buffer is cleared with. This matches the background
+	 * of the visualization.
+	 */
+	private static final Color BACKGROUND = Color.WHITE;
+
+	/**
+	 * The depth of the draw calls that are captured.
+	 */
+	private static final float FIELD_DEPTH = DisplayValues.DEFAULT_FIELD_DEPTH;
+
+	/**
+	 * The depth the captured fields are drawn at. As the sprite is opaque and
+	 * covers the whole screen, it has to be drawn before anything else.
+	 */
+	private static final float LAYER_DEPTH = -Float.MAX_VALUE;
+
+	/**
+	 * The frame buffer holding the rendered fields.
+	 */
+	private FrameBuffer frameBuffer = null;
+
+	/**
+	 * The sprite drawing the contents of the frame buffer to the screen.
+	 */
+	private Sprite sprite = null;
+
+	/**
+	 * The projection mapping the sprite onto the whole screen.
+	 */
+	private final Matrix4 projection = new Matrix4();
+
+	/**
+	 * Whether the frame buffer contains the current state of the fields.
+	 */
+	private boolean valid = false;
+
+	/**
+	 * Whether frame buffers can be used at all.
+	 */
+	private boolean enabled = true;
+
+	/**
+	 * The scaling factor the fields were rendered with.
+	 */
+	private float scale = Float.NaN;
+
+	/**
+	 * The x offset the fields were rendered with.
+	 */
+	private float offsetX = Float.NaN;
+
+	/**
+	 * The y offset the fields were rendered with.
+	 */
+	private float offsetY = Float.NaN;
+
+	/**
+	 * Marks the rendered fields as outdated.
+	 */
+	void invalidate() {
+		valid = false;
+	}
+
+	/**
+	 * @return false if frame buffers are not supported and the fields have to
+	 * be drawn directly.
+	 */
+	boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Checks whether the rendered fields can be reused.
+	 *
+	 * @param currentScale
+	 * 		The current scaling factor of the assay
+	 * @param currentOffsetX
+	 * 		The current x offset of the assay
+	 * @param currentOffsetY
+	 * 		The current y offset of the assay
+	 * @return true if the frame buffer shows the fields as they would be
+	 * drawn right now
+	 */
+	boolean isValid(final float currentScale,
+					final float currentOffsetX,
+					final float currentOffsetY) {
+		return enabled && valid && frameBuffer != null &&
+			   frameBuffer.getWidth() == Gdx.graphics.getWidth() &&
+			   frameBuffer.getHeight() == Gdx.graphics.getHeight() &&
+			   scale == currentScale &&
+			   offsetX == currentOffsetX &&
+			   offsetY == currentOffsetY;
+	}
+
+	/**
+	 * Renders the field draw calls recorded since the given mark into the
+	 * frame buffer.
+	 * <p>
+	 * Draw calls at other depths than the one of the fields are left in the
+	 * batch to be drawn directly. If the frame buffer can not be created, the
+	 * layer is disabled and all draw calls are left in the batch.
+	 *
+	 * @param batch
+	 * 		The batch the fields were drawn with
+	 * @param mark
+	 * 		The mark obtained from the batch before drawing the fields
+	 * @param currentScale
+	 * 		The scaling factor the fields were drawn with
+	 * @param currentOffsetX
+	 * 		The x offset the fields were drawn with
+	 * @param currentOffsetY
+	 * 		The y offset the fields were drawn with
+	 * @param settled
+	 * 		Whether the fields are done changing their colors. If not, the
+	 * 		layer stays invalid and is rendered again in the next frame.
+	 */
+	void capture(final BioVizSpriteBatch batch,
+				 final int mark,
+				 final float currentScale,
+				 final float currentOffsetX,
+				 final float currentOffsetY,
+				 final boolean settled) {
+		if (!ensureFrameBuffer()) {
+			return;
+		}
+		batch.flushTo(mark, FIELD_DEPTH, frameBuffer, BACKGROUND);
+		scale = currentScale;
+		offsetX = currentOffsetX;
+		offsetY = currentOffsetY;
+		valid = settled;
+	}
+
+	/**
+	 * Draws the rendered fields behind everything else.
+	 *
+	 * @param batch
+	 * 		The batch to draw with
+	 */
+	void draw(final BioVizSpriteBatch batch) {
+		if (enabled && frameBuffer != null) {
+			batch.draw(sprite, projection, LAYER_DEPTH);
+		}
+	}
+
+	/**
+	 * Releases the frame buffer.
+	 */
+	void dispose() {
+		if (frameBuffer != null) {
+			frameBuffer.dispose();
+			frameBuffer = null;
+			sprite = null;
+		}
+		valid = false;
+	}
+
+	/**
+	 * Makes sure that there is a frame buffer matching the size of the
+	 * window.
+	 *
+	 * @return true if the frame buffer is available
+	 */
+	private boolean ensureFrameBuffer() {
+		int width = Gdx.graphics.getWidth();
+		int height = Gdx.graphics.getHeight();
+		if (frameBuffer != null && frameBuffer.getWidth() == width &&
+			frameBuffer.getHeight() == height) {
+			return true;
+		}
+		dispose();
+		if (width <= 0 || height <= 0) {
+			return false;
+		}
+
+		try {
+			/*
+			The fields cover the whole background, thus there is no need for
+			an alpha channel. Without it, the sprite is opaque and blending it
+			onto the screen reproduces exactly what the fields would have
+			looked like if drawn directly.
+			 */
+			frameBuffer =
+					new FrameBuffer(Pixmap.Format.RGB888, width, height, false);
+		} catch (final IllegalStateException e) {
+			LOGGER.warn("Could not create frame buffer, drawing fields " +
+						"directly: {}", e.getMessage());
+			enabled = false;
+			return false;
+		}
+
+		TextureRegion region =
+				new TextureRegion(frameBuffer.getColorBufferTexture());
+		// frame buffer textures are upside down
+		region.flip(false, true);
+		sprite = new Sprite(region);
+		sprite.setBounds(0, 0, width, height);
+		projection.setToOrtho2D(0, 0, width, height);
+		return true;
+	}
+}
@@ -25,11 +25,19 @@ package de.bioviz.ui;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.files.FileHandle;
-import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Pixmap.Format;
 import com.badlogic.gdx.graphics.Texture.TextureFilter;
+import com.badlogic.gdx.graphics.g2d.PixmapPacker;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,8 +46,13 @@ import org.slf4j.LoggerFactory;
  * @author Oliver Keszocze
  *         <p/>
  *         This class manages texture themes. One can specify a folder in which
- *         the png files that are loaded as textures are stored. These images
- *         are thenn either loaded on demand or returned from the cache.
+ *         the png files that are loaded as textures are stored.
+ *         <p/>
+ *         All images of a theme are packed into a texture atlas, i.e. into as
+ *         few large textures as possible, so that drawing a frame only needs a
+ *         handful of texture switches. The images are decoded and packed on a
+ *         background thread (see {@link #preload()}); only the upload of the
+ *         atlas pages to the graphics card happens on the rendering thread.
  */
 public class TextureManager {
 	/**
@@ -48,7 +61,25 @@ public class TextureManager {
 	static Logger logger = LoggerFactory.getLogger(TextureManager.class);
 
 	/**
-	 * Maps the texture types (e.g. sink) to the corresponding textures
+	 * The width of an atlas page in pixels.
+	 */
+	private static final int PAGE_WIDTH = 2048;
+
+	/**
+	 * The height of an atlas page in pixels.
+	 */
+	private static final int PAGE_HEIGHT = 1024;
+
+	/**
+	 * The space between two images of an atlas page in pixels.
+	 * <p/>
+	 * As the atlas pages are mipmapped, the images need some space to
+	 * prevent them from bleeding into each other when zoomed out.
+	 */
+	private static final int PADDING = 4;
+
+	/**
+	 * Maps the texture types (e.g. sink) to their regions within the atlas.
 	 */
 	private HashMap<TextureE, TextureRegion> textures = new HashMap<>();
 
@@ -74,6 +105,22 @@ public class TextureManager {
 	 */
 	private final String baseFolder = "images";
 
+	/**
+	 * The atlas containing all textures, null if it has not been created yet.
+	 */
+	private TextureAtlas atlas;
+
+	/**
+	 * Decodes and packs the images of the theme, null if this has not been
+	 * started yet.
+	 */
+	private FutureTask<PixmapPacker> packing;
+
+	/**
+	 * The number of images that have been packed by the current packing task.
+	 */
+	private final AtomicInteger packedImages = new AtomicInteger();
+
 
 	/**
 	 * TextureManager loading the theme at the specified location.
@@ -109,7 +156,7 @@ public class TextureManager {
 	 * @warning The folder name must not begin or end with a slash!
 	 */
 	public void setFolder(final String folder) {
-		textures.clear();
+		dispose();
 
 		textureFolder = folder;
 		for (final TextureE t : TextureE.values()) {
@@ -133,34 +180,133 @@ public class TextureManager {
 
 
 	/**
-	 * Returns the texture for the given texture name.
+	 * Starts loading the textures in the background.
+	 * <p/>
+	 * The images are decoded and packed into atlas pages by a separate
+	 * thread. Calling this method again while the textures are loading or
+	 * after they have been loaded does nothing.
+	 */
+	public synchronized void preload() {
+		if (packing != null) {
+			return;
+		}
+		final Map<TextureE, String> files = new EnumMap<>(TextureE.class);
+		files.putAll(textureFileNames);
+		packedImages.set(0);
+		packing = new FutureTask<>(() -> packImages(files));
+		Thread loader = new Thread(packing, "BioViz texture loader");
+		loader.setDaemon(true);
+		loader.start();
+	}
+
+	/**
+	 * Decodes the images of the theme and packs them into atlas pages.
+	 * <p/>
+	 * This does not access the graphics card and may therefore run on any
+	 * thread.
 	 *
-	 * @param texture The name of the texture to receive
-	 * @return The Texture(Region) of the requested texture
+	 * @param files The images to pack, mapped from their texture types
+	 * @return The packer containing the atlas pages
+	 */
+	private PixmapPacker packImages(final Map<TextureE, String> files) {
+		PixmapPacker packer = new PixmapPacker(
+				PAGE_WIDTH, PAGE_HEIGHT, Format.RGBA8888, PADDING, true);
+		for (final Map.Entry<TextureE, String> file : files.entrySet()) {
+			Pixmap image = new Pixmap(Gdx.files.internal(file.getValue()));
+			packer.pack(file.getKey().name(), image);
+			image.dispose();
+			packedImages.incrementAndGet();
+		}
+		return packer;
+	}
+
+	/**
+	 * Continues loading the textures.
 	 * <p/>
-	 * The texture is loaded if not already in memory.
+	 * Once all images have been packed, the atlas pages are uploaded. This
+	 * method must therefore be called from the rendering thread. It does not
+	 * block while the images are still being packed.
+	 *
+	 * @return true if all textures are available
 	 */
-	public TextureRegion getTexture(final TextureE texture) {
+	public boolean update() {
+		if (atlas != null) {
+			return true;
+		}
+		preload();
+		if (!packing.isDone()) {
+			return false;
+		}
+		createAtlas();
+		return true;
+	}
 
+	/**
+	 * Returns how much of the textures has been loaded.
+	 *
+	 * @return The loaded share of the textures (between 0 and 1)
+	 */
+	public float getProgress() {
+		if (atlas != null) {
+			return 1f;
+		}
+		// the upload of the atlas is counted as one more step
+		return packedImages.get() / (textureFileNames.size() + 1f);
+	}
 
-		if (textures.containsKey(texture)) {
-			return textures.get(texture);
-		} else {
+	/**
+	 * Creates the atlas from the packed images.
+	 * <p/>
+	 * If the images are still being packed, this waits for the packing to
+	 * finish.
+	 */
+	private void createAtlas() {
+		preload();
+		PixmapPacker packer;
+		try {
+			packer = packing.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while loading textures",
+									   e);
+		} catch (final ExecutionException e) {
+			throw new RuntimeException(
+					"Could not load the textures of theme " + textureFolder,
+					e.getCause());
+		}
 
-			if (!textureFileNames.containsKey(texture)) {
-				throw new RuntimeException(
-						"Texture " + texture + " has no associated filename");
-			}
+		atlas = packer.generateTextureAtlas(
+				TextureFilter.MipMapLinearLinear, TextureFilter.Linear, true);
+		packer.dispose();
 
-			Texture t = new Texture(
-					Gdx.files.internal(textureFileNames.get(texture)), true);
-			t.setFilter(TextureFilter.MipMapLinearLinear, TextureFilter
-					.Linear);
-			TextureRegion region =
-					new TextureRegion(t, 0, 0, t.getWidth(), t.getHeight());
-			textures.put(texture, region);
-			return region;
+		for (final TextureE t : textureFileNames.keySet()) {
+			textures.put(t, atlas.findRegion(t.name()));
 		}
+		logger.debug("Packed " + textures.size() + " textures into " +
+				atlas.getTextures().size + " atlas page(s)");
+	}
+
+
+	/**
+	 * Returns the texture for the given texture name.
+	 *
+	 * @param texture The name of the texture to receive
+	 * @return The region of the requested texture within the atlas
+	 * <p/>
+	 * If the textures have not been loaded yet, this waits for them to be
+	 * loaded.
+	 */
+	public TextureRegion getTexture(final TextureE texture) {
+		if (atlas == null) {
+			createAtlas();
+		}
+
+		TextureRegion region = textures.get(texture);
+		if (region == null) {
+			throw new RuntimeException(
+					"Texture " + texture + " has no associated filename");
+		}
+		return region;
 	}
 
 	/**
@@ -174,13 +320,17 @@ public class TextureManager {
 	}
 
 	/**
-	 * Disposes all TextureRegions.
+	 * Disposes the texture atlas.
 	 *
-	 * All regions that are  stored in this.textures are disposed.
+	 * All regions that are stored in this.textures become invalid. Requesting
+	 * a texture afterwards loads the textures again.
 	 */
-	void dispose() {
-		for (final TextureRegion tr : this.textures.values()) {
-			tr.getTexture().dispose();
+	synchronized void dispose() {
+		if (atlas != null) {
+			atlas.dispose();
+			atlas = null;
 		}
+		textures.clear();
+		packing = null;
 	}
 }
@@ -0,0 +1,186 @@
+/*
+ * BioViz, a visualization tool for digital microfluidic biochips (DMFB).
+ *
+ * Copyright (c) 2017 Oliver Keszocze, Jannis Stoppe, Maximilian Luenert
+ *
+ * This file is part of BioViz.
+ *
+ * BioViz is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * BioViz is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * See the GNU General Public License for more details. You should have
+ * received a copy of the GNU
+ * General Public License along with BioViz.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.bioviz.util;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Provides the thread pool used for validating biochips.
+ * <p>
+ * The fluidic constraint checks and the route validations split their work
+ * into independent chunks (time steps or droplets) that are executed on a
+ * shared {@link ForkJoinPool}. The amount of threads of that pool can be
+ * configured via {@link #setParallelism(int)}; a parallelism of one results
+ * in all checks being run one after another.
+ *
+ * @author agent
+ */
+public final class ValidationPool {
+
+	/**
+	 * The amount of threads used for validation.
+	 */
+	private static int parallelism =
+			Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * The pool executing the validation tasks.
+	 * <p>
+	 * It is created lazily and replaced whenever the parallelism changes.
+	 */
+	private static ForkJoinPool pool = null;
+
+	/**
+	 * The number of jobs currently running on each pool.
+	 * <p>
+	 * A pool that has been replaced is only shut down once its last job has
+	 * finished, so that jobs that already obtained it can still submit
+	 * their work.
+	 */
+	private static final Map<ForkJoinPool, Integer> users =
+			new IdentityHashMap<>();
+
+	/**
+	 * Prevent instantiation of this class.
+	 */
+	private ValidationPool() {
+	}
+
+	/**
+	 * Returns the amount of threads used for validation.
+	 *
+	 * @return The amount of threads used for validation.
+	 */
+	public static synchronized int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Sets the amount of threads used for validation.
+	 * <p>
+	 * The default is the number of available processors. Jobs that are
+	 * already running finish on the previous pool, which is shut down
+	 * afterwards.
+	 *
+	 * @param threads
+	 * 		The new amount of threads, must be positive.
+	 * @throws IllegalArgumentException
+	 * 		if threads is smaller than one
+	 */
+	public static synchronized void setParallelism(final int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException(
+					"Parallelism must be positive but was " + threads);
+		}
+		if (threads != parallelism) {
+			parallelism = threads;
+			if (pool != null) {
+				ForkJoinPool old = pool;
+				pool = new ForkJoinPool(parallelism);
+				if (!users.containsKey(old)) {
+					old.shutdown();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the pool executing the validation tasks and registers a job
+	 * running on it.
+	 * <p>
+	 * Every call has to be matched by a call to
+	 * {@link #release(ForkJoinPool)}.
+	 *
+	 * @return The pool executing the validation tasks.
+	 */
+	private static synchronized ForkJoinPool acquire() {
+		if (pool == null) {
+			pool = new ForkJoinPool(parallelism);
+		}
+		users.merge(pool, 1, Integer::sum);
+		return pool;
+	}
+
+	/**
+	 * Unregisters a job that was running on a pool.
+	 * <p>
+	 * If the pool has been replaced in the meantime and this was its last
+	 * job, the pool is shut down.
+	 *
+	 * @param p
+	 * 		The pool the job was running on
+	 */
+	private static synchronized void release(final ForkJoinPool p) {
+		int remaining = users.merge(p, -1, Integer::sum);
+		if (remaining == 0) {
+			users.remove(p);
+			if (p != pool) {
+				p.shutdown();
+			}
+		}
+	}
+
+	/**
+	 * Executes a fork/join task and waits for its result.
+	 *
+	 * @param task
+	 * 		The task to execute
+	 * @param <T>
+	 * 		The result type of the task
+	 * @return The result of the task
+	 */
+	public static <T> T invoke(final ForkJoinTask<T> task) {
+		ForkJoinPool p = acquire();
+		try {
+			return p.invoke(task);
+		} finally {
+			release(p);
+		}
+	}
+
+	/**
+	 * Executes a job within the validation pool and waits for its result.
+	 * <p>
+	 * This is meant for jobs using parallel streams: these streams are then
+	 * processed by the threads of the validation pool instead of the common
+	 * pool.
+	 *
+	 * @param job
+	 * 		The job to execute
+	 * @param <T>
+	 * 		The result type of the job
+	 * @return The result of the job
+	 */
+	public static <T> T call(final Callable<T> job) {
+		ForkJoinPool p = acquire();
+		try {
+			return p.submit(job).join();
+		} finally {
+			release(p);
+		}
+	}
+}
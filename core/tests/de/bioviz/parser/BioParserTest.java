@@ -0,0 +1,238 @@
+/*
+ * BioViz, a visualization tool for digital microfluidic biochips (DMFB).
+ *
+ * Copyright (c) 2017 Oliver Keszocze, Jannis Stoppe, Maximilian Luenert
+ *
+ * This file is part of BioViz.
+ *
+ * BioViz is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * BioViz is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * See the GNU General Public License for more details. You should have
+ * received a copy of the GNU
+ * General Public License along with BioViz.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.bioviz.parser;
+
+import de.bioviz.structures.Biochip;
+import de.bioviz.structures.BiochipField;
+import de.bioviz.structures.Droplet;
+import de.bioviz.structures.Net;
+import de.bioviz.structures.Point;
+import de.bioviz.structures.Source;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that the streaming parse mode reads the same biochips as the
+ * classic one.
+ *
+ * @author agent
+ */
+public class BioParserTest {
+
+	/**
+	 * The directory containing the bundled BioGram files.
+	 */
+	private static final Path ASSETS = Paths.get("assets");
+
+	/**
+	 * Both parse modes read every bundled file into the same biochip.
+	 *
+	 * @throws IOException
+	 * 		if the bundled files cannot be listed
+	 */
+	@Test
+	public void streamingMatchesClassicOnBundledFiles() throws IOException {
+		List<File> files;
+		try (Stream<Path> paths = Files.walk(ASSETS)) {
+			files = paths.filter(p -> p.toString().endsWith(".bio"))
+					.map(Path::toFile)
+					.sorted()
+					.collect(Collectors.toList());
+		}
+		assertFalse(files.isEmpty());
+
+		for (final File file : files) {
+			Biochip classic = BioParser.parseFile(file);
+			Biochip streamed = BioParser.parseFileStreaming(file);
+			assertNotNull(file.toString(), classic);
+			assertNotNull(file.toString(), streamed);
+			assertEquals(file.toString(), classic.hardErrors.isEmpty(),
+						 streamed.hardErrors.isEmpty());
+			if (classic.hardErrors.isEmpty()) {
+				assertEquals(file.toString(),
+							 describe(classic), describe(streamed));
+			}
+		}
+	}
+
+	/**
+	 * Comments are skipped and annotations are collected while streaming.
+	 *
+	 * @throws IOException
+	 * 		if the temporary file cannot be written
+	 */
+	@Test
+	public void streamingSkipsCommentsAndKeepsAnnotations()
+			throws IOException {
+		File file = File.createTempFile("annotated", ".bio");
+		file.deleteOnExit();
+		String content = "# a comment\n" +
+						 "#! an annotation\n" +
+						 "grid\n" +
+						 "# a comment inside a block\n" +
+						 "(1,1) (3,2)\n" +
+						 "end\n" +
+						 "#! another annotation\n";
+		Files.write(file.toPath(), content.getBytes("UTF-8"));
+
+		Biochip classic = BioParser.parse(content);
+		Biochip streamed = BioParser.parseFileStreaming(file);
+
+		assertTrue(streamed.hardErrors.toString(),
+				   streamed.hardErrors.isEmpty());
+		assertEquals(2, streamed.getAnnotations().size());
+		assertEquals(classic.getAnnotations(), streamed.getAnnotations());
+		assertEquals(describe(classic), describe(streamed));
+	}
+
+	/**
+	 * A syntax error is reported as a hard error instead of failing the
+	 * streaming parse.
+	 *
+	 * @throws IOException
+	 * 		if the temporary file cannot be written
+	 */
+	@Test
+	public void streamingReportsSyntaxErrors() throws IOException {
+		File file = File.createTempFile("broken", ".bio");
+		file.deleteOnExit();
+		Files.write(file.toPath(), "grid\n(1,1) (\nend\n".getBytes("UTF-8"));
+
+		Biochip streamed = BioParser.parseFileStreaming(file);
+
+		assertNotNull(streamed);
+		assertFalse(streamed.hardErrors.isEmpty());
+	}
+
+	/**
+	 * Renders everything the parser puts into a biochip in a canonical
+	 * order.
+	 *
+	 * @param chip
+	 * 		the biochip to describe
+	 * @return a textual description of the chip
+	 */
+	private static String describe(final Biochip chip) {
+		List<String> lines = new ArrayList<>();
+		lines.add("annotations " + chip.getAnnotations());
+		lines.add("errors " + sorted(chip.errors));
+		lines.add("maxT " + chip.getMaxT());
+
+		List<BiochipField> fields = new ArrayList<>(chip.getAllFields());
+		fields.sort(Comparator.comparingInt(BiochipField::x)
+							.thenComparingInt(BiochipField::y));
+		for (final BiochipField f : fields) {
+			lines.add("field " + f.x() + "," + f.y() + " " +
+					  f.getClass().getSimpleName() + " pin " + f.pin +
+					  " actuations " + f.actVec +
+					  " sources " + f.sourceIDs +
+					  " targets " + f.targetIDs +
+					  " mixers " + f.mixers +
+					  " areas " + f.areaAnnotations +
+					  " resource " + f.hasResource());
+		}
+
+		List<Droplet> droplets = new ArrayList<>(chip.getDroplets());
+		droplets.sort(Comparator.comparingInt(Droplet::getID));
+		for (final Droplet d : droplets) {
+			lines.add("droplet " + d.getID() + " spawn " + d.getSpawnTime() +
+					  " fluid " + chip.fluidID(d.getID()) +
+					  " net " + describe(d.getNet()) +
+					  " route " + d.getPositions());
+		}
+
+		List<String> nets = new ArrayList<>();
+		for (final Net net : chip.getNets()) {
+			nets.add("net " + describe(net));
+		}
+		lines.addAll(sorted(nets));
+
+		lines.add("blockages " + chip.blockages);
+		lines.add("detectors " + chip.detectors.size());
+		lines.add("heaters " + chip.heaters.size());
+		lines.add("magnets " + chip.magnets.size());
+		lines.add("mixers " + chip.mixers);
+		lines.add("areas " + chip.areaAnnotations);
+		lines.add("pins " + chip.pins);
+		lines.add("pin actuations " + chip.pinActuations);
+
+		List<String> cells = new ArrayList<>();
+		for (final Map.Entry<Point, ?> e : chip.cellActuations.entrySet()) {
+			cells.add(e.getKey().fst + "," + e.getKey().snd + " " +
+					  e.getValue());
+		}
+		lines.add("cell actuations " + sorted(cells));
+
+		return String.join("\n", lines);
+	}
+
+	/**
+	 * Renders a net by its target and sources.
+	 *
+	 * @param net
+	 * 		the net to describe, may be null
+	 * @return a textual description of the net
+	 */
+	private static String describe(final Net net) {
+		if (net == null) {
+			return "none";
+		}
+		StringBuilder sb = new StringBuilder();
+		sb.append(net.getTarget());
+		for (final Source s : net.getSources()) {
+			sb.append(' ').append(s.dropletID).append('@')
+					.append(s.startPosition).append('/').append(s.spawnTime);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Copies and sorts a list of strings.
+	 *
+	 * @param strings
+	 * 		the strings to sort
+	 * @return a sorted copy of the strings
+	 */
+	private static List<String> sorted(final List<String> strings) {
+		List<String> copy = new ArrayList<>(strings);
+		Collections.sort(copy);
+		return copy;
+	}
+}
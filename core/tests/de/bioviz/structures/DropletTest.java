@@ -0,0 +1,70 @@
+/*
+ * BioViz, a visualization tool for digital microfluidic biochips (DMFB).
+ *
+ * Copyright (c) 2017 Oliver Keszocze, Jannis Stoppe, Maximilian Luenert
+ *
+ * This file is part of BioViz.
+ *
+ * BioViz is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * BioViz is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * See the GNU General Public License for more details. You should have
+ * received a copy of the GNU
+ * General Public License along with BioViz.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.bioviz.structures;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the storage of droplet routes.
+ *
+ * @author agent
+ */
+public class DropletTest {
+
+	/**
+	 * A route that was trimmed while empty can still be extended.
+	 */
+	@Test
+	public void addPositionAfterTrimmingEmptyRoute() {
+		Droplet d = new Droplet(1, 1);
+		d.trimToSize();
+		d.addPosition(2, 3, 2, 3);
+		assertTrue(d.isPresentAt(1));
+		assertEquals(new Rectangle(2, 3, 2, 3), d.getPositionAt(1));
+	}
+
+	/**
+	 * A trimmed route keeps its positions and can be extended beyond its
+	 * initial capacity.
+	 */
+	@Test
+	public void addPositionAfterTrimming() {
+		final int length = 100;
+		Droplet d = new Droplet(1, 1);
+		d.addPosition(0, 0, 0, 0);
+		d.trimToSize();
+		for (int i = 1; i < length; i++) {
+			d.addPosition(i, 0, i + 1, 1);
+		}
+		assertEquals(new Rectangle(0, 0, 0, 0), d.getPositionAt(1));
+		for (int i = 1; i < length; i++) {
+			assertEquals(new Rectangle(i, 0, i + 1, 1),
+						 d.getPositionAt(i + 1));
+		}
+		assertFalse(d.isPresentAt(length + 1));
+	}
+}
@@ -0,0 +1,279 @@
+/*
+ * BioViz, a visualization tool for digital microfluidic biochips (DMFB).
+ *
+ * Copyright (c) 2017 Oliver Keszocze, Jannis Stoppe, Maximilian Luenert
+ *
+ * This file is part of BioViz.
+ *
+ * BioViz is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * BioViz is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * See the GNU General Public License for more details. You should have
+ * received a copy of the GNU
+ * General Public License along with BioViz.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.bioviz.structures;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the field lookups of a biochip backed by a {@link FieldStore}.
+ *
+ * @author agent
+ */
+public class FieldStoreTest {
+
+	/**
+	 * The side length of the chips used to check the sparse to dense
+	 * transition.
+	 */
+	private static final int GRID = 10;
+
+	/**
+	 * A chip without any fields has none at any position.
+	 */
+	@Test
+	public void emptyChip() {
+		Biochip chip = new Biochip();
+		assertFalse(chip.hasFieldAt(0, 0));
+		assertFalse(chip.hasFieldAt(Integer.MIN_VALUE, Integer.MAX_VALUE));
+		assertFalse(chip.hasFieldAt(new Point(-1, 1)));
+		assertTrue(chip.getAllCoordinates().isEmpty());
+	}
+
+	/**
+	 * Retrieving a field where there is none fails.
+	 */
+	@Test(expected = RuntimeException.class)
+	public void missingField() {
+		Biochip chip = new Biochip();
+		addGrid(chip, 0, 0, 1, 1);
+		chip.getFieldAt(1, 2);
+	}
+
+	/**
+	 * A rectangular grid uses the dense array. The cells around it, also at
+	 * negative and extreme coordinates, have no fields.
+	 */
+	@Test
+	public void rectangularGrid() {
+		Biochip chip = new Biochip();
+		BiochipField[][] grid = addGrid(chip, -3, -2, 2, 1);
+
+		for (int x = -3; x <= 2; x++) {
+			for (int y = -2; y <= 1; y++) {
+				assertSame(grid[x + 3][y + 2], chip.getFieldAt(x, y));
+				assertSame(grid[x + 3][y + 2],
+						   chip.getFieldAt(new Point(x, y)));
+				assertTrue(chip.hasFieldAt(x, y));
+			}
+		}
+
+		int[][] outside = {{-4, 0}, {3, 0}, {0, -3}, {0, 2}, {-4, -3},
+						   {3, 2}, {Integer.MIN_VALUE, 0},
+						   {0, Integer.MAX_VALUE}};
+		for (final int[] c : outside) {
+			assertFalse(chip.hasFieldAt(c[0], c[1]));
+			assertFalse(chip.hasFieldAt(new Point(c[0], c[1])));
+		}
+		assertEquals(new Point(-3, -2), chip.getMinCoord());
+		assertEquals(new Point(2, 1), chip.getMaxCoord());
+		assertEquals(24, chip.getAllCoordinates().size());
+	}
+
+	/**
+	 * The holes of an irregular layout have no fields although they lie
+	 * within the dense array.
+	 */
+	@Test
+	public void irregularLayout() {
+		Biochip chip = new Biochip();
+		// an L shaped chip with a hole in its corner
+		for (int x = 0; x < GRID; x++) {
+			for (int y = 0; y < GRID; y++) {
+				boolean cutOut = x >= 2 && y >= 2;
+				boolean hole = x == 1 && y == 1;
+				if (!cutOut && !hole) {
+					chip.addField(new BiochipField(new Point(x, y), chip));
+				}
+			}
+		}
+
+		assertNotNull(chip.getFieldAt(0, 0));
+		assertNotNull(chip.getFieldAt(GRID - 1, 1));
+		assertNotNull(chip.getFieldAt(1, GRID - 1));
+		assertFalse(chip.hasFieldAt(1, 1));
+		assertFalse(chip.hasFieldAt(2, 2));
+		assertFalse(chip.hasFieldAt(GRID - 1, GRID - 1));
+		assertEquals(new Point(GRID - 1, GRID - 1), chip.getMaxCoord());
+	}
+
+	/**
+	 * Fields far apart from each other are looked up in the map instead of
+	 * a huge array.
+	 */
+	@Test
+	public void sparseLayout() {
+		Biochip chip = new Biochip();
+		BiochipField a = new BiochipField(new Point(-1000, 5), chip);
+		BiochipField b = new BiochipField(new Point(1000, -5), chip);
+		chip.addField(a);
+		chip.addField(b);
+
+		assertSame(a, chip.getFieldAt(-1000, 5));
+		assertSame(b, chip.getFieldAt(new Point(1000, -5)));
+		assertFalse(chip.hasFieldAt(0, 0));
+		assertFalse(chip.hasFieldAt(-1000, -5));
+		assertEquals(new Point(-1000, -5), chip.getMinCoord());
+		assertEquals(new Point(1000, 5), chip.getMaxCoord());
+		assertEquals(new HashSet<>(Arrays.asList(a.pos, b.pos)),
+					 chip.getAllCoordinates());
+	}
+
+	/**
+	 * Only layouts covering a large enough part of their bounding box use
+	 * the dense array.
+	 */
+	@Test
+	public void denseOnlyForCompactLayouts() {
+		Biochip chip = new Biochip();
+		FieldStore grid = new FieldStore();
+		FieldStore ring = new FieldStore();
+		FieldStore distant = new FieldStore();
+		for (int x = 0; x < GRID; x++) {
+			for (int y = 0; y < GRID; y++) {
+				grid.add(new BiochipField(new Point(x, y), chip));
+				if (x == 0 || y == 0 || x == GRID - 1 || y == GRID - 1) {
+					ring.add(new BiochipField(new Point(x, y), chip));
+				}
+			}
+		}
+		distant.add(new BiochipField(new Point(0, 0), chip));
+		distant.add(new BiochipField(new Point(GRID, GRID), chip));
+
+		assertNotNull(grid.get(0, 0));
+		assertNotNull(ring.get(0, 0));
+		assertNotNull(distant.get(0, 0));
+		assertTrue(grid.isDense());
+		assertTrue(ring.isDense());
+		assertFalse(distant.isDense());
+		assertNull(ring.get(1, 1));
+		assertNull(distant.get(1, 1));
+	}
+
+	/**
+	 * A layout that was too sparse for the dense array uses it once enough
+	 * fields were added within its bounding box.
+	 */
+	@Test
+	public void sparseLayoutBecomesDense() {
+		Biochip chip = new Biochip();
+		FieldStore store = new FieldStore();
+		store.add(new BiochipField(new Point(0, 0), chip));
+		store.add(new BiochipField(new Point(GRID - 1, GRID - 1), chip));
+		assertNotNull(store.get(0, 0));
+		assertFalse(store.isDense());
+
+		for (int x = 0; x < GRID; x++) {
+			for (int y = 0; y < GRID; y++) {
+				store.add(new BiochipField(new Point(x, y), chip));
+			}
+		}
+		BiochipField f = store.get(1, 1);
+		assertTrue(store.isDense());
+		assertSame(f, store.get(new Point(1, 1)));
+	}
+
+	/**
+	 * Adding a field at an occupied position replaces the field, no matter
+	 * whether the dense array was built already.
+	 */
+	@Test
+	public void replaceField() {
+		Biochip chip = new Biochip();
+		addGrid(chip, 0, 0, 2, 2);
+
+		BiochipField before = new BiochipField(new Point(1, 1), chip);
+		chip.addField(before);
+		assertSame(before, chip.getFieldAt(1, 1));
+
+		BiochipField after = new BiochipField(new Point(1, 1), chip);
+		chip.addField(after);
+		assertSame(after, chip.getFieldAt(1, 1));
+		assertEquals(9, chip.getAllFields().size());
+	}
+
+	/**
+	 * Fields added outside of the current bounding box are found after the
+	 * dense array was built.
+	 */
+	@Test
+	public void growBoundingBox() {
+		Biochip chip = new Biochip();
+		BiochipField[][] grid = addGrid(chip, 0, 0, 2, 2);
+		assertSame(grid[2][2], chip.getFieldAt(2, 2));
+
+		BiochipField below = new BiochipField(new Point(0, -1), chip);
+		BiochipField right = new BiochipField(new Point(3, 2), chip);
+		chip.addField(below);
+		chip.addField(right);
+
+		assertSame(below, chip.getFieldAt(0, -1));
+		assertSame(right, chip.getFieldAt(3, 2));
+		assertSame(grid[0][0], chip.getFieldAt(0, 0));
+		assertSame(grid[2][2], chip.getFieldAt(2, 2));
+		assertFalse(chip.hasFieldAt(3, -1));
+		assertEquals(new Point(0, -1), chip.getMinCoord());
+		assertEquals(new Point(3, 2), chip.getMaxCoord());
+	}
+
+	/**
+	 * Adds a rectangular grid of fields to a chip.
+	 *
+	 * @param chip
+	 * 		the chip to add the fields to
+	 * @param minX
+	 * 		the smallest x coordinate
+	 * @param minY
+	 * 		the smallest y coordinate
+	 * @param maxX
+	 * 		the largest x coordinate
+	 * @param maxY
+	 * 		the largest y coordinate
+	 * @return the added fields, indexed by their offset to (minX, minY)
+	 */
+	private static BiochipField[][] addGrid(final Biochip chip,
+											final int minX,
+											final int minY,
+											final int maxX,
+											final int maxY) {
+		BiochipField[][] grid =
+				new BiochipField[maxX - minX + 1][maxY - minY + 1];
+		for (int x = minX; x <= maxX; x++) {
+			for (int y = minY; y <= maxY; y++) {
+				BiochipField f = new BiochipField(new Point(x, y), chip);
+				chip.addField(f);
+				grid[x - minX][y - minY] = f;
+			}
+		}
+		return grid;
+	}
+}
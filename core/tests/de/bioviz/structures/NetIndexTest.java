@@ -0,0 +1,215 @@
+/*
+ * BioViz, a visualization tool for digital microfluidic biochips (DMFB).
+ *
+ * Copyright (c) 2017 Oliver Keszocze, Jannis Stoppe, Maximilian Luenert
+ *
+ * This file is part of BioViz.
+ *
+ * BioViz is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * BioViz is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * See the GNU General Public License for more details. You should have
+ * received a copy of the GNU
+ * General Public License along with BioViz.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.bioviz.structures;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the lookup of the nets of droplets.
+ *
+ * @author agent
+ */
+public class NetIndexTest {
+
+	/**
+	 * A droplet ID just above the IDs that are stored in the array of the
+	 * index (which ends at 2^20).
+	 */
+	private static final int LARGE_ID = (1 << 20) + 1;
+
+	/**
+	 * Creates a net with the given droplets as sources.
+	 *
+	 * @param ids
+	 * 		the IDs of the source droplets
+	 * @return the net
+	 */
+	private static Net net(final int... ids) {
+		List<Source> sources = new ArrayList<>();
+		for (final int id : ids) {
+			sources.add(new Source(id, new Point(0, 0)));
+		}
+		return new Net(sources, new Rectangle(0, 0, 0, 0));
+	}
+
+	/**
+	 * Creates a chip with the given nets.
+	 *
+	 * @param nets
+	 * 		the nets of the chip
+	 * @return the chip
+	 */
+	private static Biochip chip(final Net... nets) {
+		Biochip chip = new Biochip();
+		chip.addNets(Arrays.asList(nets));
+		return chip;
+	}
+
+	/**
+	 * Without nets, no droplet belongs to any net.
+	 */
+	@Test
+	public void noNets() {
+		Droplet d = new Droplet(1);
+		Biochip chip = new Biochip();
+		assertNull(chip.getNetOf(d));
+		assertFalse(chip.sameNet(d, d));
+
+		chip.addNets(Collections.emptyList());
+		assertNull(chip.getNetOf(d));
+		assertFalse(chip.sameNet(d, d));
+	}
+
+	/**
+	 * Droplets of one net share it, droplets outside of it do not.
+	 */
+	@Test
+	public void singleNet() {
+		Net net = net(1, 2);
+		Biochip chip = chip(net);
+		Droplet d1 = new Droplet(1);
+		Droplet d2 = new Droplet(2);
+		Droplet d3 = new Droplet(3);
+
+		assertSame(net, chip.getNetOf(d1));
+		assertSame(net, chip.getNetOf(d2));
+		assertNull(chip.getNetOf(d3));
+		assertNull(chip.getNetOf(new Droplet(0)));
+
+		assertTrue(chip.sameNet(d1, d1));
+		assertTrue(chip.sameNet(d1, d2));
+		assertTrue(chip.sameNet(d2, d1));
+		assertFalse(chip.sameNet(d1, d3));
+		assertFalse(chip.sameNet(d3, d1));
+		assertFalse(chip.sameNet(d3, d3));
+	}
+
+	/**
+	 * IDs that do not fit into the array of the index are found as well.
+	 */
+	@Test
+	public void idsOutsideOfArray() {
+		Net a = net(LARGE_ID, -1);
+		Net b = net(Integer.MAX_VALUE, Integer.MIN_VALUE, 0);
+		Biochip chip = chip(a, b);
+
+		assertSame(a, chip.getNetOf(new Droplet(LARGE_ID)));
+		assertSame(a, chip.getNetOf(new Droplet(-1)));
+		assertSame(b, chip.getNetOf(new Droplet(Integer.MAX_VALUE)));
+		assertSame(b, chip.getNetOf(new Droplet(Integer.MIN_VALUE)));
+		assertSame(b, chip.getNetOf(new Droplet(0)));
+		assertNull(chip.getNetOf(new Droplet(LARGE_ID - 1)));
+		assertNull(chip.getNetOf(new Droplet(-2)));
+
+		assertTrue(chip.sameNet(new Droplet(-1), new Droplet(LARGE_ID)));
+		assertTrue(chip.sameNet(new Droplet(0),
+								new Droplet(Integer.MAX_VALUE)));
+		assertFalse(chip.sameNet(new Droplet(LARGE_ID), new Droplet(0)));
+	}
+
+	/**
+	 * Only IDs up to the largest ID of a source are stored in the array.
+	 */
+	@Test
+	public void arrayCoversSourceIDs() {
+		NetIndex index = new NetIndex(Arrays.asList(net(3), net(LARGE_ID)));
+		assertEquals(0, index.netIndexOf(3));
+		assertEquals(1, index.netIndexOf(LARGE_ID));
+		assertEquals(NetIndex.NO_NET, index.netIndexOf(2));
+		assertEquals(NetIndex.NO_NET, index.netIndexOf(4));
+		assertEquals(NetIndex.NO_NET, index.netIndexOf(-1));
+		assertEquals(NetIndex.NO_NET, new NetIndex().netIndexOf(0));
+	}
+
+	/**
+	 * A droplet listed in several nets belongs to the last of them, but is
+	 * still a member of the others.
+	 */
+	@Test
+	public void overlappingNets() {
+		Net a = net(1, 2, LARGE_ID);
+		Net b = net(3, 1, LARGE_ID);
+		Biochip chip = chip(a, b);
+		Droplet d1 = new Droplet(1);
+		Droplet d2 = new Droplet(2);
+		Droplet d3 = new Droplet(3);
+		Droplet large = new Droplet(LARGE_ID);
+
+		assertSame(b, chip.getNetOf(d1));
+		assertSame(a, chip.getNetOf(d2));
+		assertSame(b, chip.getNetOf(large));
+
+		// the net of d2 contains d1, the net of d1 does not contain d2
+		assertTrue(chip.sameNet(d2, d1));
+		assertFalse(chip.sameNet(d1, d2));
+		assertTrue(chip.sameNet(d2, large));
+		assertFalse(chip.sameNet(large, d2));
+
+		assertTrue(chip.sameNet(d1, d3));
+		assertTrue(chip.sameNet(d3, d1));
+		assertTrue(chip.sameNet(d1, large));
+	}
+
+	/**
+	 * A droplet listed twice in the same net is not ambiguous.
+	 */
+	@Test
+	public void duplicateSource() {
+		Net a = net(1, 1, 2);
+		Net b = net(3);
+		Biochip chip = chip(a, b);
+
+		assertSame(a, chip.getNetOf(new Droplet(1)));
+		assertTrue(chip.sameNet(new Droplet(1), new Droplet(2)));
+		assertFalse(chip.sameNet(new Droplet(1), new Droplet(3)));
+	}
+
+	/**
+	 * Nets added later are appended to the nets added before.
+	 */
+	@Test
+	public void addNetsTwice() {
+		Net a = net(1, 2);
+		Net b = net(2, 3);
+		Biochip chip = chip(a);
+		chip.addNets(Collections.singletonList(b));
+
+		assertSame(a, chip.getNetOf(new Droplet(1)));
+		assertSame(b, chip.getNetOf(new Droplet(2)));
+		assertSame(b, chip.getNetOf(new Droplet(3)));
+		assertTrue(chip.sameNet(new Droplet(1), new Droplet(2)));
+		assertFalse(chip.sameNet(new Droplet(2), new Droplet(1)));
+		assertFalse(chip.sameNet(new Droplet(1), new Droplet(3)));
+	}
+}
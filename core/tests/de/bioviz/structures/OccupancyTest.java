@@ -0,0 +1,222 @@
+/*
+ * BioViz, a visualization tool for digital microfluidic biochips (DMFB).
+ *
+ * Copyright (c) 2017 Oliver Keszocze, Jannis Stoppe, Maximilian Luenert
+ *
+ * This file is part of BioViz.
+ *
+ * BioViz is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * BioViz is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * See the GNU General Public License for more details. You should have
+ * received a copy of the GNU
+ * General Public License along with BioViz.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.bioviz.structures;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the precomputed field occupancy of a biochip and the cell usage
+ * derived from it.
+ *
+ * @author agent
+ */
+public class OccupancyTest {
+
+	/**
+	 * Creates a chip with a rectangular grid of fields.
+	 *
+	 * @param maxX
+	 * 		the largest x coordinate of the grid
+	 * @param maxY
+	 * 		the largest y coordinate of the grid
+	 * @return the chip
+	 */
+	private static Biochip grid(final int maxX, final int maxY) {
+		Biochip chip = new Biochip();
+		for (int x = 0; x <= maxX; x++) {
+			for (int y = 0; y <= maxY; y++) {
+				chip.addField(new BiochipField(new Point(x, y), chip));
+			}
+		}
+		return chip;
+	}
+
+	/**
+	 * A droplet occupies its cells only between spawning and the end of its
+	 * route.
+	 */
+	@Test
+	public void presenceFollowsRoute() {
+		Biochip chip = grid(3, 3);
+		Droplet drop = new Droplet(1, 2);
+		drop.addPosition(0, 0, 0, 0);
+		drop.addPosition(1, 0, 1, 0);
+		drop.addPosition(1, 1, 1, 1);
+		chip.addDroplet(drop);
+
+		assertFalse(chip.dropletOnPosition(0, 0, 1));
+		assertTrue(chip.dropletOnPosition(0, 0, 2));
+		assertFalse(chip.dropletOnPosition(1, 0, 2));
+		assertTrue(chip.dropletOnPosition(1, 0, 3));
+		assertFalse(chip.dropletOnPosition(0, 0, 3));
+		assertTrue(chip.dropletOnPosition(1, 1, 4));
+
+		// the droplet is gone after its last position
+		assertFalse(chip.dropletOnPosition(1, 1, 5));
+
+		// time steps outside of the simulation
+		assertFalse(chip.dropletOnPosition(0, 0, 0));
+		assertFalse(chip.dropletOnPosition(0, 0, -1));
+		assertFalse(chip.dropletOnPosition(0, 0, Integer.MIN_VALUE));
+		assertFalse(chip.dropletOnPosition(1, 1, Integer.MAX_VALUE));
+	}
+
+	/**
+	 * A droplet covering several cells occupies all of them.
+	 */
+	@Test
+	public void multiCellDroplet() {
+		Biochip chip = grid(4, 4);
+		Droplet drop = new Droplet(1, 1);
+		drop.addPosition(0, 0, 1, 1);
+		drop.addPosition(1, 0, 2, 1);
+		chip.addDroplet(drop);
+
+		for (int x = 0; x <= 1; x++) {
+			for (int y = 0; y <= 1; y++) {
+				assertTrue(x + "," + y, chip.dropletOnPosition(x, y, 1));
+			}
+		}
+		assertFalse(chip.dropletOnPosition(2, 0, 1));
+		assertFalse(chip.dropletOnPosition(0, 2, 1));
+
+		assertFalse(chip.dropletOnPosition(0, 0, 2));
+		assertTrue(chip.dropletOnPosition(2, 1, 2));
+		assertTrue(chip.dropletOnPosition(new Point(1, 1), 2));
+		assertFalse(chip.dropletOnPosition(3, 1, 2));
+	}
+
+	/**
+	 * Positions without a field are checked against the droplets directly.
+	 */
+	@Test
+	public void positionsWithoutField() {
+		Biochip chip = new Biochip();
+		chip.addField(new BiochipField(new Point(0, 0), chip));
+		chip.addField(new BiochipField(new Point(2, 0), chip));
+		Droplet drop = new Droplet(1, 1);
+		drop.addPosition(-1, 0, 0, 0);
+		drop.addPosition(0, 0, 1, 0);
+		drop.addPosition(1, 0, 2, 0);
+		chip.addDroplet(drop);
+
+		// outside of the bounding box of the fields
+		assertTrue(chip.dropletOnPosition(-1, 0, 1));
+		assertFalse(chip.dropletOnPosition(-1, 0, 2));
+		assertFalse(chip.dropletOnPosition(-2, 0, 1));
+
+		// the hole between the two fields
+		assertTrue(chip.dropletOnPosition(1, 0, 2));
+		assertTrue(chip.dropletOnPosition(1, 0, 3));
+		assertFalse(chip.dropletOnPosition(1, 0, 1));
+		assertFalse(chip.dropletOnPosition(1, 0, 4));
+
+		assertTrue(chip.dropletOnPosition(2, 0, 3));
+		assertFalse(chip.dropletOnPosition(2, 0, 2));
+	}
+
+	/**
+	 * Fields and droplets added after the occupancy has been computed are
+	 * taken into account.
+	 */
+	@Test
+	public void additionsAfterComputation() {
+		Biochip chip = grid(1, 0);
+		Droplet first = new Droplet(1, 1);
+		first.addPosition(0, 0, 0, 0);
+		first.addPosition(2, 0, 2, 0);
+		chip.addDroplet(first);
+
+		assertTrue(chip.dropletOnPosition(0, 0, 1));
+		assertTrue(chip.dropletOnPosition(2, 0, 2));
+
+		chip.addField(new BiochipField(new Point(2, 0), chip));
+		assertTrue(chip.dropletOnPosition(2, 0, 2));
+		assertFalse(chip.dropletOnPosition(2, 0, 1));
+
+		Droplet second = new Droplet(2, 3);
+		second.addPosition(1, 0, 1, 0);
+		chip.addDroplet(second);
+		assertTrue(chip.dropletOnPosition(1, 0, 3));
+		assertFalse(chip.dropletOnPosition(1, 0, 2));
+		assertTrue(chip.dropletOnPosition(0, 0, 1));
+	}
+
+	/**
+	 * The usage of a field counts the time steps in which it is covered,
+	 * no matter by how many droplets.
+	 */
+	@Test
+	public void usageCountsTimeSteps() {
+		Biochip chip = grid(2, 0);
+		Droplet a = new Droplet(1, 1);
+		a.addPosition(0, 0, 0, 0);
+		a.addPosition(1, 0, 1, 0);
+		a.addPosition(1, 0, 1, 0);
+		Droplet b = new Droplet(2, 2);
+		b.addPosition(0, 0, 1, 0);
+		b.addPosition(0, 0, 0, 0);
+		chip.addDroplet(a);
+		chip.addDroplet(b);
+
+		chip.computeCellUsage();
+		assertEquals(3, chip.getFieldAt(new Point(0, 0)).getUsage());
+		assertEquals(2, chip.getFieldAt(new Point(1, 0)).getUsage());
+		assertEquals(0, chip.getFieldAt(new Point(2, 0)).getUsage());
+		assertEquals(3, chip.getMaxUsage());
+	}
+
+	/**
+	 * Fields with an actuation vector or a mixer are not used just by being
+	 * covered by droplets.
+	 */
+	@Test
+	public void usageOfActuatedFields() {
+		Biochip chip = grid(2, 0);
+		Droplet drop = new Droplet(1, 1);
+		drop.addPosition(0, 0, 1, 0);
+		drop.addPosition(0, 0, 0, 0);
+		drop.addPosition(0, 0, 0, 0);
+		drop.addPosition(0, 0, 0, 0);
+		chip.addDroplet(drop);
+
+		BiochipField vector = chip.getFieldAt(new Point(0, 0));
+		vector.actVec = new ActuationVector("1010");
+
+		BiochipField mixed = chip.getFieldAt(new Point(1, 0));
+		Mixer mixer = new Mixer(1, new Rectangle(1, 0, 1, 0), new Range(3, 4));
+		mixed.mixers.add(mixer);
+		chip.mixers.add(mixer);
+
+		chip.computeCellUsage();
+		// covered in all four time steps but only actuated in two
+		assertEquals(2, vector.getUsage());
+		// covered in the first time step, mixing in the last two
+		assertEquals(3, mixed.getUsage());
+		assertEquals(0, chip.getFieldAt(new Point(2, 0)).getUsage());
+	}
+}
@@ -0,0 +1,246 @@
+/*
+ * BioViz, a visualization tool for digital microfluidic biochips (DMFB).
+ *
+ * Copyright (c) 2017 Oliver Keszocze, Jannis Stoppe, Maximilian Luenert
+ *
+ * This file is part of BioViz.
+ *
+ * BioViz is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * BioViz is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * See the GNU General Public License for more details. You should have
+ * received a copy of the GNU
+ * General Public License along with BioViz.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.bioviz.structures;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the coordinate based operations of {@link Rectangle} and
+ * {@link Point}, in particular that the int overloads agree with the ones
+ * taking points.
+ *
+ * @author agent
+ */
+public class RectangleTest {
+
+	/**
+	 * The corners may be given in any order and with negative coordinates.
+	 */
+	@Test
+	public void cornersAreNormalized() {
+		Rectangle r = new Rectangle(3, -1, -2, 4);
+		assertEquals(-2, r.minX);
+		assertEquals(-1, r.minY);
+		assertEquals(3, r.maxX);
+		assertEquals(4, r.maxY);
+		assertEquals(new Point(-2, -1), r.lowerLeft);
+		assertEquals(new Point(3, 4), r.upperRight);
+		assertEquals(new Point(-2, 4), r.upperLeft());
+		assertEquals(new Point(3, -1), r.lowerRight());
+		assertEquals(6, r.width());
+		assertEquals(6, r.height());
+		assertEquals(new Point(6, 6), r.size());
+		assertEquals(new Rectangle(-2, 4, 3, -1), r);
+		assertEquals(new Rectangle(new Point(3, 4), new Point(-2, -1)), r);
+		assertEquals(new Rectangle(r), r);
+	}
+
+	/**
+	 * A rectangle given by its upper left corner and a size extends to the
+	 * lower left.
+	 */
+	@Test
+	public void sizedRectangle() {
+		Rectangle r = new Rectangle(new Point(2, 2), 2, 3);
+		assertEquals(new Rectangle(1, 0, 2, 2), r);
+		assertEquals(2, r.width());
+		assertEquals(3, r.height());
+	}
+
+	/**
+	 * Only rectangles spanning a single cell are points.
+	 */
+	@Test
+	public void singleCells() {
+		Rectangle cell = new Rectangle(-1, -1, -1, -1);
+		assertTrue(cell.isPoint());
+		assertEquals(new Point(-1, -1), cell.getPoint());
+		assertEquals(1, cell.corners().size());
+
+		Rectangle row = new Rectangle(0, 0, 1, 0);
+		assertFalse(row.isPoint());
+		assertNull(row.getPoint());
+		assertEquals(4, row.corners().size());
+	}
+
+	/**
+	 * The border belongs to a rectangle, the cells next to it do not.
+	 */
+	@Test
+	public void containsIncludesBorder() {
+		Rectangle r = new Rectangle(-2, -1, 3, 4);
+		int[][] inside = {{-2, -1}, {3, 4}, {-2, 4}, {3, -1}, {0, 0}};
+		int[][] outside = {{-3, 0}, {4, 0}, {0, 5}, {0, -2}, {-3, -2}};
+		for (final int[] c : inside) {
+			assertTrue(r.contains(c[0], c[1]));
+			assertTrue(r.contains(new Point(c[0], c[1])));
+		}
+		for (final int[] c : outside) {
+			assertFalse(r.contains(c[0], c[1]));
+			assertFalse(r.contains(new Point(c[0], c[1])));
+		}
+	}
+
+	/**
+	 * Rectangles overlap if they share a cell, touching is not enough.
+	 */
+	@Test
+	public void overlapping() {
+		Rectangle r = new Rectangle(0, 0, 1, 1);
+		assertTrue(Rectangle.overlapping(r, r));
+		assertTrue(Rectangle.overlapping(r, new Rectangle(1, 1, 2, 2)));
+		assertTrue(Rectangle.overlapping(r, new Rectangle(1, 0, 1, 0)));
+		assertTrue(Rectangle.overlapping(r, new Rectangle(-5, -5, 5, 5)));
+		assertFalse(Rectangle.overlapping(r, new Rectangle(2, 0, 3, 1)));
+		assertFalse(Rectangle.overlapping(r, new Rectangle(0, 2, 1, 3)));
+		assertFalse(Rectangle.overlapping(r, new Rectangle(-2, -2, -1, -1)));
+	}
+
+	/**
+	 * Cells are adjacent to their eight neighbours, larger rectangles to
+	 * everything within one cell of them. A cell and a larger rectangle are
+	 * only adjacent if the rectangle contains the cell.
+	 */
+	@Test
+	public void adjacentRectangles() {
+		Rectangle cell = new Rectangle(0, 0, 0, 0);
+		assertTrue(Rectangle.adjacent(cell, new Rectangle(1, 1, 1, 1)));
+		assertTrue(Rectangle.adjacent(cell, new Rectangle(-1, 0, -1, 0)));
+		assertTrue(Rectangle.adjacent(cell, cell));
+		assertFalse(Rectangle.adjacent(cell, new Rectangle(2, 0, 2, 0)));
+
+		Rectangle big = new Rectangle(0, 0, 1, 1);
+		assertTrue(Rectangle.adjacent(big, new Rectangle(2, 2, 3, 3)));
+		assertTrue(Rectangle.adjacent(big, new Rectangle(-2, 0, -1, 1)));
+		assertFalse(Rectangle.adjacent(big, new Rectangle(3, 0, 4, 1)));
+		assertFalse(Rectangle.adjacent(big, new Rectangle(0, -3, 1, -2)));
+
+		assertTrue(Rectangle.adjacent(big, new Rectangle(1, 1, 1, 1)));
+		assertTrue(Rectangle.adjacent(new Rectangle(1, 0, 1, 0), big));
+		assertFalse(Rectangle.adjacent(big, new Rectangle(2, 0, 2, 0)));
+		assertFalse(Rectangle.adjacent(new Rectangle(2, 0, 2, 0), big));
+
+		assertFalse(Rectangle.adjacent(null, cell));
+		assertFalse(Rectangle.adjacent(cell, null));
+	}
+
+	/**
+	 * A rectangle reaches its own cells and the cells next to it, but not
+	 * the diagonal ones at its corners.
+	 */
+	@Test
+	public void reachableExcludesDiagonals() {
+		Rectangle r = new Rectangle(-1, -1, 0, 0);
+		int[][] reachable = {{-1, -1}, {0, 0}, {-2, -1}, {1, 0}, {0, 1},
+							 {-1, -2}};
+		int[][] unreachable = {{-2, -2}, {1, 1}, {-2, 1}, {1, -2}, {2, 0},
+							   {0, -3}};
+		for (final int[] c : reachable) {
+			Point p = new Point(c[0], c[1]);
+			assertTrue(p.toString(), r.reachable(c[0], c[1]));
+			assertTrue(p.toString(), r.reachable(p));
+			assertTrue(p.toString(), Rectangle.reachable(r, p));
+		}
+		for (final int[] c : unreachable) {
+			Point p = new Point(c[0], c[1]);
+			assertFalse(p.toString(), r.reachable(c[0], c[1]));
+			assertFalse(p.toString(), r.reachable(p));
+			assertFalse(p.toString(), Rectangle.reachable(r, p));
+		}
+	}
+
+	/**
+	 * A position is adjacent to a rectangle if it lies within the rectangle
+	 * extended by the given distance, including its corners.
+	 */
+	@Test
+	public void adjacentPositions() {
+		Rectangle r = new Rectangle(0, 0, 1, 0);
+		assertTrue(r.adjacent(-1, -1));
+		assertTrue(r.adjacent(new Point(2, 1)));
+		assertFalse(r.adjacent(3, 0));
+		assertFalse(r.adjacent(new Point(0, 2)));
+
+		assertTrue(r.adjacent(3, 2, 2));
+		assertTrue(r.adjacent(new Point(-2, -2), 2));
+		assertFalse(r.adjacent(4, 0, 2));
+		assertTrue(r.adjacent(1, 0, 0));
+		assertFalse(r.adjacent(new Point(2, 0), 0));
+	}
+
+	/**
+	 * The center is computed with integer arithmetic and therefore rounds
+	 * towards zero, also for negative coordinates.
+	 */
+	@Test
+	public void centerRoundsTowardsZero() {
+		assertEquals(new Point(1, 1), new Rectangle(0, 0, 3, 3).center());
+		assertEquals(new Point(-1, -1), new Rectangle(-3, -3, 0, 0).center());
+		assertEquals(new Point(2, -5), new Rectangle(2, -5, 2, -5).center());
+	}
+
+	/**
+	 * Extending a rectangle grows it in every direction.
+	 */
+	@Test
+	public void extend() {
+		Rectangle r = new Rectangle(0, 0, 1, 0);
+		assertEquals(new Rectangle(-1, -1, 2, 1), Rectangle.extend(r, 1));
+		assertEquals(r, Rectangle.extend(r, 0));
+		assertEquals(new Rectangle(-3, -3, 4, 3), Rectangle.extend(r, 3));
+	}
+
+	/**
+	 * Points reach themselves and their direct neighbours and are adjacent
+	 * to their diagonal neighbours as well.
+	 */
+	@Test
+	public void points() {
+		Point p = new Point(-1, 2);
+		for (final Point d : Point.DIRECTIONS) {
+			Point q = p.add(d);
+			assertTrue(Point.reachable(p, q));
+			assertTrue(Point.reachable(p.fst, p.snd, q.fst, q.snd));
+			assertTrue(Point.adjacent(p, q));
+			assertTrue(Point.adjacent(p.fst, p.snd, q.fst, q.snd));
+		}
+		assertTrue(Point.reachable(p, p));
+
+		Point diagonal = new Point(0, 3);
+		assertFalse(Point.reachable(p, diagonal));
+		assertFalse(Point.reachable(-1, 2, 0, 3));
+		assertTrue(Point.adjacent(p, diagonal));
+		assertTrue(Point.adjacent(-1, 2, 0, 3));
+
+		Point far = new Point(1, 2);
+		assertFalse(Point.reachable(p, far));
+		assertFalse(Point.adjacent(p, far));
+		assertFalse(Point.adjacent(-1, 2, 1, 2));
+		assertFalse(Point.adjacent(p, null));
+	}
+}
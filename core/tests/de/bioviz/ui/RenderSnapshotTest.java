@@ -0,0 +1,367 @@
+/*
+ * BioViz, a visualization tool for digital microfluidic biochips (DMFB).
+ *
+ * Copyright (c) 2017 Oliver Keszocze, Jannis Stoppe, Maximilian Luenert
+ *
+ * This file is part of BioViz.
+ *
+ * BioViz is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * BioViz is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * See the GNU General Public License for more details. You should have
+ * received a copy of the GNU
+ * General Public License along with BioViz.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.bioviz.ui;
+
+import de.bioviz.structures.Biochip;
+import de.bioviz.structures.BiochipField;
+import de.bioviz.structures.Droplet;
+import de.bioviz.structures.Net;
+import de.bioviz.structures.Point;
+import de.bioviz.structures.Rectangle;
+import de.bioviz.structures.Source;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the information collected by a {@link RenderSnapshot}.
+ *
+ * @author agent
+ */
+public class RenderSnapshotTest {
+
+	/**
+	 * Creates a chip with a rectangular grid of fields.
+	 *
+	 * @param minX
+	 * 		the smallest x coordinate of the grid
+	 * @param minY
+	 * 		the smallest y coordinate of the grid
+	 * @param maxX
+	 * 		the largest x coordinate of the grid
+	 * @param maxY
+	 * 		the largest y coordinate of the grid
+	 * @return the chip
+	 */
+	private static Biochip grid(final int minX, final int minY,
+								final int maxX, final int maxY) {
+		Biochip chip = new Biochip();
+		for (int x = minX; x <= maxX; x++) {
+			for (int y = minY; y <= maxY; y++) {
+				chip.addField(new BiochipField(new Point(x, y), chip));
+			}
+		}
+		return chip;
+	}
+
+	/**
+	 * Creates a droplet covering a single cell per time step.
+	 *
+	 * @param id
+	 * 		the ID of the droplet
+	 * @param spawn
+	 * 		the spawn time of the droplet
+	 * @param route
+	 * 		the x and y coordinates of the positions of the droplet
+	 * @return the droplet
+	 */
+	private static Droplet drop(final int id, final int spawn,
+								final int... route) {
+		Droplet d = new Droplet(id, spawn);
+		for (int i = 0; i < route.length; i += 2) {
+			d.addPosition(route[i], route[i + 1], route[i], route[i + 1]);
+		}
+		return d;
+	}
+
+	/**
+	 * Creates a net containing the given droplets.
+	 *
+	 * @param target
+	 * 		the target of the net
+	 * @param drops
+	 * 		the droplets of the net
+	 * @return the net
+	 */
+	private static Net net(final Point target, final Droplet... drops) {
+		List<Source> sources = new ArrayList<>();
+		for (final Droplet d : drops) {
+			sources.add(new Source(d.getID(), d.getFirstPosition(),
+								   d.getSpawnTime()));
+		}
+		return new Net(sources, new Rectangle(target, 1, 1));
+	}
+
+	/**
+	 * Creates display options with only the given options enabled.
+	 *
+	 * @param enabled
+	 * 		the options to enable
+	 * @return the display options
+	 */
+	private static DisplayOptions options(final BDisplayOptions... enabled) {
+		DisplayOptions options = new DisplayOptions();
+		for (final BDisplayOptions o : BDisplayOptions.values()) {
+			options.setOption(o, false);
+		}
+		for (final BDisplayOptions o : enabled) {
+			options.setOption(o, true);
+		}
+		return options;
+	}
+
+	/**
+	 * The interference regions of droplets from different nets overlap,
+	 * those of droplets from the same net do not.
+	 */
+	@Test
+	public void interferenceRegions() {
+		DisplayOptions options =
+				options(BDisplayOptions.InterferenceRegion);
+		for (final boolean shared : new boolean[]{false, true}) {
+			Biochip chip = grid(0, 0, 4, 2);
+			Droplet a = drop(1, 1, 1, 1);
+			Droplet b = drop(2, 1, 3, 1);
+			chip.addDroplet(a);
+			chip.addDroplet(b);
+			if (shared) {
+				chip.addNets(Arrays.asList(net(new Point(4, 2), a, b)));
+			} else {
+				chip.addNets(Arrays.asList(net(new Point(0, 2), a),
+										   net(new Point(4, 2), b)));
+			}
+
+			RenderSnapshot s = new RenderSnapshot(chip, 1, options);
+			for (int y = 0; y <= 2; y++) {
+				assertEquals(shared ? 0 : 1, s.interferenceOverlaps(2, y));
+				assertEquals(shared ? 2 : 1, s.interferenceRegions(2, y));
+			}
+			assertEquals(0, s.interferenceOverlaps(0, 1));
+			assertEquals(1, s.interferenceRegions(0, 1));
+			assertEquals(1, s.interferenceRegions(4, 0));
+
+			// the droplets are gone in the next time step
+			s = new RenderSnapshot(chip, 2, options);
+			assertEquals(0, s.interferenceRegions(2, 1));
+			assertEquals(0, s.interferenceOverlaps(2, 1));
+		}
+	}
+
+	/**
+	 * Droplets without any net interfere with all other droplets.
+	 */
+	@Test
+	public void interferenceWithoutNets() {
+		Biochip chip = grid(0, 0, 4, 2);
+		chip.addDroplet(drop(1, 1, 1, 1));
+		chip.addDroplet(drop(2, 1, 2, 1));
+		chip.addDroplet(drop(3, 1, 3, 1));
+
+		RenderSnapshot s = new RenderSnapshot(
+				chip, 1, options(BDisplayOptions.InterferenceRegion));
+		assertEquals(3, s.interferenceOverlaps(2, 1));
+		assertEquals(1, s.interferenceRegions(2, 1));
+		assertEquals(1, s.interferenceOverlaps(1, 0));
+		assertEquals(1, s.interferenceRegions(1, 0));
+		assertEquals(0, s.interferenceOverlaps(0, 0));
+		assertEquals(1, s.interferenceRegions(0, 0));
+	}
+
+	/**
+	 * Lingering interference regions include the region of the previous
+	 * time step without counting a droplet twice.
+	 */
+	@Test
+	public void lingeringInterferenceRegions() {
+		Biochip chip = grid(0, 0, 4, 2);
+		chip.addDroplet(drop(1, 1, 1, 1, 2, 1));
+
+		RenderSnapshot plain = new RenderSnapshot(
+				chip, 2, options(BDisplayOptions.InterferenceRegion));
+		RenderSnapshot lingering = new RenderSnapshot(
+				chip, 2, options(BDisplayOptions.InterferenceRegion,
+								 BDisplayOptions
+										 .LingeringInterferenceRegions));
+
+		assertEquals(0, plain.interferenceRegions(0, 1));
+		assertEquals(1, lingering.interferenceRegions(0, 1));
+		assertEquals(1, plain.interferenceRegions(2, 1));
+		assertEquals(1, lingering.interferenceRegions(2, 1));
+		assertEquals(0, lingering.interferenceOverlaps(2, 1));
+		assertEquals(1, lingering.interferenceRegions(3, 2));
+		assertEquals(0, lingering.interferenceRegions(4, 1));
+
+		// before spawning there is no previous region
+		lingering = new RenderSnapshot(
+				chip, 1, options(BDisplayOptions.InterferenceRegion,
+								 BDisplayOptions
+										 .LingeringInterferenceRegions));
+		assertEquals(1, lingering.interferenceRegions(0, 1));
+		assertEquals(0, lingering.interferenceRegions(3, 1));
+	}
+
+	/**
+	 * A droplet can reach the cells next to it, but not diagonally.
+	 */
+	@Test
+	public void reachableCells() {
+		Biochip chip = grid(0, 0, 3, 3);
+		Droplet d = new Droplet(1, 1);
+		d.addPosition(1, 1, 2, 2);
+		chip.addDroplet(d);
+
+		RenderSnapshot s = new RenderSnapshot(
+				chip, 1, options(BDisplayOptions.MovementNeighbourhood));
+		for (int x = 0; x <= 3; x++) {
+			for (int y = 0; y <= 3; y++) {
+				boolean corner = (x == 0 || x == 3) && (y == 0 || y == 3);
+				assertEquals(x + "," + y, !corner, s.isReachable(x, y));
+			}
+		}
+		assertFalse(new RenderSnapshot(
+				chip, 2, options(BDisplayOptions.MovementNeighbourhood))
+							.isReachable(1, 1));
+	}
+
+	/**
+	 * Chips with negative coordinates are supported and lookups outside of
+	 * the chip find nothing.
+	 */
+	@Test
+	public void negativeCoordinates() {
+		Biochip chip = grid(-2, -2, 0, 0);
+		Droplet d = drop(1, 1, -2, -2);
+		chip.addDroplet(d);
+		chip.addNets(Arrays.asList(net(new Point(-1, -1), d)));
+
+		RenderSnapshot s = new RenderSnapshot(
+				chip, 1, options(BDisplayOptions.InterferenceRegion,
+								 BDisplayOptions.MovementNeighbourhood,
+								 BDisplayOptions.NetColorOnFields));
+		assertTrue(s.isReachable(-1, -2));
+		assertTrue(s.isReachable(-2, -1));
+		assertFalse(s.isReachable(-1, -1));
+		assertEquals(1, s.interferenceRegions(-1, -1));
+		assertEquals(0, s.interferenceRegions(0, 0));
+		assertEquals(1, s.netsAt(-1, -1).size());
+		assertEquals(0, s.netsAt(0, 0).size());
+
+		int[][] outside = {{-3, -2}, {-2, -3}, {1, 0}, {0, 1},
+						   {Integer.MIN_VALUE, 0}, {0, Integer.MAX_VALUE}};
+		for (final int[] p : outside) {
+			assertFalse(s.isReachable(p[0], p[1]));
+			assertFalse(s.isViolated(p[0], p[1]));
+			assertEquals(0, s.interferenceRegions(p[0], p[1]));
+			assertEquals(0, s.interferenceOverlaps(p[0], p[1]));
+			assertTrue(s.netsAt(p[0], p[1]).isEmpty());
+		}
+	}
+
+	/**
+	 * A cell belongs to every net whose bounding box contains it.
+	 */
+	@Test
+	public void overlappingNets() {
+		Biochip chip = grid(0, 0, 3, 2);
+		Droplet a = drop(1, 1, 0, 0);
+		Droplet b = drop(2, 1, 1, 1);
+		chip.addDroplet(a);
+		chip.addDroplet(b);
+		Net first = net(new Point(2, 1), a);
+		Net second = net(new Point(3, 2), b);
+		chip.addNets(Arrays.asList(first, second));
+
+		RenderSnapshot s = new RenderSnapshot(
+				chip, 1, options(BDisplayOptions.NetColorOnFields));
+		Set<Net> both = new HashSet<>(Arrays.asList(first, second));
+		assertEquals(both, new HashSet<>(s.netsAt(1, 1)));
+		assertEquals(both, new HashSet<>(s.netsAt(2, 1)));
+		assertEquals(Arrays.asList(first), s.netsAt(0, 1));
+		assertEquals(Arrays.asList(second), s.netsAt(3, 2));
+		assertTrue(s.netsAt(0, 2).isEmpty());
+		assertTrue(s.netsAt(3, 0).isEmpty());
+
+		for (final BiochipField f : chip.getAllFields()) {
+			assertEquals(f.pos.toString(),
+						 new HashSet<>(s.netsAt(f.x(), f.y())),
+						 chip.getNetsOf(f));
+		}
+	}
+
+	/**
+	 * The fields of adjacent droplets from different nets are marked as
+	 * violated.
+	 */
+	@Test
+	public void violations() {
+		Biochip chip = grid(0, 0, 4, 2);
+		chip.addDroplet(drop(1, 1, 1, 1, 1, 1));
+		chip.addDroplet(drop(2, 1, 2, 1, 2, 1));
+
+		RenderSnapshot s = new RenderSnapshot(
+				chip, 1, options(BDisplayOptions.Adjacency));
+		assertTrue(s.isViolated(1, 1));
+		assertTrue(s.isViolated(2, 1));
+		assertFalse(s.isViolated(0, 1));
+		assertFalse(s.isViolated(4, 2));
+	}
+
+	/**
+	 * Droplets of the same net may be adjacent.
+	 */
+	@Test
+	public void noViolationsWithinNet() {
+		Biochip chip = grid(0, 0, 4, 2);
+		Droplet a = drop(1, 1, 1, 1, 1, 1);
+		Droplet b = drop(2, 1, 2, 1, 2, 1);
+		chip.addDroplet(a);
+		chip.addDroplet(b);
+		chip.addNets(Arrays.asList(net(new Point(4, 2), a, b)));
+
+		RenderSnapshot s = new RenderSnapshot(
+				chip, 1, options(BDisplayOptions.Adjacency));
+		assertFalse(s.isViolated(1, 1));
+		assertFalse(s.isViolated(2, 1));
+	}
+
+	/**
+	 * A snapshot does not compute what the display options do not ask for.
+	 */
+	@Test
+	public void disabledOptions() {
+		Biochip chip = grid(0, 0, 4, 2);
+		Droplet a = drop(1, 1, 1, 1, 1, 1);
+		chip.addDroplet(a);
+		chip.addDroplet(drop(2, 1, 2, 1, 2, 1));
+		chip.addNets(Arrays.asList(net(new Point(4, 2), a)));
+
+		RenderSnapshot s = new RenderSnapshot(chip, 1, options());
+		for (final BiochipField f : chip.getAllFields()) {
+			int x = f.x();
+			int y = f.y();
+			assertEquals(0, s.interferenceOverlaps(x, y));
+			assertEquals(0, s.interferenceRegions(x, y));
+			assertFalse(s.isReachable(x, y));
+			assertFalse(s.isViolated(x, y));
+			assertTrue(s.netsAt(x, y).isEmpty());
+		}
+	}
+}
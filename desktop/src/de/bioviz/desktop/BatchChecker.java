@@ -0,0 +1,426 @@
+/*
+ * BioViz, a visualization tool for digital microfluidic biochips (DMFB).
+ *
+ * Copyright (c) 2017 Oliver Keszocze, Jannis Stoppe, Maximilian Luenert
+ *
+ * This file is part of BioViz.
+ *
+ * BioViz is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * BioViz is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * See the GNU General Public License for more details. You should have
+ * received a copy of the GNU
+ * General Public License along with BioViz.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.bioviz.desktop;
+
+import de.bioviz.parser.BioParser;
+import de.bioviz.parser.ParseTimings;
+import de.bioviz.structures.Biochip;
+import de.bioviz.util.ValidationPool;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Checks a batch of BioGram files without starting the GUI.
+ * <p>
+ * The files are parsed and validated concurrently on the
+ * {@link ValidationPool}. Afterwards a machine readable report containing
+ * the number of errors and the timings of every file is written. Nothing in
+ * here touches libGDX, so this can be run on machines without any graphics
+ * support.
+ *
+ * @author agent
+ */
+final class BatchChecker {
+
+	/**
+	 * The formats the report can be written in.
+	 */
+	enum ReportFormat {
+		/**
+		 * A JSON object containing one entry per file.
+		 */
+		JSON,
+		/**
+		 * A CSV table containing one row per file.
+		 */
+		CSV
+	}
+
+	/**
+	 * The file extension of BioGram files.
+	 */
+	private static final String BIO_EXTENSION = ".bio";
+
+	/**
+	 * Conversion factor from nanoseconds to milliseconds.
+	 */
+	private static final double NANOS_PER_MILLI = 1e6;
+
+	/**
+	 * The result of checking a single file.
+	 */
+	static final class Result {
+
+		/**
+		 * The file that was checked.
+		 */
+		final File file;
+
+		/**
+		 * Whether the file could not be parsed at all.
+		 */
+		final boolean failed;
+
+		/**
+		 * Number of syntax errors in the file.
+		 */
+		final int hardErrors;
+
+		/**
+		 * Number of errors found during validation.
+		 */
+		final int errors;
+
+		/**
+		 * Time spent parsing the file in nanoseconds.
+		 */
+		final long parseNanos;
+
+		/**
+		 * Time spent validating the file in nanoseconds.
+		 */
+		final long validationNanos;
+
+		/**
+		 * Why the check of the file failed, null if it did not.
+		 */
+		final String message;
+
+		/**
+		 * Creates the result of checking a file.
+		 *
+		 * @param file
+		 * 		the file that was checked
+		 * @param chip
+		 * 		the parsed chip, null if the file was not parsable
+		 * @param timings
+		 * 		the timings of the parse
+		 */
+		Result(final File file, final Biochip chip,
+			   final ParseTimings timings) {
+			this.file = file;
+			this.failed = chip == null;
+			this.hardErrors = failed ? 0 : chip.hardErrors.size();
+			this.errors = failed ? 0 : chip.errors.size();
+			this.parseNanos = timings.getParseNanos();
+			this.validationNanos = timings.getValidationNanos();
+			this.message = failed ? "file could not be parsed" : null;
+		}
+
+		/**
+		 * Creates the result of a check that was aborted by an exception.
+		 *
+		 * @param file
+		 * 		the file that was checked
+		 * @param e
+		 * 		the exception that aborted the check
+		 */
+		Result(final File file, final RuntimeException e) {
+			this.file = file;
+			this.failed = true;
+			this.hardErrors = 0;
+			this.errors = 0;
+			this.parseNanos = 0;
+			this.validationNanos = 0;
+			this.message = e.toString();
+		}
+
+		/**
+		 * Returns whether the file passed all checks.
+		 *
+		 * @return true if the file was parsed without any errors
+		 */
+		boolean isOk() {
+			return !failed && hardErrors == 0 && errors == 0;
+		}
+
+		/**
+		 * Returns the status of the check as a single word.
+		 *
+		 * @return "failed", "errors" or "ok"
+		 */
+		String status() {
+			if (failed) {
+				return "failed";
+			}
+			return isOk() ? "ok" : "errors";
+		}
+	}
+
+	/**
+	 * Prevent instantiation of this class.
+	 */
+	private BatchChecker() {
+	}
+
+	/**
+	 * Collects all BioGram files that are to be checked.
+	 * <p>
+	 * Plain files are taken as is, directories are searched recursively for
+	 * files with the .bio extension.
+	 *
+	 * @param paths
+	 * 		the files and directories given on the command line
+	 * @return the files to check in a deterministic order
+	 * @throws IOException
+	 * 		if a directory could not be traversed
+	 */
+	static List<File> collectFiles(final List<File> paths) throws IOException {
+		List<File> files = new ArrayList<>();
+		for (final File path : paths) {
+			if (path.isDirectory()) {
+				try (Stream<Path> walk = Files.walk(path.toPath())) {
+					files.addAll(
+							walk.filter(Files::isRegularFile).
+									filter(p -> p.toString().endsWith(
+											BIO_EXTENSION)).
+									sorted().
+									map(Path::toFile).
+									collect(Collectors.toList()));
+				}
+			} else {
+				files.add(path);
+			}
+		}
+		return files;
+	}
+
+	/**
+	 * Parses and validates the given files concurrently.
+	 * <p>
+	 * The files are processed on the {@link ValidationPool}, and so is the
+	 * validation of each file. The number of threads used in total thus is
+	 * the parallelism of that pool instead of the number of files checked
+	 * concurrently times the number of validation threads.
+	 *
+	 * @param files
+	 * 		the files to check
+	 * @return the results in the order of the files
+	 */
+	static List<Result> check(final List<File> files) {
+		return ValidationPool.call(() -> files.parallelStream().
+				map(BatchChecker::checkFile).
+				collect(Collectors.toList()));
+	}
+
+	/**
+	 * Parses and validates a single file.
+	 *
+	 * @param f
+	 * 		the file to check
+	 * @return the result of the check
+	 */
+	private static Result checkFile(final File f) {
+		ParseTimings timings = new ParseTimings();
+		try {
+			Biochip chip = BioParser.parseFile(f, timings);
+			return new Result(f, chip, timings);
+		} catch (final RuntimeException e) {
+			// errors like running out of memory are not caught and abort the
+			// whole batch instead of being reported as a failed file
+			return new Result(f, e);
+		}
+	}
+
+	/**
+	 * Checks the given files and writes a report.
+	 *
+	 * @param paths
+	 * 		the files and directories to check
+	 * @param format
+	 * 		the format of the report
+	 * @param report
+	 * 		the file to write the report to, null for STDOUT
+	 * @return true iff all files passed the checks
+	 * @throws IOException
+	 * 		if the files could not be collected or the report not be written
+	 */
+	static boolean run(final List<File> paths, final ReportFormat format,
+					   final File report) throws IOException {
+		long start = System.nanoTime();
+		List<Result> results = check(collectFiles(paths));
+		long total = System.nanoTime() - start;
+
+		try (PrintWriter out = openReport(report)) {
+			if (format == ReportFormat.CSV) {
+				writeCSV(out, results);
+			} else {
+				writeJSON(out, results, total);
+			}
+		}
+		return results.stream().allMatch(Result::isOk);
+	}
+
+	/**
+	 * Opens the writer the report is written to.
+	 *
+	 * @param report
+	 * 		the file to write to, null for STDOUT
+	 * @return writer for the report
+	 * @throws IOException
+	 * 		if the report file could not be created
+	 */
+	private static PrintWriter openReport(final File report)
+			throws IOException {
+		if (report == null) {
+			return new PrintWriter(new OutputStreamWriter(
+					System.out, StandardCharsets.UTF_8)) {
+				@Override
+				public void close() {
+					// never close STDOUT
+					flush();
+				}
+			};
+		}
+		return new PrintWriter(Files.newBufferedWriter(
+				report.toPath(), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Writes the results as JSON.
+	 *
+	 * @param out
+	 * 		the writer to write to
+	 * @param results
+	 * 		the results to write
+	 * @param totalNanos
+	 * 		the time the whole batch took in nanoseconds
+	 */
+	static void writeJSON(final PrintWriter out, final List<Result> results,
+						  final long totalNanos) {
+		out.println("{");
+		out.println("  \"files\": [");
+		for (int i = 0; i < results.size(); i++) {
+			Result r = results.get(i);
+			out.print("    {");
+			out.print("\"file\": " + jsonString(r.file.getPath()));
+			out.print(", \"status\": \"" + r.status() + "\"");
+			out.print(", \"hardErrors\": " + r.hardErrors);
+			out.print(", \"errors\": " + r.errors);
+			out.print(", \"parseMillis\": " + millis(r.parseNanos));
+			out.print(", \"validationMillis\": " +
+					  millis(r.validationNanos));
+			if (r.message != null) {
+				out.print(", \"message\": " + jsonString(r.message));
+			}
+			out.println(i < results.size() - 1 ? "}," : "}");
+		}
+		out.println("  ],");
+		out.println("  \"filesWithErrors\": " +
+					results.stream().filter(r -> !r.isOk()).count() + ",");
+		out.println("  \"totalMillis\": " + millis(totalNanos));
+		out.println("}");
+	}
+
+	/**
+	 * Writes the results as CSV.
+	 *
+	 * @param out
+	 * 		the writer to write to
+	 * @param results
+	 * 		the results to write
+	 */
+	static void writeCSV(final PrintWriter out, final List<Result> results) {
+		out.println("file,status,hard_errors,errors,parse_ms,validation_ms," +
+					"message");
+		for (final Result r : results) {
+			out.println(csvString(r.file.getPath()) + "," +
+						r.status() + "," +
+						r.hardErrors + "," +
+						r.errors + "," +
+						millis(r.parseNanos) + "," +
+						millis(r.validationNanos) + "," +
+						(r.message == null ? "" : csvString(r.message)));
+		}
+	}
+
+	/**
+	 * Formats a duration in milliseconds.
+	 *
+	 * @param nanos
+	 * 		the duration in nanoseconds
+	 * @return the duration in milliseconds with three decimal places
+	 */
+	private static String millis(final long nanos) {
+		return String.format(Locale.ROOT, "%.3f", nanos / NANOS_PER_MILLI);
+	}
+
+	/**
+	 * Quotes a string for use in JSON.
+	 *
+	 * @param s
+	 * 		the string to quote
+	 * @return the quoted and escaped string
+	 */
+	private static String jsonString(final String s) {
+		StringBuilder sb = new StringBuilder("\"");
+		for (final char c : s.toCharArray()) {
+			switch (c) {
+				case '"':
+					sb.append("\\\"");
+					break;
+				case '\\':
+					sb.append("\\\\");
+					break;
+				case '\n':
+					sb.append("\\n");
+					break;
+				case '\r':
+					sb.append("\\r");
+					break;
+				case '\t':
+					sb.append("\\t");
+					break;
+				default:
+					if (Character.isISOControl(c)) {
+						sb.append(String.format("\\u%04x", (int) c));
+					} else {
+						sb.append(c);
+					}
+			}
+		}
+		return sb.append('"').toString();
+	}
+
+	/**
+	 * Quotes a string for use in CSV.
+	 *
+	 * @param s
+	 * 		the string to quote
+	 * @return the quoted string
+	 */
+	private static String csvString(final String s) {
+		return "\"" + s.replace("\"", "\"\"") + "\"";
+	}
+}
@@ -36,6 +36,7 @@ import de.bioviz.ui.BDisplayOptions;
 import de.bioviz.ui.BioViz;
 import de.bioviz.ui.BioVizEvent;
 import de.bioviz.util.BioVizInfo;
+import de.bioviz.util.ValidationPool;
 import org.kohsuke.args4j.CmdLineException;
 import org.kohsuke.args4j.CmdLineParser;
 import org.slf4j.Logger;
@@ -67,6 +68,7 @@ import java.awt.FlowLayout;
 import java.awt.GridLayout;
 import java.awt.KeyEventDispatcher;
 import java.awt.KeyboardFocusManager;
+import java.awt.event.ItemListener;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
@@ -795,6 +797,22 @@ public class DesktopLauncher extends JFrame {
 			}
 		}
 
+		if (opts.threads > 0) {
+			ValidationPool.setParallelism(opts.threads);
+		}
+
+		BioViz.setOnDemandRendering(!opts.continuous);
+
+		if (opts.batch) {
+			if (opts.batchFiles.isEmpty()) {
+				System.err.println("No files given to check.");
+				System.err.println("\nusage:");
+				parser.printUsage(System.err);
+				System.exit(1);
+			}
+			startBatchChecker(opts);
+		}
+
 		if (opts.check != null) {
 			startErrorChecker(opts.check);
 		}
@@ -804,19 +822,9 @@ public class DesktopLauncher extends JFrame {
 	}
 
 	/**
-	 * Checks a BioGram file for errors and prints them to STDOUT.
-	 *
-	 * @param f
-	 * 		The file to check.
+	 * Resets the logger so that no unnecessary messages are printed.
 	 */
-	static void startErrorChecker(final File f) {
-
-
-		//#########################
-		// The following stuff resets the logger so that no unnecessary
-		// messages
-		// are printed
-
+	private static void resetLogger() {
 		// assume SLF4J is bound to logback in the current environment
 		LoggerContext context =
 				(LoggerContext) LoggerFactory.getILoggerFactory();
@@ -829,9 +837,40 @@ public class DesktopLauncher extends JFrame {
 		// configuration. For multi-step configuration, omit calling context
 		// .reset().
 		context.reset();
+	}
+
+	/**
+	 * Checks all files given on the command line and exits.
+	 * <p>
+	 * The GUI is never started in this mode. The exit code is 0 if all files
+	 * passed the checks, 1 if errors were found and 2 if the check itself
+	 * failed.
+	 *
+	 * @param opts
+	 * 		the command line options
+	 */
+	static void startBatchChecker(final Options opts) {
+		resetLogger();
+
+		try {
+			boolean ok = BatchChecker.run(opts.batchFiles, opts.reportFormat,
+										  opts.report);
+			System.exit(ok ? 0 : 1);
+		} catch (final IOException e) {
+			System.err.println("Batch check failed: " + e.getMessage());
+		}
+		System.exit(2);
+	}
 
-		//#########################
+	/**
+	 * Checks a BioGram file for errors and prints them to STDOUT.
+	 *
+	 * @param f
+	 * 		The file to check.
+	 */
+	static void startErrorChecker(final File f) {
 
+		resetLogger();
 
 		Biochip chip = BioParser.parseFile(f);
 		if (!chip.errors.isEmpty()) {
@@ -936,11 +975,35 @@ public class DesktopLauncher extends JFrame {
 			exportInfoString.setSelected(false);
 			JCheckBox exportSeries = new JCheckBox("Export series");
 			exportSeries.setSelected(false);
+			JCheckBox deltaSeries =
+					new JCheckBox("Only export changes of series");
+			deltaSeries.setSelected(false);
+			JCheckBox exportAnimation = new JCheckBox("Export animation");
+			exportAnimation.setSelected(false);
+			JCheckBox compactDefinitions =
+					new JCheckBox("Only export used definitions");
+			compactDefinitions.setSelected(true);
+
+			// a series and an animation exclude each other, only a series can
+			// be delta encoded and an animation always uses compact
+			// definitions
+			ItemListener exclusions = e -> {
+				exportAnimation.setEnabled(!exportSeries.isSelected());
+				exportSeries.setEnabled(!exportAnimation.isSelected());
+				deltaSeries.setEnabled(exportSeries.isSelected());
+				compactDefinitions.setEnabled(!exportAnimation.isSelected());
+			};
+			exportSeries.addItemListener(exclusions);
+			exportAnimation.addItemListener(exclusions);
+			exclusions.itemStateChanged(null);
 
 			JPanel checkBoxes = new JPanel(new GridLayout(0, 1));
 			checkBoxes.add(exportColors);
 			checkBoxes.add(exportInfoString);
 			checkBoxes.add(exportSeries);
+			checkBoxes.add(deltaSeries);
+			checkBoxes.add(exportAnimation);
+			checkBoxes.add(compactDefinitions);
 
 			accessory.add(checkBoxes);
 
@@ -950,8 +1013,13 @@ public class DesktopLauncher extends JFrame {
 
 			svgExportSettings.setColorfulExport(exportColors.isSelected());
 			svgExportSettings.setExportSeries(exportSeries.isSelected());
+			svgExportSettings.setDeltaSeries(
+					exportSeries.isSelected() && deltaSeries.isSelected());
+			svgExportSettings.setAnimatedExport(exportAnimation.isSelected());
 			svgExportSettings.setInformationString(
 					exportInfoString.isSelected());
+			svgExportSettings.setCompactDefinitions(
+					compactDefinitions.isSelected());
 		}
 
 		if (choice == JFileChooser.APPROVE_OPTION) {
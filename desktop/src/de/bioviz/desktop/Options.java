@@ -22,9 +22,12 @@
 
 package de.bioviz.desktop;
 
+import org.kohsuke.args4j.Argument;
 import org.kohsuke.args4j.Option;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Contains all options that can be accessed via the command line.
@@ -68,4 +71,55 @@ public class Options {
 			= "files")
 	public File file;
 
+	/**
+	 * This option sets the number of threads used for validating files.
+	 * Batch checks share these threads between all files. A value of zero
+	 * keeps the default, i.e. one thread per processor.
+	 */
+	@Option(name = "-j", aliases = "--threads",
+			usage = "number of threads used for validation and batch checks",
+			metaVar = "n")
+	public int threads = 0;
+
+	/**
+	 * This option disables the on-demand rendering, i.e. the visualization is
+	 * redrawn continuously even if nothing changes.
+	 */
+	@Option(name = "--continuous",
+			usage = "redraw the visualization continuously instead of only " +
+					"when it changes")
+	public boolean continuous = false;
+
+	/**
+	 * This option selects if the files passed as arguments should be checked
+	 * without starting the GUI.
+	 */
+	@Option(name = "-b", aliases = "--batch",
+			usage = "check the given files and directories without GUI")
+	public boolean batch = false;
+
+	/**
+	 * This option allows to pass a file the batch report is written to. If
+	 * it is not set, the report is printed to STDOUT.
+	 */
+	@Option(name = "-r", aliases = "--report",
+			usage = "write the batch report to this file",
+			metaVar = "file")
+	public File report;
+
+	/**
+	 * This option selects the format of the batch report.
+	 */
+	@Option(name = "--format", usage = "format of the batch report",
+			metaVar = "json|csv")
+	public BatchChecker.ReportFormat reportFormat =
+			BatchChecker.ReportFormat.JSON;
+
+	/**
+	 * The files and directories that are checked in batch mode.
+	 */
+	@Argument(metaVar = "files", usage = "files or directories to check in " +
+										  "batch mode")
+	public List<File> batchFiles = new ArrayList<>();
+
 }